@@ -0,0 +1,164 @@
+package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
+
+import java.util.*;
+import java.util.List;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * BenchmarkInputs - synthetic images and fixed stage settings shared by the JMH benchmarks.
+ *
+ *   Synthetic BGR images are drawn from a fixed random seed, so every run benchmarks the same
+ *   pixels. Each benchmarked stage is given fixed settings, and its input is made once, in the
+ *   @Setup of the benchmark, by the stages before it. Stages borrow their output images from
+ *   MatPool.shared, as they do in a ChainRunner, and the outputs are handed back at once.
+ */
+public class BenchmarkInputs {
+
+    public static final long SEED       = 465;   // seed of the synthetic images
+    public static final int  NUM_SHAPES = 60;    // circles and rectangles drawn per image
+
+    private static boolean loaded = false;
+
+    /**
+     * loadOpenCV - load the native OpenCV library once per JVM; from java.library.path if it
+     *              is installed there, else from the library bundled in the OpenCV jar
+     */
+    public static synchronized void loadOpenCV() {
+        if (loaded) {
+            return;
+        }
+        try {
+            System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+        } catch (UnsatisfiedLinkError e) {
+            nu.pattern.OpenCV.loadLocally();
+        }
+        loaded = true;
+    }
+
+    /**
+     * newStage - stage with fixed settings, borrowing its output images from MatPool.shared
+     * @param linkName - class name of Link Gui
+     * @param settings - key,value pairs of link file settings
+     * @return LinkStage
+     */
+    public static LinkStage newStage(String linkName, String... settings) {
+        Map<String, String> linkMap = new HashMap<>();
+        for (int i = 0; i + 1 < settings.length; i += 2) {
+            linkMap.put(settings[i], settings[i + 1]);
+        }
+        LinkStage stage = LinkStage.newStage(linkName);
+        stage.setSettings(linkMap);
+        stage.outputPool = MatPool.shared;
+        return stage;
+    }
+
+    /**
+     * hsvMask - InRangeHSV stage making the binary mask the contour benchmarks start from
+     * @return LinkStage
+     */
+    public static LinkStage hsvMask() {
+        return newStage("LinkInRangeHSV",
+            "HUE_MIN", "20", "HUE_MAX", "100", "SAT_MIN", "80", "SAT_MAX", "255",
+            "VAL_MIN", "80", "VAL_MAX", "255", "IMAGE_TYPE", "Binary");
+    }
+
+    /**
+     * findContours - FindContours stage making the contours of the hsvMask
+     * @return LinkStage
+     */
+    public static LinkStage findContours() {
+        return newStage("LinkFindContours",
+            "MODE", "External", "METHOD", "Chain_Approx_None");
+    }
+
+    /**
+     * image - synthetic image of a resolution parameter
+     * @param resolution - width x height, e.g. "640x480"
+     * @return LinkData - image
+     */
+    public static LinkData image(String resolution) {
+        String[] chunks = resolution.split("x");
+        return LinkData.fromMat(LinkData.IMG,
+            syntheticImage(Integer.parseInt(chunks[0]), Integer.parseInt(chunks[1])));
+    }
+
+    /**
+     * syntheticImage - BGR image of random filled circles and rectangles on a dark background
+     * @param cols - width of image
+     * @param rows - height of image
+     * @return Mat - CV_8UC3 image, the same for the same size
+     */
+    public static Mat syntheticImage(int cols, int rows) {
+        Random random = new Random(SEED);
+        Mat image = new Mat(rows, cols, CvType.CV_8UC3, new Scalar(30, 30, 30));
+        int scale = Math.max(4, Math.min(cols, rows) / 12);
+        for (int i = 0; i < NUM_SHAPES; i++) {
+            Scalar color = new Scalar(random.nextInt(256), random.nextInt(256), random.nextInt(256));
+            Point center = new Point(random.nextInt(cols), random.nextInt(rows));
+            int size = 2 + random.nextInt(scale);
+            if (random.nextBoolean()) {
+                Imgproc.circle(image, center, size, color, -1);
+            } else {
+                Imgproc.rectangle(image, center, new Point(center.x + size, center.y + size * 0.6), color, -1);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * fresh - input as the stage would get it from the Link Gui before it
+     * @param input - input of stage
+     * @return LinkData - contours without features calculated, so each op pays for the
+     *                    features it reads; else input itself
+     */
+    public static LinkData fresh(LinkData input) {
+        if (input.contours != null) {
+            return LinkData.fromContours(input.size, input.contours);
+        }
+        return input;
+    }
+
+    /**
+     * release - hand a stage output back to the MatPool, or free its native memory at once
+     *           rather than at the whim of the garbage collector; Mats passed on from the
+     *           input are kept
+     * @param data  - output of stage
+     * @param input - input of stage
+     */
+    public static void release(LinkData data, LinkData input) {
+        if ((data.mat != null) && (data.mat != input.mat)) {
+            MatPool.shared.release(data.mat);
+        }
+        if (data.contours != null) {
+            Set<MatOfPoint> kept = Collections.newSetFromMap(new IdentityHashMap<MatOfPoint, Boolean>());
+            if (input.contours != null) {
+                kept.addAll(input.contours);
+            }
+            for (MatOfPoint contour : data.contours) {
+                if (!kept.contains(contour)) {
+                    contour.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * releaseInput - free the Mats of a benchmark input at the end of a trial
+     * @param data - input of stage
+     */
+    public static void releaseInput(LinkData data) {
+        MatPool.shared.release(data.mat);
+        if (data.contours != null) {
+            for (MatOfPoint contour : data.contours) {
+                contour.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
+
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Point;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * ContourStageBenchmark - JMH benchmarks of the stages that take contours or points.
+ *
+ *   The contours are those FindContours finds in the InRangeHSV mask of a synthetic image.
+ *   They are handed to every op afresh, without the ContourFeatures of the op before,
+ *   so each op pays for the features it reads, as the first contour Link Gui of a chain does.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class ContourStageBenchmark {
+
+    @Param({"320x240", "640x480", "1280x960"})
+    public String resolution;
+
+    LinkData contours;      // contours of the mask of a synthetic image
+    LinkData pair;          // first two of contours, as CenterStageProp expects
+    LinkData points;        // eleven circle centers of contours, as RelicPictograph expects
+
+    LinkStage filterContours;
+    LinkStage geometryContours;
+    LinkStage polygons;
+    LinkStage contourStats;
+    LinkStage roverMineral;
+    LinkStage centerStageProp;
+    LinkStage relicPictograph;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BenchmarkInputs.loadOpenCV();
+        LinkData image = BenchmarkInputs.image(resolution);
+        LinkData mask  = BenchmarkInputs.hsvMask().process(image);
+        contours = BenchmarkInputs.findContours().process(mask);
+        BenchmarkInputs.releaseInput(image);
+        BenchmarkInputs.releaseInput(mask);
+
+        List<MatOfPoint> first = new ArrayList<>(contours.contours.subList(0, Math.min(2, contours.contours.size())));
+        pair = LinkData.fromContours(contours.size, first);
+
+        List<Point> centers = new ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            centers.add(contours.getFeatures().circleCenter(i % contours.contours.size()));
+        }
+        points = LinkData.fromPoints(contours.size, centers);
+
+        filterContours = BenchmarkInputs.newStage("LinkFilterContours",
+            "AREA_SELECT", "Area:Fixed", "AREA_FIXED_MIN", "100", "AREA_FIXED_MAX", "",
+            "PERIMETER_SELECT", "Perimeter:Fixed", "PERIMETER_FIXED_MIN", "40", "PERIMETER_FIXED_MAX", "");
+        geometryContours = BenchmarkInputs.newStage("LinkGeometryContours",
+            "GEOMETRY_SELECT", "Bounding_Rotated_Rect", "PERCENT_SELECT", "Percent:Fixed",
+            "PCT_FIXED_MIN", "60", "PCT_FIXED_MAX", "100");
+        polygons = BenchmarkInputs.newStage("LinkPolygons", "EPSILON", "5");
+        contourStats = BenchmarkInputs.newStage("LinkContourStats");
+        roverMineral = BenchmarkInputs.newStage("LinkRoverMineral");
+        centerStageProp = BenchmarkInputs.newStage("LinkCenterStageProp",
+            "AREA_LEFT_SPIKE_MIN", "0", "AREA_LEFT_SPIKE_MAX", "500",
+            "AREA_LEFT_PROP_MIN", "500", "AREA_LEFT_PROP_MAX", "100000",
+            "AREA_CENTER_SPIKE_MIN", "0", "AREA_CENTER_SPIKE_MAX", "500",
+            "AREA_CENTER_PROP_MIN", "500", "AREA_CENTER_PROP_MAX", "100000");
+        relicPictograph = BenchmarkInputs.newStage("LinkRelicPictograph");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkInputs.releaseInput(contours);
+    }
+
+    /**
+     * run - process fresh input with a stage, hand the output to JMH, then free it
+     */
+    private static void run(LinkStage stage, LinkData input, Blackhole bh) {
+        LinkData output = stage.process(BenchmarkInputs.fresh(input));
+        bh.consume(output);
+        BenchmarkInputs.release(output, input);
+    }
+
+    @Benchmark
+    public void filterContours(Blackhole bh) {
+        run(filterContours, contours, bh);
+    }
+
+    @Benchmark
+    public void geometryContours(Blackhole bh) {
+        run(geometryContours, contours, bh);
+    }
+
+    @Benchmark
+    public void polygons(Blackhole bh) {
+        run(polygons, contours, bh);
+    }
+
+    @Benchmark
+    public void contourStats(Blackhole bh) {
+        run(contourStats, contours, bh);
+    }
+
+    @Benchmark
+    public void roverMineral(Blackhole bh) {
+        run(roverMineral, contours, bh);
+    }
+
+    @Benchmark
+    public void centerStageProp(Blackhole bh) {
+        run(centerStageProp, pair, bh);
+    }
+
+    @Benchmark
+    public void relicPictograph(Blackhole bh) {
+        run(relicPictograph, points, bh);
+    }
+}
@@ -0,0 +1,141 @@
+package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * ImageStageBenchmark - JMH benchmarks of the stages that take an image.
+ *
+ *   Each stage processes a synthetic image, or the binary mask InRangeHSV makes of it, at
+ *   each resolution. Only LinkStage.process() and the release of its output are timed;
+ *   the output is handed back to the MatPool at once, as a ChainRunner does.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class ImageStageBenchmark {
+
+    @Param({"320x240", "640x480", "1280x960"})
+    public String resolution;
+
+    LinkData image;         // synthetic BGR image
+    LinkData mask;          // binary mask of image
+
+    LinkStage inRangeHSV;
+    LinkStage inRangeHHSV;
+    LinkStage inRangeHHSVFused;
+    LinkStage inRangeYCrCb;
+    LinkStage erodilate;
+    LinkStage extractChannel;
+    LinkStage cropImage;
+    LinkStage findContours;
+    LinkStage skyStoneDetect;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BenchmarkInputs.loadOpenCV();
+        image = BenchmarkInputs.image(resolution);
+        mask  = BenchmarkInputs.hsvMask().process(image);
+
+        inRangeHSV = BenchmarkInputs.newStage("LinkInRangeHSV",
+            "HUE_MIN", "20", "HUE_MAX", "100", "SAT_MIN", "80", "SAT_MAX", "255",
+            "VAL_MIN", "80", "VAL_MAX", "255", "IMAGE_TYPE", "HSV");
+        inRangeHHSV = BenchmarkInputs.newStage("LinkInRangeHHSV",
+            "HUE1_MIN", "0", "HUE1_MAX", "15", "HUE2_MIN", "165", "HUE2_MAX", "180",
+            "SAT_MIN", "80", "SAT_MAX", "255", "VAL_MIN", "80", "VAL_MAX", "255", "IMAGE_TYPE", "HSV");
+        inRangeHHSVFused = BenchmarkInputs.newStage("LinkInRangeHHSV",
+            "HUE1_MIN", "0", "HUE1_MAX", "15", "HUE2_MIN", "165", "HUE2_MAX", "180",
+            "SAT_MIN", "80", "SAT_MAX", "255", "VAL_MIN", "80", "VAL_MAX", "255", "IMAGE_TYPE", "HSV",
+            "THRESHOLD", "Threshold:Fused_Table");
+        inRangeYCrCb = BenchmarkInputs.newStage("LinkInRangeYCrCb",
+            "Y_MIN", "40", "Y_MAX", "220", "CR_MIN", "140", "CR_MAX", "255",
+            "CB_MIN", "0", "CB_MAX", "120", "IMAGE_TYPE", "View:mask Ouptut:Binary");
+        erodilate = BenchmarkInputs.newStage("LinkErodilate",
+            "MORPH_OPERATION", "Operation:Opening", "KERNEL_TYPE", "Kernel:Ellipse", "KERNEL_RADIUS", "3");
+        extractChannel = BenchmarkInputs.newStage("LinkExtractChannel",
+            "SELECT_CHANNEL", "2");
+        cropImage = BenchmarkInputs.newStage("LinkCropImage",
+            "CROP_LEFT", "20", "CROP_RIGHT", "200", "CROP_TOP", "20", "CROP_BOTTOM", "160",
+            "OUTPUT", "Output:Blanked");
+        findContours = BenchmarkInputs.findContours();
+        skyStoneDetect = BenchmarkInputs.newStage("LinkSkyStoneDetect",
+            "REGIONS", StageSkyStoneDetect.DEFAULT_REGIONS, "REGION_GRID", "0,100,300,60,10,3");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkInputs.releaseInput(image);
+        BenchmarkInputs.releaseInput(mask);
+    }
+
+    /**
+     * run - process input with a stage, hand the output to JMH, then free it
+     */
+    private static void run(LinkStage stage, LinkData input, Blackhole bh) {
+        LinkData output = stage.process(input);
+        bh.consume(output);
+        BenchmarkInputs.release(output, input);
+    }
+
+    @Benchmark
+    public void inRangeHSV(Blackhole bh) {
+        run(inRangeHSV, image, bh);
+    }
+
+    @Benchmark
+    public void inRangeHHSV(Blackhole bh) {
+        run(inRangeHHSV, image, bh);
+    }
+
+    @Benchmark
+    public void inRangeHHSVFused(Blackhole bh) {
+        run(inRangeHHSVFused, image, bh);
+    }
+
+    @Benchmark
+    public void inRangeYCrCb(Blackhole bh) {
+        run(inRangeYCrCb, image, bh);
+    }
+
+    @Benchmark
+    public void erodilate(Blackhole bh) {
+        run(erodilate, mask, bh);
+    }
+
+    @Benchmark
+    public void extractChannel(Blackhole bh) {
+        run(extractChannel, image, bh);
+    }
+
+    @Benchmark
+    public void cropImage(Blackhole bh) {
+        run(cropImage, image, bh);
+    }
+
+    @Benchmark
+    public void findContours(Blackhole bh) {
+        run(findContours, mask, bh);
+    }
+
+    @Benchmark
+    public void skyStoneDetect(Blackhole bh) {
+        run(skyStoneDetect, image, bh);
+    }
+}
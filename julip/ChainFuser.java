@@ -0,0 +1,411 @@
+package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
+
+import java.util.*;
+import java.util.List;
+
+import org.opencv.core.Size;
+
+/**
+ * ChainFuser - fuse the image links at the head of a chain into one method of prototype code.
+ *
+ *   ChainGui.exportCode() chains one doLink* method per link, each making one or more passes
+ *   over the full image with Mats of its own. ChainFuser looks at the LinkStages at the head
+ *   of the chain and writes a single method in their place:
+ *     - a LinkCropImage first in the chain becomes a region of interest (submat), as with its
+ *       Output:ROI; the links after it only work on the pixels inside the crop marks, and
+ *       contours are found with the offset of the region, so they are in full frame space.
+ *       As LinkStage.run() does, the region is put back in a black image of the full frame
+ *       before LinkErodilate, whose kernel must see the blanked pixels around the region
+ *     - the mask of an inRange link that only feeds LinkFindContours, directly or through
+ *       LinkErodilate's, is handed on as it is; the masked copyTo and the gray conversion
+ *       of findContours are skipped. Pixels in range that are black in the image are then
+ *       found as well, which the gray image would have left out.
+ *     - consecutive LinkErodilate's are merged: erosions or dilations of the same kernel
+ *       become one larger rectangular kernel or iterations of one morphologyEx, a repeated
+ *       opening or closing is dropped, as is an Input_Image one; morphology is done in place
+ *   Links from the first one that can not be fused on are left to their own doLink* methods.
+ *
+ *   passesBefore and passesAfter estimate the full image passes of the fused links, as
+ *   exported by exportCode() and as fused; a pass over the region of interest counts for
+ *   its part of the full image.
+ */
+public class ChainFuser {
+
+    private static final String[] MORPH_NAME = {
+        "MORPH_ERODE", "MORPH_DILATE", "MORPH_OPEN", "MORPH_CLOSE",
+        "MORPH_GRADIENT", "MORPH_TOPHAT", "MORPH_BLACKHAT"
+    };
+    private static final String[] KERNEL_NAME = {
+        "CV_SHAPE_RECT", "CV_SHAPE_CROSS", "CV_SHAPE_ELLIPSE"
+    };
+    private static final String[] MODE_NAME = {
+        "RETR_TREE", "RETR_EXTERNAL", "RETR_LIST", "RETR_CCOMP"
+    };
+    private static final String[] METHOD_NAME = {
+        "CHAIN_APPROX_SIMPLE", "CHAIN_APPROX_NONE", "CHAIN_APPROX_TC89_KCOS", "CHAIN_APPROX_TC89_L1"
+    };
+
+    public int    fusedCount   = 0;     // number of links at the head of the chain that are fused
+    public double passesBefore = 0;     // estimated full image passes of the fused links, unfused
+    public double passesAfter  = 0;     // estimated full image passes of the fused method
+
+    private final List<LinkStage> stages;
+    private final Size frameSize;       // size of the full image; null if not known
+    private String returnStr = "Mat";
+    private String objectStr = "fusedMat";
+    private String methodStr;
+    private String codeStr = "";
+    private Map<String, Integer> names = new HashMap<>();   // number of local variables of each name
+
+    /**
+     * ChainFuser constructor - fuse the head of the chain
+     * @param stages    - LinkStage of each link of the chain; null for a link without one
+     * @param frameSize - size of the full image, to estimate the passes; null if not known
+     * @param reference - chain reference, appended to the method name
+     */
+    public ChainFuser(List<LinkStage> stages, Size frameSize, String reference) {
+        this.stages    = stages;
+        this.frameSize = frameSize;
+        methodStr = "doFused";
+        if (!reference.equals("")) { methodStr += "_"+reference; }
+        fuse();
+    }
+
+    public String getReturnStr()  { return returnStr; }  // return type of the fused method
+    public String getObjectStr()  { return objectStr; }  // return object String for ChainGui code export
+    public String getMethodStr()  { return methodStr; }  // name of the fused method
+    public String getCodeString() { return codeStr; }    // fused method; empty if no link is fused
+
+    /**
+     * report - text of the links fused and the passes saved
+     * @return String
+     */
+    public String report() {
+        return String.format("fused %d of %d links; estimated full image passes %.1f -> %.1f, %.1f saved",
+            fusedCount, stages.size(), passesBefore, passesAfter, passesBefore - passesAfter);
+    }
+
+    /**
+     * genImportList - generate a list of import statements required to run the fused method
+     * @return List<String>
+     */
+    public List<String> genImportList() {
+        List<String> importsL = new ArrayList<String>();
+        if (fusedCount > 0) {
+            importsL.add("java.util.ArrayList");
+            importsL.add("java.util.List");
+            importsL.add("org.opencv.core.Core");
+            importsL.add("org.opencv.core.CvType");
+            importsL.add("org.opencv.core.Mat");
+            importsL.add("org.opencv.core.MatOfPoint");
+            importsL.add("org.opencv.core.Point");
+            importsL.add("org.opencv.core.Rect");
+            importsL.add("org.opencv.core.Scalar");
+            importsL.add("org.opencv.core.Size");
+            importsL.add("org.opencv.imgproc.Imgproc");
+        }
+        return importsL;
+    }
+
+    /**
+     * fuse - walk the stages at the head of the chain, writing the fused method
+     */
+    private void fuse() {
+        StringBuilder sb = new StringBuilder();
+        String  cur      = "matImgSrc";     // local variable of the image now worked on
+        boolean owned    = false;           // true if cur may be written in place
+        boolean roi      = false;           // true if cur is the region inside the crop marks
+        boolean contours = false;           // true if the method ends with contours
+        int     channels = 3;               // channels of cur
+        double  area     = 1.0;             // part of the full image that cur covers
+        int i = 0;
+
+        if ((i < stages.size()) && (stages.get(i) instanceof StageCropImage)) {
+            StageCropImage crop = (StageCropImage)stages.get(i);
+            sb.append("        // LinkCropImage: only the region inside the crop marks is worked on\n");
+            sb.append("        int left   = Math.min("+crop.cropLeft+", matImgSrc.cols());\n");
+            sb.append("        int right  = "+((crop.cropRight < 0) ? "matImgSrc.cols()" : "Math.min("+crop.cropRight+", matImgSrc.cols())")+";\n");
+            sb.append("        int top    = Math.min("+crop.cropTop+", matImgSrc.rows());\n");
+            sb.append("        int bottom = "+((crop.cropBottom < 0) ? "matImgSrc.rows()" : "Math.min("+crop.cropBottom+", matImgSrc.rows())")+";\n");
+            sb.append("        Rect roi = new Rect(left, top, Math.max(right-left, 0), Math.max(bottom-top, 0));\n");
+            sb.append("        if (roi.empty()) {\n");
+            sb.append("            return EMPTY_RESULT;\n");
+            sb.append("        }\n");
+            sb.append("        Mat img = matImgSrc.submat(roi);\n");
+            cur  = "img";
+            roi  = true;
+            area = cropArea(crop);
+            passesBefore += 2;  // zeros, copyTo
+            i++;
+        }
+
+        while (i < stages.size()) {
+            LinkStage stage = stages.get(i);
+            if ((stage instanceof StageInRangeHSV) || (stage instanceof StageInRangeHHSV) ||
+                (stage instanceof StageInRangeYCrCb)) {
+                if (channels != 3) {
+                    break;
+                }
+                boolean maskOnly = feedsContoursOnly(i+1);
+                cur = fuseInRange(sb, stage, cur, maskOnly, area);
+                channels = (cur.startsWith("msk")) ? 1 : 3;
+                owned = true;
+                i++;
+            }
+            else if (stage instanceof StageErodilate) {
+                int j = i;
+                while ((j < stages.size()) && (stages.get(j) instanceof StageErodilate)) {
+                    j++;
+                }
+                List<int[]> ops = mergeMorphology(stages.subList(i, j));
+                passesBefore += 2 * (j - i);   // zeros, morphologyEx
+                if (roi && !ops.isEmpty()) {
+                    // the kernel must not read the parent image around the submat
+                    String full = name("full");
+                    sb.append("        // LinkErodilate works on the full frame; put the region back in a black image\n");
+                    sb.append("        Mat "+full+" = Mat.zeros(matImgSrc.size(), "+cur+".type());\n");
+                    sb.append("        "+cur+".copyTo("+full+".submat(roi));\n");
+                    cur   = full;
+                    owned = true;
+                    roi   = false;
+                    passesAfter += 1 + area;
+                    area  = 1.0;
+                }
+                for (int[] op : ops) {
+                    String dst = cur;
+                    if (!owned) {
+                        // the image handed in is not written; the first operation makes a Mat of its own
+                        dst = name("morph");
+                        sb.append("        Mat "+dst+" = new Mat();\n");
+                        owned = true;
+                    }
+                    sb.append("        // LinkErodilate x"+op[4]+(op[4] > 1 ? ", merged" : "")+"\n");
+                    sb.append("        Imgproc.morphologyEx("+cur+", "+dst+", Imgproc."+MORPH_NAME[op[0]]+",\n");
+                    sb.append("            Imgproc.getStructuringElement(Imgproc."+KERNEL_NAME[op[1]]+
+                              ", new Size("+(2 * op[2] + 1)+", "+(2 * op[2] + 1)+")),\n");
+                    sb.append("            new Point(-1, -1), "+op[3]+");\n");
+                    cur = dst;
+                    passesAfter += op[3] * area;
+                }
+                i = j;
+            }
+            else if (stage instanceof StageExtractChannel) {
+                int channel = ((StageExtractChannel)stage).channel;
+                passesBefore += 2;     // zeros, extractChannel
+                if ((channel >= 0) && (channel < channels)) {
+                    String dst = name("channel");
+                    sb.append("        // LinkExtractChannel\n");
+                    sb.append("        Mat "+dst+" = new Mat();\n");
+                    sb.append("        Core.extractChannel("+cur+", "+dst+", "+channel+");\n");
+                    cur = dst;
+                    channels = 1;
+                    owned = true;
+                    passesAfter += area;
+                }
+                i++;
+            }
+            else if (stage instanceof StageFindContours) {
+                StageFindContours find = (StageFindContours)stage;
+                passesBefore += 2;     // cvtColor, findContours
+                if (channels == 3) {
+                    String gray = name("gray");
+                    sb.append("        Mat "+gray+" = new Mat();\n");
+                    sb.append("        Imgproc.cvtColor("+cur+", "+gray+", Imgproc.COLOR_RGB2GRAY);\n");
+                    cur = gray;
+                    passesAfter += area;
+                }
+                sb.append("        // LinkFindContours"+(roi ? ", in full frame space" : "")+"\n");
+                sb.append("        List<MatOfPoint> contours = new ArrayList<>();\n");
+                sb.append("        Mat hierarchy = new Mat();\n");
+                sb.append("        Imgproc.findContours("+cur+", contours, hierarchy,\n");
+                sb.append("            Imgproc."+MODE_NAME[find.modeIdx]+", Imgproc."+METHOD_NAME[find.methodIdx]+
+                          (roi ? ", new Point(roi.x, roi.y)" : "")+");\n");
+                sb.append("        return contours;\n");
+                passesAfter += area;
+                contours = true;
+                i++;
+                break;
+            }
+            else {
+                break;
+            }
+        }
+        fusedCount = i;
+        if (fusedCount == 0) {
+            return;
+        }
+
+        String empty;
+        if (contours) {
+            returnStr = "List<MatOfPoint>";
+            objectStr = "fusedContoursList";
+            empty     = "new ArrayList<>()";
+        } else {
+            empty = "Mat.zeros(matImgSrc.size(), "+((channels == 1) ? "CvType.CV_8UC1" : "matImgSrc.type()")+")";
+            if (roi) {
+                sb.append("        // put the region back in a black image of the full frame\n");
+                sb.append("        Mat matImgDst = Mat.zeros(matImgSrc.size(), "+cur+".type());\n");
+                sb.append("        "+cur+".copyTo(matImgDst.submat(roi));\n");
+                sb.append("        return matImgDst;\n");
+                passesAfter += 1 + area;
+            } else {
+                sb.append("        return "+cur+";\n");
+            }
+        }
+
+        StringBuilder msb = new StringBuilder();
+        msb.append("    // "+report()+"\n");
+        msb.append("    public "+returnStr+" "+methodStr+"(Mat matImgSrc) {\n");
+        msb.append(sb.toString().replace("EMPTY_RESULT", empty));
+        msb.append("    }\n");
+        codeStr = msb.toString();
+    }
+
+    /**
+     * fuseInRange - write the code of an inRange link
+     * @param sb       - code of the fused method
+     * @param stage    - StageInRangeHSV, StageInRangeHHSV or StageInRangeYCrCb
+     * @param cur      - local variable of the image
+     * @param maskOnly - true if only the mask is needed
+     * @param area     - part of the full image that cur covers
+     * @return String  - local variable of the output; a mask starts with "msk"
+     */
+    private String fuseInRange(StringBuilder sb, LinkStage stage, String cur, boolean maskOnly, double area) {
+        String src = name("src");
+        String msk = name("msk");
+        int    masked;      // 0 for cur masked, 1 for src masked, 2 for mask
+        double passes = 2;  // cvtColor, inRange
+        if (stage instanceof StageInRangeYCrCb) {
+            StageInRangeYCrCb ycc = (StageInRangeYCrCb)stage;
+            sb.append("        // LinkInRangeYCrCb"+(maskOnly ? ", mask only" : "")+"\n");
+            sb.append("        Mat "+src+" = new Mat();\n");
+            sb.append("        Imgproc.cvtColor("+cur+", "+src+", Imgproc.COLOR_BGR2YCrCb);\n");
+            sb.append("        Mat "+msk+" = new Mat();\n");
+            sb.append("        Core.inRange("+src+", new Scalar("+ycc.yMin+", "+ycc.crMin+", "+ycc.cbMin+"), "+
+                      "new Scalar("+ycc.yMax+", "+ycc.crMax+", "+ycc.cbMax+"), "+msk+");\n");
+            masked = ycc.imageIdx;
+            passesBefore += 4;  // zeros, cvtColor, inRange, copyTo
+        }
+        else if (stage instanceof StageInRangeHHSV) {
+            StageInRangeHHSV hh = (StageInRangeHHSV)stage;
+            sb.append("        // LinkInRangeHHSV"+(maskOnly ? ", mask only" : "")+"\n");
+            sb.append("        Mat "+src+" = new Mat();\n");
+            sb.append("        Imgproc.cvtColor("+cur+", "+src+", Imgproc.COLOR_RGB2HSV);\n");
+            sb.append("        Mat "+msk+" = new Mat();\n");
+            int hueMin = (hh.hueIdx == 2) ? hh.hue2Min : hh.hue1Min;
+            int hueMax = (hh.hueIdx == 2) ? hh.hue2Max : hh.hue1Max;
+            sb.append("        Core.inRange("+src+", new Scalar("+hueMin+", "+hh.satMin+", "+hh.valMin+"), "+
+                      "new Scalar("+hueMax+", "+hh.satMax+", "+hh.valMax+"), "+msk+");\n");
+            passesBefore += 4;  // zeros, cvtColor, inRange, copyTo
+            if (hh.hueIdx == 0) {
+                String msk2 = name("msk");
+                sb.append("        Mat "+msk2+" = new Mat();\n");
+                sb.append("        Core.inRange("+src+", new Scalar("+hh.hue2Min+", "+hh.satMin+", "+hh.valMin+"), "+
+                          "new Scalar("+hh.hue2Max+", "+hh.satMax+", "+hh.valMax+"), "+msk2+");\n");
+                sb.append("        Core.bitwise_or("+msk+", "+msk2+", "+msk+");\n");
+                passes       += 2;  // inRange, bitwise_or
+                passesBefore += 2;
+            }
+            masked = (hh.imageIdx == 0) ? 0 : 2;
+        }
+        else {
+            StageInRangeHSV hsv = (StageInRangeHSV)stage;
+            sb.append("        // LinkInRangeHSV"+(maskOnly ? ", mask only" : "")+"\n");
+            sb.append("        Mat "+src+" = new Mat();\n");
+            sb.append("        Imgproc.cvtColor("+cur+", "+src+", Imgproc.COLOR_RGB2HSV);\n");
+            sb.append("        Mat "+msk+" = new Mat();\n");
+            sb.append("        Core.inRange("+src+", new Scalar("+hsv.hueMin+", "+hsv.satMin+", "+hsv.valMin+"), "+
+                      "new Scalar("+hsv.hueMax+", "+hsv.satMax+", "+hsv.valMax+"), "+msk+");\n");
+            masked = (hsv.imageIdx == 0) ? 0 : 2;
+            passesBefore += 4;  // zeros, cvtColor, inRange, copyTo
+        }
+        passesAfter += passes * area;
+        if (maskOnly || (masked == 2)) {
+            return msk;
+        }
+        String from = (masked == 1) ? src : cur;
+        String dst  = name("masked");
+        sb.append("        Mat "+dst+" = Mat.zeros("+from+".size(), "+from+".type());\n");
+        sb.append("        Core.copyTo("+from+", "+dst+", "+msk+");\n");
+        passesAfter += 2 * area;
+        return dst;
+    }
+
+    /**
+     * mergeMorphology - merge a run of StageErodilate's
+     * @param run - consecutive StageErodilate's
+     * @return List<int[]> - operations of {morphIdx, kernelIdx, kernelRadius, iterations, links}
+     */
+    private static List<int[]> mergeMorphology(List<LinkStage> run) {
+        List<int[]> ops = new ArrayList<>();
+        for (LinkStage stage : run) {
+            StageErodilate ed = (StageErodilate)stage;
+            if (ed.imageIdx == 1) {
+                continue;       // Input_Image; the image is handed on as it is
+            }
+            int[] last = ops.isEmpty() ? null : ops.get(ops.size()-1);
+            if ((last != null) && (last[0] == ed.morphIdx) && (last[1] == ed.kernelIdx)) {
+                if ((ed.morphIdx <= 1) && (ed.kernelIdx == 0)) {
+                    // erosions (dilations) by rectangles are one by the rectangle of their radii summed
+                    last[2] += ed.kernelRadius;
+                    last[4]++;
+                    continue;
+                }
+                if ((ed.morphIdx <= 1) && (last[2] == ed.kernelRadius)) {
+                    last[3]++;
+                    last[4]++;
+                    continue;
+                }
+                if ((ed.morphIdx <= 3) && (last[2] == ed.kernelRadius)) {
+                    // opening and closing are idempotent
+                    last[4]++;
+                    continue;
+                }
+            }
+            ops.add(new int[] { ed.morphIdx, ed.kernelIdx, ed.kernelRadius, 1, 1 });
+        }
+        return ops;
+    }
+
+    /**
+     * feedsContoursOnly - true if the output at index k only goes on to a LinkFindContours,
+     *                     directly or through LinkErodilate's
+     * @param k - index of the stage after the output
+     * @return boolean
+     */
+    private boolean feedsContoursOnly(int k) {
+        while ((k < stages.size()) && (stages.get(k) instanceof StageErodilate)) {
+            k++;
+        }
+        return (k < stages.size()) && (stages.get(k) instanceof StageFindContours);
+    }
+
+    /**
+     * cropArea - part of the full image inside the crop marks
+     * @param crop - StageCropImage
+     * @return double - 1.0 if the size of the full image is not known
+     */
+    private double cropArea(StageCropImage crop) {
+        if ((frameSize == null) || (frameSize.area() <= 0)) {
+            return 1.0;
+        }
+        int cols   = (int)frameSize.width;
+        int rows   = (int)frameSize.height;
+        int left   = Math.min(crop.cropLeft, cols);
+        int right  = ((crop.cropRight < 0) || (crop.cropRight > cols)) ? cols : crop.cropRight;
+        int top    = Math.min(crop.cropTop, rows);
+        int bottom = ((crop.cropBottom < 0) || (crop.cropBottom > rows)) ? rows : crop.cropBottom;
+        return Math.max(right-left, 0) * (double)Math.max(bottom-top, 0) / frameSize.area();
+    }
+
+    /**
+     * name - a local variable name not yet used in the fused method
+     * @param base - name
+     * @return String - base, or base followed by a number
+     */
+    private String name(String base) {
+        int count = names.containsKey(base) ? names.get(base) : 0;
+        names.put(base, count + 1);
+        return (count == 0) ? base : base + count;
+    }
+}
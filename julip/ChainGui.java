@@ -9,6 +9,7 @@ import java.lang.reflect.*;
 import java.util.*;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.awt.*;
 import java.awt.event.*;
 import javax.swing.*;
@@ -26,7 +27,7 @@ import org.opencv.imgcodecs.Imgcodecs;
 /**
  * ChainGui - Class to handle a chain of Link Gui's that feeds one's output to the next one's input.
  */
-public class ChainGui {
+public class ChainGui implements LinkChangeListener {
     private static final String WINDOW_NAME = "ChainGui";
     
     public boolean isJoinGui = false;
@@ -87,7 +88,7 @@ public class ChainGui {
     private int frameHeightMinusImage = 0;
     
     private Mat matImgSrc;
-    private Image img;
+    private final PreviewRenderer preview = new PreviewRenderer();  // BufferedImage of imgLabel, reused for every image
     
     public  boolean suppressListeners = false;
     
@@ -97,9 +98,45 @@ public class ChainGui {
     public final int NOHEIGHT = 420;
     
     public String chainOutputFile;
+    public boolean saveChainOutput = false;   // write chainOutputFile to disk for chains downstream in a MeshGui
+
+    private JFrame  evalFrame;                // window with results of last Evaluate All
+    private OutputCache outputCache = new OutputCache(OutputCache.DEFAULT_MB); // outputs of Link Guis, see updateGuis()
+    private JLabel  cacheLabel;               // shows hit/miss counters of outputCache
+    private JLabel  poolLabel;                // shows occupancy and leak counters of MatPool.shared
+    private JLabel  colorLabel;               // shows hit/miss counters of ColorCache.shared
+    private boolean isEvaluating = false;     // true while Evaluate All is running
+    private FramePlayer framePlayer;          // frames playing through the chain, see playFrames()
+    private javax.swing.Timer frameTimer;     // refreshes frameLabel and frameTA while playing
+    private JTextField framesTF;              // video file or directory of frames to play
+    private JTextField fpsTF;                 // target frames per second to play at
+    private JCheckBox  pipelineCB;            // play frames with a worker thread for each link
+    private JLabel     frameLabel;            // frame counters and frame rate of framePlayer
+    private JTextArea  frameTA;               // time spent in each link, and last result
+    private MetricsGui metricsGui;            // window with latency counters of the Link Guis
     
     /**
-     *  ChainGui constructor 
+     *  ChainGui constructor - without any Java Containers; see readChain()
+     */
+    private ChainGui() {
+        cmdMap   = new HashMap<>();
+        cmdImage = new ArrayList<>();
+    }
+
+    /**
+     * readChain - parse a chain file without building any Java Containers or Link Guis,
+     *             for running a chain headless.
+     * @param chainfilename - chain file name
+     * @return ChainGui - holds myChainMap, sourceImages and List of LinkGui's; no frame
+     */
+    public static ChainGui readChain(String chainfilename) {
+        ChainGui chain = new ChainGui();
+        chain.getChain(chainfilename);
+        return chain;
+    }
+
+    /**
+     *  ChainGui constructor
      *  @param args - List of command line arguments
      */
     public ChainGui(String[] args) {
@@ -148,6 +185,13 @@ public class ChainGui {
         guiLinksAreSyncedToGuiTable = true;        
         linkGuisList = new ArrayList<>(Arrays.asList(linkGuis));    
         parseArgs(this.getClass().getSimpleName(), args);
+        if (myChainMap.containsKey("CACHE_MB")) {
+            try {
+                outputCache = new OutputCache(Integer.parseInt(myChainMap.get("CACHE_MB")));
+            } catch (NumberFormatException e) {
+                System.out.println("CACHE_MB:"+myChainMap.get("CACHE_MB")+" is not integer");
+            }
+        }
         
         // Create and set up the window.
         frame = new JFrame(getFrameName());
@@ -357,6 +401,7 @@ public class ChainGui {
         //   JButton - to save chainlink file
         //   JTextField - chainlink filename holder
         //   JButton - export code
+        //   JButton - evaluate chain over all images
         JPanel chainControlPanel = new JPanel();
         JButton updateB = new JButton("Update Gui's");
         updateB.addActionListener(new ActionListener() {
@@ -392,9 +437,114 @@ public class ChainGui {
         chainControlPanel.add(updateB);
         chainControlPanel.add(saveSettingsB);
         chainControlPanel.add(chainLinkTF);
+        JButton evalAllB = new JButton("Evaluate All");
+        evalAllB.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (evaluateAll()) {
+                    evalAllB.setBackground(null);
+                } else {
+                    evalAllB.setBackground(Color.RED);
+                }
+            }
+        });
+        JButton exportPipelineB = new JButton("Export Pipeline");
+        exportPipelineB.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                exportPipeline();
+            }
+        });
+        JButton exportFusedB = new JButton("Export Fused");
+        exportFusedB.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                exportFused();
+            }
+        });
         chainControlPanel.add(exportCodeB);
+        chainControlPanel.add(exportPipelineB);
+        chainControlPanel.add(exportFusedB);
+        chainControlPanel.add(evalAllB);
+        JButton metricsB = new JButton("Metrics");
+        metricsB.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showMetrics();
+            }
+        });
+        chainControlPanel.add(metricsB);
         myPanel.add(chainControlPanel);
         
+        //------------------------------------- cachePanel -------------------------
+        //
+        // JPanel with Box Layout
+        //   JLabel - hit/miss counters of the cache of Link Gui outputs
+        //   JLabel - occupancy and leak counters of the pool of scratch Mats
+        //   JLabel - hit/miss counters of the cache of color conversions
+        JPanel cachePanel = new JPanel();
+        cachePanel.setLayout(new BoxLayout(cachePanel, BoxLayout.PAGE_AXIS));
+        cacheLabel = new JLabel(outputCache.toString());
+        poolLabel  = new JLabel(MatPool.shared.toString());
+        colorLabel = new JLabel(ColorCache.shared.toString());
+        cachePanel.add(cacheLabel);
+        cachePanel.add(poolLabel);
+        cachePanel.add(colorLabel);
+        myPanel.add(cachePanel);
+        
+        //------------------------------------- framePanel -------------------------
+        //
+        // JPanel with Box Layout
+        //   JPanel with Flow Layout
+        //     JButton    - play frames through the chain
+        //     JTextField - video file or directory of frames
+        //     JTextField - target frames per second
+        //     JCheckBox  - worker thread for each link
+        //     JButton    - stop playing frames
+        //   JLabel    - frame counters and achieved frame rate
+        //   JTextArea - time spent in each link
+        JPanel framePanel = new JPanel();
+        framePanel.setLayout(new BoxLayout(framePanel, BoxLayout.PAGE_AXIS));
+        JPanel frameControlPanel = new JPanel();
+        JButton playFramesB = new JButton("Play Frames >");
+        playFramesB.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (playFrames()) {
+                    playFramesB.setBackground(null);
+                } else {
+                    playFramesB.setBackground(Color.RED);
+                }
+            }
+        });
+        framesTF = new JTextField();
+        framesTF.setPreferredSize(new Dimension(160, 25));
+        fpsTF = new JTextField("30");
+        fpsTF.setPreferredSize(new Dimension(40, 25));
+        pipelineCB = new JCheckBox("Pipelined");
+        JButton stopFramesB = new JButton("Stop");
+        stopFramesB.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (framePlayer != null) {
+                    framePlayer.stop();
+                }
+            }
+        });
+        frameControlPanel.add(playFramesB);
+        frameControlPanel.add(framesTF);
+        frameControlPanel.add(new JLabel("fps"));
+        frameControlPanel.add(fpsTF);
+        frameControlPanel.add(pipelineCB);
+        frameControlPanel.add(stopFramesB);
+        frameLabel = new JLabel(" ");
+        frameTA = new JTextArea(3, 40);
+        frameTA.setEditable(false);
+        framePanel.add(frameControlPanel);
+        framePanel.add(frameLabel);
+        framePanel.add(new JScrollPane(frameTA));
+        myPanel.add(framePanel);
+        
         frame.addComponentListener(new ComponentAdapter() {
             public void componentResized(ComponentEvent componentEvent) {
                 Dimension sizeSP = imgSP.getSize();
@@ -655,8 +805,12 @@ public class ChainGui {
         if ((matImgSrc.rows() == 0) || (matImgSrc.cols() == 0)) {
             matImgSrc = Mat.zeros(new Size(NOWIDTH,NOHEIGHT), CvType.CV_8UC3);
         }
-        img = HighGui.toBufferedImage(matImgSrc);
-        imgLabel.setIcon(new ImageIcon(img));
+        preview.render(matImgSrc);
+        if (imgLabel.getIcon() == preview.getIcon()) {
+            imgLabel.repaint();
+        } else {
+            imgLabel.setIcon(preview.getIcon());
+        }
     }
     
     public void setOutputFileNames() {
@@ -683,6 +837,7 @@ public class ChainGui {
         boolean setImageIn     = false;
         boolean setImageSelect = false;
         boolean setImageOut    = false;    
+        boolean setCacheSize   = false;
         String chainfilename = "";
         boolean setKey          = false;
         boolean setKeyInput     = false;
@@ -710,6 +865,7 @@ public class ChainGui {
                 System.out.println("    [-i <ImageInputFileName>]");
                 System.out.println("    [-s <ImageSelected>]");
                 System.out.println("    [-o <ImageOutputFileName>]");                
+                System.out.println("    [-cache <MB>]       // size of cache of Link Gui outputs; default "+OutputCache.DEFAULT_MB);
                 System.exit(0);
             }
 
@@ -773,6 +929,17 @@ public class ChainGui {
             if (arg.equals("-o")) {
                 setImageOut = true;                            
             }
+            //
+            // Look for -cache command.
+            // The next arg after -cache is the size of the cache of Link Gui outputs, in MB.
+            //
+            if (setCacheSize) {
+                cmdMap.put("CACHE_MB", arg);
+                setCacheSize = false;
+            }
+            if (arg.equals("-cache")) {
+                setCacheSize = true;
+            }
         
             //
             // Look for -k command.
@@ -857,6 +1024,7 @@ public class ChainGui {
                     // <CHAIN_REFERENCE> reference <CHAIN_REFERENCE>
                     // <CHAIN_FILE> file.txt <CHAIN_FILE>
                     // <CHAIN_OUTPUT> file.txt <CHAIN_OUTPUT>     (only used with MeshGui)
+                    // <CACHE_MB> 256 </CACHE_MB>
                     // <LINK_GUI>
                     //   <NAME> LinkGui </NAME>
                     //   <LINK> file.txt </LINK>
@@ -1030,6 +1198,15 @@ public class ChainGui {
                                 myChainMap.put("CHAIN_REFERENCE", chunks[1].trim());
                             }
                         }
+                        else if (chunks[0].equals("<CACHE_MB>")) {
+                            if (chunks.length != 3) {
+                                failToParse = true;
+                            } else if (!chunks[2].equals("</CACHE_MB>")) {
+                                failToParse = true;
+                            } else {
+                                myChainMap.put("CACHE_MB", chunks[1].trim());
+                            }
+                        }
                         else if (chunks[0].equals("<CHAIN_FILE>")) {
                             if (chunks.length != 3) {
                                 failToParse = true;
@@ -1099,6 +1276,9 @@ public class ChainGui {
                     myChainMap.put("CHAIN_OUTPUT", entry.getValue());
                 }
             }
+            if (entry.getKey().equals("CACHE_MB")) {
+                myChainMap.put("CACHE_MB", entry.getValue());
+            }
         }
         for (int iidx = 0; iidx < cmdImage.size(); iidx++) {
             if (!(sourceImages.contains(cmdImage.get(iidx)))) {
@@ -1108,6 +1288,21 @@ public class ChainGui {
     }
     
     
+    /**
+     * disposeGuis - tear down all Link Gui's of the chain, and drop the outputs they
+     *               handed over in memory
+     */
+    public void disposeGuis() {
+        for (int i = 0; i < guiLinks.size(); i++) {
+            if (guiLinks.get(i).gui != null) {
+                guiLinks.get(i).gui.dispose();
+            }
+            // drop output handed over in memory by old Link Gui
+            LinkChannel.remove(guiLinks.get(i).outputFile);
+        }
+        guiLinks.clear();
+    }
+
     public void buildGuis() {
     
         int i; // iterator
@@ -1121,14 +1316,8 @@ public class ChainGui {
         // rebuild the list of Link Gui objects from the guiTable.
         //
         if (!guiLinksAreSyncedToGuiTable) {
-            // Kill off frames from screen
-            for (i = 0; i < guiLinks.size(); i++) {
-                if (guiLinks.get(i).gui != null) {
-                    guiLinks.get(i).gui.frame.dispose();
-                }
-            }
-            // clear out list of guiLinks
-            guiLinks.clear();
+            // Kill off frames from screen, and clear out list of guiLinks
+            disposeGuis();
             // build new list of guiLinks from guiTable
             for (i = 0; i < guiTable.getRowCount(); i++) {
                 // for each entry in the guiTable, create a LinkGui object
@@ -1200,12 +1389,16 @@ public class ChainGui {
                 int x = (i+1)*100+300;
                 int y = (i+1)*50;
                 thisLinkGui.gui.setFrameLocation(x,y);
+                // Have a change of settings in this LinkGui carried on down the chain
+                if (!isJoinGui) {
+                    thisLinkGui.gui.changeListener = this;
+                }
                                 
                 // Save this LinkGui's settings                                
                 thisLinkGui.gui.saveSettings();
-                // Save this LinkGui's output for the next LinkGui
-                // in the chain to have available as input
-                thisLinkGui.gui.saveImage();
+                // Hand over this LinkGui's output in memory for the next
+                // LinkGui in the chain to have available as input
+                thisLinkGui.gui.publishOutput();
             }
             guisAreLinked = true;
         }
@@ -1336,25 +1529,108 @@ public class ChainGui {
     
     /**
      * updateGuis - propogate input file to first link gui and update it
+     *   Link Gui's whose input and settings are unchanged since they last ran are skipped,
+     *   and outputs calculated before are taken from the OutputCache where the Link Gui allows.
+     *
+     *   May be called off the Swing event thread, as MeshGui does to update independent
+     *   chains at the same time. The Java Containers are then only touched on the Swing
+     *   event thread; the refreshImage() of Link Guis that allow it (see isRefreshOffEdt())
+     *   runs on the calling thread, so chains are calculated in parallel.
      * @return boolean - true if no errors, else false
      */
     public boolean updateGuis() {
     
         LinkClass gui;
         boolean status = true;
+        String upstreamKey = null;      // OutputCache key of the input of the Link Gui
         
-        buildGuis();
+        onEdt(new Runnable() {
+            @Override
+            public void run() {
+                buildGuis();
+            }
+        });
                 
         // Propogate chain settings through Link Guis
         for (int i = 0; i < guiLinks.size(); i++) {
-            gui = guiLinks.get(i).gui;
-            // set output Text Field in Link Gui to updated output file in list of guiLinks
-            gui.textFieldImageOut.setText(guiLinks.get(i).outputFile);
-                
+            LinkUpdate update = new LinkUpdate(i, upstreamKey, status);
+            onEdt(new Runnable() {
+                @Override
+                public void run() {
+                    prepareLink(update);
+                }
+            });
+            status      = update.status;
+            upstreamKey = update.key;
+            if (update.isUpToDate) {
+                continue;
+            }
+            gui = update.gui;
+            
+            if (!update.isRestored) {
+                // update Image and outputs in Link Gui
+                runLink(gui, new Runnable() {
+                    @Override
+                    public void run() {
+                        update.gui.refreshOutput();
+                    }
+                });
+            }
+            // Hold the Link Gui while its output is handed over, so a background refresh
+            // started from its sliders can not run at the same time
+            synchronized (gui) {
+                if (!update.isRestored && (update.key != null)) {
+                    outputCache.put(update.key, gui.getOutputData());
+                }
+                gui.cacheKey = update.key;
+                // hand over output from Link Gui in memory to the next Link Gui
+                gui.publishOutput();
+            }
+            // Only the output of the last Link Gui ever needs to be a file,
+            // when another chain of a MeshGui reads it as input
+            if (saveChainOutput && (i == guiLinks.size()-1)) {
+                runLink(gui, new Runnable() {
+                    @Override
+                    public void run() {
+                        update.gui.saveOutput();
+                    }
+                });
+            }
+            
+            // keep for debugging
+            //System.out.println(i+":"+gui.textFieldImageOut.getText());
+        }
+        // set this Chain's output file same as output file in last Link Gui
+        if (guiLinks.size() > 0) {
+            chainOutputFile = guiLinks.get(guiLinks.size()-1).outputFile;
+        }
+        onEdt(new Runnable() {
+            @Override
+            public void run() {
+                showCounters();
+            }
+        });
+        return status;
+    }
+    
+    /**
+     * prepareLink - set the input and output of a Link Gui for updateGuis(), and load its input
+     *               if it is not up to date; runs on the Swing event thread.
+     * @param update - LinkUpdate of the Link Gui; its results are set
+     */
+    private void prepareLink(LinkUpdate update) {
+        int i = update.index;
+        LinkClass gui = guiLinks.get(i).gui;
+        update.gui = gui;
+        // set output Text Field in Link Gui to updated output file in list of guiLinks
+        gui.textFieldImageOut.setText(guiLinks.get(i).outputFile);
+            
+        // Hold the Link Gui while it is loaded, so a background refresh
+        // started from its sliders can not run at the same time
+        synchronized (gui) {
             // If JoinClass...
             if (isJoinGui) {
                 gui.setImageInTF(buildLinkInputs());
-                gui.loadImage("");
             }
             // If LinkClass...
             else {
@@ -1364,37 +1640,381 @@ public class ChainGui {
                     // Get Image based on imgTable selection
                     int rowIndex = imgTable.getSelectedRow();
                     if (rowIndex < 0) {
-                        status = false;
+                        update.status = false;
                     }
                     else {
                         gui.textFieldImageIn.setText(imgTable.getValueAt(rowIndex, 0).toString());
+                        update.key = OutputCache.inputKey(gui.textFieldImageIn.getText());
                     }
                 } else {
                     gui.textFieldImageIn.setText(guiLinks.get(i-1).outputFile);
                 }
-                // upload input file
-                gui.loadImage(gui.textFieldImageIn.getText());
             }
             
-            if (status) {
+            // Key of this Link Gui's output; a JoinClass has several inputs and is not cached
+            String key = null;
+            if (!isJoinGui && (update.key != null)) {
+                key = OutputCache.chainKey(update.key, OutputCache.settingsKey(gui));
+            }
+            update.key = key;
+        
+            if (update.status && (key != null) && key.equals(gui.cacheKey)) {
+                // Same input and settings as last time; the Link Gui and
+                // its output handed over in memory are already up to date
+                outputCache.skip();
+                update.isUpToDate = true;
+            }
+            else if (update.status) {
+                // upload input file
+                if (isJoinGui) {
+                    gui.loadInput("");
+                } else {
+                    gui.loadInput(gui.textFieldImageIn.getText());
+                }
                 //gui.resizeFrame();
-                // update Image and outputs in Link Gui
                 gui.refreshSettings();
-                gui.refreshImage();
-                // update output file from Link Gui
-                gui.saveImage();
-            
-                // keep for debugging
-                //System.out.println(i+":"+gui.textFieldImageOut.getText());
+                if ((key != null) && outputCache.restore(key, gui)) {
+                    update.isRestored = true;
+                }
+            }
+            else {
+                update.isUpToDate = true;
             }
-            // set this Chain's output file same as output file in last Link Gui
-            //chainOutputFile = guiLinks.get(guiLinks.size()-1).textFieldImageOut.getText();
-            gui = guiLinks.get(guiLinks.size()-1).gui;
-            chainOutputFile = gui.textFieldImageOut.getText();
         }
-        return status;
+    }
+    
+    /**
+     * runLink - run a step of updateGuis() for a Link Gui, holding the Link Gui.
+     *           Off the Swing event thread only if the Link Gui allows it.
+     * @param gui  - Link Gui
+     * @param step - step to run
+     */
+    private void runLink(LinkClass gui, Runnable step) {
+        if (gui.isRefreshOffEdt() || SwingUtilities.isEventDispatchThread()) {
+            synchronized (gui) {
+                step.run();
+            }
+        } else {
+            onEdt(new Runnable() {
+                @Override
+                public void run() {
+                    synchronized (gui) {
+                        step.run();
+                    }
+                }
+            });
+        }
+    }
+    
+    /**
+     * onEdt - run on the Swing event thread, waiting for it to finish
+     * @param step - step to run
+     */
+    private void onEdt(Runnable step) {
+        if (SwingUtilities.isEventDispatchThread()) {
+            step.run();
+            return;
+        }
+        try {
+            SwingUtilities.invokeAndWait(step);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (InvocationTargetException e) {
+            System.out.println("ChainGui "+chainRefStr+": "+e.getCause());
+        }
+    }
+
+    /**
+     * showCounters - update the cache and Mat pool labels
+     */
+    private void showCounters() {
+        if (cacheLabel != null) {
+            cacheLabel.setText(outputCache.toString());
+        }
+        if (poolLabel != null) {
+            poolLabel.setText(MatPool.shared.toString());
+        }
+        if (colorLabel != null) {
+            colorLabel.setText(ColorCache.shared.toString());
+        }
+    }
+
+    /**
+     * linkChanged - a Link Gui has new output after the user changed its settings.
+     *   Only the Link Gui's after it are brought up to date, each reading the output
+     *   handed over in memory by the one before it; Link Gui's before it are left alone.
+     * @param link - Link Gui that changed
+     */
+    @Override
+    public void linkChanged(LinkClass link) {
+        javax.swing.SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                propagateFrom(link);
+            }
+        });
+    }
+
+    /**
+     * propagateFrom - refresh the Link Gui after the given one; on the Swing event thread.
+     *   When that one is done it calls linkChanged() in turn, and so on down the chain.
+     *   A Link Gui that changes again before its turn comes round only refreshes once,
+     *   for the latest of its inputs.
+     * @param link - Link Gui that changed
+     */
+    private void propagateFrom(LinkClass link) {
+        showCounters();
+        int i;
+        for (i = 0; i < guiLinks.size(); i++) {
+            if (guiLinks.get(i).gui == link) {
+                break;
+            }
+        }
+        // Link Gui is no longer part of this chain
+        if (i == guiLinks.size()) {
+            return;
+        }
+        // End of chain; only the output of the last Link Gui ever needs to be a file,
+        // when another chain of a MeshGui reads it as input
+        if (i == guiLinks.size()-1) {
+            if (saveChainOutput) {
+                synchronized (link) {
+                    link.saveOutput();
+                }
+            }
+            return;
+        }
+        LinkClass next = guiLinks.get(i+1).gui;
+        if (next == null) {
+            return;
+        }
+        synchronized (next) {
+            next.loadInput(next.textFieldImageIn.getText());
+        }
+        next.refreshNow();
+    }
+
+    /**
+     * evaluateAll - run the chain over every image in the Image JTable at the same time.
+     *   The Link Guis save their settings, then a headless ChainRunner is built from the link files.
+     *   Images are fanned out over the common ForkJoinPool on a worker thread, so the
+     *   Swing event thread stays free; the results are shown in their own window when done.
+     * @return boolean - true if evaluation was started, else false
+     */
+    public boolean evaluateAll() {
+        if (isEvaluating) {
+            System.out.println("Evaluate All is already running.");
+            return false;
+        }
+        if (isJoinGui) {
+            System.out.println("Evaluate All is not available for Join Guis.");
+            return false;
+        }
+        if (!guiLinksAreSyncedToGuiTable || !guisAreLinked || (guiLinks.size() == 0)) {
+            System.out.println("Update Gui's before Evaluate All.");
+            return false;
+        }
+        // Headless stages read the link files, so bring them up to date with the windows
+        for (int i = 0; i < guiLinks.size(); i++) {
+            if (guiLinks.get(i).gui != null) {
+                guiLinks.get(i).gui.saveSettings();
+            }
+        }
+        ChainRunner runner = new ChainRunner(chainRefStr, guiLinks);
+        if (!runner.isRunnable) {
+            System.out.println("Chain cannot be evaluated headless: "+runner.linkNames);
+            return false;
+        }
+        List<String> images = new ArrayList<>(sourceImages);
+        isEvaluating = true;
+        
+        Thread worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long startTime = System.nanoTime();
+                List<ChainRunner.ImageResult> results = runner.runAll(images, ForkJoinPool.commonPool());
+                double seconds = (System.nanoTime() - startTime) / 1.0e9;
+                // Back to the Swing event thread to show the results
+                javax.swing.SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        showEvaluation(results, seconds);
+                        isEvaluating = false;
+                    }
+                });
+            }
+        }, "ChainGui Evaluate All");
+        worker.setDaemon(true);
+        worker.start();
+        return true;
+    }
+    
+    /**
+     * getMetrics - latency counters of the Link Guis of the chain
+     * @return Map - LinkMetrics by "chain reference/index:Link Gui name", in chain order
+     */
+    public Map<String, LinkMetrics> getMetrics() {
+        Map<String, LinkMetrics> metrics = new LinkedHashMap<>();
+        for (int i = 0; i < guiLinks.size(); i++) {
+            if (guiLinks.get(i).gui != null) {
+                metrics.put(chainRefStr + "/" + i + ":" + guiLinks.get(i).name, guiLinks.get(i).gui.metrics);
+            }
+        }
+        return metrics;
     }
 
+    /**
+     * showMetrics - show the latency counters of the Link Guis in their own window
+     */
+    public void showMetrics() {
+        if (metricsGui != null) {
+            metricsGui.dispose();
+        }
+        metricsGui = new MetricsGui("Metrics: " + chainRefStr, "metrics_" + chainRefStr) {
+            @Override
+            public Map<String, LinkMetrics> getMetrics() {
+                return ChainGui.this.getMetrics();
+            }
+        };
+        metricsGui.show(frame.getX() + frame.getWidth(), frame.getY());
+    }
+
+    /**
+     * playFrames - play the frames of a video file or directory of images through the chain
+     *   at the frame rate in fpsTF, as a camera would deliver them; 0 plays them as fast as
+     *   the chain takes them; with Pipelined checked each link runs on a worker thread of its own.
+     *   The Link Guis save their settings, then a headless ChainRunner is built from the
+     *   link files, as for Evaluate All. The frame counters, achieved frame rate and time
+     *   spent in each link are refreshed while the frames play.
+     * @return boolean - true if playing was started, else false
+     */
+    public boolean playFrames() {
+        if ((framePlayer != null) && !framePlayer.isDone()) {
+            System.out.println("Frames are already playing.");
+            return false;
+        }
+        if (isJoinGui) {
+            System.out.println("Play Frames is not available for Join Guis.");
+            return false;
+        }
+        if (!guiLinksAreSyncedToGuiTable || !guisAreLinked || (guiLinks.size() == 0)) {
+            System.out.println("Update Gui's before Play Frames.");
+            return false;
+        }
+        double fps;
+        try {
+            fps = Double.parseDouble(fpsTF.getText().trim());
+        } catch (NumberFormatException e) {
+            System.out.println("Bad frames per second:"+fpsTF.getText());
+            return false;
+        }
+        // Headless stages read the link files, so bring them up to date with the windows
+        for (int i = 0; i < guiLinks.size(); i++) {
+            if (guiLinks.get(i).gui != null) {
+                guiLinks.get(i).gui.saveSettings();
+            }
+        }
+        ChainRunner runner = new ChainRunner(chainRefStr, guiLinks);
+        if (!runner.isRunnable) {
+            System.out.println("Chain cannot be played headless: "+runner.linkNames);
+            return false;
+        }
+        FrameSource source = FrameSource.open(framesTF.getText().trim());
+        if (source == null) {
+            return false;
+        }
+        framePlayer = new FramePlayer(runner, source, fps, FramePlayer.DEFAULT_QUEUE, pipelineCB.isSelected());
+        framePlayer.start();
+        
+        if (frameTimer != null) {
+            frameTimer.stop();
+        }
+        frameTimer = new javax.swing.Timer(250, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showFrames();
+            }
+        });
+        frameTimer.start();
+        return true;
+    }
+    
+    /**
+     * showFrames - show the counters of the frames playing; stops refreshing when they are done
+     */
+    private void showFrames() {
+        if (framePlayer == null) {
+            return;
+        }
+        boolean done = framePlayer.isDone();
+        frameLabel.setText(framePlayer.toString() + (done ? " - done" : ""));
+        StringBuilder text = new StringBuilder();
+        for (String line : framePlayer.getLinkReport()) {
+            text.append(line).append("\n");
+        }
+        text.append("Last result: ").append(framePlayer.getLastResult());
+        frameTA.setText(text.toString());
+        if (done) {
+            frameTimer.stop();
+        }
+    }
+    
+    /**
+     * showEvaluation - show the results of Evaluate All in a window, one row per image.
+     *   Selecting a row selects the same image in the Image JTable.
+     * @param results - List of ChainRunner.ImageResult, in Image JTable order
+     * @param seconds - time to evaluate all images
+     */
+    private void showEvaluation(List<ChainRunner.ImageResult> results, double seconds) {
+        int numImages = 0;
+        DefaultTableModel evalTM = new DefaultTableModel() {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        evalTM.addColumn("Image");
+        evalTM.addColumn("Result");
+        evalTM.addColumn("ms");
+        for (ChainRunner.ImageResult result : results) {
+            evalTM.addRow(new Object[]{result.image, result.result, String.format("%.1f", result.ms)});
+            if (result.isRead) {
+                numImages += 1;
+            }
+        }
+        JTable evalTable = new JTable(evalTM);
+        evalTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        evalTable.getColumnModel().getColumn(0).setPreferredWidth(200);
+        evalTable.getColumnModel().getColumn(1).setPreferredWidth(200);
+        evalTable.getColumnModel().getColumn(2).setPreferredWidth(60);
+        evalTable.getSelectionModel().addListSelectionListener(new ListSelectionListener(){
+            @Override
+            public void valueChanged(ListSelectionEvent e) {
+                int row = evalTable.getSelectedRow();
+                if (!e.getValueIsAdjusting() && (row > -1)) {
+                    int idx = sourceImages.indexOf(evalTM.getValueAt(row, 0).toString());
+                    if (idx > -1) {
+                        imgTable.setRowSelectionInterval(idx, idx);
+                    }
+                }
+            }
+        });
+        JScrollPane evalSP = new JScrollPane(evalTable);
+        evalSP.setPreferredSize(new Dimension(NOWIDTH+60, 300));
+        JLabel evalLabel = new JLabel(numImages + " images in " + String.format("%.2f", seconds) + " sec: " +
+                                      String.format("%.1f", (seconds > 0) ? numImages / seconds : 0.0) + " images/sec");
+        
+        if (evalFrame != null) {
+            evalFrame.dispose();
+        }
+        evalFrame = new JFrame("Evaluate All: " + chainRefStr);
+        evalFrame.add(evalSP, BorderLayout.CENTER);
+        evalFrame.add(evalLabel, BorderLayout.PAGE_END);
+        evalFrame.pack();
+        evalFrame.setLocation(frame.getX() + frame.getWidth(), frame.getY());
+        evalFrame.setVisible(true);
+    }
+    
     /**
      * saveSettings - write chain gui settings to file
      */
@@ -1422,6 +2042,9 @@ public class ChainGui {
                 writer.write("</LINK_GUI>\n");
             }
             writer.write("<CHAIN_FILE>\t" + chainLinkTF.getText() +"\t</CHAIN_FILE>\n");
+            if (myChainMap.containsKey("CACHE_MB")) {
+                writer.write("<CACHE_MB>\t" + myChainMap.get("CACHE_MB") +"\t</CACHE_MB>\n");
+            }
             writer.close();
         } catch (IOException e) {
             System.out.println(e);
@@ -1478,6 +2101,149 @@ public class ChainGui {
             writer.close();
         } catch (IOException e) {}    
     }
+
+    /**
+     * exportPipeline - write prototype code from entire chain to file, as a pipeline class.
+     *                  The class holds the Mats and Scalars of the Links in fields, so that
+     *                  doChain_<ref>() does not allocate new ones on every call; its outputs are
+     *                  the same as those of exportCode(), but are overwritten by the next call.
+     *                  release() frees the native memory of the fields.
+     */
+    public void exportPipeline() {
+        String className = "Pipeline_"+refChainTF.getText();
+        String linkfilename  = "code_"+className+".java";
+        StringBuilder fsb = new StringBuilder();
+        StringBuilder msb = new StringBuilder();
+        StringBuilder rsb = new StringBuilder();
+        StringBuilder sb  = new StringBuilder();
+        BufferedWriter writer;
+        LinkClass gui;
+        String rtnStr = "";
+        String objStr;
+        String mthStr;
+        String prevObjStr;
+
+        try {
+            writer = new BufferedWriter(new FileWriter(linkfilename));
+
+            // generate text for import statements from Links
+            List<String> importChainList = genImportList();
+            if (importChainList.size() > 0) {
+                writer.write("//requires:\n");
+                Collections.sort(importChainList);
+            }
+            for (int i = 0; i < importChainList.size(); i++) {
+                writer.write("//import "+importChainList.get(i)+";\n");
+            }
+
+            // call the Links to retrieve their fields, methods and release statements
+            for (int i = 0; i < guiLinks.size(); i++) {
+                gui = guiLinks.get(i).gui;
+                fsb.append(gui.genPipelineFields(chainRefStr));
+                msb.append(gui.genPipelineCode(chainRefStr));
+                rsb.append(gui.genPipelineRelease(chainRefStr));
+            }
+
+            objStr = "matImgSrc";
+            sb.append(" doChain_"+refChainTF.getText()+"(Mat matImgSrc) {\n");
+            for (int i = 0; i < guiLinks.size(); i++) {
+                gui = guiLinks.get(i).gui;
+                prevObjStr = objStr;
+                rtnStr = gui.getReturnStr();
+                objStr = gui.getObjectStr();
+                mthStr = gui.getMethodStr();
+                sb.append("        "+rtnStr+" "+objStr+" = "+mthStr+"("+prevObjStr+");\n");
+            }
+            sb.append("        return "+objStr+";\n");
+            sb.append("    }\n");
+
+            writer.write("public class "+className+" {\n");
+            writer.write(fsb.toString());
+            writer.write("\n");
+            writer.write(msb.toString());
+            writer.write("    public ");
+            writer.write(rtnStr);
+            writer.write(sb.toString());
+            writer.write("    public void release() {\n");
+            writer.write(rsb.toString());
+            writer.write("    }\n");
+            writer.write("}\n");
+            writer.close();
+        } catch (IOException e) {}
+    }
+
+    /**
+     * exportFused - write prototype code from entire chain to file, with the image links at
+     *               the head of the chain fused into one method by a ChainFuser.
+     *               The estimated full image passes saved are written at the top of the file.
+     */
+    public void exportFused() {
+        String linkfilename  = "code_Fused_"+refChainTF.getText()+".java";
+        StringBuilder sb = new StringBuilder();
+        BufferedWriter writer;
+        LinkClass gui;
+        String rtnStr = "";
+        String objStr;
+        String mthStr;
+        String prevObjStr;
+
+        // the stages hold the settings now shown by the Link Gui's
+        ChainRunner runner = new ChainRunner(chainRefStr, guiLinks);
+        Size frameSize = null;
+        if ((guiLinks.size() > 0) && (guiLinks.get(0).gui != null) && (guiLinks.get(0).gui.matImgSrc != null)) {
+            frameSize = guiLinks.get(0).gui.matImgSrc.size();
+        }
+        ChainFuser fuser = new ChainFuser(runner.stages, frameSize, chainRefStr);
+        System.out.println("exportFused: "+fuser.report());
+
+        try {
+            writer = new BufferedWriter(new FileWriter(linkfilename));
+
+            // generate text for import statements from Links and the fused method
+            List<String> importChainList = genImportList();
+            for (String importStr : fuser.genImportList()) {
+                if (!importChainList.contains(importStr)) {
+                    importChainList.add(importStr);
+                }
+            }
+            if (importChainList.size() > 0) {
+                writer.write("//requires:\n");
+                Collections.sort(importChainList);
+            }
+            for (int i = 0; i < importChainList.size(); i++) {
+                writer.write("//import "+importChainList.get(i)+";\n");
+            }
+
+            // the fused method, then a method for each Link after the fused ones
+            writer.write(fuser.getCodeString());
+            for (int i = fuser.fusedCount; i < guiLinks.size(); i++) {
+                writer.write(guiLinks.get(i).gui.genCodeString(chainRefStr));
+            }
+
+            objStr = "matImgSrc";
+            sb.append(" doChain_"+refChainTF.getText()+"(Mat matImgSrc) {\n");
+            if (fuser.fusedCount > 0) {
+                rtnStr = fuser.getReturnStr();
+                objStr = fuser.getObjectStr();
+                sb.append("        "+rtnStr+" "+objStr+" = "+fuser.getMethodStr()+"(matImgSrc);\n");
+            }
+            for (int i = fuser.fusedCount; i < guiLinks.size(); i++) {
+                gui = guiLinks.get(i).gui;
+                prevObjStr = objStr;
+                rtnStr = gui.getReturnStr();
+                objStr = gui.getObjectStr();
+                mthStr = gui.getMethodStr();
+                sb.append("        "+rtnStr+" "+objStr+" = "+mthStr+"("+prevObjStr+");\n");
+            }
+            sb.append("        return "+objStr+";\n");
+            sb.append("    }\n");
+            writer.write("    public ");
+            writer.write(rtnStr);
+            writer.write(sb.toString());
+            writer.close();
+        } catch (IOException e) {}
+    }
+
     /**
      * genImportList - generate a list of import statements required to run the prototype code
      * @return - List of Strings of packages to import for all the prototype code of the entire chain of links
@@ -1538,21 +2304,23 @@ public class ChainGui {
 }
 
 /**
- * LinkGui - Class to hold information for a Link Gui
+ * LinkUpdate - Class to hold the state of one Link Gui during ChainGui.updateGuis()
  */
-class LinkGui {
-    String    name;       // Name of Link Gui
-    String    linkFile;   // File to read/write settings
-    String    outputFile; // File to export Gui output to
-    LinkClass gui;        // The Link Gui
+class LinkUpdate {
+    int       index;        // index of Link Gui in chain
+    LinkClass gui;          // the Link Gui
+    String    key;          // OutputCache key of input, then of output; null if not known
+    boolean   status;       // false once an input is missing
+    boolean   isUpToDate;   // true if the Link Gui needs no refresh
+    boolean   isRestored;   // true if the output was taken from the OutputCache
     
     /**
-     * Constructor - minimal non-null assingments
+     * Constructor
      */
-    public LinkGui () {
-        this.name = "";
-        this.linkFile = "";
-        this.outputFile = "";
+    public LinkUpdate (int index, String key, boolean status) {
+        this.index  = index;
+        this.key    = key;
+        this.status = status;
     }
 }
 
@@ -0,0 +1,441 @@
+package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
+
+import java.io.File;
+import java.util.*;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+
+/**
+ * ChainRunner - run a chain file headless, without any Swing windows.
+ *
+ *   The chain file is parsed by ChainGui.readChain(), the same parser used by ChainGui.
+ *   For each Link Gui of the chain, a LinkStage is built from the settings in its link file.
+ *   Images are then streamed through the stages, one after the other, and the result
+ *   of each image is reported along with the throughput in images/sec.
+ *
+ *   Stages keep no per-image state, so runAll() fans the images out over a ForkJoinPool,
+ *   each image getting its own independent pipeline of Mats. Every stage but the last
+ *   borrows its output images from MatPool.shared, and they are handed back once the
+ *   next stage has run, so a stream of images allocates no more native memory.
+ *
+ *   With -f the frames of a video file or image directory are played through the chain
+ *   by a FramePlayer instead, at the frame rate given by -fps. With -p each link runs on
+ *   a worker thread of its own, so the links work on successive frames at the same time.
+ */
+public class ChainRunner {
+
+    private static final String[] IMAGE_EXTENSIONS = {
+        "png", "jpg", "jpeg", "bmp", "tif", "tiff", "mat"
+    };
+
+    public String          chainRef;                         // chain reference
+    public List<String>    sourceImages = new ArrayList<>(); // images listed in the chain file
+    public List<String>    linkNames    = new ArrayList<>(); // class names of the Link Guis
+    public List<LinkStage> stages       = new ArrayList<>(); // processing stages of the Link Guis
+    public boolean         isRunnable   = true;              // false if any Link Gui has no stage
+
+    /**
+     * ChainRunner constructor
+     * @param chainfilename - chain file name
+     */
+    public ChainRunner(String chainfilename) {
+        ChainGui chain = ChainGui.readChain(chainfilename);
+        chainRef = chain.myChainMap.get("CHAIN_REFERENCE");
+        sourceImages.addAll(chain.sourceImages);
+        addStages(chain.guiLinks);
+        if (stages.size() == 0) {
+            System.out.println("ChainRunner: no Link Guis in chain file:"+chainfilename);
+            isRunnable = false;
+        }
+    }
+
+    /**
+     * ChainRunner constructor - for the Link Gui's of a running ChainGui
+     *   The stages take the settings now shown by the Link Gui's; a Link Gui without getSettings()
+     *   must have saved its settings to its link file.
+     * @param chainRef - chain reference
+     * @param guiLinks - List of LinkGui's of the chain
+     */
+    ChainRunner(String chainRef, List<LinkGui> guiLinks) {
+        this.chainRef = chainRef;
+        addStages(guiLinks);
+        if (stages.size() == 0) {
+            isRunnable = false;
+        }
+    }
+
+    /**
+     * addStages - build a LinkStage for each Link Gui
+     * @param guiLinks - List of LinkGui's of the chain
+     */
+    private void addStages(List<LinkGui> guiLinks) {
+        for (LinkGui linkGui : guiLinks) {
+            String[] chunks = linkGui.name.trim().split("\\s+");
+            LinkStage stage = LinkStage.newStage(chunks[0]);
+            if (stage == null) {
+                isRunnable = false;
+            } else {
+                Map<String, String> settings = (linkGui.gui == null) ? null : linkGui.gui.getSettings();
+                if ((settings == null) || settings.isEmpty()) {
+                    settings = readSettings(linkGui.linkFile);
+                }
+                stage.setSettings(settings);
+            }
+            linkNames.add(chunks[0]);
+            stages.add(stage);
+        }
+        for (int i = 0; i < stages.size() - 1; i++) {
+            if (stages.get(i) != null) {
+                stages.get(i).outputPool = MatPool.shared;
+            }
+        }
+    }
+
+    /**
+     * readSettings - read a link file into a Map of key,value strings
+     *                using the same parser as the Link Guis.
+     * @param linkfilename - link file name
+     * @return Map - key,value strings of the link file; empty if file could not be read
+     */
+    public static Map<String, String> readSettings(String linkfilename) {
+        // A bare LinkClass has no Java Containers, only the link file parsing
+        LinkClass settings = new LinkClass();
+        settings.myLinkMap = new HashMap<>();
+        settings.readLinkFile(linkfilename);
+        return settings.myLinkMap;
+    }
+
+    /**
+     * run - process one image through all stages of the chain
+     *       Each image made by a stage is handed back to the MatPool, with its conversions
+     *       in the ColorCache, once the next stage has made its output. An output holding a
+     *       region of interest of the image is put back in the full frame.
+     * @param image - source image; left to the caller
+     * @return LinkData - output of the last stage, in full frame space
+     */
+    public LinkData run(Mat image) {
+        LinkData data = LinkData.fromMat(LinkData.IMG, image);
+        for (int i = 0; i < stages.size(); i++) {
+            LinkData output = stages.get(i).run(data);
+            if ((data.mat != null) && (data.mat != output.mat)) {
+                ColorCache.shared.release(data.mat);
+                if (data.mat != image) {
+                    MatPool.shared.release(data.mat);
+                }
+            }
+            data = output;
+        }
+        return unpooled(data).toFullFrame();
+    }
+
+    /**
+     * unpooled - output of the last stage, as the caller may keep it. A stage that passes
+     *            its input on hands out the image borrowed by the stage before it, so that
+     *            image is copied and handed back to the MatPool.
+     * @param data - output of the last stage
+     * @return LinkData - data, or a copy holding an image of its own
+     */
+    static LinkData unpooled(LinkData data) {
+        if (!MatPool.shared.isBorrowed(data.mat)) {
+            return data;
+        }
+        Mat copy = data.mat.clone();
+        MatPool.shared.release(data.mat);
+        if (data.roi != null) {
+            return LinkData.fromRoi(data.type, copy, data.roi, data.size);
+        }
+        return LinkData.fromMat(data.type, copy);
+    }
+
+    /**
+     * run - read and process one image file through all stages of the chain
+     * @param filename - name of image file, or julip .mat file
+     * @return LinkData - output of the last stage, or null if the file could not be read
+     */
+    public LinkData run(String filename) {
+        Mat image = LinkChannel.readImage(filename);
+        if ((image == null) || image.empty()) {
+            return null;
+        }
+        return run(image);
+    }
+
+    /**
+     * runImage - process one image file and time it; never throws
+     * @param result - ImageResult naming the image file; result text and time are filled in
+     */
+    public void runImage(ImageResult result) {
+        long imageTime = System.nanoTime();
+        try {
+            LinkData data = run(result.image);
+            if (data == null) {
+                result.result = "No image file";
+            } else {
+                result.result = data.toString();
+                result.isRead = true;
+            }
+        } catch (RuntimeException e) {
+            result.result = "ERROR: " + e.getMessage();
+        }
+        result.ms = (System.nanoTime() - imageTime) / 1.0e6;
+    }
+
+    /**
+     * runAll - process image files in parallel, one independent pipeline per image
+     * @param images - List of image file names
+     * @param pool   - ForkJoinPool to run the images on
+     * @return List<ImageResult> - results, in the same order as images
+     */
+    public List<ImageResult> runAll(List<String> images, ForkJoinPool pool) {
+        List<ImageResult> results = new ArrayList<>();
+        for (String image : images) {
+            results.add(new ImageResult(image));
+        }
+        pool.invoke(new RunTask(results, 0, results.size()));
+        return results;
+    }
+
+    /**
+     * RunTask - fork-join task to run a range of images, split in halves down to single images
+     */
+    private class RunTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<ImageResult> results;
+        private final int from;     // first index of range
+        private final int to;       // last index of range, exclusive
+
+        RunTask(List<ImageResult> results, int from, int to) {
+            this.results = results;
+            this.from    = from;
+            this.to      = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                runImage(results.get(from));
+            }
+            else if (to - from > 1) {
+                int mid = (from + to) / 2;
+                invokeAll(new RunTask(results, from, mid), new RunTask(results, mid, to));
+            }
+        }
+    }
+
+    /**
+     * listImages - list the image files of a directory, sorted by name
+     * @param dirname - directory name
+     * @return List<String> - image file names
+     */
+    public static List<String> listImages(String dirname) {
+        List<String> images = new ArrayList<>();
+        File[] files = new File(dirname).listFiles();
+        if (files == null) {
+            System.out.println("ChainRunner: not a readable directory:"+dirname);
+            return images;
+        }
+        for (File file : files) {
+            String[] tokens = file.getName().split("\\.(?=[^\\.]+$)");
+            if (file.isFile() && (tokens.length > 1) &&
+                Arrays.asList(IMAGE_EXTENSIONS).contains(tokens[1].toLowerCase())) {
+                images.add(file.getPath());
+            }
+        }
+        Collections.sort(images);
+        return images;
+    }
+
+    /**
+     * playFrames - play the frames of a video file or image directory through the chain,
+     *              reporting the result of each frame and the time spent in each link.
+     * @param runner - ChainRunner of chain
+     * @param frames - video file or directory of frames
+     * @param fps    - frames per second to play at; <= 0 for as fast as the chain runs
+     * @param pipelined - true to run each link on a worker thread of its own
+     */
+    public static void playFrames(ChainRunner runner, String frames, double fps, boolean pipelined) {
+        FrameSource source = FrameSource.open(frames);
+        if (source == null) {
+            return;
+        }
+        System.out.println("Chain "+runner.chainRef+": "+runner.linkNames);
+        System.out.println("Frames "+frames+": "+source.getFrameCount()+" frames recorded at "+
+                           String.format("%.1f", source.getFps())+" fps");
+        FramePlayer player = new FramePlayer(runner, source, fps, FramePlayer.DEFAULT_QUEUE, pipelined) {
+            @Override
+            public void frameDone(long index, LinkData result) {
+                System.out.println("frame " + index + "\t" + result);
+            }
+        };
+        player.start();
+        player.waitFor();
+        System.out.println(player);
+        for (String line : player.getLinkReport()) {
+            System.out.println("    " + line);
+        }
+    }
+
+    /**
+     * main - run a chain file over a directory or list of images.
+     */
+    public static void main(String[] args) {
+        String chainfilename = "";
+        List<String> images = new ArrayList<>();
+        boolean setImageDir = false;
+        boolean setImageIn  = false;
+        boolean setThreads  = false;
+        boolean setFrames   = false;
+        boolean setFps      = false;
+        boolean pipelined   = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String frames = null;
+        double fps = 0;
+
+        for (String arg : args) {
+            if (arg.equals("--help") || arg.equals("-help")) {
+                chainfilename = "";
+                break;
+            }
+            //
+            // Look for -d command.
+            // The next arg after -d is a directory of images.
+            //
+            if (setImageDir) {
+                images.addAll(listImages(arg));
+                setImageDir = false;
+            }
+            else if (setImageIn) {
+                images.add(arg);
+                setImageIn = false;
+            }
+            else if (setThreads) {
+                try {
+                    threads = Math.max(1, Integer.parseInt(arg));
+                } catch (NumberFormatException e) {
+                    System.out.println("-t "+arg+" is not integer");
+                }
+                setThreads = false;
+            }
+            else if (setFrames) {
+                frames = arg;
+                setFrames = false;
+            }
+            else if (setFps) {
+                try {
+                    fps = Double.parseDouble(arg);
+                } catch (NumberFormatException e) {
+                    System.out.println("-fps "+arg+" is not a number");
+                }
+                setFps = false;
+            }
+            else if (arg.equals("-d")) {
+                setImageDir = true;
+            }
+            //
+            // Look for -i command.
+            // The next arg after -i is an image input filename.
+            //
+            else if (arg.equals("-i")) {
+                setImageIn = true;
+            }
+            //
+            // Look for -t command.
+            // The next arg after -t is the number of images to run at the same time.
+            //
+            else if (arg.equals("-t")) {
+                setThreads = true;
+            }
+            //
+            // Look for -f command.
+            // The next arg after -f is a video file or a directory of frames.
+            //
+            else if (arg.equals("-f")) {
+                setFrames = true;
+            }
+            //
+            // Look for -fps command.
+            // The next arg after -fps is the frame rate to play frames at.
+            //
+            else if (arg.equals("-fps")) {
+                setFps = true;
+            }
+            //
+            // Look for -p command.
+            // Play frames with a worker thread for each link.
+            //
+            else if (arg.equals("-p")) {
+                pipelined = true;
+            }
+            else if (chainfilename.equals("")) {
+                chainfilename = arg;
+            }
+        }
+        if (chainfilename.equals("")) {
+            System.out.println("Usage:");
+            System.out.println("    [ ] = optional");
+            System.out.println("ChainRunner <ChainFileName> [-d <ImageDirectory>] [-i <ImageInputFileName>] ... [-t <Threads>]");
+            System.out.println("ChainRunner <ChainFileName> -f <VideoFileName or FrameDirectory> [-fps <FramesPerSecond>] [-p]");
+            System.out.println("    without -d or -i, the images listed in the chain file are run");
+            System.out.println("    -t sets the number of images run at the same time; default is number of cores");
+            System.out.println("    -f plays frames through the chain one after the other, dropping the oldest");
+            System.out.println("       waiting frame when the chain falls behind -fps; without -fps none are dropped");
+            System.out.println("    -p runs each link on a worker thread of its own, so links overlap on successive frames");
+            System.exit(0);
+        }
+
+        // Load the native OpenCV library
+        System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+
+        ChainRunner runner = new ChainRunner(chainfilename);
+        if (!runner.isRunnable) {
+            System.out.println("ChainRunner: chain "+runner.chainRef+" cannot be run headless: "+runner.linkNames);
+            System.exit(1);
+        }
+        if (frames != null) {
+            playFrames(runner, frames, fps, pipelined);
+            return;
+        }
+        if (images.size() == 0) {
+            images.addAll(runner.sourceImages);
+        }
+
+        System.out.println("Chain "+runner.chainRef+": "+runner.linkNames);
+        long startTime = System.nanoTime();
+        List<ImageResult> results = runner.runAll(images, new ForkJoinPool(threads));
+        double seconds = (System.nanoTime() - startTime) / 1.0e9;
+        int numImages = 0;
+        for (ImageResult result : results) {
+            if (result.isRead) {
+                numImages += 1;
+            }
+            System.out.println(result.image + "\t" + String.format("%.1f ms", result.ms) + "\t" + result.result);
+        }
+        System.out.println(numImages + " images in " + String.format("%.2f", seconds) + " sec: " +
+                           String.format("%.1f", (seconds > 0) ? numImages / seconds : 0.0) + " images/sec" +
+                           " on " + threads + " threads");
+    }
+
+    /**
+     * ImageResult - Class to hold the outcome of running a chain over one image
+     */
+    public static class ImageResult {
+        String  image;      // Name of image file
+        String  result;     // Output of last stage, as text
+        double  ms;         // Time to process the image, in milliseconds
+        boolean isRead;     // true if the image file could be read
+
+        /**
+         * Constructor - minimal non-null assignments
+         */
+        public ImageResult (String image) {
+            this.image = image;
+            this.result = "";
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
+
+import java.util.*;
+import java.util.List;
+
+import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * ColorCache - color conversions of images handed between links, shared by all links.
+ *
+ *   Links fed by the same image each used to call Imgproc.cvtColor on it: a forked
+ *   mesh converts the same frame BGR to HSV once for every InRange link, and a binary
+ *   mask is converted to BGR by LinkData.toImage() for every link that reads it.
+ *   convert() does each conversion of an image once, keyed by the image's native data
+ *   and the color conversion code, and hands out the same result to every link after.
+ *
+ *   Images handed between links are never written once made, so a conversion holds
+ *   for as long as the image lives. The cache keeps its own header on the image so
+ *   its data can not be freed, and its address reused, while the conversion is held.
+ *   Conversions are dropped by release() when the image leaves the pipeline, and the
+ *   least recently used are dropped when there are more than MAX_ENTRIES.
+ *
+ *   Every Mat handed out is a header of its own on the shared conversion: it must only
+ *   be read, but it may be released or kept by the caller as it pleases.
+ *   The cache is shared by all threads.
+ */
+public class ColorCache {
+
+    public static final int MAX_ENTRIES = 16;       // conversions held by the shared cache
+    public static final ColorCache shared = new ColorCache(MAX_ENTRIES);
+
+    private final int maxEntries;
+    private final LinkedHashMap<String, Conversion> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long hits   = 0;    // conversions handed out again
+    private long misses = 0;    // conversions done
+
+    /**
+     * ColorCache constructor
+     * @param maxEntries - upper bound of conversions held
+     */
+    public ColorCache(int maxEntries) {
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    /**
+     * convert - Imgproc.cvtColor of an image, done once per image and code
+     * @param src  - image; must not be written after
+     * @param code - Imgproc color conversion code, e.g. Imgproc.COLOR_BGR2HSV
+     * @return Mat - converted image; read only
+     */
+    public Mat convert(Mat src, int code) {
+        if (src.empty()) {
+            Mat dst = new Mat();
+            Imgproc.cvtColor(src, dst, code);
+            return dst;
+        }
+        String key = key(src, code);
+        synchronized (this) {
+            Conversion conversion = entries.get(key);
+            if (conversion != null) {
+                hits += 1;
+                return header(conversion.converted);
+            }
+        }
+        // Convert outside the lock, so links on other threads are not held up
+        Mat converted = new Mat();
+        Imgproc.cvtColor(src, converted, code);
+        synchronized (this) {
+            Conversion conversion = entries.get(key);
+            if (conversion != null) {
+                // another thread converted the same image meanwhile
+                converted.release();
+                hits += 1;
+                return header(conversion.converted);
+            }
+            misses += 1;
+            entries.put(key, new Conversion(addr(src), header(src), converted));
+            Iterator<Conversion> it = entries.values().iterator();
+            while ((entries.size() > maxEntries) && it.hasNext()) {
+                it.next().release();
+                it.remove();
+            }
+            return header(converted);
+        }
+    }
+
+    /**
+     * release - drop the conversions of an image that leaves the pipeline
+     * @param src - image
+     */
+    public synchronized void release(Mat src) {
+        if ((src == null) || src.empty() || entries.isEmpty()) {
+            return;
+        }
+        String addr = addr(src);
+        Iterator<Conversion> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Conversion conversion = it.next();
+            if (conversion.addr.equals(addr)) {
+                conversion.release();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * clear - drop all conversions
+     */
+    public synchronized void clear() {
+        for (Conversion conversion : entries.values()) {
+            conversion.release();
+        }
+        entries.clear();
+    }
+
+    /**
+     * toString - counters, for the ChainGui window
+     * @return String
+     */
+    @Override
+    public synchronized String toString() {
+        return "Color cache: " + hits + " hits, " + misses + " misses, " + entries.size() + " held";
+    }
+
+    /**
+     * addr - identity of the native data of an image, with its layout
+     * @param src - image
+     * @return String
+     */
+    private static String addr(Mat src) {
+        return src.dataAddr() + ":" + src.rows() + "x" + src.cols() + ":" + src.type() + ":" + src.step1();
+    }
+
+    /**
+     * key - cache key of a conversion
+     * @param src  - image
+     * @param code - Imgproc color conversion code
+     * @return String
+     */
+    private static String key(Mat src, int code) {
+        return addr(src) + ">" + code;
+    }
+
+    /**
+     * header - new Mat header sharing the data of a Mat
+     * @param mat - Mat
+     * @return Mat
+     */
+    private static Mat header(Mat mat) {
+        return mat.submat(0, mat.rows(), 0, mat.cols());
+    }
+}
+
+/**
+ * Conversion - Class to hold one color conversion of a ColorCache
+ */
+class Conversion {
+    String addr;        // identity of the image converted
+    Mat    source;      // header on the image, keeping its data alive
+    Mat    converted;   // converted image
+
+    /**
+     * Constructor
+     */
+    public Conversion (String addr, Mat source, Mat converted) {
+        this.addr      = addr;
+        this.source    = source;
+        this.converted = converted;
+    }
+
+    /**
+     * release - let go of the image and its conversion
+     */
+    void release() {
+        source.release();
+        converted.release();
+    }
+}
@@ -0,0 +1,507 @@
+package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
+
+import java.util.*;
+import java.util.List;
+
+import org.opencv.core.CvType;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.core.RotatedRect;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * ContourFeatures - table of the features of a List of contours, one column per feature.
+ *
+ *   Each column is a double[] with one entry per contour, in the order of the List.
+ *   A group of columns is calculated by OpenCV the first time it is asked for, for all
+ *   contours at once, and kept from then on:
+ *       areas()                                        Imgproc.contourArea
+ *       perimeters()                                   Imgproc.arcLength, closed
+ *       rectX(), rectY(), rectWidths(), rectHeights()  Imgproc.boundingRect
+ *       rotatedX(), rotatedY(), rotatedWidths(),
+ *       rotatedHeights(), rotatedAngles()              Imgproc.minAreaRect
+ *       circleX(), circleY(), circleRadii()            Imgproc.minEnclosingCircle
+ *
+ *   The table travels with the contours in LinkData, so every contour Link Gui down a chain
+ *   reads the features already calculated rather than asking OpenCV again. Filtering is
+ *   then a scan over the columns; select() hands the features of the kept contours on
+ *   to the next Link Gui. Areas and perimeters also have a FeatureIndex, the contours in
+ *   order of the feature, so the contours within a range are found by binary search.
+ *
+ *   The returned arrays belong to the table and must not be changed.
+ */
+public class ContourFeatures {
+
+    private final List<MatOfPoint> contours;
+
+    private double[] areas;
+    private double[] perimeters;
+    private double[] rectX;
+    private double[] rectY;
+    private double[] rectWidths;
+    private double[] rectHeights;
+    private double[] rotatedX;
+    private double[] rotatedY;
+    private double[] rotatedWidths;
+    private double[] rotatedHeights;
+    private double[] rotatedAngles;
+    private double[] circleX;
+    private double[] circleY;
+    private double[] circleRadii;
+    private FeatureIndex areaIndex;
+    private FeatureIndex perimeterIndex;
+
+    /**
+     * FeatureIndex - contours in ascending order of one feature, for range queries.
+     *                The contours with values in the range of a filter are
+     *                order[from(min)] up to, but not including, order[to(max)].
+     */
+    public static class FeatureIndex {
+
+        public final int[]    order;    // contour indices, by ascending value
+        public final double[] values;   // values of the contours, ascending
+
+        /**
+         * FeatureIndex constructor
+         * @param column - column of values, one per contour
+         */
+        public FeatureIndex(final double[] column) {
+            Integer[] sorted = new Integer[column.length];
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[i] = i;
+            }
+            Arrays.sort(sorted, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    return Double.compare(column[a], column[b]);
+                }
+            });
+            order  = new int[sorted.length];
+            values = new double[sorted.length];
+            for (int k = 0; k < sorted.length; k++) {
+                order[k]  = sorted[k];
+                values[k] = column[sorted[k]];
+            }
+        }
+
+        /**
+         * from - first position with a value greater than min
+         * @param min - lower threshold, exclusive
+         * @return int - position in order
+         */
+        public int from(double min) {
+            int lo = 0;
+            int hi = values.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (values[mid] > min) {
+                    hi = mid;
+                } else {
+                    lo = mid + 1;
+                }
+            }
+            return lo;
+        }
+
+        /**
+         * to - first position with a value not less than max
+         * @param max - upper threshold, exclusive; -1 for no limit
+         * @return int - position in order
+         */
+        public int to(double max) {
+            if (max < 0) {
+                return values.length;
+            }
+            int lo = 0;
+            int hi = values.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (values[mid] >= max) {
+                    hi = mid;
+                } else {
+                    lo = mid + 1;
+                }
+            }
+            return lo;
+        }
+    }
+
+    /**
+     * ContourFeatures constructor; no features are calculated until asked for
+     * @param contours - List of contours; the List is copied
+     */
+    public ContourFeatures(List<MatOfPoint> contours) {
+        this.contours = new ArrayList<>(contours);
+    }
+
+    /**
+     * size - number of contours
+     * @return int
+     */
+    public int size() {
+        return contours.size();
+    }
+
+    /**
+     * isOf - whether this is the table of the very same contours, in the same order
+     * @param others - List of contours
+     * @return boolean
+     */
+    public boolean isOf(List<MatOfPoint> others) {
+        if (others.size() != contours.size()) {
+            return false;
+        }
+        for (int i = 0; i < contours.size(); i++) {
+            if (others.get(i) != contours.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * getContours - contours of the table
+     * @return List<MatOfPoint> - new List of contours
+     */
+    public List<MatOfPoint> getContours() {
+        return new ArrayList<>(contours);
+    }
+
+    //--------------------------------------------------------------------------------------
+    // start of column methods
+    //
+    /**
+     * areas - area of every contour
+     * @return double[]
+     */
+    public synchronized double[] areas() {
+        if (areas == null) {
+            areas = new double[contours.size()];
+            for (int i = 0; i < contours.size(); i++) {
+                areas[i] = Imgproc.contourArea(contours.get(i), false);
+            }
+        }
+        return areas;
+    }
+
+    /**
+     * perimeters - perimeter of every contour, taken as closed
+     * @return double[]
+     */
+    public synchronized double[] perimeters() {
+        if (perimeters == null) {
+            perimeters = new double[contours.size()];
+            MatOfPoint2f contour2f = new MatOfPoint2f();
+            for (int i = 0; i < contours.size(); i++) {
+                perimeters[i] = Imgproc.arcLength(toFloat(contours.get(i), contour2f), true);
+            }
+            contour2f.release();
+        }
+        return perimeters;
+    }
+
+    // bounding Rect of every contour
+    public double[] rectX()       { calculateRects(); return rectX; }
+    public double[] rectY()       { calculateRects(); return rectY; }
+    public double[] rectWidths()  { calculateRects(); return rectWidths; }
+    public double[] rectHeights() { calculateRects(); return rectHeights; }
+
+    // rotated bounding Rect of every contour; center, size and angle
+    public double[] rotatedX()       { calculateRotatedRects(); return rotatedX; }
+    public double[] rotatedY()       { calculateRotatedRects(); return rotatedY; }
+    public double[] rotatedWidths()  { calculateRotatedRects(); return rotatedWidths; }
+    public double[] rotatedHeights() { calculateRotatedRects(); return rotatedHeights; }
+    public double[] rotatedAngles()  { calculateRotatedRects(); return rotatedAngles; }
+
+    // minimum enclosing circle of every contour
+    public double[] circleX()     { calculateCircles(); return circleX; }
+    public double[] circleY()     { calculateCircles(); return circleY; }
+    public double[] circleRadii() { calculateCircles(); return circleRadii; }
+
+    /**
+     * areaIndex - contours in order of area
+     * @return FeatureIndex
+     */
+    public synchronized FeatureIndex areaIndex() {
+        if (areaIndex == null) {
+            areaIndex = new FeatureIndex(areas());
+        }
+        return areaIndex;
+    }
+
+    /**
+     * perimeterIndex - contours in order of perimeter
+     * @return FeatureIndex
+     */
+    public synchronized FeatureIndex perimeterIndex() {
+        if (perimeterIndex == null) {
+            perimeterIndex = new FeatureIndex(perimeters());
+        }
+        return perimeterIndex;
+    }
+    //
+    // end of column methods
+    //-----------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------------------
+    // start of per contour methods
+    //
+    /**
+     * boundingRect - bounding Rect of a contour, as Imgproc.boundingRect
+     * @param i - index of contour
+     * @return Rect
+     */
+    public Rect boundingRect(int i) {
+        calculateRects();
+        return new Rect((int) rectX[i], (int) rectY[i], (int) rectWidths[i], (int) rectHeights[i]);
+    }
+
+    /**
+     * minAreaRect - rotated bounding Rect of a contour, as Imgproc.minAreaRect
+     * @param i - index of contour
+     * @return RotatedRect
+     */
+    public RotatedRect minAreaRect(int i) {
+        calculateRotatedRects();
+        return new RotatedRect(new Point(rotatedX[i], rotatedY[i]),
+                               new Size(rotatedWidths[i], rotatedHeights[i]),
+                               rotatedAngles[i]);
+    }
+
+    /**
+     * circleCenter - center of the minimum enclosing circle of a contour
+     * @param i - index of contour
+     * @return Point
+     */
+    public Point circleCenter(int i) {
+        calculateCircles();
+        return new Point(circleX[i], circleY[i]);
+    }
+
+    /**
+     * boundingAreas - area of a bounding geometry of every contour
+     * @param geometryIdx - 0 for bounding Rect, 1 for rotated bounding Rect,
+     *                      2 for minimum enclosing circle
+     * @return double[] - new array of areas
+     */
+    public double[] boundingAreas(int geometryIdx) {
+        double[] boundingAreas = new double[contours.size()];
+        if (geometryIdx == 0) {
+            double[] w = rectWidths();
+            double[] h = rectHeights();
+            for (int i = 0; i < boundingAreas.length; i++) {
+                boundingAreas[i] = w[i] * h[i];
+            }
+        }
+        else if (geometryIdx == 1) {
+            double[] w = rotatedWidths();
+            double[] h = rotatedHeights();
+            for (int i = 0; i < boundingAreas.length; i++) {
+                boundingAreas[i] = w[i] * h[i];
+            }
+        }
+        else if (geometryIdx == 2) {
+            double[] r = circleRadii();
+            for (int i = 0; i < boundingAreas.length; i++) {
+                boundingAreas[i] = Math.PI * r[i] * r[i];
+            }
+        }
+        else {
+            Arrays.fill(boundingAreas, 1.0);
+        }
+        return boundingAreas;
+    }
+    //
+    // end of per contour methods
+    //-----------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------------------
+    // start of filter methods
+    //
+    /**
+     * within - clear the keep flag of every contour whose value is out of range;
+     *          the range is the same open interval the filter Link Gui's have always used.
+     * @param values - column of values
+     * @param min    - values must be greater than min
+     * @param max    - values must be less than max; -1 for no limit
+     * @param keep   - keep flag of every contour
+     */
+    public static void within(double[] values, double min, double max, boolean[] keep) {
+        for (int i = 0; i < values.length; i++) {
+            if ((values[i] <= min) || ((max >= 0) && (values[i] >= max))) {
+                keep[i] = false;
+            }
+        }
+    }
+
+    /**
+     * keepAll - keep flags to start a filter with
+     * @return boolean[] - true for every contour
+     */
+    public boolean[] keepAll() {
+        boolean[] keep = new boolean[contours.size()];
+        Arrays.fill(keep, true);
+        return keep;
+    }
+
+    /**
+     * select - table of the kept contours, with the features calculated so far
+     * @param keep - keep flag of every contour
+     * @return ContourFeatures
+     */
+    public synchronized ContourFeatures select(boolean[] keep) {
+        int n = 0;
+        for (boolean k : keep) {
+            if (k) {
+                n += 1;
+            }
+        }
+        int[] index = new int[n];
+        List<MatOfPoint> kept = new ArrayList<>(n);
+        for (int i = 0, j = 0; i < keep.length; i++) {
+            if (keep[i]) {
+                index[j++] = i;
+                kept.add(contours.get(i));
+            }
+        }
+        ContourFeatures selected = new ContourFeatures(kept);
+        selected.areas          = select(areas, index);
+        selected.perimeters     = select(perimeters, index);
+        selected.rectX          = select(rectX, index);
+        selected.rectY          = select(rectY, index);
+        selected.rectWidths     = select(rectWidths, index);
+        selected.rectHeights    = select(rectHeights, index);
+        selected.rotatedX       = select(rotatedX, index);
+        selected.rotatedY       = select(rotatedY, index);
+        selected.rotatedWidths  = select(rotatedWidths, index);
+        selected.rotatedHeights = select(rotatedHeights, index);
+        selected.rotatedAngles  = select(rotatedAngles, index);
+        selected.circleX        = select(circleX, index);
+        selected.circleY        = select(circleY, index);
+        selected.circleRadii    = select(circleRadii, index);
+        return selected;
+    }
+
+    /**
+     * sorted - sorted copy of a column, as the Link Gui sliders step through it
+     * @param values - column of values
+     * @return double[] - new sorted array
+     */
+    public static double[] sorted(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+    //
+    // end of filter methods
+    //-----------------------------------------------------------------------
+
+    /**
+     * calculateRects - bounding Rect columns
+     */
+    private synchronized void calculateRects() {
+        if (rectX == null) {
+            int n = contours.size();
+            double[] x = new double[n];
+            double[] y = new double[n];
+            double[] w = new double[n];
+            double[] h = new double[n];
+            for (int i = 0; i < n; i++) {
+                Rect rect = Imgproc.boundingRect(contours.get(i));
+                x[i] = rect.x;
+                y[i] = rect.y;
+                w[i] = rect.width;
+                h[i] = rect.height;
+            }
+            rectY = y;
+            rectWidths = w;
+            rectHeights = h;
+            rectX = x;
+        }
+    }
+
+    /**
+     * calculateRotatedRects - rotated bounding Rect columns
+     */
+    private synchronized void calculateRotatedRects() {
+        if (rotatedX == null) {
+            int n = contours.size();
+            double[] x = new double[n];
+            double[] y = new double[n];
+            double[] w = new double[n];
+            double[] h = new double[n];
+            double[] a = new double[n];
+            MatOfPoint2f contour2f = new MatOfPoint2f();
+            for (int i = 0; i < n; i++) {
+                RotatedRect rect = Imgproc.minAreaRect(toFloat(contours.get(i), contour2f));
+                x[i] = rect.center.x;
+                y[i] = rect.center.y;
+                w[i] = rect.size.width;
+                h[i] = rect.size.height;
+                a[i] = rect.angle;
+            }
+            contour2f.release();
+            rotatedY = y;
+            rotatedWidths = w;
+            rotatedHeights = h;
+            rotatedAngles = a;
+            rotatedX = x;
+        }
+    }
+
+    /**
+     * calculateCircles - minimum enclosing circle columns
+     */
+    private synchronized void calculateCircles() {
+        if (circleX == null) {
+            int n = contours.size();
+            double[] x = new double[n];
+            double[] y = new double[n];
+            double[] r = new double[n];
+            Point center = new Point();
+            float[] radius = new float[1];
+            MatOfPoint2f contour2f = new MatOfPoint2f();
+            for (int i = 0; i < n; i++) {
+                Imgproc.minEnclosingCircle(toFloat(contours.get(i), contour2f), center, radius);
+                x[i] = center.x;
+                y[i] = center.y;
+                r[i] = radius[0];
+            }
+            contour2f.release();
+            circleY = y;
+            circleRadii = r;
+            circleX = x;
+        }
+    }
+
+    /**
+     * toFloat - float copy of a contour in a scratch Mat; OpenCV only grows it when needed
+     * @param contour   - contour
+     * @param contour2f - scratch Mat
+     * @return MatOfPoint2f - contour2f
+     */
+    private static MatOfPoint2f toFloat(MatOfPoint contour, MatOfPoint2f contour2f) {
+        contour.convertTo(contour2f, CvType.CV_32FC2);
+        return contour2f;
+    }
+
+    /**
+     * select - entries of a column at the given indices
+     * @param values - column, or null if not calculated
+     * @param index  - indices to keep
+     * @return double[] - new column, or null
+     */
+    private static double[] select(double[] values, int[] index) {
+        if (values == null) {
+            return null;
+        }
+        double[] selected = new double[index.length];
+        for (int i = 0; i < index.length; i++) {
+            selected[i] = values[index[i]];
+        }
+        return selected;
+    }
+}
@@ -5,9 +5,15 @@ import java.io.BufferedWriter;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.List;
 
+import org.opencv.core.CvType;
 import org.opencv.core.Mat;
 import org.opencv.core.MatOfPoint;
 import org.opencv.core.MatOfPoint2f;
@@ -19,7 +25,19 @@ import org.opencv.core.Point;
 public class ContourHandler {
 
 /*
-    julip contour file format: 
+    julip contour file format, binary (written by saveContours):
+        .ctr file extension.
+        header, big-endian ints:
+            4 bytes : magic "JCTR"
+            int     : format version, currently 1
+            int     : col of Mat dimension of image associated with the contours
+            int     : row of Mat dimension of image associated with the contours
+            int     : number of contours in the file
+            int     : number of points, for each contour
+        followed by the points of all contours, one after the other:
+            int32 <x-coor>, int32 <y-coor>, little-endian; same layout as a CV_32SC2 MatOfPoint
+
+    julip contour file format, text (written by saveContoursText, still read by loadContours):
         .ctr file extension.        
         first line gives Mat dimension of image associated with the contours
             <col>x<row>
@@ -32,15 +50,70 @@ public class ContourHandler {
                 <x-coor>\t<y-coor>        
 */
 
+    private static final byte[] MAGIC   = {'J', 'C', 'T', 'R'};
+    private static final int    VERSION = 1;
 
     /**
-     * saveContours - export a julip-formatted contour file from a Link Gui.
-     * @param filename - name of text file to write to
+     * saveContours - export a julip binary contour file from a Link Gui.
+     *                The points of each contour are pulled out in one bulk get.
+     * @param filename - name of binary file to write to
      * @param img      - Mat image associated with contours
      * @param contours - List<MatOfPoint> of contours
      */
     public static void saveContours(String filename, Mat img, List<MatOfPoint> contours) {
 
+        // bulk get needs int32 points; any other point type is converted first
+        List<Mat> packed = new ArrayList<>();
+        int numPoints = 0;
+        for (int c = 0; c < contours.size(); c++) {
+            Mat contour = contours.get(c);
+            if ((contour.type() != CvType.CV_32SC2) || !contour.isContinuous()) {
+                Mat converted = new Mat();
+                contour.convertTo(converted, CvType.CV_32S);
+                contour = converted.reshape(2, (int) contour.total());
+            }
+            packed.add(contour);
+            numPoints += (int) contour.total();
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(4 * (5 + contours.size()) + 8 * numPoints);
+        buffer.put(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(img.cols());
+        buffer.putInt(img.rows());
+        buffer.putInt(packed.size());
+        for (int c = 0; c < packed.size(); c++) {
+            buffer.putInt((int) packed.get(c).total());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        for (int c = 0; c < packed.size(); c++) {
+            int[] coors = new int[2 * (int) packed.get(c).total()];
+            if (coors.length > 0) {
+                packed.get(c).get(0, 0, coors);
+                buffer.asIntBuffer().put(coors);
+                buffer.position(buffer.position() + 4 * coors.length);
+            }
+        }
+        buffer.rewind();
+
+        try (FileChannel channel = FileChannel.open(Paths.get(filename),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            System.out.println(e);
+        }
+    }
+
+    /**
+     * saveContoursText - export the original julip text contour file from a Link Gui.
+     * @param filename - name of text file to write to
+     * @param img      - Mat image associated with contours
+     * @param contours - List<MatOfPoint> of contours
+     */
+    public static void saveContoursText(String filename, Mat img, List<MatOfPoint> contours) {
+
         BufferedWriter writer;
         try {
             writer = new BufferedWriter(new FileWriter(filename));
@@ -72,11 +145,108 @@ public class ContourHandler {
 
     /**
      * loadContours - import a julip-formatted contour file into a Link Gui.
-     * @param filename - name of text file of contour data
+     *                Binary and text formats are told apart by the magic header.
+     * @param filename - name of binary or text file of contour data
      * @return List<MatOfPoint> - List of contours; except first entry is a Mat Size
      */
     public static List<MatOfPoint> loadContours(String filename) {
 
+        List<MatOfPoint> contours;
+        
+        // Contours handed over in memory by a previous Link Gui take precedence over the file
+        contours = LinkChannel.readContours(filename);
+        if (contours != null) {
+            return contours;
+        }
+
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            System.out.println(e);
+            return null;
+        }
+        byte[] magic = new byte[MAGIC.length];
+        if (buffer.remaining() >= MAGIC.length) {
+            buffer.get(magic);
+        }
+        if (Arrays.equals(magic, MAGIC)) {
+            return loadContoursBinary(buffer, filename);
+        }
+        return loadContoursText(filename);
+    }
+
+    /**
+     * loadFeatures - ContourFeatures of the contours imported by loadContours.
+     *                Features already calculated for contours handed over in memory are reused.
+     * @param filename - name of binary or text file of contour data
+     * @param contours - List of contours, without the Mat Size entry
+     * @return ContourFeatures
+     */
+    public static ContourFeatures loadFeatures(String filename, List<MatOfPoint> contours) {
+        ContourFeatures features = LinkChannel.readFeatures(filename);
+        if ((features != null) && features.isOf(contours)) {
+            return features;
+        }
+        return new ContourFeatures(contours);
+    }
+
+    /**
+     * loadContoursBinary - build contours from a julip binary contour file,
+     *                      each contour filled with one bulk put.
+     * @param buffer   - file contents, positioned just past the magic
+     * @param filename - name of file, for error messages
+     * @return List<MatOfPoint> - List of contours; except first entry is a Mat Size
+     *                            null if the file is not valid
+     */
+    private static List<MatOfPoint> loadContoursBinary(ByteBuffer buffer, String filename) {
+
+        List<MatOfPoint> contours = new ArrayList<>();
+        try {
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                System.out.println("loadContours: unknown julip .ctr version "+version+" in "+filename);
+                return null;
+            }
+            // Consider the col, row of the Mat Size to be a Point.
+            // We construct a MatOfPoint with a single Point and
+            // make this the first entry for the List of contours.
+            int cols = buffer.getInt();
+            int rows = buffer.getInt();
+            contours.add(new MatOfPoint(new Point(cols, rows)));
+
+            int numContours = buffer.getInt();
+            int[] numPoints = new int[numContours];
+            buffer.asIntBuffer().get(numPoints);
+            buffer.position(buffer.position() + 4 * numContours);
+
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            for (int c = 0; c < numContours; c++) {
+                int[] coors = new int[2 * numPoints[c]];
+                buffer.asIntBuffer().get(coors);
+                buffer.position(buffer.position() + 4 * coors.length);
+                MatOfPoint contour = new MatOfPoint();
+                if (numPoints[c] > 0) {
+                    contour.alloc(numPoints[c]);
+                    contour.put(0, 0, coors);
+                }
+                contours.add(contour);
+            }
+        } catch (RuntimeException e) {
+            // BufferUnderflowException, IllegalArgumentException of a truncated file
+            System.out.println("loadContours: julip .ctr file is truncated: "+filename);
+            contours = null;
+        }
+        return contours;
+    }
+
+    /**
+     * loadContoursText - import the original julip text contour file.
+     * @param filename - name of text file of contour data
+     * @return List<MatOfPoint> - List of contours; except first entry is a Mat Size
+     */
+    private static List<MatOfPoint> loadContoursText(String filename) {
+
         List<MatOfPoint> contours;
         MatOfPoint contour;
         List<Point> points = new ArrayList<>();
@@ -0,0 +1,453 @@
+package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
+
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import org.opencv.core.Mat;
+
+/**
+ * FramePlayer - stream the frames of a FrameSource through the stages of a ChainRunner.
+ *
+ *   A reader thread reads the frames at the target frame rate, as a camera would deliver
+ *   them, into a bounded queue. A worker thread takes them out of the queue and runs the
+ *   chain on each, one after the other. When the chain falls behind and the queue is full,
+ *   the oldest frame waiting is dropped, so the chain always works on recent frames, just as
+ *   it would on a robot. With no target frame rate the frames are read as fast as the chain
+ *   takes them and none are dropped.
+ *
+ *   Pipelined, each link of the chain runs on a worker thread of its own instead, handing
+ *   its output on to the next link through a small bounded queue. While a later link works
+ *   on one frame, the links before it work on the frames after it, so frames are done at
+ *   the rate of the slowest link rather than of all links together. Each link takes its
+ *   frames in the order they were read, so the results still come out in frame order.
+ *
+ *   The frames read, done and dropped, the achieved frame rate and the time spent in each
+ *   link are counted while playing. Override frameDone() to see the result of every frame.
+ */
+public class FramePlayer {
+
+    public static final int DEFAULT_QUEUE = 4;      // frames waiting for the chain
+    public static final int PIPE_QUEUE    = 2;      // frames waiting between two links when pipelined
+
+    private final ChainRunner runner;               // stages of the chain
+    private final FrameSource source;               // frames to play
+    private final double      targetFps;            // <= 0 to read frames as fast as they are taken
+    private final ArrayBlockingQueue<Frame> queue;  // frames read, waiting for the chain
+    private final boolean     pipelined;            // true for a worker thread per link
+
+    private Thread           reader;
+    private Thread           worker;                // runs the chain, or collects the results when pipelined
+    private List<Thread>     linkWorkers = new ArrayList<>();   // worker of each link when pipelined
+    private volatile boolean stopped = false;
+
+    private long     framesRead    = 0;
+    private long     framesDone    = 0;
+    private long     framesDropped = 0;
+    private long     startNanos    = 0;
+    private long     endNanos      = 0;             // 0 while playing
+    private final long[] linkNanos;                 // total time spent in each link
+    private final long[] linkLastNanos;             // time spent in each link on the last frame
+    private String   lastResult = "";
+
+    /**
+     * FramePlayer constructor
+     * @param runner    - ChainRunner whose stages the frames are run through
+     * @param source    - FrameSource of frames
+     * @param targetFps - frames per second to read; <= 0 to read as fast as the chain takes them
+     * @param queueSize - number of frames that may wait for the chain
+     * @param pipelined - true to run each link on a worker thread of its own
+     */
+    public FramePlayer(ChainRunner runner, FrameSource source, double targetFps, int queueSize, boolean pipelined) {
+        this.runner    = runner;
+        this.source    = source;
+        this.targetFps = targetFps;
+        this.queue     = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        this.pipelined = pipelined;
+        linkNanos      = new long[runner.stages.size()];
+        linkLastNanos  = new long[runner.stages.size()];
+    }
+    // alternate method signature
+    public FramePlayer(ChainRunner runner, FrameSource source, double targetFps, int queueSize) {
+        this(runner, source, targetFps, queueSize, false);
+    }
+
+    /**
+     * start - start the reader and worker threads
+     */
+    public synchronized void start() {
+        startNanos = System.nanoTime();
+        reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                readFrames();
+            }
+        }, "FramePlayer reader");
+        if (pipelined) {
+            // queue of the reader -> link 0 -> link 1 -> ... -> results
+            ArrayBlockingQueue<Frame> in = queue;
+            for (int i = 0; i < runner.stages.size(); i++) {
+                final int link = i;
+                final ArrayBlockingQueue<Frame> linkIn  = in;
+                final ArrayBlockingQueue<Frame> linkOut = new ArrayBlockingQueue<>(PIPE_QUEUE);
+                Thread linkWorker = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        runLink(link, linkIn, linkOut);
+                    }
+                }, "FramePlayer link " + i + " " + runner.linkNames.get(i));
+                linkWorker.setDaemon(true);
+                linkWorkers.add(linkWorker);
+                in = linkOut;
+            }
+            final ArrayBlockingQueue<Frame> results = in;
+            worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    collectFrames(results);
+                }
+            }, "FramePlayer results");
+        } else {
+            worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    runFrames();
+                }
+            }, "FramePlayer worker");
+        }
+        reader.setDaemon(true);
+        worker.setDaemon(true);
+        reader.start();
+        for (Thread linkWorker : linkWorkers) {
+            linkWorker.start();
+        }
+        worker.start();
+    }
+
+    /**
+     * stop - stop reading frames; the frames already read are still run
+     */
+    public void stop() {
+        stopped = true;
+        if (reader != null) {
+            reader.interrupt();
+        }
+    }
+
+    /**
+     * waitFor - wait until the last frame is done
+     */
+    public void waitFor() {
+        try {
+            if (reader != null) {
+                reader.join();
+            }
+            for (Thread linkWorker : linkWorkers) {
+                linkWorker.join();
+            }
+            if (worker != null) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * frameDone - May be overridden; called on the worker thread after each frame.
+     * @param index  - number of frame in the source, from 0
+     * @param result - output of the last stage
+     */
+    public void frameDone(long index, LinkData result) {
+    }
+
+    //--------------------------------------------------------------------------------------
+    // start of thread methods
+    //
+    /**
+     * readFrames - read frames into the queue at the target frame rate
+     */
+    private void readFrames() {
+        long interval = (targetFps > 0) ? (long) (1.0e9 / targetFps) : 0;
+        long due      = System.nanoTime();
+        long index    = 0;
+        try {
+            while (!stopped) {
+                Mat mat = source.read();
+                if (mat == null) {
+                    break;
+                }
+                Frame frame = new Frame(index++, mat);
+                synchronized (this) {
+                    framesRead += 1;
+                }
+                if (interval == 0) {
+                    queue.put(frame);
+                    continue;
+                }
+                // a camera does not wait for the chain; make room by dropping the oldest frame
+                while (!queue.offer(frame)) {
+                    Frame oldest = queue.poll();
+                    if (oldest != null) {
+                        oldest.mat.release();
+                        synchronized (this) {
+                            framesDropped += 1;
+                        }
+                    }
+                }
+                due += interval;
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+                } else if (wait < -interval) {
+                    // reading fell behind; keep the frame rate from here rather than catch up
+                    due = System.nanoTime();
+                }
+            }
+        } catch (InterruptedException e) {
+            // stopped
+        }
+        source.close();
+        // the end of frames marker is never dropped
+        boolean marked = false;
+        while (!marked) {
+            try {
+                queue.put(new Frame(-1, null));
+                marked = true;
+            } catch (InterruptedException e) {
+                // keep trying; the worker is still taking frames
+            }
+        }
+    }
+
+    /**
+     * runFrames - run the frames in the queue through the chain until the end of frames marker
+     */
+    private void runFrames() {
+        while (true) {
+            Frame frame;
+            try {
+                frame = queue.take();
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (frame.mat == null) {
+                break;
+            }
+            finishFrame(frame.index, ChainRunner.unpooled(runFrame(frame.mat)).toFullFrame());
+        }
+        synchronized (this) {
+            endNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * runLink - pipelined; run one link on the frames coming out of the link before it,
+     *           and hand them on to the link after it, until the end of frames marker.
+     *           A frame that failed in an earlier link is handed on as it is.
+     * @param link - index of link in chain
+     * @param in   - frames waiting for this link
+     * @param out  - frames waiting for the next link, or for collectFrames()
+     */
+    private void runLink(int link, ArrayBlockingQueue<Frame> in, ArrayBlockingQueue<Frame> out) {
+        LinkStage stage = runner.stages.get(link);
+        try {
+            while (true) {
+                Frame frame = in.take();
+                if (frame.index < 0) {
+                    out.put(frame);
+                    break;
+                }
+                if (frame.data == null) {
+                    frame.data = LinkData.fromMat(LinkData.IMG, frame.mat);
+                }
+                if (!frame.failed) {
+                    LinkData data = frame.data;
+                    try {
+                        long start = System.nanoTime();
+                        LinkData output = stage.run(data);
+                        long nanos = System.nanoTime() - start;
+                        synchronized (this) {
+                            linkNanos[link] += nanos;
+                            linkLastNanos[link] = nanos;
+                        }
+                        if ((data.mat != null) && (data.mat != output.mat)) {
+                            ColorCache.shared.release(data.mat);
+                            MatPool.shared.release(data.mat);
+                        }
+                        frame.data = output;
+                    } catch (RuntimeException e) {
+                        // the frame goes no further, so its image is done with
+                        if (data.mat != null) {
+                            ColorCache.shared.release(data.mat);
+                            MatPool.shared.release(data.mat);
+                        }
+                        frame.data   = LinkData.fromResult("ERROR: " + e.getMessage());
+                        frame.failed = true;
+                    }
+                }
+                out.put(frame);
+            }
+        } catch (InterruptedException e) {
+            // worker threads are daemons; nothing to clean up
+        }
+    }
+
+    /**
+     * collectFrames - pipelined; take the frames out of the last link, in frame order,
+     *                 until the end of frames marker
+     * @param results - frames done by the last link
+     */
+    private void collectFrames(ArrayBlockingQueue<Frame> results) {
+        while (true) {
+            Frame frame;
+            try {
+                frame = results.take();
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (frame.index < 0) {
+                break;
+            }
+            finishFrame(frame.index, (frame.data != null) ? ChainRunner.unpooled(frame.data).toFullFrame() : LinkData.fromMat(LinkData.IMG, frame.mat));
+        }
+        synchronized (this) {
+            endNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * finishFrame - count a frame done and hand its result to frameDone()
+     * @param index  - number of frame in the source
+     * @param result - output of the last stage
+     */
+    private void finishFrame(long index, LinkData result) {
+        synchronized (this) {
+            framesDone += 1;
+            lastResult = result.toString();
+        }
+        frameDone(index, result);
+    }
+
+    /**
+     * runFrame - run one frame through the stages, timing each link.
+     *            Each image is released, with its conversions in the ColorCache, once the
+     *            next stage has made its output; one borrowed by a stage goes back to the
+     *            MatPool, and other Mats sharing its data keep the data.
+     * @param mat - frame
+     * @return LinkData - output of the last stage
+     */
+    private LinkData runFrame(Mat mat) {
+        LinkData data = LinkData.fromMat(LinkData.IMG, mat);
+        try {
+            for (int i = 0; i < runner.stages.size(); i++) {
+                long start = System.nanoTime();
+                LinkData output = runner.stages.get(i).run(data);
+                long nanos = System.nanoTime() - start;
+                synchronized (this) {
+                    linkNanos[i] += nanos;
+                    linkLastNanos[i] = nanos;
+                }
+                if ((data.mat != null) && (data.mat != output.mat)) {
+                    ColorCache.shared.release(data.mat);
+                    MatPool.shared.release(data.mat);
+                }
+                data = output;
+            }
+        } catch (RuntimeException e) {
+            // the frame goes no further, so the image the failed stage was given is done with
+            if (data.mat != null) {
+                ColorCache.shared.release(data.mat);
+                MatPool.shared.release(data.mat);
+            }
+            data = LinkData.fromResult("ERROR: " + e.getMessage());
+        }
+        return data;
+    }
+    //
+    // end of thread methods
+    //-----------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------------------
+    // start of counter methods
+    //
+    /**
+     * isDone - whether the last frame is done
+     * @return boolean
+     */
+    public synchronized boolean isDone() {
+        return endNanos != 0;
+    }
+
+    /**
+     * getFps - frames done per second so far
+     * @return double
+     */
+    public synchronized double getFps() {
+        long nanos = ((endNanos != 0) ? endNanos : System.nanoTime()) - startNanos;
+        return (nanos > 0) ? framesDone * 1.0e9 / nanos : 0.0;
+    }
+
+    /**
+     * getLinkMs - mean time spent in a link per frame
+     * @param link - index of link in chain
+     * @return double - milliseconds
+     */
+    public synchronized double getLinkMs(int link) {
+        return (framesDone > 0) ? linkNanos[link] / 1.0e6 / framesDone : 0.0;
+    }
+
+    /**
+     * getLastResult - output of the last stage for the last frame done
+     * @return String
+     */
+    public synchronized String getLastResult() {
+        return lastResult;
+    }
+
+    /**
+     * toString - frame counters and frame rate, for the ChainGui window
+     * @return String
+     */
+    @Override
+    public synchronized String toString() {
+        return "Frames: " + framesRead + " read, " + framesDone + " done, " + framesDropped + " dropped, " +
+               String.format("%.1f", getFps()) + " fps" +
+               ((targetFps > 0) ? " (target " + String.format("%.1f", targetFps) + ")" : "") +
+               (pipelined ? ", pipelined" : "");
+    }
+
+    /**
+     * getLinkReport - time spent in each link, one line per link
+     * @return List<String> - "name: mean ms (last ms)" for each link
+     */
+    public synchronized List<String> getLinkReport() {
+        List<String> report = new ArrayList<>();
+        for (int i = 0; i < linkNanos.length; i++) {
+            report.add(runner.linkNames.get(i) + ": " + String.format("%.2f", getLinkMs(i)) + " ms (last " +
+                       String.format("%.2f", linkLastNanos[i] / 1.0e6) + " ms)");
+        }
+        return report;
+    }
+    //
+    // end of counter methods
+    //-----------------------------------------------------------------------
+}
+
+/**
+ * Frame - Class to hold one frame read from a FrameSource
+ */
+class Frame {
+    long     index;     // number of frame in the source, from 0; -1 for the end of frames marker
+    Mat      mat;       // frame; null for the end of frames marker
+    LinkData data;      // output of the last link done when pipelined; null before the first
+    boolean  failed;    // true if a link failed when pipelined; data holds the error
+
+    /**
+     * Constructor
+     */
+    public Frame (long index, Mat mat) {
+        this.index = index;
+        this.mat   = mat;
+    }
+}
@@ -0,0 +1,160 @@
+package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
+
+import java.io.File;
+import java.util.*;
+import java.util.List;
+
+import org.opencv.core.Mat;
+import org.opencv.videoio.VideoCapture;
+import org.opencv.videoio.Videoio;
+
+/**
+ * FrameSource - recorded frames to stream through a chain, read one after the other.
+ *
+ *   A FrameSource is either a directory of image files, read in name order, or a video file
+ *   read through OpenCV VideoCapture. Only offline files are read; there is no camera source.
+ *   Use FrameSource.open() to get the right one for a file name.
+ */
+public abstract class FrameSource {
+
+    public String name;         // directory or video file name
+
+    /**
+     * open - FrameSource for a directory of images or a video file
+     * @param name - directory or video file name
+     * @return FrameSource - null if nothing could be opened
+     */
+    public static FrameSource open(String name) {
+        FrameSource source;
+        if (new File(name).isDirectory()) {
+            source = new ImageSequenceSource(name);
+        } else {
+            source = new VideoFileSource(name);
+        }
+        if (!source.isOpened()) {
+            System.out.println("FrameSource: no frames in:"+name);
+            source.close();
+            return null;
+        }
+        return source;
+    }
+
+    /**
+     * isOpened - whether the source has frames to read
+     * @return boolean
+     */
+    public abstract boolean isOpened();
+
+    /**
+     * read - next frame
+     * @return Mat - BGR frame, owned by the caller; null after the last frame
+     */
+    public abstract Mat read();
+
+    /**
+     * getFps - frame rate the frames were recorded at
+     * @return double - frames per second; 0 if not known
+     */
+    public abstract double getFps();
+
+    /**
+     * getFrameCount - number of frames
+     * @return int - frames; -1 if not known
+     */
+    public abstract int getFrameCount();
+
+    /**
+     * close - release the source
+     */
+    public abstract void close();
+}
+
+/**
+ * ImageSequenceSource - frames from the image files of a directory, in name order
+ */
+class ImageSequenceSource extends FrameSource {
+
+    private final List<String> images;   // image file names
+    private int next = 0;                // index of next image
+
+    ImageSequenceSource(String dirname) {
+        name   = dirname;
+        images = ChainRunner.listImages(dirname);
+    }
+
+    @Override
+    public boolean isOpened() {
+        return !images.isEmpty();
+    }
+
+    @Override
+    public Mat read() {
+        while (next < images.size()) {
+            Mat frame = LinkChannel.readImage(images.get(next++));
+            if ((frame != null) && !frame.empty()) {
+                return frame;
+            }
+            System.out.println("FrameSource: skipped unreadable image:"+images.get(next-1));
+        }
+        return null;
+    }
+
+    @Override
+    public double getFps() {
+        return 0;
+    }
+
+    @Override
+    public int getFrameCount() {
+        return images.size();
+    }
+
+    @Override
+    public void close() {
+        next = images.size();
+    }
+}
+
+/**
+ * VideoFileSource - frames of a video file, through OpenCV VideoCapture
+ */
+class VideoFileSource extends FrameSource {
+
+    private final VideoCapture capture;
+
+    VideoFileSource(String filename) {
+        name    = filename;
+        capture = new VideoCapture(filename);
+    }
+
+    @Override
+    public boolean isOpened() {
+        return capture.isOpened();
+    }
+
+    @Override
+    public Mat read() {
+        Mat frame = new Mat();
+        if (!capture.read(frame) || frame.empty()) {
+            frame.release();
+            return null;
+        }
+        return frame;
+    }
+
+    @Override
+    public double getFps() {
+        return capture.get(Videoio.CAP_PROP_FPS);
+    }
+
+    @Override
+    public int getFrameCount() {
+        double count = capture.get(Videoio.CAP_PROP_FRAME_COUNT);
+        return (count > 0) ? (int) count : -1;
+    }
+
+    @Override
+    public void close() {
+        capture.release();
+    }
+}
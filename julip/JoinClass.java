@@ -339,9 +339,9 @@ public class JoinClass extends LinkClass {
         loadImageB.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                if (loadImage(textFieldImageIn.getText())) {
+                if (loadInput(textFieldImageIn.getText())) {
                     loadImageB.setBackground(null);
-                    refreshImage();                    
+                    refreshOutput();                    
                 } else {
                     loadImageB.setBackground(Color.RED);
                 }
@@ -364,7 +364,7 @@ public class JoinClass extends LinkClass {
         saveImageB.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                saveImage();
+                saveOutput();
             }
         });
         linkPanel.add(saveImageB);        
@@ -445,8 +445,7 @@ public class JoinClass extends LinkClass {
         boolean status = readLinkFile(textFieldLink.getText());
         verifySettings();
         mapToSettings();
-        refreshSettings();
-        refreshImage();
+        refreshNow();
         return status;
     }
     
@@ -96,8 +96,7 @@ public class JoinRelicJewel extends LinkClass {
         //
         // All frames have a display image
         //
-        Image img = HighGui.toBufferedImage(matImgSrc);
-        imgLabel = new JLabel(new ImageIcon(img));        
+        imgLabel = new JLabel(previewIcon(matImgSrc));
         //
         //----------------------------------------------
         //
@@ -258,25 +257,9 @@ public class JoinRelicJewel extends LinkClass {
         // Size is <col>x<row> and Mat methods are (row,col) so swap order of args
         matImgSrc = Mat.zeros((int)redSize[1], (int)redSize[0], CvType.CV_8UC3);
                                                 
-        redCenter = new Point();
-        MatOfPoint   redContour = redContours.get(0);
-        MatOfPoint2f redContour2f = new MatOfPoint2f(redContour.toArray());
-        float[] redRadius = new float[1];
-        Imgproc.minEnclosingCircle(
-            redContour2f, // MatOfPoint2f - input Points
-            redCenter,    // Point        - center of circle
-            redRadius     // float[]      - radius of circle
-        );
-        
-        blueCenter = new Point();
-        MatOfPoint   blueContour = blueContours.get(0);
-        MatOfPoint2f blueContour2f = new MatOfPoint2f(blueContour.toArray());
-        float[] blueRadius = new float[1];
-        Imgproc.minEnclosingCircle(
-            blueContour2f, // MatOfPoint2f - input Points
-            blueCenter,    // Point        - center of circle
-            blueRadius     // float[]      - radius of circle
-        );        
+        // centers of minimum enclosing circles from the features of the contours
+        redCenter  = ContourHandler.loadFeatures(redfilename, redContours).circleCenter(0);
+        blueCenter = ContourHandler.loadFeatures(bluefilename, blueContours).circleCenter(0);
         return true;
     }
     
@@ -446,8 +429,7 @@ public class JoinRelicJewel extends LinkClass {
         }        
         labelImageIs.setText(msg);
         
-        Image img = HighGui.toBufferedImage(matImgDst);
-        imgLabel.setIcon(new ImageIcon(img));        
+        showImage(matImgDst);
         frame.pack();
         frame.repaint();
     }    
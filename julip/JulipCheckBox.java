@@ -12,7 +12,7 @@ import javax.swing.event.*;
 public class JulipCheckBox {
 
     public JCheckBox checkBox;
-    public boolean   selected = false;
+    public volatile boolean selected = false;   // read by refreshImage() off the Swing event thread
 
     /**
      * setValue - set selected entry of JComboBox
@@ -38,8 +38,7 @@ public class JulipCheckBox {
                 @SuppressWarnings("unchecked")
                 JCheckBox kb = (JCheckBox) e.getSource();
                 selected = kb.isSelected();
-                self.refreshSettings();
-                self.refreshImage();
+                self.requestRefresh();
             }
         });
     }
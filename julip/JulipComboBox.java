@@ -12,7 +12,7 @@ import javax.swing.event.*;
 public class JulipComboBox {
 
     public JComboBox comboBox;
-    public int       index = 0;
+    public volatile int index = 0;   // selected index; read by refreshImage() off the Swing event thread
 
     /**
      * setValue - set selected entry of JComboBox
@@ -38,8 +38,7 @@ public class JulipComboBox {
                 @SuppressWarnings("unchecked")
                 JComboBox<String> cb = (JComboBox<String>)e.getSource();
                 index = cb.getSelectedIndex();
-                self.refreshSettings();
-                self.refreshImage();
+                self.requestRefresh();
             }
         });
     }
@@ -15,7 +15,7 @@ import javax.swing.event.*;
 public class JulipTrackBar {
 
     public JLabel    label = new JLabel(".");  // Label to position programmable text above the Slider
-    public int       value = 0;                // Current value of slider
+    public volatile int value = 0;             // Current value of slider; read by refreshImage() off the Swing event thread
     public JSlider   slider;                   // Java Slider to allow user to change setting value
     public boolean   suppressListener = false; // Flag to allow temporary suppression of JSlider listener
     
@@ -77,8 +77,8 @@ public class JulipTrackBar {
                 if (!suppressListener) {
                     JSlider source = (JSlider) e.getSource();
                     value = source.getValue();
-                    self.refreshSettings();
-                    self.refreshImage();
+                    // while the slider is dragged the Link Gui may show a quicker, shrunken preview
+                    self.requestRefresh(source.getValueIsAdjusting());
                 }
             }
         });
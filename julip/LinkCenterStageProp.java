@@ -42,7 +42,6 @@ public class LinkCenterStageProp extends LinkClass {
         "CENTER",
         "RIGHT"
     };
-    private int propIndex;
 
     private JLabel labelImageIs;
        
@@ -76,8 +75,9 @@ public class LinkCenterStageProp extends LinkClass {
     
     List<MatOfPoint> contours;
     
+    ContourFeatures  features;        // features of contours, shared with the stage
+    
     List<Point>   circleCenters;
-    List<Double>  contourAreas;
     
     //
     //------------------------------------------------
@@ -88,7 +88,6 @@ public class LinkCenterStageProp extends LinkClass {
         //
         anchor = new Point(-1,-1);
         circleCenters = new ArrayList<>();
-        contourAreas = new ArrayList<>();
         textWidth = 15;
         codeFilename = "code_LinkCenterStageProp.java";
         //
@@ -111,6 +110,7 @@ public class LinkCenterStageProp extends LinkClass {
         matImgSrc = Mat.zeros(new Size(512, 512), CvType.CV_8U);
         if (buildContours(myLinkMap.get("IMAGE_IN")) == false) {
             contours = new ArrayList<>();
+            features = new ContourFeatures(contours);
         };
         //
         // Error-check and correct invalid settings.
@@ -126,8 +126,7 @@ public class LinkCenterStageProp extends LinkClass {
         //
         // All frames have a display image
         //
-        Image img = HighGui.toBufferedImage(matImgSrc);
-        imgLabel = new JLabel(new ImageIcon(img));
+        imgLabel = new JLabel(previewIcon(matImgSrc));
         imgSP = new JScrollPane(imgLabel);
         imgSP.setPreferredSize(new Dimension(400,400));        
         //
@@ -236,7 +235,6 @@ public class LinkCenterStageProp extends LinkClass {
     public boolean buildContours(String filename) {
     
         boolean status = false;
-        float[] radius = null;
         // loadContours returns null if the file couldn't be parsed
         // else it returns a List<MatOfPoints>
         contours = ContourHandler.loadContours(filename);
@@ -251,20 +249,11 @@ public class LinkCenterStageProp extends LinkClass {
             // delete faked-up contour that holds the image Mat Size 
             contours.remove(0);
                         
-            // Reset all list used to calculate stats
+            // circle centers from the features of the contours, to draw
             circleCenters.clear();
-            
+            features = ContourHandler.loadFeatures(filename, contours);
             for (int i = 0; i < contours.size(); i++) {
-                Point center = new Point();
-                MatOfPoint   contour = contours.get(i);
-                MatOfPoint2f contour2f = new MatOfPoint2f(contour.toArray());
-                Imgproc.minEnclosingCircle(
-                    contour2f, // MatOfPoint2f points,
-                    center,    // Point center,
-                    radius     // float[] radius
-                );
-                circleCenters.add(center);
-                contourAreas.add(Imgproc.contourArea(contour, false));
+                circleCenters.add(features.circleCenter(i));
             }
         
             status = true;
@@ -277,6 +266,8 @@ public class LinkCenterStageProp extends LinkClass {
     // Cluster of overriden LinkClass methods 
     //   buildMyLinkMap()
     //   verifySettings()        
+    //   getSettings()
+    //   getInputData()
     //   saveSettings(()
     //   saveImage()
     //   mapToSettings()
@@ -325,30 +316,39 @@ public class LinkCenterStageProp extends LinkClass {
         intCheck("AREA_CENTER_PROP_MAX", 0, 100000, 10000);
     }
     
+    /**
+     * getSettings - Overrides method in LinkClass; area limits of the text fields.
+     * @return Map - key,value strings of settings
+     */
+    @Override
+    public Map<String, String> getSettings() {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("AREA_LEFT_SPIKE_MIN",   areaLeftSpikeMinTF.getText());
+        settings.put("AREA_LEFT_SPIKE_MAX",   areaLeftSpikeMaxTF.getText());
+        settings.put("AREA_LEFT_PROP_MIN",    areaLeftPropMinTF.getText());
+        settings.put("AREA_LEFT_PROP_MAX",    areaLeftPropMaxTF.getText());
+        settings.put("AREA_CENTER_SPIKE_MIN", areaCenterSpikeMinTF.getText());
+        settings.put("AREA_CENTER_SPIKE_MAX", areaCenterSpikeMaxTF.getText());
+        settings.put("AREA_CENTER_PROP_MIN",  areaCenterPropMinTF.getText());
+        settings.put("AREA_CENTER_PROP_MAX",  areaCenterPropMaxTF.getText());
+        return settings;
+    }
+
+    /**
+     * getInputData - Overrides method in LinkClass; the contours read from the input file.
+     * @return LinkData - contours
+     */
+    @Override
+    public LinkData getInputData() {
+        return LinkData.fromContours(matImgSrc.size(), contours, features);
+    }
+
     /**
      * saveSettings - write link settings to file 
      */
     @Override
     public void saveSettings() {
-        String linkfilename  = textFieldLink.getText();
-        
-        BufferedWriter writer;
-        try {
-            writer = new BufferedWriter(new FileWriter(linkfilename));
-            writer.write("TYPE\tCENTERSTAGEPROP\n");
-            writer.write("IMAGE_IN\t"    + textFieldImageIn.getText() + "\n");
-            writer.write("IMAGE_OUT\t"   + textFieldImageOut.getText() + "\n");
-            writer.write("LINK_FILE\t"   + linkfilename + "\n");
-            writer.write("AREA_LEFT_SPIKE_MIN\t" + areaLeftSpikeMinTF.getText() + "\n");
-            writer.write("AREA_LEFT_SPIKE_MAX\t" + areaLeftSpikeMaxTF.getText() + "\n");
-            writer.write("AREA_LEFT_PROP_MIN\t" + areaLeftPropMinTF.getText() + "\n");
-            writer.write("AREA_LEFT_PROP_MAX\t" + areaLeftPropMaxTF.getText() + "\n");
-            writer.write("AREA_CENTER_SPIKE_MIN\t" + areaCenterSpikeMinTF.getText() + "\n");
-            writer.write("AREA_CENTER_SPIKE_MAX\t" + areaCenterSpikeMaxTF.getText() + "\n");
-            writer.write("AREA_CENTER_PROP_MIN\t" + areaCenterPropMinTF.getText() + "\n");
-            writer.write("AREA_CENTER_PROP_MAX\t" + areaCenterPropMaxTF.getText() + "\n");
-            writer.close();
-        } catch (IOException e) {}
+        writeLinkFile("CENTERSTAGEPROP");
     }
     
     /**
@@ -359,6 +359,15 @@ public class LinkCenterStageProp extends LinkClass {
         String outputfilename = textFieldImageOut.getText();
         PointHandler.savePoints(outputfilename, matImgSrc, circleCenters);
     }
+    
+    /**
+     * getOutputData - Overrides method in LinkClass; output Points for the next Link Gui
+     * @return LinkData - output for the next Link Gui
+     */
+    @Override
+    public LinkData getOutputData() {
+        return LinkData.fromPoints(matImgSrc.size(), circleCenters);
+    }
 
     /**
      * mapToSettings - Overrides method in LinkClass; update gui settings from myLinkMap
@@ -404,101 +413,21 @@ public class LinkCenterStageProp extends LinkClass {
             );
         }
         
-        int leftIdx = -1;
-        int centerIdx = -1;
-        propIndex = 0;
-        boolean leftIsProp = false;
-        boolean leftIsSpike = false;
-        boolean centerIsProp = false;
-        boolean centerIsSpike = false;
-        int area;
-
-        int areaLeftSpikeMin = Integer.parseInt(areaLeftSpikeMinTF.getText()); 
-        int areaLeftSpikeMax = Integer.parseInt(areaLeftSpikeMaxTF.getText()); 
-        int areaLeftPropMin = Integer.parseInt(areaLeftPropMinTF.getText()); 
-        int areaLeftPropMax = Integer.parseInt(areaLeftPropMaxTF.getText()); 
-        int areaCenterSpikeMin = Integer.parseInt(areaCenterSpikeMinTF.getText()); 
-        int areaCenterSpikeMax = Integer.parseInt(areaCenterSpikeMaxTF.getText()); 
-        int areaCenterPropMin = Integer.parseInt(areaCenterPropMinTF.getText()); 
-        int areaCenterPropMax = Integer.parseInt(areaCenterPropMaxTF.getText()); 
-
-        boolean error = false;
-        // Error Check:
-        if (!error && (areaLeftSpikeMax < areaLeftSpikeMin)) {
-            labelImageIs.setText("ERROR: leftSpikeMax = "+areaLeftSpikeMax+" and is less than leftSpikeMin = "+areaLeftSpikeMin);
-            error = true;
-        }
-        if (!error && (areaLeftPropMin < areaLeftSpikeMax )) {
-            labelImageIs.setText("ERROR: leftPropMin = "+areaLeftPropMin+" and is less than leftSpikeMax = "+areaLeftSpikeMax);
-            error = true;
-        }
-        if (!error && (areaLeftPropMax < areaLeftPropMin )) {
-            labelImageIs.setText("ERROR: leftPropMax = "+areaLeftPropMax+" and is less than leftPropMin = "+areaLeftPropMin);
-            error = true;
-        }
-        if (!error && (areaCenterSpikeMax < areaCenterSpikeMin)) {
-            labelImageIs.setText("ERROR: centerSpikeMax = "+areaCenterSpikeMax+" and is less than centerSpikeMin = "+areaCenterSpikeMin);
-            error = true;
-        }
-        if (!error && (areaCenterPropMin < areaCenterSpikeMax )) {
-            labelImageIs.setText("ERROR: centerPropMin = "+areaCenterPropMin+" and is less than centerSpikeMax = "+areaCenterSpikeMax);
-            error = true;
-        }
-        if (!error && (areaCenterPropMax < areaCenterPropMin )) {
-            labelImageIs.setText("ERROR: centerPropMax = "+areaCenterPropMax+" and is less than centerPropMin = "+areaCenterPropMin);
-            error = true;
-        }
-
-        if (!error) {
-            if (circleCenters.size() == 2) {
-                if (circleCenters.get(0).x < circleCenters.get(1).x) {
-                    leftIdx = 0;
-                    centerIdx = 1;
-                } else {
-                    leftIdx = 1;
-                    centerIdx = 0;
-                }
-                area = contourAreas.get(leftIdx).intValue();
-                leftIsSpike = ((area >= areaLeftSpikeMin) && (area <= areaLeftSpikeMax));
-                leftIsProp  = ((area >= areaLeftPropMin) && (area <= areaLeftPropMax));
-                area = contourAreas.get(centerIdx).intValue();
-                centerIsSpike = ((area >= areaCenterSpikeMin) && (area <= areaCenterSpikeMax));
-                centerIsProp  = ((area >= areaCenterPropMin) && (area <= areaCenterPropMax));
-
-                if (leftIsSpike && centerIsSpike) {
-                    propIndex = 3;
-                } else if (leftIsProp && centerIsSpike) {
-                    propIndex = 1;
-                } else if (leftIsSpike && centerIsProp) {
-                    propIndex = 2;
-                }
-                else if (leftIsProp && centerIsProp) {
-                    labelImageIs.setText("ERROR: left AND center are BOTH detecting Prop ");
-                    error = true;
-                } else if (!leftIsSpike && !leftIsProp) {
-                    labelImageIs.setText("ERROR: left is out of range of Spike AND Prop ");
-                    error = true;
-                } else if (!centerIsSpike && !centerIsProp) {
-                    labelImageIs.setText("ERROR: center is out of range of Spike AND Prop ");
-                    error = true;
-                }
-
-            }
-            else {
-                labelImageIs.setText("ERROR: expecting only 2 contours, there are "+circleCenters.size());
-                error = true;
-            }
-        }
-
-        if (!error) {
-            labelImageIs.setText("\nTeam Prop is "+PROP_STR[propIndex] + "  ("+propIndex+")\n");
-        }
+        // StageCenterStageProp checks the area limits and decides where the Team Prop is;
+        // this Link Gui shows its verdict
+        showText(labelImageIs, runStage().result);
         
-        Image img = HighGui.toBufferedImage(matImgDst);
-        imgLabel.setIcon(new ImageIcon(img));        
+        showImage(matImgDst);
 //        frame.pack();
-        frame.repaint();
     }    
+
+    /**
+     * isRefreshOffEdt - Overrides method in LinkClass; refreshImage() shows its results through showImage().
+     */
+    @Override
+    public boolean isRefreshOffEdt() {
+        return true;
+    }
     
     /**
      * genImportList - generate a list of import statements required to run the prototype code
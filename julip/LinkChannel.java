@@ -0,0 +1,231 @@
+package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
+
+import java.io.File;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Point;
+import org.opencv.imgcodecs.Imgcodecs;
+
+/**
+ * LinkChannel - in-memory hand-off of LinkData between the Link Gui's of a chain.
+ *
+ *   A Link Gui publishes its output under its output file name rather than writing the file.
+ *   Any later read of that file name (image, .mat, .ctr or .pts) is served from the channel,
+ *   so the next Link Gui picks up the output without a round-trip through the disk.
+ *   Files are only written when the user saves them, or when a chain's output has to
+ *   cross over to another chain of a MeshGui.
+ *
+ *   A file changed on disk after its output was published wins over the channel: the entry
+ *   is dropped and the file is read, so an image edited outside julip is not hidden by an
+ *   older output in memory. saveOutput() writing the published output itself calls touch().
+ *
+ *   The data handed out is shared by every reader of the file name, and must be treated
+ *   as read-only. A reader that changes an image or contour in place is to copy it first.
+ */
+public class LinkChannel {
+
+    /**
+     * Entry - published output and when it was published
+     */
+    private static class Entry {
+        final LinkData data;
+        final long     version;     // number of the publish() that made the entry
+        volatile long  published;   // System.currentTimeMillis() of publish() or touch()
+
+        Entry(LinkData data) {
+            this.data      = data;
+            this.version   = versions.incrementAndGet();
+            this.published = System.currentTimeMillis();
+        }
+    }
+
+    private static final Map<String, Entry> channel = new ConcurrentHashMap<>();
+    private static final AtomicLong versions = new AtomicLong();   // count of publish() calls
+
+    /**
+     * publish - make a Link Gui output available under a file name
+     *           The conversions in the ColorCache of an image that is replaced are dropped.
+     * @param filename - output file name of the Link Gui
+     * @param data     - output of the Link Gui; null removes the entry
+     */
+    public static void publish(String filename, LinkData data) {
+        if ((filename == null) || filename.equals("")) {
+            return;
+        }
+        Entry old;
+        if (data == null) {
+            old = channel.remove(filename);
+        } else {
+            old = channel.put(filename, new Entry(data));
+        }
+        if (old != null) {
+            dropColors(old.data, data);
+        }
+    }
+
+    /**
+     * dropColors - drop the ColorCache conversions of an image that is no longer published
+     * @param old  - data dropped from the channel
+     * @param data - data replacing it; null for none
+     */
+    private static void dropColors(LinkData old, LinkData data) {
+        if ((old.mat != null) && ((data == null) || (data.mat != old.mat))) {
+            ColorCache.shared.release(old.mat);
+        }
+    }
+
+    /**
+     * touch - mark output published under a file name as current again, after the
+     *         output was written to that very file
+     * @param filename - file name of the output
+     */
+    public static void touch(String filename) {
+        if (filename == null) {
+            return;
+        }
+        Entry entry = channel.get(filename);
+        if (entry != null) {
+            entry.published = Math.max(System.currentTimeMillis(), new File(filename).lastModified());
+        }
+    }
+
+    /**
+     * get - retrieve output published under a file name, unless the file was changed
+     *       on disk since; the data is shared and read-only
+     * @param filename - file name to look up
+     * @return LinkData - published output, or null if there is none
+     */
+    public static LinkData get(String filename) {
+        Entry entry = getEntry(filename);
+        return (entry != null) ? entry.data : null;
+    }
+
+    /**
+     * getVersion - version of the output published under a file name, for cache keys;
+     *              every publish() gives a new version
+     * @param filename - file name to look up
+     * @return long - version; 0 if nothing is published, and the file itself is read
+     */
+    public static long getVersion(String filename) {
+        Entry entry = getEntry(filename);
+        return (entry != null) ? entry.version : 0;
+    }
+
+    /**
+     * getEntry - entry published under a file name, unless the file was changed on disk since
+     * @param filename - file name to look up
+     * @return Entry - null if there is none
+     */
+    private static Entry getEntry(String filename) {
+        if (filename == null) {
+            return null;
+        }
+        Entry entry = channel.get(filename);
+        if (entry == null) {
+            return null;
+        }
+        // File.lastModified() is 0 for a file that does not exist
+        if (new File(filename).lastModified() > entry.published) {
+            if (channel.remove(filename, entry)) {
+                dropColors(entry.data, null);
+            }
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * remove - drop output published under a file name
+     * @param filename - file name to drop
+     */
+    public static void remove(String filename) {
+        if (filename != null) {
+            Entry old = channel.remove(filename);
+            if (old != null) {
+                dropColors(old.data, null);
+            }
+        }
+    }
+
+    /**
+     * isMatFile - check for julip .mat file extension
+     * @param filename - file name to check
+     * @return boolean - true if extension is .mat, else false
+     */
+    public static boolean isMatFile(String filename) {
+        // split filename into base and extension
+        String[] tokens = filename.split("\\.(?=[^\\.]+$)");
+        return ((tokens.length > 1) && (tokens[1].equals("mat")));
+    }
+
+    /**
+     * readImage - get an image from the channel, else read it from file
+     * @param filename - name of image file, or julip .mat file
+     * @return Mat - image; empty if nothing could be read.
+     *               An image from the channel is shared with its other readers; read-only
+     */
+    public static Mat readImage(String filename) {
+        LinkData data = get(filename);
+        if ((data != null) && (data.mat != null)) {
+            // A file holds the full frame, not just a region of interest
+            data = data.toFullFrame();
+            // Hand over the same thing the file would have given.
+            if (isMatFile(filename)) {
+                return data.mat;
+            }
+            return data.toImage();
+        }
+        if (isMatFile(filename)) {
+            return MatHandler.readMat(filename);
+        }
+        return Imgcodecs.imread(filename);
+    }
+
+    /**
+     * readContours - get contours from the channel
+     * @param filename - name of julip contour file
+     * @return List<MatOfPoint> - new List of contours; except first entry is a Mat Size
+     *                            null if the channel has no contours for this file name.
+     *                            The contours are shared with their other readers; read-only
+     */
+    public static List<MatOfPoint> readContours(String filename) {
+        LinkData data = get(filename);
+        if ((data != null) && (data.contours != null)) {
+            return data.toContourList();
+        }
+        return null;
+    }
+
+    /**
+     * readFeatures - get the features of the contours in the channel
+     * @param filename - name of julip contour file
+     * @return ContourFeatures - features of the contours returned by readContours;
+     *                           null if the channel has no contours for this file name
+     */
+    public static ContourFeatures readFeatures(String filename) {
+        LinkData data = get(filename);
+        if ((data != null) && (data.contours != null)) {
+            return data.getFeatures();
+        }
+        return null;
+    }
+
+    /**
+     * readPoints - get points from the channel
+     * @param filename - name of julip point file
+     * @return List<Point> - List of points; except first entry is a Mat Size
+     *                       null if the channel has no points for this file name
+     */
+    public static List<Point> readPoints(String filename) {
+        LinkData data = get(filename);
+        if ((data != null) && (data.points != null)) {
+            return data.toPointList();
+        }
+        return null;
+    }
+}
@@ -2,6 +2,7 @@ package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -14,7 +15,9 @@ import javax.swing.event.*;
 
 import org.opencv.core.CvType;
 import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
 import org.opencv.core.Size;
+import org.opencv.highgui.HighGui;
 import org.opencv.imgcodecs.Imgcodecs;
 
 /**
@@ -23,6 +26,11 @@ import org.opencv.imgcodecs.Imgcodecs;
  *      constructs a JPanel to hold file read/write operations
  *      parses link files
  *      loads image files
+ *
+ *  A Link Gui that has a LinkStage is a view over it: getSettings() reads the settings off
+ *  the Java Containers, runStage() hands them with getInputData() to the stage, and
+ *  refreshImage() only draws and shows what the stage returned. The same stage runs
+ *  headless in ChainRunner, without any Java Containers.
  */
 public class LinkClass {
 
@@ -47,6 +55,30 @@ public class LinkClass {
     public final int NOHEIGHT = 420;      // Default Image height when none is available
     
 //    public boolean suppressRefreshImage;   // Flag to allow/disallow Containers to refreshImage()
+    private RefreshScheduler refreshScheduler; // Debounces refreshes asked for by sliders, combo boxes, check boxes
+    public LinkChangeListener changeListener;  // Told when a refresh asked for by the user is done; the ChainGui
+    public String cacheKey;                    // OutputCache key of the output now held; null if not known
+    public LinkStage stage;                    // Processing stage behind the Link Gui; built by runStage()
+    public final LinkMetrics metrics = new LinkMetrics();  // latencies of loadInput(), refreshOutput(), saveOutput()
+    private long renderNanos = 0;              // time spent in showImage() during the refreshOutput() running
+    public final PreviewRenderer preview = new PreviewRenderer();  // BufferedImage of imgLabel, reused for every image shown
+    private Icon previewIcon;                  // metered Icon of preview; the same until the image size or type changes
+
+    public static final String[] PREVIEW_STR = {
+        "Preview:Auto",
+        "Preview:Full",
+        "Preview:Half",
+        "Preview:Quarter"
+    };
+    public static final int PROXY_HALF_SIZE    = 1024;  // Preview:Auto drags at half size from this image width or height
+    public static final int PROXY_QUARTER_SIZE = 2048;  // Preview:Auto drags at quarter size from this image width or height
+    public JulipComboBox previewCB;            // size of the proxy preview while a slider is dragged; null for none
+    private volatile boolean proxyRefresh;     // true while refreshImage() runs for a proxy preview
+    private LinkStage proxyStage;              // stage run on the proxy input, with scaled settings
+    private LinkData proxyInput;               // input shrunk down the pyramid; kept while the input is the same
+    private Object proxyInputOf;               // input data proxyInput was made from
+    private int proxyInputLevel = -1;          // pyramid level of proxyInput
+    private LinkData proxyOutput;              // last output of proxyStage; its image is borrowed from MatPool.shared
     
     // List of methods common to all Link Gui's:
     //
@@ -63,6 +95,22 @@ public class LinkClass {
     //    setFrameLocation()
     //    loadSettings()
     //    loadImage()
+    //    requestRefresh()
+    //    getProxyLevel()
+    //    refreshNow()
+    //    dispose()
+    //    refreshDone()
+    //    showImage()
+    //    showProxyImage()
+    //    previewIcon()
+    //    showIcon()
+    //    showText()
+    //
+    // These methods run the processing stage of the Link Gui
+    //    runStage()
+    //    runProxyStage()
+    //    writeLinkFile()
+    //    clearCanvas()
     //
     // These methods are additional utilities
     //   exportCode()
@@ -70,6 +118,8 @@ public class LinkClass {
     // These methods are to be overridden by Link Gui subclass
     //   buildMyLinkMap()
     //   verifySettings()
+    //   getSettings()
+    //   getInputData()
     //   saveSettings(()
     //   saveImage()
     //   mapToSettings()
@@ -77,6 +127,9 @@ public class LinkClass {
     //   refreshImage()
     //   genImportList()
     //   genCodeString()
+    //   genPipelineFields()
+    //   genPipelineCode()
+    //   genPipelineRelease()
     //
 
     //--------------------------------------------------------------------------------------
@@ -494,9 +547,16 @@ public class LinkClass {
         loadImageB.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                if (loadImage(textFieldImageIn.getText())) {
+                boolean isLoaded;
+                synchronized (LinkClass.this) {
+                    cacheKey = null;
+                    isLoaded = loadInput(textFieldImageIn.getText());
+                    if (isLoaded) {
+                        refreshOutput();
+                    }
+                }
+                if (isLoaded) {
                     loadImageB.setBackground(null);
-                    refreshImage();                    
                 } else {
                     loadImageB.setBackground(Color.RED);
                 }
@@ -527,7 +587,9 @@ public class LinkClass {
         saveImageB.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                saveImage();
+                synchronized (LinkClass.this) {
+                    saveOutput();
+                }
             }
         });
         linkPanel.add(saveImageB);        
@@ -620,8 +682,9 @@ public class LinkClass {
         boolean status = readLinkFile(textFieldLink.getText());
         verifySettings();
         mapToSettings();
-        refreshSettings();
-        refreshImage();
+        // through the RefreshScheduler, so as not to run alongside a refresh off the
+        // Swing event thread, and so the Link Gui's after this one follow
+        refreshNow();
         return status;
     }
     
@@ -631,13 +694,9 @@ public class LinkClass {
      * @return   - true if file successfully read, else false
      */
     public boolean loadImage(String filename) {
-        // split filename into base and extension
-        String[] tokens = filename.split("\\.(?=[^\\.]+$)");
-        if ((tokens.length > 1) && (tokens[1].equals("mat"))) {
-            matImgSrc = MatHandler.readMat(filename);
-        } else {
-            matImgSrc = Imgcodecs.imread(filename);
-        }
+        // Image handed over in memory by a previous Link Gui, else
+        // the .mat file or image file
+        matImgSrc = LinkChannel.readImage(filename);
         //
         // The absolute vale of the channels param indicates the 
         // number of channels for the Mat.
@@ -649,10 +708,347 @@ public class LinkClass {
         }        
         return true;
     }
+
+    /**
+     * loadInput - loadImage(), counted as I/O in metrics
+     * @param  filename name of image file to import
+     * @return   - true if file successfully read, else false
+     */
+    public boolean loadInput(String filename) {
+        long start = System.nanoTime();
+        boolean isLoaded = loadImage(filename);
+        metrics.record(LinkMetrics.IO, System.nanoTime() - start);
+        if (isLoaded && (matImgSrc != null)) {
+            metrics.addBytesRead(matImgSrc.total() * matImgSrc.elemSize());
+        }
+        return isLoaded;
+    }
+
+    /**
+     * refreshOutput - refreshImage(), counted as Compute in metrics, less the time
+     *                 showImage() spends rendering, which is counted as Render.
+     */
+    public void refreshOutput() {
+        refreshOutput(false);
+    }
+    // alternate method signature, true to refresh only a proxy preview; see isProxyRefresh()
+    public void refreshOutput(boolean proxy) {
+        long start = System.nanoTime();
+        renderNanos = 0;
+        proxyRefresh = proxy;
+        try {
+            refreshImage();
+        } finally {
+            proxyRefresh = false;
+        }
+        metrics.record(LinkMetrics.COMPUTE, Math.max(0, System.nanoTime() - start - renderNanos));
+    }
+
+    /**
+     * isProxyRefresh - true while refreshImage() is to show a proxy preview only, as a slider
+     *                  is dragged. refreshImage() then shows runProxyStage() by showProxyImage(),
+     *                  and leaves matImgDst and any other output as they are.
+     * @return boolean
+     */
+    public boolean isProxyRefresh() {
+        return proxyRefresh;
+    }
+
+    /**
+     * saveOutput - saveImage(), counted as I/O in metrics; bytes written is the size of the output file
+     */
+    public void saveOutput() {
+        long start = System.nanoTime();
+        saveImage();
+        metrics.record(LinkMetrics.IO, System.nanoTime() - start);
+        // the file now holds the published output; keep handing it over in memory
+        LinkChannel.touch(textFieldImageOut.getText());
+        File file = new File(textFieldImageOut.getText());
+        if (file.isFile()) {
+            metrics.addBytesWritten(file.length());
+        }
+    }
+
+    /**
+     * requestRefresh - ask for refreshSettings() and refreshImage() after a change of setting.
+     *                  Bursts of requests, as from a dragged slider, are coalesced into one refresh.
+     */
+    public void requestRefresh() {
+        requestRefresh(false);
+    }
+    // alternate method signature, true while a slider is still being dragged
+    public void requestRefresh(boolean adjusting) {
+        if (refreshScheduler == null) {
+            refreshScheduler = new RefreshScheduler(this);
+        }
+        if (adjusting && (getProxyLevel() > 0)) {
+            refreshScheduler.requestProxy();
+        } else {
+            refreshScheduler.request();
+        }
+    }
+
+    /**
+     * getProxyLevel - pyramid level of the proxy preview shown while a slider is dragged,
+     *                 as selected by previewCB; Preview:Auto picks it by the image size.
+     * @return int - 0 for none, 1 for half size, 2 for quarter size
+     */
+    public int getProxyLevel() {
+        if ((previewCB == null) || (matImgSrc == null)) {
+            return 0;
+        }
+        switch (previewCB.index) {
+            case 0:
+                int largest = Math.max(matImgSrc.cols(), matImgSrc.rows());
+                if (largest >= PROXY_QUARTER_SIZE) {
+                    return 2;
+                }
+                return (largest >= PROXY_HALF_SIZE) ? 1 : 0;
+            case 2:
+                return 1;
+            case 3:
+                return 2;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * refreshNow - refresh without waiting for a burst of requests to settle;
+     *              for a Link Gui whose input was just changed by the Link Gui before it.
+     */
+    public void refreshNow() {
+        if (refreshScheduler == null) {
+            refreshScheduler = new RefreshScheduler(this);
+        }
+        refreshScheduler.refreshNow();
+    }
+
+    /**
+     * dispose - tear down the Link Gui; stops its RefreshScheduler and disposes its frame
+     */
+    public void dispose() {
+        if (refreshScheduler != null) {
+            refreshScheduler.dispose();
+            refreshScheduler = null;
+        }
+        if (frame != null) {
+            frame.dispose();
+        }
+    }
+
+    /**
+     * refreshDone - called by the RefreshScheduler after refreshImage();
+     *               hand the new output over in memory and tell the changeListener.
+     */
+    public void refreshDone() {
+        if (changeListener != null) {
+            publishOutput();
+            changeListener.linkChanged(this);
+        }
+    }
+
+    /**
+     * showImage - show an image in imgLabel.
+     *             The image is rendered into the preview on the calling thread, and shown on
+     *             the Swing event thread; only imgLabel is repainted.
+     * @param mat - image to show
+     */
+    public void showImage(Mat mat) {
+        showImage(mat, mat.cols(), mat.rows());
+    }
+
+    /**
+     * showProxyImage - show a proxy preview in imgLabel, stretched to the size of matImgSrc
+     * @param mat - shrunken image to show
+     */
+    public void showProxyImage(Mat mat) {
+        showImage(mat, matImgSrc.cols(), matImgSrc.rows());
+    }
+
+    /**
+     * showImage - show an image in imgLabel at a given size
+     * @param mat    - image to show
+     * @param width  - width at which the image is shown
+     * @param height - height at which the image is shown
+     */
+    public void showImage(Mat mat, int width, int height) {
+        long start = System.nanoTime();
+        Icon icon = previewIcon(mat, width, height);
+        long nanos = System.nanoTime() - start;
+        renderNanos += nanos;
+        metrics.record(LinkMetrics.RENDER, nanos);
+        showIcon(imgLabel, icon);
+    }
+
+    /**
+     * previewIcon - render an image into the preview of the Link Gui.
+     * @param mat - image to show
+     * @return Icon - metered Icon of the preview; the same Icon as before unless the
+     *                size or type of the image changed
+     */
+    public Icon previewIcon(Mat mat) {
+        return previewIcon(mat, mat.cols(), mat.rows());
+    }
+    // alternate method signature, to show the image at a given size
+    public Icon previewIcon(Mat mat, int width, int height) {
+        if (preview.render(mat, width, height) || (previewIcon == null)) {
+            previewIcon = new LinkMetrics.MeteredIcon(preview.getIcon(), metrics);
+        }
+        return previewIcon;
+    }
+
+    /**
+     * showIcon - set the icon of a JLabel on the Swing event thread;
+     *            a JLabel already showing the icon is only repainted.
+     * @param label - JLabel to update
+     * @param icon  - Icon to show
+     */
+    public void showIcon(JLabel label, Icon icon) {
+        if (SwingUtilities.isEventDispatchThread()) {
+            setIcon(label, icon);
+        } else {
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    setIcon(label, icon);
+                }
+            });
+        }
+    }
+
+    /**
+     * setIcon - set the icon of a JLabel, or repaint it if it already shows the icon.
+     *           JLabel.setIcon() does nothing for the same icon, though its image may have changed.
+     * @param label - JLabel to update
+     * @param icon  - Icon to show
+     */
+    private static void setIcon(JLabel label, Icon icon) {
+        if (label.getIcon() == icon) {
+            label.repaint();
+        } else {
+            label.setIcon(icon);
+        }
+    }
+
+    /**
+     * showText - set the text of a JLabel on the Swing event thread.
+     * @param label - JLabel to update
+     * @param text  - text to show
+     */
+    public void showText(JLabel label, String text) {
+        if (SwingUtilities.isEventDispatchThread()) {
+            label.setText(text);
+        } else {
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    label.setText(text);
+                }
+            });
+        }
+    }
         
     //
     // end of Java container methods
     //-----------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------------------
+    // start of processing stage methods
+    //
+    /**
+     * runStage - run the processing stage of the Link Gui on its input, with the settings
+     *            now shown by its Java Containers.
+     * @return LinkData - output of the stage
+     */
+    public LinkData runStage() {
+        return getStage().run(getInputData());
+    }
+
+    /**
+     * runProxyStage - run the processing stage on its input shrunk down the image pyramid to
+     *                 getProxyLevel(), with settings in pixels scaled to match, for the quick
+     *                 preview shown while a slider is dragged. The shrunken input is kept
+     *                 until the input changes, so only the stage itself runs for each step.
+     *                 The output image is borrowed from MatPool.shared, and handed back on the
+     *                 next call; it is only to be shown, not kept or passed on.
+     * @return LinkData - output of the stage, at the size of the shrunken input
+     */
+    public LinkData runProxyStage() {
+        if ((proxyOutput != null) && MatPool.shared.isBorrowed(proxyOutput.mat)) {
+            ColorCache.shared.release(proxyOutput.mat);
+            MatPool.shared.release(proxyOutput.mat);
+        }
+        proxyOutput = null;
+        int level = getProxyLevel();
+        LinkData input = getInputData();
+        // the same image Mat, or Lists of the same contour Mats or points
+        Object inputOf = (input.mat != null) ? input.mat : (input.contours != null) ? input.contours : input.points;
+        if ((proxyInput == null) || !Objects.equals(proxyInputOf, inputOf) || (proxyInputLevel != level)) {
+            proxyInput      = input.toProxy(level);
+            proxyInputOf    = inputOf;
+            proxyInputLevel = level;
+        }
+        if (proxyStage == null) {
+            proxyStage = LinkStage.newStage(this.getClass().getSimpleName());
+            proxyStage.outputPool = MatPool.shared;
+        }
+        proxyStage.setSettings(getSettings());
+        proxyStage.scaleSettings(1.0 / (1 << level));
+        proxyOutput = proxyStage.run(proxyInput);
+        return proxyOutput;
+    }
+
+    /**
+     * getStage - the processing stage of the Link Gui, set to the settings now shown
+     *            by its Java Containers; made on first use.
+     * @return LinkStage
+     */
+    public LinkStage getStage() {
+        if (stage == null) {
+            stage = LinkStage.newStage(this.getClass().getSimpleName());
+        }
+        stage.setSettings(getSettings());
+        return stage;
+    }
+
+    /**
+     * writeLinkFile - write the link file from getSettings()
+     * @param type - TYPE of link file
+     */
+    public void writeLinkFile(String type) {
+        String linkfilename  = textFieldLink.getText();
+
+        BufferedWriter writer;
+        try {
+            writer = new BufferedWriter(new FileWriter(linkfilename));
+            writer.write("TYPE\t"      + type + "\n");
+            writer.write("IMAGE_IN\t"  + textFieldImageIn.getText()  + "\n");
+            writer.write("IMAGE_OUT\t" + textFieldImageOut.getText() + "\n");
+            writer.write("LINK_FILE\t" + linkfilename + "\n");
+            for (Map.Entry<String, String> setting : getSettings().entrySet()) {
+                writer.write(setting.getKey() + "\t" + setting.getValue() + "\n");
+            }
+            writer.close();
+        } catch (IOException e) {}
+    }
+
+    /**
+     * clearCanvas - give matImgDst back to the MatPool and borrow a black image
+     *               the size of matImgSrc to draw on in its place.
+     *               Only for Link Gui's whose matImgDst is never handed to another Link Gui,
+     *               as for those that output contours or points.
+     * @return Mat - the new matImgDst
+     */
+    public Mat clearCanvas() {
+        MatPool.shared.release(matImgDst);
+        matImgDst = MatPool.shared.borrow(matImgSrc.size(), CvType.CV_8UC3);
+        matImgDst.setTo(new Scalar(0, 0, 0));
+        return matImgDst;
+    }
+    //
+    // end of processing stage methods
+    //-----------------------------------------------------------------------
     
     //-----------------------------------------------------------------------------------
     //
@@ -692,13 +1088,21 @@ public class LinkClass {
     // Cluster of LinkClass methods to be overridden  
     //   buildMyLinkMap()
     //   verifySettings()
+    //   getSettings()
+    //   getInputData()
     //   saveSettings()
     //   saveImage()
+    //   getOutputData()
+    //   restoreOutput()
     //   mapToSettings()
     //   refreshSettings()
     //   refreshImage()
+    //   isRefreshOffEdt()
     //   genImportList()
     //   genCodeString()
+    //   genPipelineFields()
+    //   genPipelineCode()
+    //   genPipelineRelease()
     //
     
     /**
@@ -717,6 +1121,24 @@ public class LinkClass {
         System.out.println("Whoa, "+this.getClass().getSimpleName()+" did not overwrite "+ new Object(){}.getClass().getEnclosingMethod().getName()+"().");
     }
     
+    /**
+     * getSettings - To be overridden by a subclass with a LinkStage; settings now shown by the
+     *               Java Containers, with the same keys and values as the link file.
+     *               May be called off the Swing event thread, from refreshImage().
+     * @return Map - key,value strings of settings, in link file order
+     */
+    public Map<String, String> getSettings() {
+        return new LinkedHashMap<>();
+    }
+
+    /**
+     * getInputData - May be overridden by subclass; input of the LinkStage.
+     * @return LinkData - input image
+     */
+    public LinkData getInputData() {
+        return LinkData.fromMat(LinkData.IMG, matImgSrc);
+    }
+
     /**
      * saveSettings - To be overridden by subclass; saves settings of link gui to file.
      */
@@ -734,6 +1156,32 @@ public class LinkClass {
         System.out.println("Whoa, "+this.getClass().getSimpleName()+" did not overwrite "+ new Object(){}.getClass().getEnclosingMethod().getName()+"().");
     }
      
+    /**
+     * getOutputData - To be overridden by subclass; output to hand over to the next Link Gui.
+     * @return LinkData - output of Link Gui, or null if there is nothing to hand over
+     */
+    public LinkData getOutputData() {
+        return null;
+    }
+
+    /**
+     * publishOutput - hand output over to the next Link Gui in memory, under the output file name,
+     *                 instead of writing the output file with saveImage().
+     */
+    public synchronized void publishOutput() {
+        LinkChannel.publish(textFieldImageOut.getText(), getOutputData());
+    }
+
+    /**
+     * restoreOutput - May be overridden by subclass; take over output from the OutputCache
+     *                 instead of recalculating it with refreshImage().
+     * @param output - cached output, as once given by getOutputData()
+     * @return boolean - true if output was taken over, false if refreshImage() is needed
+     */
+    public boolean restoreOutput(LinkData output) {
+        return false;
+    }
+
     /**
      * mapToSettings - To be overridden by subclass; update gui settings from myLinkMap.
      */
@@ -756,6 +1204,14 @@ public class LinkClass {
         System.out.println("Whoa, "+this.getClass().getSimpleName()+" did not overwrite "+ new Object(){}.getClass().getEnclosingMethod().getName()+"().");
     }
     
+    /**
+     * isRefreshOffEdt - May be overridden by subclass; true if refreshImage() only updates Java Containers
+     *                   through showImage(), showIcon() and showText(), so may run off the Swing event thread.
+     */
+    public boolean isRefreshOffEdt() {
+        return false;
+    }
+    
     /**
      * genImportList - To be overridden by subclass; generate list of import statements.
      */
@@ -778,6 +1234,32 @@ public class LinkClass {
         System.out.println("Whoa, "+this.getClass().getSimpleName()+" did not overwrite "+ new Object(){}.getClass().getEnclosingMethod().getName()+"().");
         return "";
     }
+
+    /**
+     * genPipelineFields - May be overridden by subclass; generate the fields of a pipeline class
+     *                     that the method of genPipelineCode() reuses on every call.
+     */
+    public String genPipelineFields(String reference) {
+        return "";
+    }
+
+    /**
+     * genPipelineCode - May be overridden by subclass; generate method of code for a pipeline class.
+     *                   It gives the same output as the method of genCodeString(), but works in the
+     *                   fields of genPipelineFields() instead of allocating new Mats on every call.
+     *                   By default it is the method of genCodeString().
+     */
+    public String genPipelineCode(String reference) {
+        return genCodeString(reference);
+    }
+
+    /**
+     * genPipelineRelease - May be overridden by subclass; generate the statements that release
+     *                      the fields of genPipelineFields().
+     */
+    public String genPipelineRelease(String reference) {
+        return "";
+    }
     
     //
     //  end of LinkClass methods to be overridden
@@ -785,6 +1267,17 @@ public class LinkClass {
       
 }
 
+/**
+ * LinkChangeListener - to be told when a Link Gui has new output after the user changed its settings.
+ */
+interface LinkChangeListener {
+    /**
+     * linkChanged - called after the Link Gui published its new output; may be called off the Swing event thread
+     * @param link - Link Gui that changed
+     */
+    void linkChanged(LinkClass link);
+}
+
 /**
  * IntegerValid - Object to hold an integer along with a booleans for valid status.
 */
@@ -84,10 +84,9 @@ public class LinkContourStats extends LinkClass {
     private int frameHeightMinusImage = 0;
     
     List<MatOfPoint> contours;
+    ContourFeatures  features;        // features of contours, shared with the stage
     
-    List<Point>   circleCenters;
-    List<Double>  circleRadii;
-    List<Integer> drawnContourIndices;
+    List<Point>   circleCenters;      // output of StageContourStats
         
     List<Double> xlist;
     List<Double> ylist;
@@ -101,8 +100,6 @@ public class LinkContourStats extends LinkClass {
         //
         anchor = new Point(-1,-1);
         circleCenters = new ArrayList<>();
-        circleRadii   = new ArrayList<>();
-        drawnContourIndices = new ArrayList<>();        
         xlist = new ArrayList<>();
         ylist = new ArrayList<>();
         codeFilename = "code_LinkContourStats.java";
@@ -126,6 +123,7 @@ public class LinkContourStats extends LinkClass {
         matImgSrc = Mat.zeros(new Size(512, 512), CvType.CV_8U);
         if (buildContours(myLinkMap.get("IMAGE_IN")) == false) {
             contours = new ArrayList<>();
+            features = new ContourFeatures(contours);
         };
         //
         // Error-check and correct invalid settings.
@@ -141,8 +139,7 @@ public class LinkContourStats extends LinkClass {
         //
         // All frames have a display image
         //
-        Image img = HighGui.toBufferedImage(matImgSrc);
-        imgLabel = new JLabel(new ImageIcon(img));
+        imgLabel = new JLabel(previewIcon(matImgSrc));
         imgSP = new JScrollPane(imgLabel);
         imgSP.setPreferredSize(new Dimension(400,400));        
         //
@@ -230,55 +227,48 @@ public class LinkContourStats extends LinkClass {
             // delete faked-up contour that holds the image Mat Size 
             contours.remove(0);
                         
-            // Reset all list used to calculate stats
-            circleCenters.clear();
-            circleRadii.clear();
-            xlist.clear();
-            ylist.clear();
-            
-            float[] radius = new float[1];
-            float sumx = 0;
-            float sumy = 0;
-            for (int i = 0; i < contours.size(); i++) {
-                Point center = new Point();
-                MatOfPoint   contour = contours.get(i);
-                MatOfPoint2f contour2f = new MatOfPoint2f(contour.toArray());
-                Imgproc.minEnclosingCircle(
-                    contour2f, // MatOfPoint2f points,
-                    center,    // Point center,
-                    radius     // float[] radius
-                );
-                //System.out.println("x = " + center.x + "radii = " + radius[0]);
-                xlist.add(center.x);
-                ylist.add(center.y);
-                sumx += center.x;
-                sumy += center.y;
-                circleCenters.add(center);
-                circleRadii.add((double)radius[0]);            
-            }
-        
-            Collections.sort(xlist);
-            Collections.sort(ylist);
-        
-            // need to account for even size
-            if (xlist.size() % 2 > 0) {
-                medianx = xlist.get((xlist.size()-1)/2);
-            }
-            if (ylist.size() % 2 > 0) {
-                mediany = ylist.get((ylist.size()-1)/2);
-            }
-            meanx = sumx / xlist.size();
-            meany = sumy / ylist.size();
+            features = ContourHandler.loadFeatures(filename, contours);
             status = true;
         } 
         return status;
     }
+
+    /**
+     * calculateStats - medians and means of the x and y of the circle centers
+     */
+    private void calculateStats() {
+        xlist.clear();
+        ylist.clear();
+        float sumx = 0;
+        float sumy = 0;
+        for (Point center : circleCenters) {
+            xlist.add(center.x);
+            ylist.add(center.y);
+            sumx += center.x;
+            sumy += center.y;
+        }
+    
+        Collections.sort(xlist);
+        Collections.sort(ylist);
+    
+        // need to account for even size
+        if (xlist.size() % 2 > 0) {
+            medianx = xlist.get((xlist.size()-1)/2);
+        }
+        if (ylist.size() % 2 > 0) {
+            mediany = ylist.get((ylist.size()-1)/2);
+        }
+        meanx = sumx / xlist.size();
+        meany = sumy / ylist.size();
+    }
     
     //-----------------------------------------------------------------------------------
     //
     // Cluster of overriden LinkClass methods 
     //   buildMyLinkMap()
     //   verifySettings()        
+    //   getSettings()
+    //   getInputData()
     //   saveSettings(()
     //   saveImage()
     //   mapToSettings()
@@ -286,6 +276,9 @@ public class LinkContourStats extends LinkClass {
     //   refreshImage()
     //   genImportList()
     //   genCodeString()
+    //   genPipelineFields()
+    //   genPipelineCode()
+    //   genPipelineRelease()
      
     /**
      * buildMyLinkMap - native default values for Link Gui
@@ -326,28 +319,38 @@ public class LinkContourStats extends LinkClass {
         comboCheck("MEANY_VISIBLE",   MEANY_STR,   0);
     }
     
+    /**
+     * getSettings - Overrides method in LinkClass; settings of the combo boxes. They only
+     *               choose what is drawn, and do not change the output of the stage.
+     * @return Map - key,value strings of settings
+     */
+    @Override
+    public Map<String, String> getSettings() {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("CONTOUR_VISIBLE", CONTOUR_STR[contourCB.index]);
+        settings.put("CIRCLE_VISIBLE",  CIRCLE_STR[circleCB.index]);
+        settings.put("MEDIANX_VISIBLE", MEDIANX_STR[medianxCB.index]);
+        settings.put("MEANX_VISIBLE",   MEANX_STR[meanxCB.index]);
+        settings.put("MEDIANY_VISIBLE", MEDIANY_STR[medianyCB.index]);
+        settings.put("MEANY_VISIBLE",   MEANY_STR[meanyCB.index]);
+        return settings;
+    }
+
+    /**
+     * getInputData - Overrides method in LinkClass; the contours read from the input file.
+     * @return LinkData - contours
+     */
+    @Override
+    public LinkData getInputData() {
+        return LinkData.fromContours(matImgSrc.size(), contours, features);
+    }
+
     /**
      * saveSettings - write link settings to file 
      */
     @Override
     public void saveSettings() {
-        String linkfilename  = textFieldLink.getText();
-        
-        BufferedWriter writer;
-        try {
-            writer = new BufferedWriter(new FileWriter(linkfilename));
-            writer.write("TYPE\tCONTOURSTATS\n");
-            writer.write("IMAGE_IN\t"    + textFieldImageIn.getText() + "\n");
-            writer.write("IMAGE_OUT\t"   + textFieldImageOut.getText() + "\n");
-            writer.write("LINK_FILE\t"   + linkfilename + "\n");
-            writer.write("CONTOUR_VISIBLE\t" + CONTOUR_STR[contourCB.index] + "\n");
-            writer.write("CIRCLE_VISIBLE\t"  + CIRCLE_STR[circleCB.index] + "\n");
-            writer.write("MEDIANX_VISIBLE\t" + MEDIANX_STR[medianxCB.index] + "\n");
-            writer.write("MEANX_VISIBLE\t"   + MEANX_STR[meanxCB.index] + "\n");
-            writer.write("MEDIANY_VISIBLE\t" + MEDIANY_STR[medianyCB.index] + "\n");
-            writer.write("MEANY_VISIBLE\t"   + MEANY_STR[meanyCB.index] + "\n");
-            writer.close();
-        } catch (IOException e) {}
+        writeLinkFile("CONTOURSTATS");
     }
     
     /**
@@ -358,6 +361,15 @@ public class LinkContourStats extends LinkClass {
         String outputfilename = textFieldImageOut.getText();
         PointHandler.savePoints(outputfilename, matImgSrc, circleCenters);
     }
+    
+    /**
+     * getOutputData - Overrides method in LinkClass; output Points for the next Link Gui
+     * @return LinkData - output for the next Link Gui
+     */
+    @Override
+    public LinkData getOutputData() {
+        return LinkData.fromPoints(matImgSrc.size(), circleCenters);
+    }
 
     /**
      * mapToSettings - Overrides method in LinkClass; update gui settings from myLinkMap
@@ -386,10 +398,15 @@ public class LinkContourStats extends LinkClass {
      * refreshImage - refresh label texts and shown image
      */
     public void refreshImage() {
-        Mat hierarchy = new Mat();
+        // StageContourStats finds the circle centers; this Link Gui draws them
+        // with their circles and their medians and means
+        circleCenters = runStage().points;
+        calculateStats();
+        double[] circleRadii = features.circleRadii();
+
         Scalar contourColor = new Scalar(0,255,255);   // yellow
         Scalar circleColor  = new Scalar(0,255,0);     // green
-        matImgDst = Mat.zeros(matImgSrc.size(), CvType.CV_8UC3);
+        clearCanvas();
         
         if (contourCB.index == 0) {
             Imgproc.drawContours(
@@ -408,7 +425,7 @@ public class LinkContourStats extends LinkClass {
                 Imgproc.circle(
                     matImgDst,               // Mat img - input/output image
                     circleCenters.get(i),    // Point center
-                    (int)Math.round(circleRadii.get(i)), // int radius
+                    (int)Math.round(circleRadii[i]), // int radius
                     circleColor,             // Scalar color
                     1                        // int thickness
                 );
@@ -461,10 +478,16 @@ public class LinkContourStats extends LinkClass {
         //System.out.println("meany = " + meany);
         //System.out.println("mediany = " + mediany);
         
-        Image img = HighGui.toBufferedImage(matImgDst);
-        imgLabel.setIcon(new ImageIcon(img));        
-        frame.repaint();
+        showImage(matImgDst);
     }    
+
+    /**
+     * isRefreshOffEdt - Overrides method in LinkClass; refreshImage() shows its results through showImage().
+     */
+    @Override
+    public boolean isRefreshOffEdt() {
+        return true;
+    }
     
     /**
      * genImportList - generate a list of import statements required to run the prototype code
@@ -472,7 +495,9 @@ public class LinkContourStats extends LinkClass {
     @Override
     public List<String> genImportList() {
         List<String> importsL = new ArrayList<String>();
+        importsL.add("java.util.ArrayList");
         importsL.add("java.util.List");
+        importsL.add("org.opencv.core.CvType");
         importsL.add("org.opencv.core.MatOfPoint");
         importsL.add("org.opencv.core.MatOfPoint2");
         importsL.add("org.opencv.core.Point");
@@ -512,6 +537,65 @@ public class LinkContourStats extends LinkClass {
             sb.append("    }\n");
         return sb.toString();
     }            
+
+    /**
+     * genPipelineFields - generate the curve Mat, the radius, the output List and the pool of its Points
+     */
+    @Override
+    public String genPipelineFields(String reference) {
+        String sfx = reference.equals("") ? "" : "_"+reference;
+        StringBuilder sb = new StringBuilder();
+        sb.append("    private MatOfPoint2f contourStats2f"+sfx+" = new MatOfPoint2f();\n");
+        sb.append("    private float[] contourStatsRadius"+sfx+" = new float[1];\n");
+        sb.append("    private List<Point> contourStatsPool"+sfx+" = new ArrayList<>();     // grows to the most contours seen\n");
+        sb.append("    private List<Point> contourStatsPointsList"+sfx+" = new ArrayList<>();\n");
+        return sb.toString();
+    }
+
+    /**
+     * genPipelineCode - generate a method like that of genCodeString(), which works in the fields;
+     *                   a Point is only made when there are more contours than ever before
+     */
+    @Override
+    public String genPipelineCode(String reference) {
+            genCodeString(reference);
+            String sfx = reference.equals("") ? "" : "_"+reference;
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("    public "+returnStr+" "+methodStr.toString()); 
+            sb.append("(List<MatOfPoint> contours) {\n");            
+            sb.append("        List<Point>   circleCenters = contourStatsPointsList"+sfx+";\n");
+            sb.append("        circleCenters.clear();\n");
+            sb.append("        for (int i = 0; i < contours.size(); i++) {\n");
+            sb.append("            if (i == contourStatsPool"+sfx+".size()) {\n");
+            sb.append("                contourStatsPool"+sfx+".add(new Point());\n");
+            sb.append("            }\n");
+            sb.append("            Point center = contourStatsPool"+sfx+".get(i);\n");
+            sb.append("            contours.get(i).convertTo(contourStats2f"+sfx+", CvType.CV_32FC2);\n");
+            sb.append("            Imgproc.minEnclosingCircle(\n");
+            sb.append("                contourStats2f"+sfx+", // MatOfPoint2f - input mat of points,\n");
+            sb.append("                center,    // Point        - output center,\n");
+            sb.append("                contourStatsRadius"+sfx+"     // float[]      - output radius\n");
+            sb.append("            );\n");
+            sb.append("            circleCenters.add(center);\n");
+            sb.append("        }\n");
+            sb.append("        return circleCenters;\n");
+            sb.append("    }\n");
+        return sb.toString();
+    }
+
+    /**
+     * genPipelineRelease - generate the release of the curve Mat
+     */
+    @Override
+    public String genPipelineRelease(String reference) {
+        String sfx = reference.equals("") ? "" : "_"+reference;
+        StringBuilder sb = new StringBuilder();
+        sb.append("        contourStats2f"+sfx+".release();\n");
+        sb.append("        contourStatsPointsList"+sfx+".clear();\n");
+        sb.append("        contourStatsPool"+sfx+".clear();\n");
+        return sb.toString();
+    }
     //
     //  end of overridden LinkClass methods
     //-----------------------------------------------------------------------------------
@@ -37,11 +37,17 @@ public class LinkCropImage extends LinkClass {
     private JulipTrackBar cropRightTB;    
     private JulipTrackBar cropTopTB;    
     private JulipTrackBar cropBottomTB;    
+    private JulipComboBox outputCB;
+    
+    private final String[] OUTPUT_STR = StageCropImage.OUTPUT_STR;
+    
+    private LinkData output;                // output of StageCropImage; may be a region of interest
     
     private int cropLeftDefault = 0;
     private int cropRightDefault = -1;
     private int cropTopDefault = 0;
     private int cropBottomDefault = -1;
+    private int outputIdxDefault = 0;
     //
     //------------------------------------------------
     
@@ -81,8 +87,7 @@ public class LinkCropImage extends LinkClass {
         //
         // All frames have a display image
         //
-        Image img = HighGui.toBufferedImage(matImgSrc);
-        imgLabel = new JLabel(new ImageIcon(img));
+        imgLabel = new JLabel(previewIcon(matImgSrc));
         imgSP = new JScrollPane(imgLabel);
         imgSP.setPreferredSize(new Dimension(400,400));             
         //
@@ -95,6 +100,7 @@ public class LinkCropImage extends LinkClass {
         cropRightTB = new JulipTrackBar(0, matImgSrc.cols(), Integer.parseInt(myLinkMap.get("CROP_RIGHT")), 30, 6, this);
         cropTopTB = new JulipTrackBar(0, matImgSrc.rows(), Integer.parseInt(myLinkMap.get("CROP_TOP")), 30, 6, this);
         cropBottomTB = new JulipTrackBar(0, matImgSrc.rows(), Integer.parseInt(myLinkMap.get("CROP_BOTTOM")), 30, 6, this);
+        outputCB = new JulipComboBox(OUTPUT_STR, myLinkMap.get("OUTPUT"), this);
     
 
         //
@@ -103,6 +109,7 @@ public class LinkCropImage extends LinkClass {
         //      Crop Right JLabel + JSlider
         //      Crop Up    JLabel + JSlider
         //      Crop Down  JLabel + JSlider
+        //      Output     JComboBox
         //      link JPanel
         //
         JPanel sliderPanel = new JPanel();
@@ -116,6 +123,7 @@ public class LinkCropImage extends LinkClass {
         sliderPanel.add(cropTopTB.slider);
         sliderPanel.add(cropBottomTB.label);
         sliderPanel.add(cropBottomTB.slider);
+        sliderPanel.add(outputCB.comboBox);
         
         //
         // All Link Gui's need to add the JPanel returned from
@@ -154,6 +162,7 @@ public class LinkCropImage extends LinkClass {
     // Cluster of overriden LinkClass methods 
     //   buildMyLinkMap()
     //   verifySettings()
+    //   getSettings()
     //   saveSettings()
     //   saveImage()
     //   mapToSettings()
@@ -161,6 +170,9 @@ public class LinkCropImage extends LinkClass {
     //   refreshImage()
     //   genImportList()
     //   genCodeString()
+    //   genPipelineFields()
+    //   genPipelineCode()
+    //   genPipelineRelease()
      
     /**
      * buildMyLinkMap - native default values for Link Gui
@@ -175,6 +187,7 @@ public class LinkCropImage extends LinkClass {
                 put("CROP_RIGHT", Integer.toString(cropRightDefault));
                 put("CROP_TOP",    Integer.toString(cropTopDefault));
                 put("CROP_BOTTOM",  Integer.toString(cropBottomDefault));
+                put("OUTPUT", OUTPUT_STR[outputIdxDefault]);
             }};
         for (String key : defaultMap.keySet()) {
             if (!myLinkMap.containsKey(key)) {
@@ -195,29 +208,31 @@ public class LinkCropImage extends LinkClass {
         intCheck("CROP_TOP", 0, 10000, cropTopDefault);
         intCheck("CROP_RIGHT", 0, 10000, matImgSrc.cols());
         intCheck("CROP_BOTTOM", 0, 10000, matImgSrc.rows());
+        comboCheck("OUTPUT", OUTPUT_STR, outputIdxDefault);
     }
        
        
+    /**
+     * getSettings - Overrides method in LinkClass; settings of the sliders.
+     * @return Map - key,value strings of settings
+     */
+    @Override
+    public Map<String, String> getSettings() {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("CROP_LEFT",   Integer.toString(cropLeftTB.value));
+        settings.put("CROP_RIGHT",  Integer.toString(cropRightTB.value));
+        settings.put("CROP_TOP",    Integer.toString(cropTopTB.value));
+        settings.put("CROP_BOTTOM", Integer.toString(cropBottomTB.value));
+        settings.put("OUTPUT",      OUTPUT_STR[outputCB.index]);
+        return settings;
+    }
+
     /**
      * saveSettings - write link settings to file 
      */
     @Override
     public void saveSettings() {
-        String linkfilename  = textFieldLink.getText();
-        
-        BufferedWriter writer;
-        try {
-            writer = new BufferedWriter(new FileWriter(linkfilename));
-            writer.write("TYPE\tINRANGEHSV\n");
-            writer.write("IMAGE_IN\t"   + textFieldImageIn.getText()  + "\n");
-            writer.write("IMAGE_OUT\t"  + textFieldImageOut.getText() + "\n");
-            writer.write("LINK_FILE\t"  + linkfilename + "\n");
-            writer.write("CROP_LEFT\t"  + cropLeftTB.value + "\n");
-            writer.write("CROP_RIGHT\t" + cropRightTB.value + "\n");
-            writer.write("CROP_TOP\t"    + cropTopTB.value + "\n");
-            writer.write("CROP_BOTTOM\t"  + cropBottomTB.value + "\n");
-            writer.close();
-        } catch (IOException e) {}
+        writeLinkFile("INRANGEHSV");
     }
     
     /**
@@ -228,6 +243,29 @@ public class LinkCropImage extends LinkClass {
         Imgcodecs.imwrite(textFieldImageOut.getText(), matImgDst);
     }
     
+    /**
+     * getOutputData - Overrides method in LinkClass; output Image for the next Link Gui
+     * @return LinkData - output for the next Link Gui
+     */
+    @Override
+    public LinkData getOutputData() {
+        if (output != null) {
+            return output;
+        }
+        return LinkData.fromMat(LinkData.IMG, matImgDst);
+    }
+
+    /**
+     * restoreOutput - Overrides method in LinkClass; the output image is all there is to restore.
+     */
+    @Override
+    public boolean restoreOutput(LinkData output) {
+        this.output = output;
+        matImgDst = output.toFullFrame().mat;
+        showImage(matImgDst);
+        return true;
+    }
+    
     /**
      * mapToSettings - Overrides method in LinkClass; update gui settings from myLinkMap
      */
@@ -237,6 +275,7 @@ public class LinkCropImage extends LinkClass {
         cropRightTB.setValue(Integer.parseInt(myLinkMap.get("HUE1_MAX")));
         cropTopTB.setValue(Integer.parseInt(myLinkMap.get("HUE2_MIN")));
         cropBottomTB.setValue(Integer.parseInt(myLinkMap.get("HUE2_MAX")));
+        outputCB.setValue(myLinkMap.get("OUTPUT"));
     }
     
     /**
@@ -257,37 +296,20 @@ public class LinkCropImage extends LinkClass {
      */
     @Override
     public void refreshImage() {
-        int mark;
-        Scalar blank = new Scalar(0,0,0);
-
-        matImgDst = Mat.zeros(matImgSrc.rows(), matImgSrc.cols(), CvType.CV_8U);
-        matImgSrc.copyTo(matImgDst);
-
-        mark = cropLeftTB.value;
-        if (mark > 0) {
-            Mat leftMat = matImgDst.submat(new Rect(0,0, mark, matImgSrc.rows()));
-            leftMat.setTo(blank);    
-        }
-        mark = cropRightTB.value;
-        if (mark < matImgSrc.cols()) {
-            Mat rightMat = matImgDst.submat(new Rect(mark, 0, matImgSrc.cols()-mark-1, matImgSrc.rows()));
-            rightMat.setTo(blank);
-        }
-        mark = cropTopTB.value;
-        if (mark > 0) {
-            Mat topMat = matImgDst.submat(new Rect(0, 0, matImgSrc.cols(), mark));
-            topMat.setTo(blank);
-        }
-        mark = cropBottomTB.value;
-        if (mark < matImgSrc.rows()) {
-            Mat bottomMat = matImgDst.submat(new Rect(0, mark, matImgSrc.cols(), matImgSrc.rows()-mark-1));
-            bottomMat.setTo(blank);
-        }
- 
-        Image img = HighGui.toBufferedImage(matImgDst);
-        imgLabel.setIcon(new ImageIcon(img));
+        // StageCropImage blanks out the image outside of the crop marks, or cuts out the
+        // region inside them; this Link Gui only shows it, in the full frame
+        output = runStage();
+        matImgDst = output.toFullFrame().mat;
+        showImage(matImgDst);
 //        frame.pack();
-        frame.repaint();
+    }
+
+    /**
+     * isRefreshOffEdt - Overrides method in LinkClass; refreshImage() shows its results through showImage().
+     */
+    @Override
+    public boolean isRefreshOffEdt() {
+        return true;
     }
     
     /**
@@ -347,6 +369,87 @@ public class LinkCropImage extends LinkClass {
             sb.append("    }\n");
         return sb.toString();
     }
+
+    /**
+     * genPipelineFields - generate the output Mat, the views of its borders and the blank Scalar
+     */
+    @Override
+    public String genPipelineFields(String reference) {
+        String sfx = reference.equals("") ? "" : "_"+reference;
+        StringBuilder sb = new StringBuilder();
+        sb.append("    private Mat cropImageDst"+sfx+" = new Mat();\n");
+        sb.append("    private Mat cropLeftMat"+sfx+";     // views of the borders of cropImageDst"+sfx+"\n");
+        sb.append("    private Mat cropRightMat"+sfx+";\n");
+        sb.append("    private Mat cropTopMat"+sfx+";\n");
+        sb.append("    private Mat cropBottomMat"+sfx+";\n");
+        sb.append("    private final Scalar cropBlank"+sfx+" = new Scalar(0,0,0);\n");
+        return sb.toString();
+    }
+
+    /**
+     * genPipelineCode - generate a method like that of genCodeString(), which blanks out
+     *                   the borders through views that are only made again when the image size changes
+     */
+    @Override
+    public String genPipelineCode(String reference) {
+            genCodeString(reference);
+            String sfx = reference.equals("") ? "" : "_"+reference;
+    
+            StringBuilder sb = new StringBuilder();
+            sb.append("    public "+returnStr+" "+methodStr.toString()); 
+            sb.append("(Mat matImgSrc) {\n");
+            sb.append("        int mark;\n");
+            sb.append("        Mat matImgDst = cropImageDst"+sfx+";\n");
+            sb.append("        if ((matImgDst.rows() != matImgSrc.rows()) ||\n");
+            sb.append("            (matImgDst.cols() != matImgSrc.cols()) ||\n");
+            sb.append("            (matImgDst.type() != matImgSrc.type())) {\n");
+            sb.append("            // the image size changed; make the output and the views of its borders again\n");
+            sb.append("            releaseCropViews"+sfx+"();\n");
+            sb.append("            matImgDst.create(matImgSrc.rows(), matImgSrc.cols(), matImgSrc.type());\n");
+            sb.append("            mark = "+cropLeftTB.value+";\n");
+            sb.append("            if (mark > 0) {\n");
+            sb.append("                cropLeftMat"+sfx+" = matImgDst.submat(new Rect(0,0, mark, matImgSrc.rows()));\n");
+            sb.append("            }\n");
+            sb.append("            mark = "+cropRightTB.value+";\n");
+            sb.append("            if (mark < matImgSrc.cols()) {\n");
+            sb.append("                cropRightMat"+sfx+" = matImgDst.submat(new Rect(mark, 0, matImgSrc.cols()-mark-1, matImgSrc.rows()));\n");
+            sb.append("            }\n");
+            sb.append("            mark = "+cropTopTB.value+";\n");
+            sb.append("            if (mark > 0) {\n");
+            sb.append("                cropTopMat"+sfx+" = matImgDst.submat(new Rect(0, 0, matImgSrc.cols(), mark));\n");
+            sb.append("            }\n");
+            sb.append("            mark = "+cropBottomTB.value+";\n");
+            sb.append("            if (mark < matImgSrc.rows()) {\n");
+            sb.append("                cropBottomMat"+sfx+" = matImgDst.submat(new Rect(0, mark, matImgSrc.cols(), matImgSrc.rows()-mark-1));\n");
+            sb.append("            }\n");
+            sb.append("        }\n");
+            sb.append("        matImgSrc.copyTo(matImgDst);\n");
+            sb.append("        if (cropLeftMat"+sfx+" != null)   { cropLeftMat"+sfx+".setTo(cropBlank"+sfx+"); }\n");
+            sb.append("        if (cropRightMat"+sfx+" != null)  { cropRightMat"+sfx+".setTo(cropBlank"+sfx+"); }\n");
+            sb.append("        if (cropTopMat"+sfx+" != null)    { cropTopMat"+sfx+".setTo(cropBlank"+sfx+"); }\n");
+            sb.append("        if (cropBottomMat"+sfx+" != null) { cropBottomMat"+sfx+".setTo(cropBlank"+sfx+"); }\n");
+            sb.append("        return matImgDst;\n");
+            sb.append("    }\n");
+            sb.append("    private void releaseCropViews"+sfx+"() {\n");
+            sb.append("        if (cropLeftMat"+sfx+" != null)   { cropLeftMat"+sfx+".release();   cropLeftMat"+sfx+" = null; }\n");
+            sb.append("        if (cropRightMat"+sfx+" != null)  { cropRightMat"+sfx+".release();  cropRightMat"+sfx+" = null; }\n");
+            sb.append("        if (cropTopMat"+sfx+" != null)    { cropTopMat"+sfx+".release();    cropTopMat"+sfx+" = null; }\n");
+            sb.append("        if (cropBottomMat"+sfx+" != null) { cropBottomMat"+sfx+".release(); cropBottomMat"+sfx+" = null; }\n");
+            sb.append("    }\n");
+        return sb.toString();
+    }
+
+    /**
+     * genPipelineRelease - generate the release of the output Mat and the views of its borders
+     */
+    @Override
+    public String genPipelineRelease(String reference) {
+        String sfx = reference.equals("") ? "" : "_"+reference;
+        StringBuilder sb = new StringBuilder();
+        sb.append("        releaseCropViews"+sfx+"();\n");
+        sb.append("        cropImageDst"+sfx+".release();\n");
+        return sb.toString();
+    }
         
     //
     //  end of overridden LinkClass methods
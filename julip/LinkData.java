@@ -0,0 +1,281 @@
+package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
+
+import java.util.*;
+import java.util.List;
+
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * LinkData - typed output of a Link Gui, handed in memory to the next Link Gui of a chain.
+ *            Holds one of: an image Mat, a List of contours, or a List of points.
+ *            Contours and points also carry the Size of the image they are associated with,
+ *            just as the julip .ctr and .pts file formats do.
+ *            Contours carry a ContourFeatures table too, so that the Link Gui's down the
+ *            chain share the features calculated for them.
+ *
+ *            An image may hold only a region of interest of the full frame, as output by
+ *            LinkCropImage; roi then tells where the region is and size is the full frame.
+ *            Stages that accept a region work on it alone; contours and points found in a
+ *            region are translated back to the full frame by inFrame().
+ */
+public class LinkData {
+
+    public static final String IMG = "img";     // image Mat; written as .png
+    public static final String MAT = "mat";     // image Mat; written as julip .mat
+    public static final String CTR = "ctr";     // List<MatOfPoint>; written as julip .ctr
+    public static final String PTS = "pts";     // List<Point>; written as julip .pts
+    public static final String NIL = "nil";     // result of a terminal Link; written as text
+
+    public String           type;               // one of IMG, MAT, CTR, PTS, NIL
+    public Mat              mat;                // image, for IMG and MAT types
+    public List<MatOfPoint> contours;           // contours, for CTR type
+    public ContourFeatures  features;           // features of contours, for CTR type; see getFeatures()
+    public List<Point>      points;             // points, for PTS type
+    public Size             size;               // Size of image associated with data
+    public Rect             roi;                // region of the full frame an image holds; null for all of it
+    public String           result;             // result text, for NIL type
+
+    /**
+     * fromMat - LinkData holding an image
+     * @param type - IMG or MAT
+     * @param mat  - image
+     * @return LinkData
+     */
+    public static LinkData fromMat(String type, Mat mat) {
+        LinkData data = new LinkData();
+        data.type = type;
+        data.mat  = mat;
+        data.size = mat.size();
+        return data;
+    }
+
+    /**
+     * fromContours - LinkData holding a List of contours
+     *                The List is copied so the Link Gui may keep reusing its own.
+     * @param size     - Size of image associated with contours
+     * @param contours - List of contours
+     * @return LinkData
+     */
+    public static LinkData fromContours(Size size, List<MatOfPoint> contours) {
+        return fromContours(size, contours, null);
+    }
+    // alternate method signature, with the ContourFeatures of the very same contours; null for none yet
+    public static LinkData fromContours(Size size, List<MatOfPoint> contours, ContourFeatures features) {
+        LinkData data = new LinkData();
+        data.type     = CTR;
+        data.contours = new ArrayList<>(contours);
+        data.features = features;
+        data.size     = size;
+        return data;
+    }
+
+    /**
+     * fromPoints - LinkData holding a List of points
+     *              The List is copied so the Link Gui may keep reusing its own.
+     * @param size   - Size of image associated with points
+     * @param points - List of points
+     * @return LinkData
+     */
+    public static LinkData fromPoints(Size size, List<Point> points) {
+        LinkData data = new LinkData();
+        data.type   = PTS;
+        data.points = new ArrayList<>(points);
+        data.size   = size;
+        return data;
+    }
+
+    /**
+     * fromRoi - LinkData holding a region of interest of a full frame
+     * @param type      - IMG or MAT
+     * @param mat       - image of the region
+     * @param roi       - region in the full frame; same size as mat
+     * @param frameSize - Size of the full frame
+     * @return LinkData
+     */
+    public static LinkData fromRoi(String type, Mat mat, Rect roi, Size frameSize) {
+        LinkData data = fromMat(type, mat);
+        data.roi  = roi;
+        data.size = frameSize;
+        return data;
+    }
+
+    /**
+     * fromResult - LinkData holding the result of a terminal Link
+     * @param result - result text
+     * @return LinkData
+     */
+    public static LinkData fromResult(String result) {
+        LinkData data = new LinkData();
+        data.type   = NIL;
+        data.result = result;
+        return data;
+    }
+
+    /**
+     * getFeatures - features of the contours; the table is made on first use
+     * @return ContourFeatures - null if this is not contour data
+     */
+    public synchronized ContourFeatures getFeatures() {
+        if ((features == null) && (contours != null)) {
+            features = new ContourFeatures(contours);
+        }
+        return features;
+    }
+
+    /**
+     * toImage - image as it would be read back from an image file
+     *           Imgcodecs.imread always returns a 3-channel BGR image, so single channel
+     *           images are converted, once for all readers, by the ColorCache.
+     *           julip .mat data is returned as is.
+     * @return Mat - image; read only
+     */
+    public Mat toImage() {
+        if (type.equals(IMG) && (mat.channels() == 1)) {
+            return ColorCache.shared.convert(mat, Imgproc.COLOR_GRAY2BGR);
+        }
+        return mat;
+    }
+
+    /**
+     * toFullFrame - data in full frame space; an image of a region is put back in a
+     *               black full frame image at its place, anything else is returned as is
+     * @return LinkData
+     */
+    public LinkData toFullFrame() {
+        if ((roi == null) || (mat == null)) {
+            return this;
+        }
+        Mat full = Mat.zeros(size, mat.type());
+        mat.copyTo(full.submat(roi));
+        return fromMat(type, full);
+    }
+
+    /**
+     * inFrame - output of a stage run on a region of interest, placed in the full frame.
+     *           An image of the same size as the region is marked as that region, and
+     *           contours and points are translated by the offset of the region.
+     * @param frameRoi  - region of the input of the stage
+     * @param frameSize - Size of the full frame
+     * @return LinkData - this, or new data in full frame space
+     */
+    public LinkData inFrame(Rect frameRoi, Size frameSize) {
+        if (mat != null) {
+            if ((roi == null) && (mat.cols() == frameRoi.width) && (mat.rows() == frameRoi.height)) {
+                roi  = frameRoi;
+                size = frameSize;
+            }
+            return this;
+        }
+        if (contours != null) {
+            Scalar offset = new Scalar(frameRoi.x, frameRoi.y);
+            List<MatOfPoint> shifted = new ArrayList<>();
+            for (MatOfPoint contour : contours) {
+                MatOfPoint moved = new MatOfPoint();
+                Core.add(contour, offset, moved);
+                shifted.add(moved);
+            }
+            return fromContours(frameSize, shifted);
+        }
+        if (points != null) {
+            List<Point> shifted = new ArrayList<>();
+            for (Point point : points) {
+                shifted.add(new Point(point.x + frameRoi.x, point.y + frameRoi.y));
+            }
+            return fromPoints(frameSize, shifted);
+        }
+        return this;
+    }
+
+    /**
+     * toProxy - data shrunk by 2 for every pyramid level, for a quick preview.
+     *           An image is taken down the Gaussian pyramid with Imgproc.pyrDown, and
+     *           contours and points are scaled alike. The full frame of a region is used.
+     * @param level - pyramid level; 1 for half size, 2 for quarter size
+     * @return LinkData - new data
+     */
+    public LinkData toProxy(int level) {
+        double scale = 1.0 / (1 << level);
+        Size proxySize = size;
+        for (int i = 0; i < level; i++) {
+            // same rounding as Imgproc.pyrDown
+            proxySize = new Size(Math.floor((proxySize.width + 1) / 2), Math.floor((proxySize.height + 1) / 2));
+        }
+        if (mat != null) {
+            Mat proxy = toFullFrame().mat;
+            for (int i = 0; i < level; i++) {
+                Mat down = new Mat();
+                Imgproc.pyrDown(proxy, down);
+                if (i > 0) {
+                    proxy.release();
+                }
+                proxy = down;
+            }
+            return fromMat(type, proxy);
+        }
+        if (contours != null) {
+            Scalar factor = new Scalar(scale, scale);
+            List<MatOfPoint> scaled = new ArrayList<>();
+            for (MatOfPoint contour : contours) {
+                MatOfPoint shrunk = new MatOfPoint();
+                Core.multiply(contour, factor, shrunk);
+                scaled.add(shrunk);
+            }
+            return fromContours(proxySize, scaled);
+        }
+        if (points != null) {
+            List<Point> scaled = new ArrayList<>();
+            for (Point point : points) {
+                scaled.add(new Point(point.x * scale, point.y * scale));
+            }
+            return fromPoints(proxySize, scaled);
+        }
+        return this;
+    }
+
+    /**
+     * toContourList - contours in the same layout as ContourHandler.loadContours
+     * @return List<MatOfPoint> - new List of contours; except first entry is a Mat Size
+     */
+    public List<MatOfPoint> toContourList() {
+        List<MatOfPoint> list = new ArrayList<>();
+        list.add(new MatOfPoint(new Point((int)size.width, (int)size.height)));
+        list.addAll(contours);
+        return list;
+    }
+
+    /**
+     * toPointList - points in the same layout as PointHandler.loadPoints
+     * @return List<Point> - new List of points; except first entry is a Mat Size
+     */
+    public List<Point> toPointList() {
+        List<Point> list = new ArrayList<>();
+        list.add(new Point((int)size.width, (int)size.height));
+        list.addAll(points);
+        return list;
+    }
+
+    /**
+     * toString - short description of the data, for reports
+     * @return String
+     */
+    @Override
+    public String toString() {
+        if (type.equals(NIL)) {
+            return result;
+        }
+        else if (type.equals(CTR)) {
+            return contours.size() + " contours";
+        }
+        else if (type.equals(PTS)) {
+            return points.size() + " points";
+        }
+        return "image " + size.toString() + " channels " + mat.channels();
+    }
+}
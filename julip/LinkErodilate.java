@@ -129,8 +129,7 @@ public class LinkErodilate extends LinkClass {
         //
         // All frames have a display image
         //
-        Image img = HighGui.toBufferedImage(matImgSrc);
-        imgLabel = new JLabel(new ImageIcon(img));        
+        imgLabel = new JLabel(previewIcon(matImgSrc));
         imgSP = new JScrollPane(imgLabel);
         imgSP.setPreferredSize(new Dimension(400,400));
         //
@@ -150,6 +149,7 @@ public class LinkErodilate extends LinkClass {
         //      kernel JLabel + JSlider
         //      kernel JComboBox
         //      image  JComboBox
+        //      preview JComboBox
         //
         JPanel sliderPanel = new JPanel();
         sliderPanel.setLayout(new BoxLayout(sliderPanel, BoxLayout.PAGE_AXIS));
@@ -159,6 +159,8 @@ public class LinkErodilate extends LinkClass {
         sliderPanel.add(kernelTB.label);
         sliderPanel.add(kernelCB.comboBox);
         sliderPanel.add(imageCB.comboBox);
+        previewCB = new JulipComboBox(PREVIEW_STR, PREVIEW_STR[0], this);
+        sliderPanel.add(previewCB.comboBox);
         
         //
         // All Link Gui's need to add the JPanel returned from
@@ -197,6 +199,7 @@ public class LinkErodilate extends LinkClass {
     // Cluster of overriden LinkClass methods 
     //   buildMyLinkMap()
     //   verifySettings()
+    //   getSettings()
     //   saveSettings()
     //   saveImage()
     //   mapToSettings()
@@ -204,6 +207,9 @@ public class LinkErodilate extends LinkClass {
     //   refreshImage()
     //   genImportList()
     //   genCodeString()
+    //   genPipelineFields()
+    //   genPipelineCode()
+    //   genPipelineRelease()
       
     /**
      * buildMyLinkMap - native default values for Link Gui
@@ -245,26 +251,26 @@ public class LinkErodilate extends LinkClass {
     }
        
        
+    /**
+     * getSettings - Overrides method in LinkClass; settings of the slider and combo boxes.
+     * @return Map - key,value strings of settings
+     */
+    @Override
+    public Map<String, String> getSettings() {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("MORPH_OPERATION", MORPH_STR[morphCB.index]);
+        settings.put("KERNEL_RADIUS",   Integer.toString(kernelTB.value));
+        settings.put("KERNEL_TYPE",     KERNEL_STR[kernelCB.index]);
+        settings.put("IMAGE_TYPE",      IMAGE_STR[imageCB.index]);
+        return settings;
+    }
+
     /**
      * saveSettings - write link settings to file 
      */
     @Override
     public void saveSettings() {
-        String linkfilename  = textFieldLink.getText();
-        
-        BufferedWriter writer;
-        try {
-            writer = new BufferedWriter(new FileWriter(linkfilename));
-            writer.write("TYPE\tINRANGEHSV\n");
-            writer.write("IMAGE_IN\t"        + textFieldImageIn.getText()  + "\n");
-            writer.write("IMAGE_OUT\t"       + textFieldImageOut.getText() + "\n");
-            writer.write("LINK_FILE\t"       + linkfilename + "\n");
-            writer.write("MORPH_OPERATION\t" + MORPH_STR[morphCB.index] + "\n");
-            writer.write("KERNEL_RADIUS\t"   + kernelTB.value + "\n");
-            writer.write("KERNEL_TYPE\t"     + KERNEL_STR[kernelCB.index] + "\n");
-            writer.write("IMAGE_TYPE\t"      + IMAGE_STR[imageCB.index] + "\n");
-            writer.close();
-        } catch (IOException e) {}
+        writeLinkFile("INRANGEHSV");
     }
     
     /**
@@ -275,6 +281,25 @@ public class LinkErodilate extends LinkClass {
         Imgcodecs.imwrite(textFieldImageOut.getText(), matImgDst);
     }
     
+    /**
+     * getOutputData - Overrides method in LinkClass; output Image for the next Link Gui
+     * @return LinkData - output for the next Link Gui
+     */
+    @Override
+    public LinkData getOutputData() {
+        return LinkData.fromMat(LinkData.IMG, matImgDst);
+    }
+
+    /**
+     * restoreOutput - Overrides method in LinkClass; the output image is all there is to restore.
+     */
+    @Override
+    public boolean restoreOutput(LinkData output) {
+        matImgDst = output.mat;
+        showImage(matImgDst);
+        return true;
+    }
+    
     /**
      * mapToSettings - Overrides method in LinkClass; update gui settings from myLinkMap
      */
@@ -300,30 +325,23 @@ public class LinkErodilate extends LinkClass {
      * refreshImage - Overrides method in LinkClass; recalculate algorithm and refresh shown image.
      */
     public void refreshImage() {
-        matImgDst = Mat.zeros(matImgSrc.rows(), matImgSrc.cols(), CvType.CV_8U);
-        Size kernelSize = new Size(
-                            2 * kernelTB.value + 1, // double - width
-                            2 * kernelTB.value + 1  // double - height
-                          );
-        Mat element = Imgproc.getStructuringElement(
-                        KERNEL_TYPE[kernelCB.index],  // int  - shape
-                        kernelSize                    // Size - ksize
-                      );
-        if (imageCB.index == 0) {
-            Imgproc.morphologyEx(
-                matImgSrc,                     // Mat - source
-                matImgDst,                     // Mat - destination
-                MORPH_TYPE[morphCB.index],     // int - operation
-                element                        // Mat - kernel
-            );
-        } else {
-            matImgSrc.copyTo(matImgDst);
+        if (isProxyRefresh()) {
+            // while the slider is dragged only the shrunken image, with a shrunken kernel, is processed
+            showProxyImage(runProxyStage().mat);
+            return;
         }
-        
-        Image img = HighGui.toBufferedImage(matImgDst);
-        imgLabel.setIcon(new ImageIcon(img));
+        // StageErodilate runs the morphology operation; this Link Gui only shows it
+        matImgDst = runStage().mat;
+        showImage(matImgDst);
 //        frame.pack();
-        frame.repaint();
+    }
+
+    /**
+     * isRefreshOffEdt - Overrides method in LinkClass; refreshImage() shows its results through showImage().
+     */
+    @Override
+    public boolean isRefreshOffEdt() {
+        return true;
     }
     
     /**
@@ -381,6 +399,56 @@ public class LinkErodilate extends LinkClass {
             sb.append("    }\n");
         return sb.toString();
     }    
+
+    /**
+     * genPipelineFields - generate the output Mat and the kernel, made once
+     */
+    @Override
+    public String genPipelineFields(String reference) {
+        String sfx = reference.equals("") ? "" : "_"+reference;
+        StringBuilder sb = new StringBuilder();
+        sb.append("    private Mat erodilateDst"+sfx+" = new Mat();\n");
+        sb.append("    private final Mat erodilateElement"+sfx+" = Imgproc.getStructuringElement(\n");
+        sb.append("        "+KERNEL_TYPE_NAME[kernelCB.index]+",    // int  - shape\n");
+        sb.append("        new Size("+(2 * kernelTB.value + 1)+", "+(2 * kernelTB.value + 1)+")  // Size - ksize\n");
+        sb.append("    );\n");
+        return sb.toString();
+    }
+
+    /**
+     * genPipelineCode - generate a method like that of genCodeString(), which works in the fields
+     */
+    @Override
+    public String genPipelineCode(String reference) {
+            genCodeString(reference);
+            String sfx = reference.equals("") ? "" : "_"+reference;
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("    public "+returnStr+" "+methodStr.toString());  
+            sb.append("(Mat matImgSrc) {\n");
+            sb.append("        // Execute morphologyEx operation; the output Mat is only reallocated if the image size changes\n");
+            sb.append("        Imgproc.morphologyEx(\n");
+            sb.append("            matImgSrc,              // Mat - source\n");
+            sb.append("            erodilateDst"+sfx+",    // Mat - destination\n");
+            sb.append("            "+MORPH_TYPE_NAME[morphCB.index]+",    // int - operation\n");
+            sb.append("            erodilateElement"+sfx+" // Mat - kernel\n");
+            sb.append("        );\n");
+            sb.append("        return erodilateDst"+sfx+";\n");
+            sb.append("    }\n");
+        return sb.toString();
+    }
+
+    /**
+     * genPipelineRelease - generate the release of the output Mat and the kernel
+     */
+    @Override
+    public String genPipelineRelease(String reference) {
+        String sfx = reference.equals("") ? "" : "_"+reference;
+        StringBuilder sb = new StringBuilder();
+        sb.append("        erodilateDst"+sfx+".release();\n");
+        sb.append("        erodilateElement"+sfx+".release();\n");
+        return sb.toString();
+    }
     //
     //  end of overridden LinkClass methods
     //-----------------------------------------------------------------------------------
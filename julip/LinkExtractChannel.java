@@ -85,8 +85,7 @@ public class LinkExtractChannel extends LinkClass {
         //
         // All frames have a display image
         //
-        Image img = HighGui.toBufferedImage(matImgSrc);
-        imgLabel = new JLabel(new ImageIcon(img));  
+        imgLabel = new JLabel(previewIcon(matImgSrc));
         imgSP = new JScrollPane(imgLabel);
         imgSP.setPreferredSize(new Dimension(400,400));                
         //
@@ -142,6 +141,7 @@ public class LinkExtractChannel extends LinkClass {
     // Cluster of overriden LinkClass methods 
     //   buildMyLinkMap()
     //   verifySettings()
+    //   getSettings()
     //   saveSettings(()
     //   saveImage()
     //   mapToSettings()
@@ -149,6 +149,9 @@ public class LinkExtractChannel extends LinkClass {
     //   refreshImage()
     //   genImportList()
     //   genCodeString()
+    //   genPipelineFields()
+    //   genPipelineCode()
+    //   genPipelineRelease()
             
     /**
      * loadImage - Import image from file; writes to matImgSrc.
@@ -209,24 +212,24 @@ System.out.println("loadImage channels="+matImgSrc.channels());
         intCheck("NUM_CHANNELS", 0, hiLimit, hiLimit);
     }
     
+    /**
+     * getSettings - Overrides method in LinkClass; settings of the slider.
+     * @return Map - key,value strings of settings
+     */
+    @Override
+    public Map<String, String> getSettings() {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("SELECT_CHANNEL", Integer.toString(channelTB.value));
+        settings.put("NUM_CHANNELS",   Integer.toString(numChannels));
+        return settings;
+    }
+
     /**
      * saveSettings - write link settings to file 
      */
     @Override
     public void saveSettings() {
-        String linkfilename  = textFieldLink.getText();
-        
-        BufferedWriter writer;
-        try {
-            writer = new BufferedWriter(new FileWriter(linkfilename));
-            writer.write("TYPE\tEXTRACTCHANNEL\n");
-            writer.write("IMAGE_IN\t"    + textFieldImageIn.getText() + "\n");
-            writer.write("IMAGE_OUT\t"   + textFieldImageOut.getText() + "\n");
-            writer.write("LINK_FILE\t"   + linkfilename + "\n");
-            writer.write("SELECT_CHANNEL\t"    + channelTB.value + "\n");
-            writer.write("NUM_CHANNELS\t"      + numChannels + "\n");
-            writer.close();
-        } catch (IOException e) {}            
+        writeLinkFile("EXTRACTCHANNEL");
     }
     
     /**
@@ -239,6 +242,25 @@ System.out.println(matImgDst.toString());
         Imgcodecs.imwrite(textFieldImageOut.getText(), matImgDst);
     }
     
+    /**
+     * getOutputData - Overrides method in LinkClass; output Image for the next Link Gui
+     * @return LinkData - output for the next Link Gui
+     */
+    @Override
+    public LinkData getOutputData() {
+        return LinkData.fromMat(LinkData.IMG, matImgDst);
+    }
+
+    /**
+     * restoreOutput - Overrides method in LinkClass; the output image is all there is to restore.
+     */
+    @Override
+    public boolean restoreOutput(LinkData output) {
+        matImgDst = output.mat;
+        showImage(matImgDst);
+        return true;
+    }
+    
     /**
      * mapToSettings - Overrides method in LinkClass; update gui settings from myLinkMap
      */
@@ -266,22 +288,17 @@ System.out.println(matImgDst.toString());
      * refreshImage - refresh label texts and shown image
      */
     public void refreshImage() {
-        
-        if (channelTB.value < numChannels) {
-            matImgDst = Mat.zeros(matImgSrc.size(), CvType.CV_8UC1);
-            Core.extractChannel(
-                matImgSrc,                   // input Mat image
-                matImgDst,                   // output Mat image
-                channelTB.value              // channel selection
-            );
-            
-        } else {
-            matImgDst = Mat.zeros(matImgSrc.size(), matImgSrc.type());
-            matImgSrc.copyTo(matImgDst);
-        }    
-        Image img = HighGui.toBufferedImage(matImgDst);
-        imgLabel.setIcon(new ImageIcon(img));        
-        frame.repaint();
+        // StageExtractChannel extracts the channel; this Link Gui only shows it
+        matImgDst = runStage().mat;
+        showImage(matImgDst);
+    }
+
+    /**
+     * isRefreshOffEdt - Overrides method in LinkClass; refreshImage() shows its results through showImage().
+     */
+    @Override
+    public boolean isRefreshOffEdt() {
+        return true;
     }
     
     /**
@@ -329,6 +346,50 @@ System.out.println(matImgDst.toString());
         }
         return sb.toString();
     }
+
+    /**
+     * genPipelineFields - generate the output Mat
+     */
+    @Override
+    public String genPipelineFields(String reference) {
+        String sfx = reference.equals("") ? "" : "_"+reference;
+        return "    private Mat channelDst"+sfx+" = new Mat();\n";
+    }
+
+    /**
+     * genPipelineCode - generate a method like that of genCodeString(), which works in the output field
+     */
+    @Override
+    public String genPipelineCode(String reference) {
+        genCodeString(reference);
+        String sfx = reference.equals("") ? "" : "_"+reference;
+            
+        StringBuilder sb = new StringBuilder();
+        if (channelTB.value < numChannels) {
+            sb.append("    public "+returnStr+" "+methodStr.toString()); 
+            sb.append("(Mat matImgSrc) {\n");
+            sb.append("        // the output Mat is only reallocated if the image size changes\n");
+            sb.append("        Core.extractChannel(\n");
+            sb.append("            matImgSrc,    // Mat - input image\n");
+            sb.append("            channelDst"+sfx+",    // Mat - output image\n");
+            sb.append("            "+channelTB.value+"     // int - channel selection\n");
+            sb.append("        );\n");
+            sb.append("        return channelDst"+sfx+";\n");
+            sb.append("    }\n");
+        } else {
+            sb.append(" // no single channel selected in LinkExtractChannel\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * genPipelineRelease - generate the release of the output Mat
+     */
+    @Override
+    public String genPipelineRelease(String reference) {
+        String sfx = reference.equals("") ? "" : "_"+reference;
+        return "        channelDst"+sfx+".release();\n";
+    }
     
     //
     //  end of overridden LinkClass methods
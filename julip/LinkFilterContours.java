@@ -16,7 +16,6 @@ import org.opencv.core.Core;
 import org.opencv.core.CvType;
 import org.opencv.core.Mat;
 import org.opencv.core.MatOfPoint;
-import org.opencv.core.MatOfPoint2f;
 import org.opencv.core.Mat;
 import org.opencv.core.Point;
 import org.opencv.core.Scalar;
@@ -72,9 +71,12 @@ public class LinkFilterContours extends LinkClass {
     private int frameHeightMinusImage = 0;
     
     List<MatOfPoint> contours;    
+    ContourFeatures features;         // features of contours, shared with the stage
     List<Double> contourAreas;
     List<Double> contourPerimeters;
-    List<Integer> drawnContourIndices;
+    List<MatOfPoint> drawnContours;
+    ContourFeatures drawnFeatures;    // features of drawnContours, handed on with them
+    boolean[] drawn;                  // contours drawn on matImgDst; null to draw anew
     //
     //------------------------------------------------
     
@@ -85,7 +87,7 @@ public class LinkFilterContours extends LinkClass {
         anchor = new Point(-1,-1);
         contourAreas = new ArrayList<>();
         contourPerimeters = new ArrayList<>();
-        drawnContourIndices = new ArrayList<>();
+        drawnContours = new ArrayList<>();
         textWidth = 15;
         codeFilename = "code_LinkFilterContours.java";
         //
@@ -108,6 +110,7 @@ public class LinkFilterContours extends LinkClass {
         matImgSrc = Mat.zeros(new Size(512, 512), CvType.CV_8U);
         if (buildContours(myLinkMap.get("IMAGE_IN")) == false) {
             contours = new ArrayList<>();
+            features = new ContourFeatures(contours);
         };
         //
         // Error-check and correct invalid settings.
@@ -123,8 +126,7 @@ public class LinkFilterContours extends LinkClass {
         //
         // All frames have a display image
         //
-        Image img = HighGui.toBufferedImage(matImgSrc);
-        imgLabel = new JLabel(new ImageIcon(img));        
+        imgLabel = new JLabel(previewIcon(matImgSrc));
         imgSP = new JScrollPane(imgLabel);
         imgSP.setPreferredSize(new Dimension(400,400));
         //
@@ -162,8 +164,7 @@ public class LinkFilterContours extends LinkClass {
         buttonAreaFixed.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                refreshSettings();
-                refreshImage();
+                requestRefresh();
             }
         });
         areaFixedPanel.add(buttonAreaFixed);
@@ -196,8 +197,7 @@ public class LinkFilterContours extends LinkClass {
         buttonPeriFixed.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                refreshSettings();
-                refreshImage();
+                requestRefresh();
             }
         });
         periFixedPanel.add(buttonPeriFixed);
@@ -209,6 +209,8 @@ public class LinkFilterContours extends LinkClass {
         labelDrawnContours = new JLabel();            
         sliderPanel.add(labelContours);
         sliderPanel.add(labelDrawnContours);
+        previewCB = new JulipComboBox(PREVIEW_STR, PREVIEW_STR[0], this);
+        sliderPanel.add(previewCB.comboBox);
         
         //
         // All Link Gui's need to add the JPanel returned from
@@ -292,15 +294,15 @@ public class LinkFilterContours extends LinkClass {
             // delete faked-up contour that holds the image Mat Size 
             contours.remove(0);
                         
-            // iterate over list of contours and generate a list
-            // of areas and a list of perimeters
+            // generate a list of areas and a list of perimeters
+            // from the features of the contours
+            features = ContourHandler.loadFeatures(filename, contours);
+            drawn = null;
             contourAreas.clear();
             contourPerimeters.clear();
             for (int i = 0; i < contours.size(); i++) {
-                MatOfPoint contour = contours.get(i);
-                contourAreas.add(Imgproc.contourArea(contour, false));
-                MatOfPoint2f contour2f = new MatOfPoint2f(contour.toArray());
-                contourPerimeters.add(Imgproc.arcLength(contour2f, true));
+                contourAreas.add(features.areas()[i]);
+                contourPerimeters.add(features.perimeters()[i]);
             }
             Collections.sort(contourAreas);
             Collections.sort(contourPerimeters);                    
@@ -315,6 +317,8 @@ public class LinkFilterContours extends LinkClass {
     // Cluster of overriden LinkClass methods 
     //   buildMyLinkMap()
     //   verifySettings()    
+    //   getSettings()
+    //   getInputData()
     //   saveSettings(()
     //   saveImage()
     //   mapToSettings()
@@ -322,6 +326,9 @@ public class LinkFilterContours extends LinkClass {
     //   refreshImage()
     //   genImportList()
     //   genCodeString()
+    //   genPipelineFields()
+    //   genPipelineCode()
+    //   genPipelineRelease()
     
     /**
      * buildMyLinkMap - native default values for Link Gui
@@ -381,41 +388,50 @@ public class LinkFilterContours extends LinkClass {
         comboCheck("PERIMETER_SELECT", PERIMETER_STR, 0);
     }
         
+    /**
+     * getSettings - Overrides method in LinkClass; settings of the sliders, combo boxes and text fields.
+     *               Fixed limits are left out when their text field is empty.
+     * @return Map - key,value strings of settings
+     */
+    @Override
+    public Map<String, String> getSettings() {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("AREA_SELECT", AREA_STR[areaCB.index]);
+        settings.put("AREA_MIN",    Integer.toString(areaMinTB.value));
+        settings.put("AREA_MAX",    Integer.toString(areaMaxTB.value));
+        if (!areaMinTF.getText().trim().equals("")) {
+            settings.put("AREA_FIXED_MIN", areaMinTF.getText());
+        }
+        if (!areaMaxTF.getText().trim().equals("")) {
+            settings.put("AREA_FIXED_MAX", areaMaxTF.getText());
+        }
+        settings.put("PERIMETER_SELECT", PERIMETER_STR[periCB.index]);
+        settings.put("PERIMETER_MIN",    Integer.toString(periMinTB.value));
+        settings.put("PERIMETER_MAX",    Integer.toString(periMaxTB.value));
+        if (!periMinTF.getText().trim().equals("")) {
+            settings.put("PERIMETER_FIXED_MIN", periMinTF.getText());
+        }
+        if (!periMaxTF.getText().trim().equals("")) {
+            settings.put("PERIMETER_FIXED_MAX", periMaxTF.getText());
+        }
+        return settings;
+    }
+
+    /**
+     * getInputData - Overrides method in LinkClass; the contours read from the input file.
+     * @return LinkData - contours
+     */
+    @Override
+    public LinkData getInputData() {
+        return LinkData.fromContours(matImgSrc.size(), contours, features);
+    }
+
     /**
      * saveSettings - write link settings to file 
      */    
     @Override
     public void saveSettings() {
-        String linkfilename  = textFieldLink.getText();
-        
-        BufferedWriter writer;
-        try {
-            writer = new BufferedWriter(new FileWriter(linkfilename));
-            writer.write("TYPE\tFILTERCONTOURS\n");
-            writer.write("IMAGE_IN\t"    + textFieldImageIn.getText() + "\n");
-            writer.write("IMAGE_OUT\t"   + textFieldImageOut.getText() + "\n");
-            writer.write("LINK_FILE\t"   + linkfilename + "\n");
-            writer.write("CONTOUR_FILE\t"+ "nope" + "\n");
-            writer.write("AREA_SELECT\t" + AREA_STR[areaCB.index] + "\n");
-            writer.write("AREA_MIN\t"    + areaMinTB.value + "\n");
-            writer.write("AREA_MAX\t"    + areaMaxTB.value + "\n");
-            if (!areaMinTF.getText().trim().equals("")) {
-                writer.write("AREA_FIXED_MIN\t"      + areaMinTF.getText() + "\n");
-            }
-            if (!areaMaxTF.getText().trim().equals("")) {
-                writer.write("AREA_FIXED_MAX\t"      + areaMaxTF.getText() + "\n");
-            }
-            writer.write("PERIMETER_SELECT\t"    + PERIMETER_STR[periCB.index] + "\n");
-            writer.write("PERIMETER_MIN\t"       + periMinTB.value + "\n");
-            writer.write("PERIMETER_MAX\t"       + periMaxTB.value + "\n");
-            if (!periMinTF.getText().trim().equals("")) {
-                writer.write("PERIMETER_FIXED_MIN\t" + periMinTF.getText() + "\n"); 
-            }
-            if (!periMaxTF.getText().trim().equals("")) {
-                writer.write("PERIMETER_FIXED_MAX\t" + periMaxTF.getText() + "\n"); 
-            }
-            writer.close();            
-        } catch (IOException e) {}
+        writeLinkFile("FILTERCONTOURS");
     }
     
     
@@ -427,12 +443,17 @@ public class LinkFilterContours extends LinkClass {
         // Get output filename from 'Save Output As >' JTextField
         //
         String contourfilename = textFieldImageOut.getText();
-        List<MatOfPoint> drawnContours = new ArrayList<>();
-         for (int i = 0; i < drawnContourIndices.size(); i++) {            
-            drawnContours.add(contours.get(drawnContourIndices.get(i)));
-        }
         ContourHandler.saveContours(contourfilename, matImgSrc, drawnContours);        
     }
+    
+    /**
+     * getOutputData - Overrides method in LinkClass; output Contours for the next Link Gui
+     * @return LinkData - output for the next Link Gui
+     */
+    @Override
+    public LinkData getOutputData() {
+        return LinkData.fromContours(matImgSrc.size(), drawnContours, drawnFeatures);
+    }
             
     /**
      * mapToSettings - Overrides method in LinkClass; update gui settings from myLinkMap
@@ -515,43 +536,129 @@ public class LinkFilterContours extends LinkClass {
      * refreshImage - refresh label texts and shown image
      */
     public void refreshImage() {
-        Mat hierarchy = new Mat();
-        matImgDst = Mat.zeros(matImgSrc.size(), CvType.CV_8UC3);
-        Scalar color = new Scalar(0,255,255);      
+        if (isProxyRefresh()) {
+            refreshProxyImage();
+            return;
+        }
+        // StageFilterContours picks the contours by range queries on its sorted indexes;
+        // this Link Gui only draws them
+        boolean[] keep = ((StageFilterContours) getStage()).keep(features);
+        drawnFeatures = features.select(keep);
+        drawnContours = drawnFeatures.getContours();
+
+        if ((drawn == null) || (drawn.length != keep.length) || (matImgDst == null) ||
+            !matImgDst.size().equals(matImgSrc.size()) || !updateContours(keep)) {
+            clearCanvas();
+            drawContours(drawnContours, new Scalar(0,255,255));
+        }
+        drawn = keep;
         
-        calculateAreaPerimeterThresholds();
+        showText(labelDrawnContours, "Number of filtered contours: " + drawnContours.size());
         
-        drawnContourIndices.clear();
-        for (int i = 0; i < contours.size(); i++) {
-            double area = Imgproc.contourArea(contours.get(i),false);
-            MatOfPoint2f contour2f = new MatOfPoint2f(contours.get(i).toArray());
-            double perimeter = Imgproc.arcLength(contour2f,true);
+        showImage(matImgDst);
+    }
 
-            if (( area > minArea ) &&
-                (( maxArea < 0) || ( area < maxArea)) &&
-                ( perimeter > minPerimeter) &&
-                (( maxPerimeter < 0) || ( perimeter < maxPerimeter))
-            ) {            
-                drawnContourIndices.add(i);
-                Imgproc.drawContours(
-                    matImgDst,          // input/output mat image
-                    contours,           // input List of Mats of contours
-                    i,                  // index into List of Mats of contours
-                    color,              // Scalar color of drawn contour
-                    2,                  // pixel thickness of drawn contour
-                    Imgproc.LINE_8,     // LineType of drawn contour
-                    hierarchy,          // input Mat of contour hierarchy
-                    0,                  // hierarchy threshold of drawn contours
-                    new Point()         // contour x,y offset
-                );        
+    /**
+     * refreshProxyImage - while a slider is dragged, filter the contours shrunken down the
+     *                     image pyramid, with fixed thresholds scaled to match, and draw them
+     *                     on a shrunken canvas. The full size canvas and drawn state are kept
+     *                     for the full refresh once the slider is released.
+     */
+    private void refreshProxyImage() {
+        LinkData proxy = runProxyStage();
+        Mat canvas = Mat.zeros(proxy.size, CvType.CV_8UC3);
+        if (!proxy.contours.isEmpty()) {
+            Imgproc.drawContours(
+                canvas,             // input/output mat image
+                proxy.contours,     // input List of Mats of contours
+                -1,                 // index into List of Mats of contours; all of them
+                new Scalar(0,255,255),  // Scalar color of drawn contour
+                1                   // pixel thickness of drawn contour
+            );
+        }
+        showText(labelDrawnContours, "Number of filtered contours: " + proxy.contours.size());
+        showProxyImage(canvas);
+        canvas.release();
+    }
+
+    /**
+     * updateContours - update the drawn contours on matImgDst, touching only the contours
+     *                  entering or leaving the thresholds. Erasing a contour may also wipe
+     *                  out part of a drawn contour close by, so the drawn contours whose
+     *                  bounding Rects come near an erased one are drawn again.
+     * @param keep - keep flag of every contour
+     * @return boolean - false if so many contours changed that drawing all anew is cheaper
+     */
+    private boolean updateContours(boolean[] keep) {
+        List<MatOfPoint> entering = new ArrayList<>();
+        List<Integer>    leaving  = new ArrayList<>();
+        for (int i = 0; i < keep.length; i++) {
+            if (keep[i] && !drawn[i]) {
+                entering.add(contours.get(i));
+            }
+            else if (!keep[i] && drawn[i]) {
+                leaving.add(i);
             }
         }
-        
-        labelDrawnContours.setText("Number of filtered contours: " + drawnContourIndices.size()); 
-        
-        Image img = HighGui.toBufferedImage(matImgDst);
-        imgLabel.setIcon(new ImageIcon(img));        
-        frame.repaint();
+        if (entering.size() + leaving.size() > drawnContours.size()) {
+            return false;
+        }
+
+        if (!leaving.isEmpty()) {
+            List<MatOfPoint> erased = new ArrayList<>();
+            for (int i : leaving) {
+                erased.add(contours.get(i));
+            }
+            drawContours(erased, new Scalar(0,0,0));
+
+            // drawn contours within the reach of a line width of an erased one
+            double[] x = features.rectX();
+            double[] y = features.rectY();
+            double[] w = features.rectWidths();
+            double[] h = features.rectHeights();
+            int reach = 2;
+            List<MatOfPoint> touched = new ArrayList<>();
+            for (int i = 0; i < keep.length; i++) {
+                if (keep[i] && drawn[i]) {
+                    for (int j : leaving) {
+                        if ((x[i] <= x[j] + w[j] + reach) && (x[j] <= x[i] + w[i] + reach) &&
+                            (y[i] <= y[j] + h[j] + reach) && (y[j] <= y[i] + h[i] + reach)) {
+                            touched.add(contours.get(i));
+                            break;
+                        }
+                    }
+                }
+            }
+            entering.addAll(touched);
+        }
+        drawContours(entering, new Scalar(0,255,255));
+        return true;
+    }
+
+    /**
+     * drawContours - draw contours on matImgDst
+     * @param list  - contours to draw
+     * @param color - Scalar color of drawn contours
+     */
+    private void drawContours(List<MatOfPoint> list, Scalar color) {
+        if (list.isEmpty()) {
+            return;
+        }
+        Imgproc.drawContours(
+            matImgDst,          // input/output mat image
+            list,               // input List of Mats of contours
+            -1,                 // index into List of Mats of contours; all of them
+            color,              // Scalar color of drawn contour
+            2                   // pixel thickness of drawn contour
+        );
+    }
+
+    /**
+     * isRefreshOffEdt - Overrides method in LinkClass; refreshImage() shows its results through showImage().
+     */
+    @Override
+    public boolean isRefreshOffEdt() {
+        return true;
     }
     
     /**
@@ -578,6 +685,7 @@ public class LinkFilterContours extends LinkClass {
      */
     @Override
     public String genCodeString(String reference) {
+            calculateAreaPerimeterThresholds();
             returnStr = "List<MatOfPoint>";
             objectStr = "filterContoursList";
             StringBuilder msb = new StringBuilder();
@@ -617,6 +725,72 @@ public class LinkFilterContours extends LinkClass {
             sb.append("    }\n");
         return sb.toString();
     }        
+
+    /**
+     * genPipelineFields - generate the curve Mat and the output List
+     */
+    @Override
+    public String genPipelineFields(String reference) {
+        String sfx = reference.equals("") ? "" : "_"+reference;
+        StringBuilder sb = new StringBuilder();
+        sb.append("    private MatOfPoint2f filterContour2f"+sfx+" = new MatOfPoint2f();\n");
+        sb.append("    private List<MatOfPoint> filterContoursList"+sfx+" = new ArrayList<>();\n");
+        return sb.toString();
+    }
+
+    /**
+     * genPipelineCode - generate a method like that of genCodeString(), which converts each
+     *                   contour into the same curve Mat instead of a new one
+     */
+    @Override
+    public String genPipelineCode(String reference) {
+            genCodeString(reference);
+            String sfx = reference.equals("") ? "" : "_"+reference;
+            
+            StringBuilder sb = new StringBuilder();
+            sb.append("    public "+returnStr+" "+methodStr.toString()); 
+            sb.append("(List<MatOfPoint> contours) {\n");            
+            sb.append("        List<MatOfPoint> filteredContours = filterContoursList"+sfx+";\n");
+            sb.append("        filteredContours.clear();\n");
+            sb.append("        double area;\n");
+            sb.append("        double perimeter;\n");
+            sb.append("        for (int i = 0; i < contours.size(); i++) {\n");
+            sb.append("            // calculate area and perimeter of each contour\n");
+            sb.append("            area = Imgproc.contourArea(contours.get(i),false);\n");
+            sb.append("            contours.get(i).convertTo(filterContour2f"+sfx+", CvType.CV_32FC2);\n");
+            sb.append("            perimeter = Imgproc.arcLength(filterContour2f"+sfx+",true);\n");
+            sb.append("            // only add contours within desired area and perimeter to list of filtered contours\n");
+            sb.append("            if (( area > "+minArea+" ) &&\n");
+            if (maxArea < 0) {
+                sb.append("                (area < Double.POSITIVE_INFINITY) &&\n");
+            } else {
+                sb.append("                (area < "+maxArea+") &&\n");
+            }
+            sb.append("                ( perimeter > "+minPerimeter+") &&\n");
+            if (maxPerimeter < 0) {
+                sb.append("                (perimeter < Double.POSITIVE_INFINITY)) {\n");
+            } else {
+                sb.append("                (perimeter < "+maxPerimeter+")) {\n");
+            }
+            sb.append("                filteredContours.add(contours.get(i));\n");
+            sb.append("            }\n");
+            sb.append("        }\n");
+            sb.append("        return filteredContours;\n");
+            sb.append("    }\n");
+        return sb.toString();
+    }
+
+    /**
+     * genPipelineRelease - generate the release of the curve Mat
+     */
+    @Override
+    public String genPipelineRelease(String reference) {
+        String sfx = reference.equals("") ? "" : "_"+reference;
+        StringBuilder sb = new StringBuilder();
+        sb.append("        filterContour2f"+sfx+".release();\n");
+        sb.append("        filterContoursList"+sfx+".clear();\n");
+        return sb.toString();
+    }
     //
     //  end of overridden LinkClass methods
     //-----------------------------------------------------------------------------------
@@ -128,8 +128,7 @@ public class LinkFindContours extends LinkClass {
         //
         // All frames have a display image
         //
-        Image img = HighGui.toBufferedImage(matImgSrc);
-        imgLabel = new JLabel(new ImageIcon(img));  
+        imgLabel = new JLabel(previewIcon(matImgSrc));
         imgSP = new JScrollPane(imgLabel);
         imgSP.setPreferredSize(new Dimension(400,400));                
         //
@@ -193,6 +192,7 @@ public class LinkFindContours extends LinkClass {
     // Cluster of overriden LinkClass methods 
     //   buildMyLinkMap()
     //   verifySettings()
+    //   getSettings()
     //   saveSettings(()
     //   saveImage()
     //   mapToSettings()
@@ -200,6 +200,9 @@ public class LinkFindContours extends LinkClass {
     //   refreshImage()
     //   genImportList()
     //   genCodeString()
+    //   genPipelineFields()
+    //   genPipelineCode()
+    //   genPipelineRelease()
             
     /**
      * buildMyLinkMap - native default values for Link Gui
@@ -233,25 +236,24 @@ public class LinkFindContours extends LinkClass {
         comboCheck("METHOD", METHOD_STR, methodIdxDefault);
     }
     
+    /**
+     * getSettings - Overrides method in LinkClass; settings of the combo boxes.
+     * @return Map - key,value strings of settings
+     */
+    @Override
+    public Map<String, String> getSettings() {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("MODE",   MODE_STR[modeCB.index]);
+        settings.put("METHOD", METHOD_STR[methodCB.index]);
+        return settings;
+    }
+
     /**
      * saveSettings - write link settings to file 
      */
     @Override
     public void saveSettings() {
-        String linkfilename  = textFieldLink.getText();
-        
-        BufferedWriter writer;
-        try {
-            writer = new BufferedWriter(new FileWriter(linkfilename));
-            writer.write("TYPE\tFINDCONTOURS\n");
-            writer.write("IMAGE_IN\t"    + textFieldImageIn.getText() + "\n");
-            writer.write("IMAGE_OUT\t"   + textFieldImageOut.getText() + "\n");
-            writer.write("LINK_FILE\t"   + linkfilename + "\n");
-            writer.write("CONTOUR_FILE\t"+ "nope" + "\n");
-            writer.write("MODE\t"        + MODE_STR[modeCB.index] + "\n");
-            writer.write("METHOD\t"      + METHOD_STR[methodCB.index] + "\n");
-            writer.close();
-        } catch (IOException e) {}            
+        writeLinkFile("FINDCONTOURS");
     }
     
     /**
@@ -264,6 +266,15 @@ public class LinkFindContours extends LinkClass {
         String contourfilename = textFieldImageOut.getText();
         ContourHandler.saveContours(contourfilename, matImgDst, contours);        
     }
+    
+    /**
+     * getOutputData - Overrides method in LinkClass; output Contours for the next Link Gui
+     * @return LinkData - output for the next Link Gui
+     */
+    @Override
+    public LinkData getOutputData() {
+        return LinkData.fromContours(matImgDst.size(), contours);
+    }
         
     /**
      * refreshSettings - Overrides method in LinkClass; copy and error check myLinkMap settings.
@@ -287,43 +298,29 @@ public class LinkFindContours extends LinkClass {
      * refreshImage - refresh label texts and shown image
      */
     public void refreshImage() {
-        Mat gray = new Mat();        
-        // If source is a color Mat, 3-channel, then convert it to grayscale, 1-channel
-        if (matImgSrc.channels() == 3) {        
-            Imgproc.cvtColor(matImgSrc, gray, Imgproc.COLOR_BGR2GRAY);
-        }
-
-        contours.clear();
-        Mat hierarchy = new Mat();
-        Imgproc.findContours(
-            gray,                        // input Mat image
-            contours,                    // output List of Mats of contours
-            hierarchy,                   // output Mat of contour hierarchy
-            MODE_CONST[modeCB.index],    // contour retrieval mode
-            METHOD_CONST[methodCB.index] // contour approximation method
-        );
-        labelContours.setText("Number of detected contours: " + contours.size());         
+        // StageFindContours finds the contours; this Link Gui only draws them
+        contours = runStage().contours;
+        showText(labelContours, "Number of detected contours: " + contours.size());
 
-        matImgDst = Mat.zeros(matImgSrc.size(), CvType.CV_8UC3);
+        clearCanvas();
         Scalar color = new Scalar(0,255,255);        
-        for (int i = 0; i < contours.size(); i++) {
-            //Scalar color = new Scalar(rng.nextInt(256), rng.nextInt(256), rng.nextInt(256));
-            Imgproc.drawContours(
-                matImgDst,          // input/output mat image
-                contours,           // input List of Mats of contours
-                i,                  // index into List of Mats of contours
-                color,              // Scalar color of drawn contour
-                2,                  // pixel thickness of drawn contour
-                Imgproc.LINE_8,     // LineType of drawn contour
-                hierarchy,          // input Mat of contour hierarchy
-                0,                  // hierarchy threshold of drawn contours
-                new Point()         // contour x,y offset
-            );        
-        }
+        Imgproc.drawContours(
+            matImgDst,          // input/output mat image
+            contours,           // input List of Mats of contours
+            -1,                 // index into List of Mats of contours; all of them
+            color,              // Scalar color of drawn contour
+            2                   // pixel thickness of drawn contour
+        );        
         
-        Image img = HighGui.toBufferedImage(matImgDst);
-        imgLabel.setIcon(new ImageIcon(img));        
-        frame.repaint();
+        showImage(matImgDst);
+    }
+
+    /**
+     * isRefreshOffEdt - Overrides method in LinkClass; refreshImage() shows its results through showImage().
+     */
+    @Override
+    public boolean isRefreshOffEdt() {
+        return true;
     }
     
     /**
@@ -335,6 +332,7 @@ public class LinkFindContours extends LinkClass {
         importsL.add("java.util.ArrayList");
         importsL.add("java.util.List");
         importsL.add("org.opencv.core.Mat");
+        importsL.add("org.opencv.core.MatOfPoint");
         importsL.add("org.opencv.imgproc.Imgproc");
         return importsL;
     }     
@@ -374,6 +372,71 @@ public class LinkFindContours extends LinkClass {
             sb.append("    }\n");
         return sb.toString();
     }
+
+    /**
+     * genPipelineFields - generate the gray and hierarchy Mats and the output List
+     */
+    @Override
+    public String genPipelineFields(String reference) {
+        String sfx = reference.equals("") ? "" : "_"+reference;
+        StringBuilder sb = new StringBuilder();
+        sb.append("    private Mat findContoursGray"+sfx+" = new Mat();\n");
+        sb.append("    private Mat findContoursHierarchy"+sfx+" = new Mat();\n");
+        sb.append("    private List<MatOfPoint> findContoursList"+sfx+" = new ArrayList<>();\n");
+        return sb.toString();
+    }
+
+    /**
+     * genPipelineCode - generate a method like that of genCodeString(), which works in the fields.
+     *                   findContours() makes new contours every call, so the ones of the call
+     *                   before are released first rather than left to the garbage collector.
+     */
+    @Override
+    public String genPipelineCode(String reference) {
+            genCodeString(reference);
+            String sfx = reference.equals("") ? "" : "_"+reference;
+                
+            StringBuilder sb = new StringBuilder();
+            sb.append("    public "+returnStr+" "+methodStr.toString()); 
+            sb.append("(Mat matImgSrc) {\n");
+            sb.append("        List<MatOfPoint> contours = findContoursList"+sfx+";\n");
+            sb.append("        for (MatOfPoint contour : contours) {\n");
+            sb.append("            contour.release();\n");
+            sb.append("        }\n");
+            sb.append("        contours.clear();\n");
+            sb.append("        // Convert source Mat in RGB color space to Gray color space\n");
+            sb.append("        Imgproc.cvtColor(\n");
+            sb.append("            matImgSrc,              // Mat - source\n");
+            sb.append("            findContoursGray"+sfx+",  // Mat - destination\n");
+            sb.append("            Imgproc.COLOR_RGB2GRAY  // int - code space conversion code\n");
+            sb.append("        );\n");
+            sb.append("        Imgproc.findContours(\n");
+            sb.append("            findContoursGray"+sfx+",       // Mat - input image\n");
+            sb.append("            contours,     // List of MatOfPoints - output List of contours\n");
+            sb.append("            findContoursHierarchy"+sfx+",  // Mat - output hierarchy Mat\n");
+            sb.append("            "+MODE_CONST_NAME[modeCB.index]+",    // int - contour retrieval mode\n");
+            sb.append("            "+METHOD_CONST_NAME[methodCB.index]+"    // int - contour approximation method\n");
+            sb.append("        );\n");
+            sb.append("        return contours;\n");
+            sb.append("    }\n");
+        return sb.toString();
+    }
+
+    /**
+     * genPipelineRelease - generate the release of the Mats and the contours
+     */
+    @Override
+    public String genPipelineRelease(String reference) {
+        String sfx = reference.equals("") ? "" : "_"+reference;
+        StringBuilder sb = new StringBuilder();
+        sb.append("        for (MatOfPoint contour : findContoursList"+sfx+") {\n");
+        sb.append("            contour.release();\n");
+        sb.append("        }\n");
+        sb.append("        findContoursList"+sfx+".clear();\n");
+        sb.append("        findContoursGray"+sfx+".release();\n");
+        sb.append("        findContoursHierarchy"+sfx+".release();\n");
+        return sb.toString();
+    }
     
     //
     //  end of overridden LinkClass methods
@@ -55,9 +55,6 @@ public class LinkGeometryContours extends LinkClass {
         
     private int textWidth;
     
-    private double minPct;         // calculated minimum percent area for filter
-    private double maxPct;         // calculated maximum percent area for filter
-    
     private JLabel labelContours;
     private JLabel labelDrawnContours;
     
@@ -67,9 +64,9 @@ public class LinkGeometryContours extends LinkClass {
     private int frameHeightMinusImage = 0;
     
     List<MatOfPoint> contours;    
-    List<Double> contourPcts;
-    List<Double> sortedContourPcts;
-    List<Integer> drawnContourIndices;
+    ContourFeatures features;         // features of contours, shared with the stage
+    double[] sortedContourPcts;       // percents of the contours, sorted, for the slider labels
+    ContourFeatures drawnFeatures;    // features of the contours kept by the stage
     //
     //------------------------------------------------
     
@@ -78,8 +75,6 @@ public class LinkGeometryContours extends LinkClass {
         // Initialize fields:
         //
         anchor = new Point(-1,-1);
-        contourPcts = new ArrayList<>();
-        drawnContourIndices = new ArrayList<>();
         textWidth = 15;
         codeFilename = "code_LinkGeometryContours.java";
         //
@@ -102,6 +97,7 @@ public class LinkGeometryContours extends LinkClass {
         matImgSrc = Mat.zeros(new Size(512, 512), CvType.CV_8U);
         if (buildContours(myLinkMap.get("IMAGE_IN")) == false) {
             contours = new ArrayList<>();
+            features = new ContourFeatures(contours);
         };
         //
         // Error-check and correct invalid settings.
@@ -117,8 +113,7 @@ public class LinkGeometryContours extends LinkClass {
         //
         // All frames have a display image
         //
-        Image img = HighGui.toBufferedImage(matImgSrc);
-        imgLabel = new JLabel(new ImageIcon(img));  
+        imgLabel = new JLabel(previewIcon(matImgSrc));
         imgSP = new JScrollPane(imgLabel);
         imgSP.setPreferredSize(new Dimension(400,400));                
         //
@@ -136,7 +131,6 @@ public class LinkGeometryContours extends LinkClass {
         //    Slider + Label for min Pct contour
         //    Slider + Label for max Pct contour
         geometryCB = new JulipComboBox(GEOMETRY_STR, myLinkMap.get("GEOMETRY_SELECT"), this);      
-        buildSortedContours();
         percentCB = new JulipComboBox(PERCENT_STR, myLinkMap.get("PERCENT_SELECT"), this);        
         pctMinTB = new JulipTrackBar(0, contours.size(), Integer.parseInt(myLinkMap.get("PCT_MIN")), contours.size()/5, -1, this);
         pctMaxTB = new JulipTrackBar(0, contours.size(), Integer.parseInt(myLinkMap.get("PCT_MAX")), contours.size()/5, -1, this);
@@ -160,8 +154,7 @@ public class LinkGeometryContours extends LinkClass {
         pctFixedB.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                refreshSettings();
-                refreshImage();
+                requestRefresh();
             }
         });
         pctFixedPanel.add(pctFixedB);
@@ -244,57 +237,21 @@ public class LinkGeometryContours extends LinkClass {
             matImgSrc = Mat.zeros((int)fakeSize[1], (int)fakeSize[0], CvType.CV_8UC3);
             // delete faked-up contour that holds the image Mat Size 
             contours.remove(0);                        
+            features = ContourHandler.loadFeatures(filename, contours);
             status = true;
         } 
         return status;
     }
         
+    /**
+     * buildSortedContours - sorted percents of the contours, as StageGeometryContours
+     *                       calculates them, for the slider labels. Runs on the Swing event
+     *                       thread, so uses a stage of its own rather than the one refreshImage() may be running.
+     */
     public void buildSortedContours() {
-        
-        if (contours != null) {
-            // iterate over list of contours and generate a list
-            // of ratio of contour area to bounding geometry area
-            contourPcts.clear();
-            for (int i = 0; i < contours.size(); i++) {
-                MatOfPoint contour = contours.get(i);
-                double area = Imgproc.contourArea(contour, false);
-                MatOfPoint2f contour2f = new MatOfPoint2f(contour.toArray());
-                
-                double boundingArea = 1.0;
-                // Check if the ComboBox is set to 0 for a Rect bounding geometry
-                if (geometryCB.index == 0) {
-                    Rect boundingRect = Imgproc.boundingRect(contours.get(i));
-                    boundingArea = boundingRect.area();
-                }
-                // Check if the ComboBox is set to 0 for a RotatedRect bounding geometry
-                else if (geometryCB.index == 1) {      
-                    RotatedRect rotatedRect = Imgproc.minAreaRect(contour2f);
-                    // To get the vertices use points method which returns an array of 4 Points
-                    // The Points are in sequential order around the perimenter of the RotatedRect
-                    Point[] rectPoints = new Point[4];
-                    rotatedRect.points(rectPoints);
-                    // calculate distances between points = sqrt((x2-x1)^2 + (y2-y1)^2)
-                    double d1 = Math.sqrt(Math.pow(rectPoints[0].x-rectPoints[1].x,2) +
-                                Math.pow(rectPoints[0].y-rectPoints[1].y,2));
-                    double d2 = Math.sqrt(Math.pow(rectPoints[2].x-rectPoints[1].x,2) +
-                                Math.pow(rectPoints[2].y-rectPoints[1].y,2));
-                    // area = length(side1) * length(side2)
-                    boundingArea = d1 * d2;
-                }
-                // Check if the ComboBox is set to 2 for a Circle bounding geometry
-                else if (geometryCB.index == 2) {
-                    Point circleCenter = new Point();
-                    float[] circleRadii = new float[1];
-                    Imgproc.minEnclosingCircle(contour2f, circleCenter, circleRadii);
-                    float circleRadius = circleRadii[0];
-                    boundingArea = Math.PI * circleRadius * circleRadius;
-                }
-                contourPcts.add(area/boundingArea);                
-            }
-            sortedContourPcts = new ArrayList<>();
-            sortedContourPcts.addAll(contourPcts);
-            Collections.sort(sortedContourPcts);        
-        } 
+        StageGeometryContours geometry = new StageGeometryContours();
+        geometry.setSettings(getSettings());
+        sortedContourPcts = ContourFeatures.sorted(geometry.percents(features));
     }
     
     //-----------------------------------------------------------------------------------
@@ -303,6 +260,8 @@ public class LinkGeometryContours extends LinkClass {
     //   buildMyLinkMap()
     //   verifySettings()    
     //   saveSettings(()
+    //   getSettings()
+    //   getInputData()
     //   saveImage()
     //   mapToSettings()
     //   refreshSettings()
@@ -315,12 +274,12 @@ public class LinkGeometryContours extends LinkClass {
      */    
     public void buildMyLinkMap() {
         Map<String, String> defaultMap = new HashMap<String, String>() {{
-                put("TYPE", "FILTERCONTOURS");
+                put("TYPE", "GEOMETRYCONTOURS");
                 put("IMAGE_IN", "none");
                 put("IMAGE_OUT", "null.png");
                 put("LINK_FILE", "nolinkcontours.txt");
                 put("GEOMETRY_SELECT", GEOMETRY_STR[0]);
-                put("PCT_SELECT", PERCENT_STR[0]);
+                put("PERCENT_SELECT", PERCENT_STR[0]);
                 put("PCT_MIN", "0");
                 put("PCT_MAX", "");
                 put("PCT_FIXED_MIN", "");
@@ -360,33 +319,42 @@ public class LinkGeometryContours extends LinkClass {
         comboCheck("PERCENT_SELECT", PERCENT_STR, 0);
     }
         
+    /**
+     * getSettings - Overrides method in LinkClass; settings of the sliders, combo boxes and text fields.
+     *               Fixed percents are left out when their text field is empty.
+     * @return Map - key,value strings of settings
+     */
+    @Override
+    public Map<String, String> getSettings() {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("GEOMETRY_SELECT", GEOMETRY_STR[geometryCB.index]);
+        settings.put("PERCENT_SELECT",  PERCENT_STR[percentCB.index]);
+        settings.put("PCT_MIN",         Integer.toString(pctMinTB.value));
+        settings.put("PCT_MAX",         Integer.toString(pctMaxTB.value));
+        if (!pctMinTF.getText().trim().equals("")) {
+            settings.put("PCT_FIXED_MIN", pctMinTF.getText());
+        }
+        if (!pctMaxTF.getText().trim().equals("")) {
+            settings.put("PCT_FIXED_MAX", pctMaxTF.getText());
+        }
+        return settings;
+    }
+
+    /**
+     * getInputData - Overrides method in LinkClass; the contours read from the input file.
+     * @return LinkData - contours
+     */
+    @Override
+    public LinkData getInputData() {
+        return LinkData.fromContours(matImgSrc.size(), contours, features);
+    }
+
     /**
      * saveSettings - write link settings to file 
      */    
     @Override
     public void saveSettings() {
-        String linkfilename  = textFieldLink.getText();
-        
-        BufferedWriter writer;
-        try {
-            writer = new BufferedWriter(new FileWriter(linkfilename));
-            writer.write("TYPE\tGEOMETRYCONTOURS\n");
-            writer.write("IMAGE_IN\t"    + textFieldImageIn.getText() + "\n");
-            writer.write("IMAGE_OUT\t"   + textFieldImageOut.getText() + "\n");
-            writer.write("LINK_FILE\t"   + linkfilename + "\n");
-            writer.write("CONTOUR_FILE\t"+ "nope" + "\n");
-            writer.write("GEOMETRY_SELECT\t" + GEOMETRY_STR[geometryCB.index] + "\n");
-            writer.write("PERCENT_SELECT\t" + PERCENT_STR[percentCB.index] + "\n");
-            writer.write("PCT_MIN\t"    + pctMinTB.value + "\n");
-            writer.write("PCT_MAX\t"    + pctMaxTB.value + "\n");
-            if (!pctMinTF.getText().trim().equals("")) {
-                writer.write("PCT_FIXED_MIN\t"      + pctMinTF.getText() + "\n");
-            }
-            if (!pctMaxTF.getText().trim().equals("")) {
-                writer.write("PCT_FIXED_MAX\t"      + pctMaxTF.getText() + "\n");
-            }
-            writer.close();            
-        } catch (IOException e) {}
+        writeLinkFile("GEOMETRYCONTOURS");
     }
     
     
@@ -398,11 +366,17 @@ public class LinkGeometryContours extends LinkClass {
         // Get output filename from 'Save Output As >' JTextField
         //
         String contourfilename = textFieldImageOut.getText();
-        List<MatOfPoint> drawnContours = new ArrayList<>();
-         for (int i = 0; i < drawnContourIndices.size(); i++) {            
-            drawnContours.add(contours.get(drawnContourIndices.get(i)));
-        }
-        ContourHandler.saveContours(contourfilename, matImgSrc, drawnContours);        
+        ContourHandler.saveContours(contourfilename, matImgSrc, drawnFeatures.getContours());        
+    }
+    
+    /**
+     * getOutputData - Overrides method in LinkClass; output Contours for the next Link Gui
+     * @return LinkData - output for the next Link Gui
+     */
+    @Override
+    public LinkData getOutputData() {
+        // hand the features of the drawn contours on with them
+        return LinkData.fromContours(matImgSrc.size(), drawnFeatures.getContours(), drawnFeatures);
     }
             
     /**
@@ -433,20 +407,20 @@ public class LinkGeometryContours extends LinkClass {
         String lowerMinPctLimit = "0";
         String upperMinPctLimit = "100";        
         if (pctMinTB.value < contours.size()) {
-            upperMinPctLimit = String.format("%.1f", 100*sortedContourPcts.get(pctMinTB.value));
+            upperMinPctLimit = String.format("%.1f", 100*sortedContourPcts[pctMinTB.value]);
         }
         if (pctMinTB.value > 0) {
-            lowerMinPctLimit = String.format("%.1f", 100*sortedContourPcts.get(pctMinTB.value-1));
+            lowerMinPctLimit = String.format("%.1f", 100*sortedContourPcts[pctMinTB.value-1]);
         }
         pctMinTB.label.setText("("+pctMinTB.value+")  "+ lowerMinPctLimit + " < Min % Threshold <= " + upperMinPctLimit);
         
         String lowerMaxPctLimit = "-1";
         String upperMaxPctLimit = "infinite";
         if (pctMaxTB.value < contours.size()) {
-            upperMaxPctLimit = String.format("%.1f", 100*sortedContourPcts.get(pctMaxTB.value));
+            upperMaxPctLimit = String.format("%.1f", 100*sortedContourPcts[pctMaxTB.value]);
         }
         if (pctMaxTB.value > 0) {
-            lowerMaxPctLimit = String.format("%.1f", 100*sortedContourPcts.get(pctMaxTB.value-1));
+            lowerMaxPctLimit = String.format("%.1f", 100*sortedContourPcts[pctMaxTB.value-1]);
         }
         pctMaxTB.label.setText("("+pctMaxTB.value+")  "+ lowerMaxPctLimit + " <= Max % threshold < " + upperMaxPctLimit);
         
@@ -461,21 +435,18 @@ public class LinkGeometryContours extends LinkClass {
     public void refreshImage() {
                 
         Mat hierarchy = new Mat();
-        matImgDst = Mat.zeros(matImgSrc.size(), CvType.CV_8UC3);
+        clearCanvas();
         
         Scalar yellowColor = new Scalar(0,255,255);    
         Scalar greenColor  = new Scalar(0,255,0);
         
-        calculatePercentThresholds();
+        // StageGeometryContours picks the contours; this Link Gui only draws them
+        // with their bounding geometries
+        boolean[] keep = ((StageGeometryContours) getStage()).keep(features);
+        drawnFeatures = features.select(keep);
         
-        drawnContourIndices.clear();
         for (int i = 0; i < contours.size(); i++) {
-            double percent = contourPcts.get(i);
-            
-            if (( percent > minPct ) &&
-                (( maxPct < 0) || ( percent < maxPct))
-            ) {            
-                drawnContourIndices.add(i);
+            if (keep[i]) {
                 Imgproc.drawContours(
                     matImgDst,          // input/output mat image
                     contours,           // input List of Mats of contours
@@ -488,10 +459,8 @@ public class LinkGeometryContours extends LinkClass {
                     new Point()         // contour x,y offset
                 );  
                 
-                MatOfPoint2f contourMat = new MatOfPoint2f(contours.get(i).toArray());
-                
                 if (geometryCB.index == 0) {
-                    Rect boundingRect = Imgproc.boundingRect(contours.get(i));
+                    Rect boundingRect = features.boundingRect(i);
                     Imgproc.rectangle(
                         matImgDst,          // Mat img
                         boundingRect,       // Rect rec
@@ -499,7 +468,7 @@ public class LinkGeometryContours extends LinkClass {
                     );
                 }
                 else if (geometryCB.index == 1) {        
-                    RotatedRect rotatedRect = Imgproc.minAreaRect(contourMat);
+                    RotatedRect rotatedRect = features.minAreaRect(i);
                     Point[] rectPoints = new Point[4];
                     rotatedRect.points(rectPoints);                    
                     for (int p = 0; p < 4; p++) {
@@ -512,10 +481,8 @@ public class LinkGeometryContours extends LinkClass {
                     }
                 }
                 else if (geometryCB.index == 2) {
-                    Point circleCenter = new Point();
-                    float[] circleRadii = new float[1];
-                    Imgproc.minEnclosingCircle(contourMat, circleCenter, circleRadii);
-                    float circleRadius = circleRadii[0];
+                    Point circleCenter = features.circleCenter(i);
+                    float circleRadius = (float)features.circleRadii()[i];
                     
                     Imgproc.circle(
                         matImgDst,           // Mat img
@@ -527,11 +494,17 @@ public class LinkGeometryContours extends LinkClass {
             }
         }
         
-        labelDrawnContours.setText("Number of filtered contours: " + drawnContourIndices.size()); 
+        showText(labelDrawnContours, "Number of filtered contours: " + drawnFeatures.size()); 
         
-        Image img = HighGui.toBufferedImage(matImgDst);
-        imgLabel.setIcon(new ImageIcon(img));        
-        frame.repaint();
+        showImage(matImgDst);
+    }
+    
+    /**
+     * isRefreshOffEdt - Overrides method in LinkClass; refreshImage() shows its results through showImage().
+     */
+    @Override
+    public boolean isRefreshOffEdt() {
+        return true;
     }
     
     /**
@@ -564,6 +537,11 @@ public class LinkGeometryContours extends LinkClass {
      */
     @Override
     public String genCodeString(String reference) {
+            StageGeometryContours geometry = new StageGeometryContours();
+            geometry.setSettings(getSettings());
+            double[] limits = geometry.thresholds(geometry.percents(features));
+            double minPct = limits[0];
+            double maxPct = limits[1];
             returnStr = "List<MatOfPoint>";
             objectStr = "geometryContoursList";
             StringBuilder msb = new StringBuilder();
@@ -633,34 +611,6 @@ public class LinkGeometryContours extends LinkClass {
     //  end of overridden LinkClass methods
     //-----------------------------------------------------------------------------------
 
-    /**
-     * calculatePercentThresholds - utility method to determin min,max Area and Perimeter for contour filtering.
-     */
-    public void calculatePercentThresholds() {
-        minPct = -1;
-        maxPct = -1;
-        if (percentCB.index == 0) {
-            if (pctMinTB.value > 0) {
-                minPct = sortedContourPcts.get(pctMinTB.value-1);
-            }            
-            if (pctMaxTB.value != contours.size()) {
-                maxPct = sortedContourPcts.get(pctMaxTB.value);
-            }
-        } else {
-            if (pctMinTF.getText().equals("")) {
-                minPct = -1;
-            } else {
-                minPct = Double.parseDouble(pctMinTF.getText())/100;                
-            }
-            if (pctMaxTF.getText().equals("")) {
-                maxPct = -1;
-            } else {
-                maxPct = Double.parseDouble(pctMaxTF.getText())/100;                
-            }
-        }        
-    }
-    
-    
     /**
      * main - method to allow command line application launch.
      *        (credit to opencv tutorial code provided by the OpenCV website: docs.opencv.org)
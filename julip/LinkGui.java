@@ -0,0 +1,20 @@
+package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
+
+/**
+ * LinkGui - Class to hold information for a Link Gui
+ */
+class LinkGui {
+    String    name;       // Name of Link Gui
+    String    linkFile;   // File to read/write settings
+    String    outputFile; // File to export Gui output to
+    LinkClass gui;        // The Link Gui
+    
+    /**
+     * Constructor - minimal non-null assingments
+     */
+    public LinkGui () {
+        this.name = "";
+        this.linkFile = "";
+        this.outputFile = "";
+    }
+}
@@ -41,7 +41,11 @@ public class LinkInRangeHHSV extends LinkClass {
         "Binary"
     };
     
+    private final String[] THRESHOLD_STR = StageInRangeHHSV.THRESHOLD_STR;
+    
     private JLabel hueLabel;                // HSV Hue color bar of values ranging from 0-180
+    private ImageIcon hueIcon;              // Hue color bar last drawn
+    private int hueIconCols = -1;           // width of hueIcon
     private JScrollPane imgSP;              // JScrollPane to hold image
     private int frameHeightMinusImage = 0;
     
@@ -55,6 +59,7 @@ public class LinkInRangeHHSV extends LinkClass {
     private JulipTrackBar valMinTB;    
     private JulipTrackBar valMaxTB;    
     private JulipComboBox imageCB;
+    private JulipComboBox thresholdCB;
     
     private final int hueMinDefault = 0;
     private final int hueMaxDefault = 180;
@@ -64,6 +69,7 @@ public class LinkInRangeHHSV extends LinkClass {
     private final int valMinDefault = 0;
     private final int valMaxDefault = 255;
     private final int imageIdxDefault = 0;    
+    private final int thresholdIdxDefault = 0;
     //
     //------------------------------------------------
     
@@ -103,8 +109,7 @@ public class LinkInRangeHHSV extends LinkClass {
         //
         // All frames have a display image
         //
-        Image img = HighGui.toBufferedImage(matImgSrc);
-        imgLabel = new JLabel(new ImageIcon(img));
+        imgLabel = new JLabel(previewIcon(matImgSrc));
         imgSP = new JScrollPane(imgLabel);
         imgSP.setPreferredSize(new Dimension(400,400));             
         //
@@ -123,6 +128,7 @@ public class LinkInRangeHHSV extends LinkClass {
         valMinTB  = new JulipTrackBar(0, 255, Integer.parseInt(myLinkMap.get("VAL_MIN")), 50, 10, this);
         valMaxTB  = new JulipTrackBar(0, 255, Integer.parseInt(myLinkMap.get("VAL_MAX")), 50, 10, this);
         imageCB   = new JulipComboBox(IMAGE_TYPE, myLinkMap.get("IMAGE_TYPE"), this);
+        thresholdCB = new JulipComboBox(THRESHOLD_STR, myLinkMap.get("THRESHOLD"), this);
 
         hueLabel  = new JLabel(drawHueColorBar());        
 
@@ -157,6 +163,7 @@ public class LinkInRangeHHSV extends LinkClass {
         sliderPanel.add(valMaxTB.label);
         sliderPanel.add(valMaxTB.slider);
         sliderPanel.add(imageCB.comboBox);
+        sliderPanel.add(thresholdCB.comboBox);
         
         //
         // All Link Gui's need to add the JPanel returned from
@@ -207,6 +214,10 @@ public class LinkInRangeHHSV extends LinkClass {
         double[] data = new double[3];
         int hueCols = Math.max(matImgSrc.cols()-24, frame.getPreferredSize().width-36);
         int hueRows = 10;
+        // the color bar only changes with its width; it is not drawn again for every refresh
+        if ((hueIcon != null) && (hueCols == hueIconCols)) {
+            return hueIcon;
+        }
         int x;
         int y;
         Mat hueMat = Mat.zeros(10, hueCols, CvType.CV_8UC3);
@@ -221,7 +232,9 @@ public class LinkInRangeHHSV extends LinkClass {
         }
         Imgproc.cvtColor(hueMat, hueMat, Imgproc.COLOR_HSV2BGR);
         Image hueImg = HighGui.toBufferedImage(hueMat);    
-        return new ImageIcon(hueImg);
+        hueIcon = new ImageIcon(hueImg);
+        hueIconCols = hueCols;
+        return hueIcon;
     }        
 
     
@@ -231,6 +244,7 @@ public class LinkInRangeHHSV extends LinkClass {
     // Cluster of overriden LinkClass methods 
     //   buildMyLinkMap()
     //   verifySettings()
+    //   getSettings()
     //   saveSettings()
     //   saveImage()
     //   mapToSettings()
@@ -238,6 +252,9 @@ public class LinkInRangeHHSV extends LinkClass {
     //   refreshImage()
     //   genImportList()
     //   genCodeString()
+    //   genPipelineFields()
+    //   genPipelineCode()
+    //   genPipelineRelease()
      
     /**
      * buildMyLinkMap - native default values for Link Gui
@@ -259,6 +276,7 @@ public class LinkInRangeHHSV extends LinkClass {
                 put("VAL_MIN", Integer.toString(valMinDefault));
                 put("VAL_MAX", Integer.toString(valMaxDefault));
                 put("IMAGE_TYPE", IMAGE_TYPE[imageIdxDefault]);
+                put("THRESHOLD", THRESHOLD_STR[thresholdIdxDefault]);
             }};
         for (String key : defaultMap.keySet()) {
             if (!myLinkMap.containsKey(key)) {
@@ -285,39 +303,41 @@ public class LinkInRangeHHSV extends LinkClass {
         intCheck("VAL_MAX", 0, 255, valMaxDefault);
         
         //
-        // Check for format and range validity for all 2 combo boxes
+        // Check for format and range validity for all 3 combo boxes
         //        
         comboCheck("HUE_SELECT", HUE_STR, hueIdxDefault);
         comboCheck("IMAGE_TYPE", IMAGE_TYPE, imageIdxDefault);
+        comboCheck("THRESHOLD", THRESHOLD_STR, thresholdIdxDefault);
     }
        
        
+    /**
+     * getSettings - Overrides method in LinkClass; settings of the sliders and combo boxes.
+     * @return Map - key,value strings of settings
+     */
+    @Override
+    public Map<String, String> getSettings() {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("HUE1_MIN",   Integer.toString(hue1MinTB.value));
+        settings.put("HUE1_MAX",   Integer.toString(hue1MaxTB.value));
+        settings.put("HUE2_MIN",   Integer.toString(hue2MinTB.value));
+        settings.put("HUE2_MAX",   Integer.toString(hue2MaxTB.value));
+        settings.put("HUE_SELECT", HUE_STR[hueCB.index]);
+        settings.put("SAT_MIN",    Integer.toString(satMinTB.value));
+        settings.put("SAT_MAX",    Integer.toString(satMaxTB.value));
+        settings.put("VAL_MIN",    Integer.toString(valMinTB.value));
+        settings.put("VAL_MAX",    Integer.toString(valMaxTB.value));
+        settings.put("IMAGE_TYPE", IMAGE_TYPE[imageCB.index]);
+        settings.put("THRESHOLD",  THRESHOLD_STR[thresholdCB.index]);
+        return settings;
+    }
+
     /**
      * saveSettings - write link settings to file 
      */
     @Override
     public void saveSettings() {
-        String linkfilename  = textFieldLink.getText();
-        
-        BufferedWriter writer;
-        try {
-            writer = new BufferedWriter(new FileWriter(linkfilename));
-            writer.write("TYPE\tINRANGEHSV\n");
-            writer.write("IMAGE_IN\t"   + textFieldImageIn.getText()  + "\n");
-            writer.write("IMAGE_OUT\t"  + textFieldImageOut.getText() + "\n");
-            writer.write("LINK_FILE\t"  + linkfilename + "\n");
-            writer.write("HUE1_MIN\t"   + hue1MinTB.value + "\n");
-            writer.write("HUE1_MAX\t"   + hue1MaxTB.value + "\n");
-            writer.write("HUE2_MIN\t"   + hue2MinTB.value + "\n");
-            writer.write("HUE2_MAX\t"   + hue2MaxTB.value + "\n");
-            writer.write("HUE_SELECT\t" + HUE_STR[hueCB.index] + "\n");
-            writer.write("SAT_MIN\t"    + satMinTB.value + "\n");
-            writer.write("SAT_MAX\t"    + satMaxTB.value + "\n");
-            writer.write("VAL_MIN\t"    + valMinTB.value + "\n");
-            writer.write("VAL_MAX\t"    + valMaxTB.value + "\n");
-            writer.write("IMAGE_TYPE\t" + IMAGE_TYPE[imageCB.index] + "\n");
-            writer.close();
-        } catch (IOException e) {}
+        writeLinkFile("INRANGEHSV");
     }
     
     /**
@@ -328,6 +348,25 @@ public class LinkInRangeHHSV extends LinkClass {
         Imgcodecs.imwrite(textFieldImageOut.getText(), matImgDst);
     }
     
+    /**
+     * getOutputData - Overrides method in LinkClass; output Image for the next Link Gui
+     * @return LinkData - output for the next Link Gui
+     */
+    @Override
+    public LinkData getOutputData() {
+        return LinkData.fromMat(LinkData.IMG, matImgDst);
+    }
+
+    /**
+     * restoreOutput - Overrides method in LinkClass; the output image is all there is to restore.
+     */
+    @Override
+    public boolean restoreOutput(LinkData output) {
+        matImgDst = output.mat;
+        showImage(matImgDst);
+        return true;
+    }
+    
     /**
      * mapToSettings - Overrides method in LinkClass; update gui settings from myLinkMap
      */
@@ -343,6 +382,7 @@ public class LinkInRangeHHSV extends LinkClass {
         valMinTB.setValue(Integer.parseInt(myLinkMap.get("VAL_MIN")));
         valMaxTB.setValue(Integer.parseInt(myLinkMap.get("VAL_MAX")));
         imageCB.setValue(myLinkMap.get("IMAGE_TYPE"));
+        thresholdCB.setValue(myLinkMap.get("THRESHOLD"));
     }
     
     /**
@@ -367,54 +407,20 @@ public class LinkInRangeHHSV extends LinkClass {
      */
     @Override
     public void refreshImage() {
-        Mat src = new Mat();
-        Mat dst = new Mat();
-        Mat msk = new Mat();
-        Mat msk2 = new Mat();
-        matImgDst = Mat.zeros(matImgSrc.rows(), matImgSrc.cols(), CvType.CV_8U);
-        // If a 3-channel Mat is showing, then process the image
-        if (matImgSrc.channels() == 3) {        
-            // Convert the file source image from BGR to HSV
-            Imgproc.cvtColor(matImgSrc, src, Imgproc.COLOR_BGR2HSV);
-
-            // Create a mask from the min/max settings of HSV
-            Core.inRange(src, new Scalar (hue1MinTB.value, satMinTB.value, valMinTB.value),
-                              new Scalar (hue1MaxTB.value, satMaxTB.value, valMaxTB.value), msk);
-            // Create a mask from the min/max settings of HSV
-            Core.inRange(src, new Scalar (hue2MinTB.value, satMinTB.value, valMinTB.value),
-                              new Scalar (hue2MaxTB.value, satMaxTB.value, valMaxTB.value), msk2);
-            if (hueCB.index == 0) {  // hue 1 or hue 2
-                Core.bitwise_or(msk, msk2, msk);
-            }
-            else if (hueCB.index == 2)  { // hue 2 only
-                msk2.copyTo(msk);
-            }
-            else { // hue 1 only
-                // do nothing, msk is already set for hue 1 only
-            }
-            // Need to fill size the destination Mat before using the
-            // copyTo with mask argument, otherwise the mask won't apply.
-            dst = Mat.zeros(matImgSrc.rows(), matImgSrc.cols(), CvType.CV_8U);
-            // All color values in msk Mat = 0 will set the corresponding color value
-            // in the destination Mat to 0. All non-zero color values in the msk Mat
-            // will copy the source color value to the destination color value.
-            Core.copyTo(matImgSrc,dst,msk);        
-            if (imageCB.index == 0) {
-                dst.copyTo(matImgDst);
-            } else {
-                msk.copyTo(matImgDst);
-            }
-        }
-        // If a 1-channel Mat is showing (like 'none') then don't process it
-        else {
-            matImgSrc.copyTo(matImgDst);
-        }
-        Image img = HighGui.toBufferedImage(matImgDst);
-        imgLabel.setIcon(new ImageIcon(img));
+        // StageInRangeHHSV masks the image; this Link Gui only shows it
+        matImgDst = runStage().mat;
+        showImage(matImgDst);
         // resize the Hue color bar according to size of shown image
-        hueLabel.setIcon(drawHueColorBar());
+        showIcon(hueLabel, drawHueColorBar());
 //        frame.pack();
-        frame.repaint();
+    }
+
+    /**
+     * isRefreshOffEdt - Overrides method in LinkClass; refreshImage() shows its results through showImage().
+     */
+    @Override
+    public boolean isRefreshOffEdt() {
+        return true;
     }
     
     /**
@@ -518,6 +524,114 @@ public class LinkInRangeHHSV extends LinkClass {
             sb.append("    }\n");
         return sb.toString();
     }
+
+    /**
+     * genPipelineFields - generate the HSV, mask and output Mats and the boundary Scalars
+     */
+    @Override
+    public String genPipelineFields(String reference) {
+        String sfx = reference.equals("") ? "" : "_"+reference;
+        StringBuilder sb = new StringBuilder();
+        sb.append("    private Mat inRangeHHSVSrc"+sfx+" = new Mat();\n");
+        sb.append("    private Mat inRangeHHSVMsk"+sfx+" = new Mat();\n");
+        sb.append("    private Mat inRangeHHSVMsk2"+sfx+" = new Mat();\n");
+        sb.append("    private Mat inRangeHHSVDst"+sfx+" = new Mat();\n");
+        sb.append("    private final Scalar inRangeHHSVLowerb1"+sfx+" = new Scalar ("+hue1MinTB.value+", "+satMinTB.value+", "+valMinTB.value+");\n");
+        sb.append("    private final Scalar inRangeHHSVUpperb1"+sfx+" = new Scalar ("+hue1MaxTB.value+", "+satMaxTB.value+", "+valMaxTB.value+");\n");
+        sb.append("    private final Scalar inRangeHHSVLowerb2"+sfx+" = new Scalar ("+hue2MinTB.value+", "+satMinTB.value+", "+valMinTB.value+");\n");
+        sb.append("    private final Scalar inRangeHHSVUpperb2"+sfx+" = new Scalar ("+hue2MaxTB.value+", "+satMaxTB.value+", "+valMaxTB.value+");\n");
+        sb.append("    private final Scalar inRangeHHSVBlank"+sfx+" = new Scalar (0, 0, 0);\n");
+        return sb.toString();
+    }
+
+    /**
+     * genPipelineCode - generate a method like that of genCodeString(), which works in the fields
+     */
+    @Override
+    public String genPipelineCode(String reference) {
+            genCodeString(reference);
+            String sfx = reference.equals("") ? "" : "_"+reference;
+    
+            StringBuilder sb = new StringBuilder();
+            sb.append("    public "+returnStr+" "+methodStr.toString()); 
+            sb.append("(Mat matImgSrc) {\n");            
+            sb.append("        Mat src = inRangeHHSVSrc"+sfx+";\n");
+            sb.append("        Mat msk = inRangeHHSVMsk"+sfx+";\n");
+            sb.append("        Mat msk2 = inRangeHHSVMsk2"+sfx+";\n");
+            sb.append("        Mat matImgDst = inRangeHHSVDst"+sfx+";\n");
+            sb.append("        // If the source image was a camera then the Mat is RGB\n");
+            sb.append("        // BUT if the source image was a file then the Mat is BGR\n");
+            sb.append("        // Convert source Mat in RGB color space to HSV color space\n");
+            sb.append("        Imgproc.cvtColor(\n");
+            sb.append("            matImgSrc,             // Mat - source\n");
+            sb.append("            src,                   // Mat - destination\n");
+            sb.append("            Imgproc.COLOR_RGB2HSV  // int - code space conversion code\n");
+            sb.append("        );\n");
+            if ((hueCB.index == 0) | (hueCB.index == 1)) { // use hue_1
+                sb.append("        // Create masking Mat msk of all pixels within Scalar boundaries\n");
+                sb.append("        Core.inRange(\n");
+                sb.append("            src,       // Mat    - input Mat\n");
+                sb.append("            inRangeHHSVLowerb1"+sfx+",   // Scalar - inclusive lower boundary scalar\n");
+                sb.append("            inRangeHHSVUpperb1"+sfx+",   // Scalar - inclusive upper boundary scalar\n");
+                sb.append("            msk        // Mat    - output Mat, same size as src, and of CV_8U type\n");
+                sb.append("        );\n");
+            }
+            else if (hueCB.index == 2) { // use hue_2 only
+                sb.append("        // Create masking Mat msk of all pixels within Scalar boundaries\n");
+                sb.append("        Core.inRange(\n");
+                sb.append("            src,       // Mat    - input Mat\n");
+                sb.append("            inRangeHHSVLowerb2"+sfx+",   // Scalar - inclusive lower boundary scalar\n");
+                sb.append("            inRangeHHSVUpperb2"+sfx+",   // Scalar - inclusive upper boundary scalar\n");
+                sb.append("            msk        // Mat    - output Mat, same size as src, and of CV_8U type\n");
+                sb.append("        );\n");
+            }
+            if (hueCB.index == 0) { // use hue_1 and hue2
+                sb.append("        // Create masking Mat msk of all pixels within Scalar boundaries\n");
+                sb.append("        Core.inRange(\n");
+                sb.append("            src,       // Mat    - input Mat\n");
+                sb.append("            inRangeHHSVLowerb2"+sfx+",   // Scalar - inclusive lower boundary scalar\n");
+                sb.append("            inRangeHHSVUpperb2"+sfx+",   // Scalar - inclusive upper boundary scalar\n");
+                sb.append("            msk2       // Mat    - output Mat, same size as src, and of CV_8U type\n");
+                sb.append("        );\n");
+                sb.append("        // Merge two mask Mats with logical-OR operation\n");
+                sb.append("        Core.bitwise_or(\n");
+                sb.append("            msk,       // Mat - input Mat #1\n");
+                sb.append("            msk2,      // Mat - input Mat #2\n");
+                sb.append("            msk        // Mat - output Mat\n");
+                sb.append("        );\n");
+            }
+            if (imageCB.index == 0) { // use HSV image
+                sb.append("        // Clear matImgDst, then copy matImgSrc pixels to it, filtered by msk\n");
+                sb.append("        matImgDst.create(matImgSrc.rows(), matImgSrc.cols(), matImgSrc.type());\n");
+                sb.append("        matImgDst.setTo(inRangeHHSVBlank"+sfx+");\n");
+                sb.append("        Core.copyTo(\n");
+                sb.append("            matImgSrc,  // Mat - source Mat\n");
+                sb.append("            matImgDst,  // Mat - destination Mat\n");
+                sb.append("            msk         // Mat - masking Mat\n");
+                sb.append("        );\n");
+            }
+            else { // use mask image
+                sb.append("        // Copy masking Mat msk to matImgDst\n");
+                sb.append("        msk.copyTo(matImgDst);\n");
+            }
+            sb.append("        return matImgDst;\n");
+            sb.append("    }\n");
+        return sb.toString();
+    }
+
+    /**
+     * genPipelineRelease - generate the release of the HSV, mask and output Mats
+     */
+    @Override
+    public String genPipelineRelease(String reference) {
+        String sfx = reference.equals("") ? "" : "_"+reference;
+        StringBuilder sb = new StringBuilder();
+        sb.append("        inRangeHHSVSrc"+sfx+".release();\n");
+        sb.append("        inRangeHHSVMsk"+sfx+".release();\n");
+        sb.append("        inRangeHHSVMsk2"+sfx+".release();\n");
+        sb.append("        inRangeHHSVDst"+sfx+".release();\n");
+        return sb.toString();
+    }
         
     //
     //  end of overridden LinkClass methods
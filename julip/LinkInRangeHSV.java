@@ -35,6 +35,8 @@ public class LinkInRangeHSV extends LinkClass {
     };
     
     private JLabel hueLabel;                // HSV Hue color bar of values ranging from 0-180
+    private ImageIcon hueIcon;              // Hue color bar last drawn
+    private int hueIconCols = -1;           // width of hueIcon
     private JScrollPane imgSP;              // JScrollPane to hold image
     private int frameHeightMinusImage = 0;
     
@@ -93,8 +95,7 @@ public class LinkInRangeHSV extends LinkClass {
         //
         // All frames have a display image
         //
-        Image img = HighGui.toBufferedImage(matImgSrc);
-        imgLabel = new JLabel(new ImageIcon(img));   
+        imgLabel = new JLabel(previewIcon(matImgSrc));
         imgSP = new JScrollPane(imgLabel);
         imgSP.setPreferredSize(new Dimension(400,400));
         //
@@ -121,6 +122,8 @@ public class LinkInRangeHSV extends LinkClass {
         //      Sat max JLabel + JSlider
         //      Val min JLabel + JSlider
         //      Val max JLabel + JSlider
+        //      image JComboBox
+        //      preview JComboBox
         //      link JPanel
         //
         JPanel sliderPanel = new JPanel();
@@ -139,6 +142,8 @@ public class LinkInRangeHSV extends LinkClass {
         sliderPanel.add(valMaxTB.label);
         sliderPanel.add(valMaxTB.slider);
         sliderPanel.add(imageCB.comboBox);
+        previewCB = new JulipComboBox(PREVIEW_STR, PREVIEW_STR[0], this);
+        sliderPanel.add(previewCB.comboBox);
         
         //
         // All Link Gui's need to add the JPanel returned from
@@ -194,6 +199,10 @@ public class LinkInRangeHSV extends LinkClass {
         int hueCols = Math.max(scrollPaneWidth, frame.getSize().width-36);
         hueCols = Math.max(1, hueCols);
         int hueRows = 10;
+        // the color bar only changes with its width; it is not drawn again for every refresh
+        if ((hueIcon != null) && (hueCols == hueIconCols)) {
+            return hueIcon;
+        }
         int x;
         int y;
         Mat hueMat = Mat.zeros(10, hueCols, CvType.CV_8UC3);
@@ -208,7 +217,9 @@ public class LinkInRangeHSV extends LinkClass {
         }
         Imgproc.cvtColor(hueMat, hueMat, Imgproc.COLOR_HSV2BGR);
         Image hueImg = HighGui.toBufferedImage(hueMat);    
-        return new ImageIcon(hueImg);
+        hueIcon = new ImageIcon(hueImg);
+        hueIconCols = hueCols;
+        return hueIcon;
     }        
 
     
@@ -218,6 +229,7 @@ public class LinkInRangeHSV extends LinkClass {
     // Cluster of overriden LinkClass methods 
     //   buildMyLinkMap()
     //   verifySettings()
+    //   getSettings()
     //   saveSettings()
     //   saveImage()
     //   mapToSettings()
@@ -225,6 +237,9 @@ public class LinkInRangeHSV extends LinkClass {
     //   refreshImage()
     //   genImportList()
     //   genCodeString()
+    //   genPipelineFields()
+    //   genPipelineCode()
+    //   genPipelineRelease()
      
     /**
      * buildMyLinkMap - native default values for Link Gui
@@ -273,29 +288,29 @@ public class LinkInRangeHSV extends LinkClass {
     }
        
        
+    /**
+     * getSettings - Overrides method in LinkClass; settings of the sliders and combo box.
+     * @return Map - key,value strings of settings
+     */
+    @Override
+    public Map<String, String> getSettings() {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("HUE_MIN",    Integer.toString(hueMinTB.value));
+        settings.put("HUE_MAX",    Integer.toString(hueMaxTB.value));
+        settings.put("SAT_MIN",    Integer.toString(satMinTB.value));
+        settings.put("SAT_MAX",    Integer.toString(satMaxTB.value));
+        settings.put("VAL_MIN",    Integer.toString(valMinTB.value));
+        settings.put("VAL_MAX",    Integer.toString(valMaxTB.value));
+        settings.put("IMAGE_TYPE", IMAGE_TYPE[imageCB.index]);
+        return settings;
+    }
+
     /**
      * saveSettings - write link settings to file 
      */
     @Override
     public void saveSettings() {
-        String linkfilename  = textFieldLink.getText();
-        
-        BufferedWriter writer;
-        try {
-            writer = new BufferedWriter(new FileWriter(linkfilename));
-            writer.write("TYPE\tINRANGEHSV\n");
-            writer.write("IMAGE_IN\t"   + textFieldImageIn.getText()  + "\n");
-            writer.write("IMAGE_OUT\t"  + textFieldImageOut.getText() + "\n");
-            writer.write("LINK_FILE\t"  + linkfilename + "\n");
-            writer.write("HUE_MIN\t"    + hueMinTB.value + "\n");
-            writer.write("HUE_MAX\t"    + hueMaxTB.value + "\n");
-            writer.write("SAT_MIN\t"    + satMinTB.value + "\n");
-            writer.write("SAT_MAX\t"    + satMaxTB.value + "\n");
-            writer.write("VAL_MIN\t"    + valMinTB.value + "\n");
-            writer.write("VAL_MAX\t"    + valMaxTB.value + "\n");
-            writer.write("IMAGE_TYPE\t" + IMAGE_TYPE[imageCB.index] + "\n");
-            writer.close();
-        } catch (IOException e) {}
+        writeLinkFile("INRANGEHSV");
     }
     
     /**
@@ -306,6 +321,25 @@ public class LinkInRangeHSV extends LinkClass {
         Imgcodecs.imwrite(textFieldImageOut.getText(), matImgDst);
     }
     
+    /**
+     * getOutputData - Overrides method in LinkClass; output Image for the next Link Gui
+     * @return LinkData - output for the next Link Gui
+     */
+    @Override
+    public LinkData getOutputData() {
+        return LinkData.fromMat(LinkData.IMG, matImgDst);
+    }
+
+    /**
+     * restoreOutput - Overrides method in LinkClass; the output image is all there is to restore.
+     */
+    @Override
+    public boolean restoreOutput(LinkData output) {
+        matImgDst = output.mat;
+        showImage(matImgDst);
+        return true;
+    }
+    
     /**
      * mapToSettings - Overrides method in LinkClass; update gui settings from myLinkMap
      */
@@ -339,42 +373,25 @@ public class LinkInRangeHSV extends LinkClass {
      * refreshImage - Overrides method in LinkClass; recalculate algorithm and refresh shown image.
      */
     public void refreshImage() {
-        Mat src = new Mat();
-        Mat dst = new Mat();
-        Mat msk = new Mat();
-        //matImgDst = new Mat();
-        matImgDst = Mat.zeros(matImgSrc.rows(), matImgSrc.cols(), CvType.CV_8U);
-        // If a 3-channel Mat is showing, then process the image
-        if (matImgSrc.channels() == 3) {
-            // Convert the file source image from BGR to HSV
-            Imgproc.cvtColor(matImgSrc, src, Imgproc.COLOR_BGR2HSV);
-
-            // Create a mask from the min/max settings of HSV
-            Core.inRange(src, new Scalar (hueMinTB.value, satMinTB.value, valMinTB.value),
-                              new Scalar (hueMaxTB.value, satMaxTB.value, valMaxTB.value), msk);
-            // Need to fill size the destination Mat before using the
-            // copyTo with mask argument, otherwise the mask won't apply.
-            dst = Mat.zeros(matImgSrc.rows(), matImgSrc.cols(), CvType.CV_8U);
-            // All color values in msk Mat = 0 will set the corresponding color value
-            // in the destination Mat to 0. All non-zero color values in the msk Mat
-            // will copy the source color value to the destination color value.
-            Core.copyTo(matImgSrc,dst,msk);        
-            if (imageCB.index == 0) {
-                dst.copyTo(matImgDst);
-            } else {
-                msk.copyTo(matImgDst);
-            }
-        }
-        // If a 1-channel Mat is showing (like 'none') then don't process it
-        else {
-            matImgSrc.copyTo(matImgDst);
+        if (isProxyRefresh()) {
+            // while a slider is dragged only the shrunken image is masked
+            showProxyImage(runProxyStage().mat);
+            return;
         }
-        Image img = HighGui.toBufferedImage(matImgDst);
-        imgLabel.setIcon(new ImageIcon(img));
+        // StageInRangeHSV masks the image; this Link Gui only shows it
+        matImgDst = runStage().mat;
+        showImage(matImgDst);
         // resize the Hue color bar according to size of shown image
-        hueLabel.setIcon(drawHueColorBar());        
+        showIcon(hueLabel, drawHueColorBar());
 //        frame.pack();
-        frame.repaint();
+    }
+
+    /**
+     * isRefreshOffEdt - Overrides method in LinkClass; refreshImage() shows its results through showImage().
+     */
+    @Override
+    public boolean isRefreshOffEdt() {
+        return true;
     }
     
     /**
@@ -447,6 +464,83 @@ public class LinkInRangeHSV extends LinkClass {
             sb.append("    }\n");
         return sb.toString();
     }
+
+    /**
+     * genPipelineFields - generate the HSV, mask and output Mats and the boundary Scalars
+     */
+    @Override
+    public String genPipelineFields(String reference) {
+        String sfx = reference.equals("") ? "" : "_"+reference;
+        StringBuilder sb = new StringBuilder();
+        sb.append("    private Mat inRangeHSVSrc"+sfx+" = new Mat();\n");
+        sb.append("    private Mat inRangeHSVMsk"+sfx+" = new Mat();\n");
+        sb.append("    private Mat inRangeHSVDst"+sfx+" = new Mat();\n");
+        sb.append("    private final Scalar inRangeHSVLowerb"+sfx+" = new Scalar ("+hueMinTB.value+", "+satMinTB.value+", "+valMinTB.value+");\n");
+        sb.append("    private final Scalar inRangeHSVUpperb"+sfx+" = new Scalar ("+hueMaxTB.value+", "+satMaxTB.value+", "+valMaxTB.value+");\n");
+        sb.append("    private final Scalar inRangeHSVBlank"+sfx+" = new Scalar (0, 0, 0);\n");
+        return sb.toString();
+    }
+
+    /**
+     * genPipelineCode - generate a method like that of genCodeString(), which works in the fields
+     */
+    @Override
+    public String genPipelineCode(String reference) {
+            genCodeString(reference);
+            String sfx = reference.equals("") ? "" : "_"+reference;
+    
+            StringBuilder sb = new StringBuilder();
+            sb.append("    public "+returnStr+" "+methodStr.toString()); 
+            sb.append("(Mat matImgSrc) {\n");            
+            sb.append("        Mat src = inRangeHSVSrc"+sfx+";\n");
+            sb.append("        Mat msk = inRangeHSVMsk"+sfx+";\n");
+            sb.append("        Mat matImgDst = inRangeHSVDst"+sfx+";\n");
+            sb.append("        // If the source image was a camera then the Mat is RGB\n");
+            sb.append("        // BUT if the source image was a file then the Mat is BGR\n");
+            sb.append("        // Convert source Mat in RGB color space to HSV color space\n");
+            sb.append("        Imgproc.cvtColor(\n");
+            sb.append("            matImgSrc,             // Mat - source\n");
+            sb.append("            src,                   // Mat - destination\n");
+            sb.append("            Imgproc.COLOR_RGB2HSV  // int - code space conversion code\n");
+            sb.append("        );\n");
+            sb.append("        // Create masking Mat msk of all pixels within Scalar boundaries\n");
+            sb.append("        Core.inRange(\n");
+            sb.append("            src,       // Mat    - input Mat\n");
+            sb.append("            inRangeHSVLowerb"+sfx+",    // Scalar - inclusive lower boundary scalar\n");
+            sb.append("            inRangeHSVUpperb"+sfx+",    // Scalar - inclusive upper boundary scalar\n");
+            sb.append("            msk        // Mat    - output Mat, same size as src, and of CV_8U type\n");
+            sb.append("        );\n");
+            if (imageCB.index == 0) { // use HSV image
+                sb.append("        // Clear matImgDst, then copy matImgSrc pixels to it, filtered by msk\n");
+                sb.append("        matImgDst.create(matImgSrc.rows(), matImgSrc.cols(), matImgSrc.type());\n");
+                sb.append("        matImgDst.setTo(inRangeHSVBlank"+sfx+");\n");
+                sb.append("        Core.copyTo(\n");
+                sb.append("            matImgSrc,  // Mat - source Mat\n");
+                sb.append("            matImgDst,  // Mat - destination Mat\n");
+                sb.append("            msk         // Mat - masking Mat\n");
+                sb.append("        );\n");
+            }
+            else { // use mask image
+                sb.append("        // Copy masking Mat msk to matImgDst\n");
+                sb.append("        msk.copyTo(matImgDst);\n");
+            }
+            sb.append("        return matImgDst;\n");
+            sb.append("    }\n");
+        return sb.toString();
+    }
+
+    /**
+     * genPipelineRelease - generate the release of the HSV, mask and output Mats
+     */
+    @Override
+    public String genPipelineRelease(String reference) {
+        String sfx = reference.equals("") ? "" : "_"+reference;
+        StringBuilder sb = new StringBuilder();
+        sb.append("        inRangeHSVSrc"+sfx+".release();\n");
+        sb.append("        inRangeHSVMsk"+sfx+".release();\n");
+        sb.append("        inRangeHSVDst"+sfx+".release();\n");
+        return sb.toString();
+    }
     //
     //  end of overridden LinkClass methods
     //-----------------------------------------------------------------------------------
@@ -55,6 +55,7 @@ public class LinkInRangeYCrCb extends LinkClass {
     private final int imageIdxDefault = 1;
     
     private Mat matYCrCb;
+    private StageInRangeYCrCb viewStage;    // stage to make the shown image when YCrCb data is output
     
     //
     //------------------------------------------------
@@ -95,8 +96,7 @@ public class LinkInRangeYCrCb extends LinkClass {
         //
         // All frames have a display image
         //
-        Image img = HighGui.toBufferedImage(matImgSrc);
-        imgLabel = new JLabel(new ImageIcon(img));   
+        imgLabel = new JLabel(previewIcon(matImgSrc));
         imgSP = new JScrollPane(imgLabel);
         imgSP.setPreferredSize(new Dimension(400,400));
         //
@@ -179,6 +179,7 @@ public class LinkInRangeYCrCb extends LinkClass {
     // Cluster of overriden LinkClass methods 
     //   buildMyLinkMap()
     //   verifySettings()
+    //   getSettings()
     //   saveSettings()
     //   saveImage()
     //   mapToSettings()
@@ -186,6 +187,9 @@ public class LinkInRangeYCrCb extends LinkClass {
     //   refreshImage()
     //   genImportList()
     //   genCodeString()
+    //   genPipelineFields()
+    //   genPipelineCode()
+    //   genPipelineRelease()
      
     /**
      * buildMyLinkMap - native default values for Link Gui
@@ -234,29 +238,29 @@ public class LinkInRangeYCrCb extends LinkClass {
     }
        
        
+    /**
+     * getSettings - Overrides method in LinkClass; settings of the sliders and combo box.
+     * @return Map - key,value strings of settings
+     */
+    @Override
+    public Map<String, String> getSettings() {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("Y_MIN",      Integer.toString(yMinTB.value));
+        settings.put("Y_MAX",      Integer.toString(yMaxTB.value));
+        settings.put("CR_MIN",     Integer.toString(crMinTB.value));
+        settings.put("CR_MAX",     Integer.toString(crMaxTB.value));
+        settings.put("CB_MIN",     Integer.toString(cbMinTB.value));
+        settings.put("CB_MAX",     Integer.toString(cbMaxTB.value));
+        settings.put("IMAGE_TYPE", IMAGE_TYPE[imageCB.index]);
+        return settings;
+    }
+
     /**
      * saveSettings - write link settings to file 
      */
     @Override
     public void saveSettings() {
-        String linkfilename  = textFieldLink.getText();
-        
-        BufferedWriter writer;
-        try {
-            writer = new BufferedWriter(new FileWriter(linkfilename));
-            writer.write("TYPE\tINRANGEHSV\n");
-            writer.write("IMAGE_IN\t"   + textFieldImageIn.getText()  + "\n");
-            writer.write("IMAGE_OUT\t"  + textFieldImageOut.getText() + "\n");
-            writer.write("LINK_FILE\t"  + linkfilename + "\n");
-            writer.write("Y_MIN\t"      + yMinTB.value + "\n");
-            writer.write("Y_MAX\t"      + yMaxTB.value + "\n");
-            writer.write("CR_MIN\t"     + crMinTB.value + "\n");
-            writer.write("CR_MAX\t"     + crMaxTB.value + "\n");
-            writer.write("CB_MIN\t"     + cbMinTB.value + "\n");
-            writer.write("CB_MAX\t"     + cbMaxTB.value + "\n");
-            writer.write("IMAGE_TYPE\t" + IMAGE_TYPE[imageCB.index] + "\n");
-            writer.close();
-        } catch (IOException e) {}
+        writeLinkFile("INRANGEHSV");
     }
     
     /**
@@ -275,6 +279,18 @@ public class LinkInRangeYCrCb extends LinkClass {
         
     }
     
+    /**
+     * getOutputData - Overrides method in LinkClass; output Image for the next Link Gui
+     * @return LinkData - output for the next Link Gui
+     */
+    @Override
+    public LinkData getOutputData() {
+        if (imageCB.index == 1) {
+            return LinkData.fromMat(LinkData.MAT, matYCrCb);
+        }
+        return LinkData.fromMat(LinkData.IMG, matImgDst);
+    }
+    
     /**
      * mapToSettings - Overrides method in LinkClass; update gui settings from myLinkMap
      */
@@ -317,44 +333,31 @@ public class LinkInRangeYCrCb extends LinkClass {
      * refreshImage - Overrides method in LinkClass; recalculate algorithm and refresh shown image.
      */
     public void refreshImage() {
-        matYCrCb = new Mat();
-        Mat dst = new Mat();
-        Mat msk = new Mat();
-        //matImgDst = new Mat();
-        matImgDst = Mat.zeros(matImgSrc.rows(), matImgSrc.cols(), CvType.CV_8U);
-        // If a 3-channel Mat is showing, then process the image
-        if (matImgSrc.channels() == 3) {
-            // Convert the file source image from BGR to YCrCb
-            Imgproc.cvtColor(matImgSrc, matYCrCb, Imgproc.COLOR_BGR2YCrCb);
-
-            // Create a mask from the min/max settings of YCrCb
-            Core.inRange(matYCrCb, new Scalar (yMinTB.value, crMinTB.value, cbMinTB.value),
-                                   new Scalar (yMaxTB.value, crMaxTB.value, cbMaxTB.value), msk);
-            // Need to fill size the destination Mat before using the
-            // copyTo with mask argument, otherwise the mask won't apply.
-            dst = Mat.zeros(matImgSrc.rows(), matImgSrc.cols(), CvType.CV_8U);
-            // All color values in msk Mat = 0 will set the corresponding color value
-            // in the destination Mat to 0. All non-zero color values in the msk Mat
-            // will copy the source color value to the destination color value.
-            Core.copyTo(matImgSrc,dst,msk);
-            
-            // For BGR view, show the resultant Mat of mask applied to source
-            if (imageCB.index < 2) {
-                dst.copyTo(matImgDst);
-            } 
-            // For mask view, show the binary mask
-            else {
-                msk.copyTo(matImgDst);
+        // StageInRangeYCrCb masks the image; this Link Gui only shows it
+        LinkData output = runStage();
+        if (output.type.equals(LinkData.MAT)) {
+            // YCrCb data is output, but the masked BGR image is shown
+            matYCrCb = output.mat;
+            if (viewStage == null) {
+                viewStage = new StageInRangeYCrCb();
             }
+            Map<String, String> viewSettings = getSettings();
+            viewSettings.put("IMAGE_TYPE", IMAGE_TYPE[0]);
+            viewStage.setSettings(viewSettings);
+            matImgDst = viewStage.process(getInputData()).mat;
+        } else {
+            matImgDst = output.mat;
         }
-        // If a 1-channel Mat is showing (like 'none') then don't process it
-        else {
-            matImgSrc.copyTo(matImgDst);
-        }
-        Image img = HighGui.toBufferedImage(matImgDst);
-        imgLabel.setIcon(new ImageIcon(img));
+        showImage(matImgDst);
 //        frame.pack();
-        frame.repaint();
+    }
+
+    /**
+     * isRefreshOffEdt - Overrides method in LinkClass; refreshImage() shows its results through showImage().
+     */
+    @Override
+    public boolean isRefreshOffEdt() {
+        return true;
     }
     
     /**
@@ -435,6 +438,93 @@ public class LinkInRangeYCrCb extends LinkClass {
             sb.append("    }\n");
         return sb.toString();
     }
+
+    /**
+     * genPipelineFields - generate the YCrCb, mask and output Mats and the boundary Scalars
+     */
+    @Override
+    public String genPipelineFields(String reference) {
+        String sfx = reference.equals("") ? "" : "_"+reference;
+        StringBuilder sb = new StringBuilder();
+        sb.append("    private Mat inRangeYCrCbSrc"+sfx+" = new Mat();\n");
+        sb.append("    private Mat inRangeYCrCbMsk"+sfx+" = new Mat();\n");
+        sb.append("    private Mat inRangeYCrCbDst"+sfx+" = new Mat();\n");
+        sb.append("    private final Scalar inRangeYCrCbLowerb"+sfx+" = new Scalar ("+yMinTB.value+", "+crMinTB.value+", "+cbMinTB.value+");\n");
+        sb.append("    private final Scalar inRangeYCrCbUpperb"+sfx+" = new Scalar ("+yMaxTB.value+", "+crMaxTB.value+", "+cbMaxTB.value+");\n");
+        sb.append("    private final Scalar inRangeYCrCbBlank"+sfx+" = new Scalar (0, 0, 0);\n");
+        return sb.toString();
+    }
+
+    /**
+     * genPipelineCode - generate a method like that of genCodeString(), which works in the fields
+     */
+    @Override
+    public String genPipelineCode(String reference) {
+            genCodeString(reference);
+            String sfx = reference.equals("") ? "" : "_"+reference;
+    
+            StringBuilder sb = new StringBuilder();
+            sb.append("    public "+returnStr+" "+methodStr.toString()); 
+            sb.append("(Mat matImgSrc) {\n");            
+            sb.append("        Mat src = inRangeYCrCbSrc"+sfx+";\n");
+            sb.append("        Mat msk = inRangeYCrCbMsk"+sfx+";\n");
+            sb.append("        Mat matImgDst = inRangeYCrCbDst"+sfx+";\n");
+            sb.append("        // If the source image was a file then the Mat is BGR (as this code assumes)\n");
+            sb.append("        // BUT if the source image was a camera then the Mat is likely RGB, so instead use COLOR_RGB2YCrCb\n");
+            sb.append("        // Convert source Mat in BGR color space to YCrCb color space\n");
+            sb.append("        Imgproc.cvtColor(\n");
+            sb.append("            matImgSrc,              // Mat - source\n");
+            sb.append("            src,                    // Mat - destination\n");
+            sb.append("            Imgproc.COLOR_BGR2YCrCb // int - code space conversion code\n");
+            sb.append("        );\n");
+            sb.append("        // Create masking Mat msk of all pixels within Scalar boundaries\n");
+            sb.append("        Core.inRange(\n");
+            sb.append("            src,       // Mat    - input Mat\n");
+            sb.append("            inRangeYCrCbLowerb"+sfx+",    // Scalar - inclusive lower boundary scalar\n");
+            sb.append("            inRangeYCrCbUpperb"+sfx+",    // Scalar - inclusive upper boundary scalar\n");
+            sb.append("            msk        // Mat    - output Mat, same size as src, and of CV_8U type\n");
+            sb.append("        );\n");
+            if (imageCB.index == 0) { // use source BGR image
+                sb.append("        // Clear matImgDst, then copy matImgSrc pixels to it, filtered by msk\n");
+                sb.append("        matImgDst.create(matImgSrc.rows(), matImgSrc.cols(), matImgSrc.type());\n");
+                sb.append("        matImgDst.setTo(inRangeYCrCbBlank"+sfx+");\n");
+                sb.append("        Core.copyTo(\n");
+                sb.append("            matImgSrc,  // Mat - source Mat\n");
+                sb.append("            matImgDst,  // Mat - destination Mat\n");
+                sb.append("            msk         // Mat - masking Mat\n");
+                sb.append("        );\n");
+            }
+            else if (imageCB.index == 1) { // use YCbCr image
+                sb.append("        // Clear matImgDst, then copy YCbCr pixels to it, filtered by msk\n");
+                sb.append("        matImgDst.create(src.rows(), src.cols(), src.type());\n");
+                sb.append("        matImgDst.setTo(inRangeYCrCbBlank"+sfx+");\n");
+                sb.append("        Core.copyTo(\n");
+                sb.append("            src,        // Mat - source Mat\n");
+                sb.append("            matImgDst,  // Mat - destination Mat\n");
+                sb.append("            msk         // Mat - masking Mat\n");
+                sb.append("        );\n");            
+            }
+            else { // use mask image
+                sb.append("        // Copy masking Mat msk to matImgDst\n");
+                sb.append("        msk.copyTo(matImgDst);\n");
+            }
+            sb.append("        return matImgDst;\n");
+            sb.append("    }\n");
+        return sb.toString();
+    }
+
+    /**
+     * genPipelineRelease - generate the release of the YCrCb, mask and output Mats
+     */
+    @Override
+    public String genPipelineRelease(String reference) {
+        String sfx = reference.equals("") ? "" : "_"+reference;
+        StringBuilder sb = new StringBuilder();
+        sb.append("        inRangeYCrCbSrc"+sfx+".release();\n");
+        sb.append("        inRangeYCrCbMsk"+sfx+".release();\n");
+        sb.append("        inRangeYCrCbDst"+sfx+".release();\n");
+        return sb.toString();
+    }
     //
     //  end of overridden LinkClass methods
     //-----------------------------------------------------------------------------------
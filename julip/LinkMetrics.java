@@ -0,0 +1,232 @@
+package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
+
+import java.awt.Component;
+import java.awt.Graphics;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.*;
+import java.util.List;
+import javax.swing.Icon;
+
+/**
+ * LinkMetrics - latency counters of one Link Gui, by phase.
+ *
+ *   Phases:
+ *     I/O     - loadImage() of the input and saveImage() of the output
+ *     Compute - refreshImage(), less the time spent rendering in it
+ *     Render  - converting the shown Mat to a BufferedImage in showImage()
+ *     Repaint - painting the shown image on the Swing event thread
+ *
+ *   Every phase counts its calls and keeps its latest SAMPLES latencies, from which
+ *   the p50, p95 and p99 latencies are taken. Bytes read by loadImage() and written
+ *   by saveImage() are counted too. All methods may be called from any thread.
+ */
+public class LinkMetrics {
+
+    public static final String[] PHASE_STR = {
+        "I/O",
+        "Compute",
+        "Render",
+        "Repaint"
+    };
+    public static final int IO      = 0;
+    public static final int COMPUTE = 1;
+    public static final int RENDER  = 2;
+    public static final int REPAINT = 3;
+
+    public static final int SAMPLES = 1024;     // latencies kept per phase for the percentiles
+
+    private final long[]   counts     = new long[PHASE_STR.length];   // calls of each phase
+    private final long[]   totalNanos = new long[PHASE_STR.length];   // time spent in each phase
+    private final long[][] samples    = new long[PHASE_STR.length][SAMPLES];   // latest latencies, a ring
+    private long bytesRead    = 0;
+    private long bytesWritten = 0;
+
+    /**
+     * record - count one call of a phase
+     * @param phase - IO, COMPUTE, RENDER or REPAINT
+     * @param nanos - latency of the call
+     */
+    public synchronized void record(int phase, long nanos) {
+        samples[phase][(int) (counts[phase] % SAMPLES)] = nanos;
+        counts[phase]     += 1;
+        totalNanos[phase] += nanos;
+    }
+
+    /**
+     * addBytesRead - count bytes read by loadImage()
+     * @param bytes - bytes read
+     */
+    public synchronized void addBytesRead(long bytes) {
+        bytesRead += bytes;
+    }
+
+    /**
+     * addBytesWritten - count bytes written by saveImage()
+     * @param bytes - bytes written
+     */
+    public synchronized void addBytesWritten(long bytes) {
+        bytesWritten += bytes;
+    }
+
+    /**
+     * reset - clear all counters
+     */
+    public synchronized void reset() {
+        Arrays.fill(counts, 0);
+        Arrays.fill(totalNanos, 0);
+        bytesRead    = 0;
+        bytesWritten = 0;
+    }
+
+    /**
+     * getCount - calls of a phase
+     * @param phase - IO, COMPUTE, RENDER or REPAINT
+     * @return long
+     */
+    public synchronized long getCount(int phase) {
+        return counts[phase];
+    }
+
+    /**
+     * getMeanMs - mean latency of a phase over all its calls
+     * @param phase - IO, COMPUTE, RENDER or REPAINT
+     * @return double - milliseconds; 0 if never called
+     */
+    public synchronized double getMeanMs(int phase) {
+        return (counts[phase] > 0) ? totalNanos[phase] / 1.0e6 / counts[phase] : 0.0;
+    }
+
+    /**
+     * getPercentileMs - latency of a phase that the given percent of its latest calls did not exceed
+     * @param phase   - IO, COMPUTE, RENDER or REPAINT
+     * @param percent - 0 to 100
+     * @return double - milliseconds; 0 if never called
+     */
+    public synchronized double getPercentileMs(int phase, double percent) {
+        int n = (int) Math.min(counts[phase], SAMPLES);
+        if (n == 0) {
+            return 0.0;
+        }
+        long[] sorted = Arrays.copyOf(samples[phase], n);
+        Arrays.sort(sorted);
+        // nearest rank
+        int rank = (int) Math.ceil(percent / 100.0 * n);
+        return sorted[Math.max(0, Math.min(n, rank) - 1)] / 1.0e6;
+    }
+
+    /**
+     * getBytesRead - bytes read by loadImage()
+     * @return long
+     */
+    public synchronized long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * getBytesWritten - bytes written by saveImage()
+     * @return long
+     */
+    public synchronized long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    //--------------------------------------------------------------------------------------
+    // start of export methods
+    //
+    /**
+     * writeCsv - write the counters of Link Guis to a CSV file, one row per link and phase
+     * @param filename - CSV file name
+     * @param metrics  - LinkMetrics by name of link, in chain order
+     * @return boolean - true if written, else false
+     */
+    public static boolean writeCsv(String filename, Map<String, LinkMetrics> metrics) {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename))) {
+            writer.write("link,phase,count,p50_ms,p95_ms,p99_ms,mean_ms,bytes_read,bytes_written\n");
+            for (Map.Entry<String, LinkMetrics> entry : metrics.entrySet()) {
+                LinkMetrics m = entry.getValue();
+                for (int phase = 0; phase < PHASE_STR.length; phase++) {
+                    writer.write("\"" + entry.getKey().replace("\"", "\"\"") + "\"," + PHASE_STR[phase] + "," +
+                                 m.getCount(phase) + "," +
+                                 String.format(Locale.ROOT, "%.3f,%.3f,%.3f,%.3f,",
+                                               m.getPercentileMs(phase, 50), m.getPercentileMs(phase, 95),
+                                               m.getPercentileMs(phase, 99), m.getMeanMs(phase)) +
+                                 m.getBytesRead() + "," + m.getBytesWritten() + "\n");
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Error writing metrics file:"+filename);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * writeJson - write the counters of Link Guis to a JSON file, one object per link
+     * @param filename - JSON file name
+     * @param metrics  - LinkMetrics by name of link, in chain order
+     * @return boolean - true if written, else false
+     */
+    public static boolean writeJson(String filename, Map<String, LinkMetrics> metrics) {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename))) {
+            writer.write("[\n");
+            int i = 0;
+            for (Map.Entry<String, LinkMetrics> entry : metrics.entrySet()) {
+                LinkMetrics m = entry.getValue();
+                writer.write("  {\"link\": \"" + entry.getKey().replace("\\", "\\\\").replace("\"", "\\\"") + "\",\n");
+                writer.write("   \"bytes_read\": " + m.getBytesRead() + ", \"bytes_written\": " + m.getBytesWritten() + ",\n");
+                writer.write("   \"phases\": {\n");
+                for (int phase = 0; phase < PHASE_STR.length; phase++) {
+                    writer.write("     \"" + PHASE_STR[phase] + "\": {\"count\": " + m.getCount(phase) +
+                                 String.format(Locale.ROOT, ", \"p50_ms\": %.3f, \"p95_ms\": %.3f, \"p99_ms\": %.3f, \"mean_ms\": %.3f}",
+                                               m.getPercentileMs(phase, 50), m.getPercentileMs(phase, 95),
+                                               m.getPercentileMs(phase, 99), m.getMeanMs(phase)) +
+                                 ((phase < PHASE_STR.length-1) ? ",\n" : "\n"));
+                }
+                writer.write("   }}" + ((++i < metrics.size()) ? ",\n" : "\n"));
+            }
+            writer.write("]\n");
+        } catch (IOException e) {
+            System.out.println("Error writing metrics file:"+filename);
+            return false;
+        }
+        return true;
+    }
+    //
+    // end of export methods
+    //-----------------------------------------------------------------------
+
+    /**
+     * MeteredIcon - Icon that counts the time spent painting it as the Repaint phase of a LinkMetrics
+     */
+    public static class MeteredIcon implements Icon {
+        private final Icon        icon;       // Icon painted
+        private final LinkMetrics metrics;    // counters of the Link Gui showing the Icon
+
+        /**
+         * Constructor
+         */
+        public MeteredIcon(Icon icon, LinkMetrics metrics) {
+            this.icon    = icon;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void paintIcon(Component c, Graphics g, int x, int y) {
+            long start = System.nanoTime();
+            icon.paintIcon(c, g, x, y);
+            metrics.record(LinkMetrics.REPAINT, System.nanoTime() - start);
+        }
+
+        @Override
+        public int getIconWidth() {
+            return icon.getIconWidth();
+        }
+
+        @Override
+        public int getIconHeight() {
+            return icon.getIconHeight();
+        }
+    }
+}
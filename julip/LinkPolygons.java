@@ -87,8 +87,7 @@ public class LinkPolygons extends LinkClass {
         //
         // All frames have a display image
         //
-        Image img = HighGui.toBufferedImage(matImgSrc);
-        imgLabel = new JLabel(new ImageIcon(img));        
+        imgLabel = new JLabel(previewIcon(matImgSrc));
         imgSP = new JScrollPane(imgLabel);
         imgSP.setPreferredSize(new Dimension(400,400));                
         //
@@ -181,6 +180,8 @@ public class LinkPolygons extends LinkClass {
     // Cluster of overriden LinkClass methods 
     //   buildMyLinkMap()
     //   verifySettings()
+    //   getSettings()
+    //   getInputData()
     //   saveSettings(()
     //   saveImage()
     //   mapToSettings()
@@ -188,6 +189,9 @@ public class LinkPolygons extends LinkClass {
     //   refreshImage()
     //   genImportList()
     //   genCodeString()
+    //   genPipelineFields()
+    //   genPipelineCode()
+    //   genPipelineRelease()
             
     /**
      * buildMyLinkMap - native default values for Link Gui
@@ -219,23 +223,32 @@ public class LinkPolygons extends LinkClass {
         intCheck("EPSILON", 0, 50, epsilonDefault);
     }
     
+    /**
+     * getSettings - Overrides method in LinkClass; setting of the slider.
+     * @return Map - key,value strings of settings
+     */
+    @Override
+    public Map<String, String> getSettings() {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("EPSILON", Integer.toString(epsilonTB.value));
+        return settings;
+    }
+
+    /**
+     * getInputData - Overrides method in LinkClass; the contours read from the input file.
+     * @return LinkData - contours
+     */
+    @Override
+    public LinkData getInputData() {
+        return LinkData.fromContours(matImgSrc.size(), contours);
+    }
+
     /**
      * saveSettings - write link settings to file 
      */
     @Override
     public void saveSettings() {
-        String linkfilename  = textFieldLink.getText();
-        
-        BufferedWriter writer;
-        try {
-            writer = new BufferedWriter(new FileWriter(linkfilename));
-            writer.write("TYPE\tFINDCONTOURS\n");
-            writer.write("IMAGE_IN\t"    + textFieldImageIn.getText() + "\n");
-            writer.write("IMAGE_OUT\t"   + textFieldImageOut.getText() + "\n");
-            writer.write("LINK_FILE\t"   + linkfilename + "\n");
-            writer.write("EPSILON\t"     + epsilonTB.value + "\n");
-            writer.close();
-        } catch (IOException e) {}            
+        writeLinkFile("FINDCONTOURS");
     }
     
     /**
@@ -248,6 +261,15 @@ public class LinkPolygons extends LinkClass {
         String contourfilename = textFieldImageOut.getText();
         ContourHandler.saveContours(contourfilename, matImgDst, drawnContours);        
     }
+    
+    /**
+     * getOutputData - Overrides method in LinkClass; output Contours for the next Link Gui
+     * @return LinkData - output for the next Link Gui
+     */
+    @Override
+    public LinkData getOutputData() {
+        return LinkData.fromContours(matImgDst.size(), drawnContours);
+    }
         
     /**
      * refreshSettings - Overrides method in LinkClass; copy and error check myLinkMap settings.
@@ -271,45 +293,28 @@ public class LinkPolygons extends LinkClass {
      * refreshImage - refresh label texts and shown image
      */
     public void refreshImage() {
-        Mat hierarchy = new Mat();
-        matImgDst = Mat.zeros(matImgSrc.size(), CvType.CV_8UC3);
+        // StagePolygons approximates the contours; this Link Gui only draws them
+        drawnContours = runStage().contours;
+
+        clearCanvas();
         Scalar color = new Scalar(0,255,255);      
+        Imgproc.drawContours(
+            matImgDst,          // input/output mat image
+            drawnContours,      // input List of Mats of contours
+            -1,                 // index into List of Mats of contours; all of them
+            color,              // Scalar color of drawn contour
+            2                   // pixel thickness of drawn contour
+        );        
         
-        drawnContours.clear();
-        double epsilon = epsilonTB.value;
+        showImage(matImgDst);
+    }
 
-        for (int i = 0; i < contours.size(); i++) {
-            MatOfPoint contour = contours.get(i);
-            MatOfPoint2f curve = new MatOfPoint2f();
-            MatOfPoint2f approxCurve = new MatOfPoint2f();
-            contour.convertTo(curve, CvType.CV_32FC2);
-            Imgproc.approxPolyDP(
-                curve,                       // input contour (MatOfPoint2f)
-                approxCurve,                 // output contour (MatOfPoint2f)
-                epsilon,                     // output Mat of contour hierarchy
-                true                         // boolean, true if closed contour
-            );
-            MatOfPoint approxContour = new MatOfPoint();
-            approxCurve.convertTo(approxContour, CvType.CV_32S);
-            drawnContours.add(approxContour);
-        }
-        for (int i = 0; i < drawnContours.size(); i++) {
-            Imgproc.drawContours(
-                matImgDst,          // input/output mat image
-                drawnContours,      // input List of Mats of contours
-                i,                  // index into List of Mats of contours
-                color,              // Scalar color of drawn contour
-                2,                  // pixel thickness of drawn contour
-                Imgproc.LINE_8,     // LineType of drawn contour
-                hierarchy,          // input Mat of contour hierarchy
-                0,                  // hierarchy threshold of drawn contours
-                new Point()         // contour x,y offset
-            );        
-        }
-        
-        Image img = HighGui.toBufferedImage(matImgDst);
-        imgLabel.setIcon(new ImageIcon(img));        
-        frame.repaint();
+    /**
+     * isRefreshOffEdt - Overrides method in LinkClass; refreshImage() shows its results through showImage().
+     */
+    @Override
+    public boolean isRefreshOffEdt() {
+        return true;
     }
     
     /**
@@ -318,6 +323,7 @@ public class LinkPolygons extends LinkClass {
     @Override
     public List<String> genImportList() {
         List<String> importsL = new ArrayList<String>();
+        importsL.add("java.util.ArrayList");
         importsL.add("java.util.List");
         importsL.add("org.opencv.core.Core");
         importsL.add("org.opencv.core.CvType");
@@ -365,6 +371,71 @@ public class LinkPolygons extends LinkClass {
             sb.append("    }\n");
         return sb.toString();
     }
+
+    /**
+     * genPipelineFields - generate the curve Mats, the output List and the pool of its polygons
+     */
+    @Override
+    public String genPipelineFields(String reference) {
+        String sfx = reference.equals("") ? "" : "_"+reference;
+        StringBuilder sb = new StringBuilder();
+        sb.append("    private MatOfPoint2f polygonCurve"+sfx+" = new MatOfPoint2f();\n");
+        sb.append("    private MatOfPoint2f polygonApproxCurve"+sfx+" = new MatOfPoint2f();\n");
+        sb.append("    private List<MatOfPoint> polygonPool"+sfx+" = new ArrayList<>();      // grows to the most contours seen\n");
+        sb.append("    private List<MatOfPoint> polygonContoursList"+sfx+" = new ArrayList<>();\n");
+        return sb.toString();
+    }
+
+    /**
+     * genPipelineCode - generate a method like that of genCodeString(), which works in the fields;
+     *                   a polygon is only made when there are more contours than ever before
+     */
+    @Override
+    public String genPipelineCode(String reference) {
+            genCodeString(reference);
+            String sfx = reference.equals("") ? "" : "_"+reference;
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("    public "+returnStr+" "+methodStr.toString());  
+            sb.append("(List<MatOfPoint> contours) {\n");
+            sb.append("        List<MatOfPoint> polygonContours = polygonContoursList"+sfx+";\n");
+            sb.append("        polygonContours.clear();\n");
+            sb.append("        for (int i = 0; i < contours.size(); i++) {\n");
+            sb.append("            if (i == polygonPool"+sfx+".size()) {\n");
+            sb.append("                polygonPool"+sfx+".add(new MatOfPoint());\n");
+            sb.append("            }\n");
+            sb.append("            MatOfPoint approxContour = polygonPool"+sfx+".get(i);\n");
+            sb.append("            contours.get(i).convertTo(polygonCurve"+sfx+", CvType.CV_32FC2);\n");
+            sb.append("            Imgproc.approxPolyDP(\n");
+            sb.append("                polygonCurve"+sfx+",        // input contour (MatOfPoint2f)\n");
+            sb.append("                polygonApproxCurve"+sfx+",  // output contour (MatOfPoint2f)\n");
+            sb.append("                "+epsilonTB.value+",         // double, parameter specifying approximation accuracy\n");
+            sb.append("                true                // boolean, true if closed contour\n");
+            sb.append("            );\n");
+            sb.append("            polygonApproxCurve"+sfx+".convertTo(approxContour, CvType.CV_32S);\n");
+            sb.append("            polygonContours.add(approxContour);\n");
+            sb.append("        }\n");
+            sb.append("        return polygonContours;\n");
+            sb.append("    }\n");
+        return sb.toString();
+    }
+
+    /**
+     * genPipelineRelease - generate the release of the curve Mats and the pool of polygons
+     */
+    @Override
+    public String genPipelineRelease(String reference) {
+        String sfx = reference.equals("") ? "" : "_"+reference;
+        StringBuilder sb = new StringBuilder();
+        sb.append("        for (MatOfPoint polygon : polygonPool"+sfx+") {\n");
+        sb.append("            polygon.release();\n");
+        sb.append("        }\n");
+        sb.append("        polygonPool"+sfx+".clear();\n");
+        sb.append("        polygonContoursList"+sfx+".clear();\n");
+        sb.append("        polygonCurve"+sfx+".release();\n");
+        sb.append("        polygonApproxCurve"+sfx+".release();\n");
+        return sb.toString();
+    }
     
     //
     //  end of overridden LinkClass methods
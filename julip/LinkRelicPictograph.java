@@ -88,8 +88,7 @@ public class LinkRelicPictograph extends LinkClass {
         //
         // All frames have a display image
         //
-        Image img = HighGui.toBufferedImage(matImgSrc);
-        imgLabel = new JLabel(new ImageIcon(img));        
+        imgLabel = new JLabel(previewIcon(matImgSrc));
         imgSP = new JScrollPane(imgLabel);
         imgSP.setPreferredSize(new Dimension(400,400));                
         //
@@ -304,17 +303,8 @@ public class LinkRelicPictograph extends LinkClass {
             );
         }
         
-        pictographIndex = 0;
-        
-        if (points.size() == 7) {
-            pictographIndex = 1;
-        } else if (points.size() == 11) {
-            if (meanx < medianx) {
-                pictographIndex = 2;
-            } else {
-                pictographIndex = 3;
-            }
-        }
+        // StageRelicPictograph identifies the pictograph; the mean and median are only shown
+        pictographIndex = StageRelicPictograph.pictograph(points);
         
         double textmeanx = Math.round(meanx * 10.0) / 10.0;
         double textmedianx = Math.round(medianx * 10.0) / 10.0;
@@ -322,10 +312,8 @@ public class LinkRelicPictograph extends LinkClass {
         labelImageIs.setText("Points "+points.size()+" MeanX "+textmeanx+" MedianX "+textmedianx+ 
                              "\nPictograph is "+PICTOGRAPH_STR[pictographIndex] + "  ("+pictographIndex+")\n");
         
-        Image img = HighGui.toBufferedImage(matImgDst);
-        imgLabel.setIcon(new ImageIcon(img));        
+        showImage(matImgDst);
 //        frame.pack();
-        frame.repaint();
     }    
     
     /**
@@ -46,6 +46,7 @@ public class LinkRoverMineral extends LinkClass {
     private int frameHeightMinusImage = 0;
     
     List<MatOfPoint> contours;
+    ContourFeatures features;         // features of contours
     List<Double> xlist;
     List<Double> ylist;    
     private double centerx;
@@ -77,6 +78,7 @@ public class LinkRoverMineral extends LinkClass {
         matImgSrc = Mat.zeros(new Size(512, 512), CvType.CV_8U);
         if (buildContours(myLinkMap.get("IMAGE_IN")) == false) {
             contours = new ArrayList<>();
+            features = new ContourFeatures(contours);
         };
         //
         // Error-check and correct invalid settings.
@@ -92,8 +94,7 @@ public class LinkRoverMineral extends LinkClass {
         //
         // All frames have a display image
         //
-        Image img = HighGui.toBufferedImage(matImgSrc);
-        imgLabel = new JLabel(new ImageIcon(img));        
+        imgLabel = new JLabel(previewIcon(matImgSrc));
         imgSP = new JScrollPane(imgLabel);
         imgSP.setPreferredSize(new Dimension(400,400));                
         //
@@ -168,6 +169,7 @@ public class LinkRoverMineral extends LinkClass {
             matImgSrc = Mat.zeros((int)fakeSize[1], (int)fakeSize[0], CvType.CV_8UC3);
             // delete faked-up contour that holds the image Mat Size 
             contours.remove(0);                        
+            features = ContourHandler.loadFeatures(filename, contours);
             status = true;
         } 
         return status;
@@ -267,13 +269,9 @@ public class LinkRoverMineral extends LinkClass {
         Scalar yellowColor = new Scalar(0,255,255);    
         Scalar greenColor  = new Scalar(0,255,0);
         Scalar redColor    = new Scalar(0,0,255);
-        mineralIndex = 0;
         
         if (contours.size() > 0) {
-            MatOfPoint2f contourMat = new MatOfPoint2f(contours.get(0).toArray());
-            Point circleCenter = new Point();
-            float[] circleRadii = new float[1];
-            Imgproc.minEnclosingCircle(contourMat, circleCenter, circleRadii);
+            Point circleCenter = features.circleCenter(0);
                     
             Imgproc.circle(
                 matImgDst,           // Mat img
@@ -311,22 +309,13 @@ public class LinkRoverMineral extends LinkClass {
                 2,                  // pixel thickness of drawn contour
                 Imgproc.LINE_8      // LineType of drawn contour
             );  
-                                    
-            if (circleCenter.x < x1) {
-                mineralIndex = 1;
-            }
-            else if (circleCenter.x > x2/3) {
-                mineralIndex = 3;
-            }
-            else
-                mineralIndex = 2;
         }
+        // StageRoverMineral decides the position of the mineral; this Link Gui draws the thirds
+        mineralIndex = StageRoverMineral.mineral(features, matImgSrc.size());
         labelImageIs.setText("\nMineral is "+MINERAL_STR[mineralIndex] + "  ("+mineralIndex+")\n");        
         
-        Image img = HighGui.toBufferedImage(matImgDst);
-        imgLabel.setIcon(new ImageIcon(img));        
+        showImage(matImgDst);
 //        frame.pack();
-        frame.repaint();
     }    
     
     /**
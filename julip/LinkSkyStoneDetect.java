@@ -24,7 +24,9 @@ import org.opencv.imgcodecs.Imgcodecs;
 import org.opencv.imgproc.Imgproc;
 
 /**
- * LinkErodilate - Graphical user interface to exercise openCV Imgproc.mophologyEx method.
+ * LinkSkyStoneDetect - Graphical user interface to find the darkest of a layout of regions.
+ *                      The regions are listed, or laid out as a grid, in text fields; see
+ *                      StageSkyStoneDetect. Their means and variances come from a RegionStats.
  */
 public class LinkSkyStoneDetect extends LinkClass {
 
@@ -33,24 +35,19 @@ public class LinkSkyStoneDetect extends LinkClass {
     // All fields are either final or not initialized.
     //
     
-    private JulipCheckBox region1KB;
-    private JulipCheckBox region2KB;
-    private JulipCheckBox region3KB;
-    private JLabel mean1L;
-    private JLabel mean2L;
-    private JLabel mean3L;
+    private JulipCheckBox showKB;           // show regions on image
+    private JTextField regionsTF;           // REGIONS setting
+    private JTextField gridTF;              // REGION_GRID setting
+    private JTextArea  meansTA;             // mean and variance of each region
     
     private JLabel skyStoneLabel;
     private JScrollPane imgSP;              // JScrollPane to hold image
     private int frameHeightMinusImage = 0;
     
-    Mat region1Mat;
-    Mat region2Mat;
-    Mat region3Mat;
+    private final RegionStats stats = new RegionStats();  // integral images of matImgSrc
+    private Mat statsOf;                    // matImgSrc the stats were computed for
     
-    int mean1;
-    int mean2;
-    int mean3;
+    double[] means;                         // mean of first channel of each region
     int skystoneRegion;
     
     //
@@ -92,8 +89,7 @@ public class LinkSkyStoneDetect extends LinkClass {
         //
         // All frames have a display image
         //
-        Image img = HighGui.toBufferedImage(matImgSrc);
-        imgLabel = new JLabel(new ImageIcon(img));        
+        imgLabel = new JLabel(previewIcon(matImgSrc));
         imgSP = new JScrollPane(imgLabel);
         imgSP.setPreferredSize(new Dimension(400,400));
         //
@@ -102,43 +98,49 @@ public class LinkSkyStoneDetect extends LinkClass {
         // Containers specifically for this Link Gui instantiated
         //
 
-        region1KB = new JulipCheckBox("SHOW REGION 1", myLinkMap.get("SHOW_REGION1").equals("1"), this);        
-        region2KB = new JulipCheckBox("SHOW REGION 2", myLinkMap.get("SHOW_REGION2").equals("1"), this);        
-        region3KB = new JulipCheckBox("SHOW REGION 3", myLinkMap.get("SHOW_REGION3").equals("1"), this);        
-        mean1L = new JLabel("  mean:   ");
-        mean2L = new JLabel("  mean:   ");
-        mean3L = new JLabel("  mean:   ");
+        showKB = new JulipCheckBox("SHOW REGIONS", myLinkMap.get("SHOW_REGIONS").equals("1"), this);
 
-        JPanel region1Panel = new JPanel();
-        region1Panel.add(region1KB.checkBox);
-        region1Panel.add(mean1L);
-
-        JPanel region2Panel = new JPanel();
-        region2Panel.add(region2KB.checkBox);
-        region2Panel.add(mean2L);
+        // JPanel for region layout
+        //    TextField for list of regions
+        //    TextField for grid of regions
+        //    JButton to assert the layout
+        int textWidth = 16;
+        regionsTF = new JTextField(myLinkMap.get("REGIONS"), textWidth);
+        gridTF    = new JTextField(myLinkMap.get("REGION_GRID"), textWidth);
+        JPanel layoutPanel = new JPanel();
+        layoutPanel.add(new JLabel("Regions:"));
+        layoutPanel.add(regionsTF);
+        layoutPanel.add(new JLabel("Grid:"));
+        layoutPanel.add(gridTF);
+        JButton buttonLayout = new JButton("< Layout");
+        buttonLayout.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                requestRefresh();
+            }
+        });
+        layoutPanel.add(buttonLayout);
 
-        JPanel region3Panel = new JPanel();
-        region3Panel.add(region3KB.checkBox);
-        region3Panel.add(mean3L);
+        meansTA = new JTextArea(4, 30);
+        meansTA.setEditable(false);
         
         JPanel ssPanel = new JPanel();
+        ssPanel.add(showKB.checkBox);
         ssPanel.add(new JLabel("SkyStone region: "));
         skyStoneLabel  = new JLabel("  ");
         ssPanel.add(skyStoneLabel);
 
         //
         // JPanel to hold:
-        //      morphology JComboBox
-        //      kernel JLabel + JSlider
-        //      kernel JComboBox
-        //      image  JComboBox
+        //      region layout JPanel
+        //      region means JTextArea
+        //      show regions JCheckBox + SkyStone JLabel
         //
         JPanel sliderPanel = new JPanel();
         sliderPanel.setLayout(new BoxLayout(sliderPanel, BoxLayout.PAGE_AXIS));
         
-        sliderPanel.add(region1Panel);
-        sliderPanel.add(region2Panel);
-        sliderPanel.add(region3Panel);
+        sliderPanel.add(layoutPanel);
+        sliderPanel.add(new JScrollPane(meansTA));
         sliderPanel.add(ssPanel);
         
         //
@@ -178,6 +180,7 @@ public class LinkSkyStoneDetect extends LinkClass {
     // Cluster of overriden LinkClass methods 
     //   buildMyLinkMap()
     //   verifySettings()
+    //   getSettings()
     //   saveSettings()
     //   saveImage()
     //   mapToSettings()
@@ -195,9 +198,9 @@ public class LinkSkyStoneDetect extends LinkClass {
                 put("IMAGE_IN", "none");
                 put("IMAGE_OUT", "null.png");
                 put("LINK_FILE", "nolinkskystonedetect.txt");
-                put("SHOW_REGION1", "1");
-                put("SHOW_REGION2", "1");
-                put("SHOW_REGION3", "1");
+                put("REGIONS", StageSkyStoneDetect.DEFAULT_REGIONS);
+                put("REGION_GRID", StageSkyStoneDetect.DEFAULT_GRID);
+                put("SHOW_REGIONS", "1");
             }};
         for (String key : defaultMap.keySet()) {
             if (!myLinkMap.containsKey(key)) {
@@ -211,28 +214,49 @@ public class LinkSkyStoneDetect extends LinkClass {
      */    
     @Override
     public void verifySettings() {
+        if (StageSkyStoneDetect.parseRegions(myLinkMap.get("REGIONS")) == null) {
+            System.out.println("REGIONS:" + myLinkMap.get("REGIONS") + " is not a list of x,y,width,height separated by ;");
+            myLinkMap.replace("REGIONS", StageSkyStoneDetect.DEFAULT_REGIONS);
+        }
+        if (StageSkyStoneDetect.parseGrid(myLinkMap.get("REGION_GRID")) == null) {
+            System.out.println("REGION_GRID:" + myLinkMap.get("REGION_GRID") + " is not x,y,width,height,columns,rows");
+            myLinkMap.replace("REGION_GRID", StageSkyStoneDetect.DEFAULT_GRID);
+        }
+        if (!myLinkMap.get("SHOW_REGIONS").equals("0")) {
+            myLinkMap.replace("SHOW_REGIONS", "1");
+        }
     }
        
+    /**
+     * getSettings - Overrides method in LinkClass; region layout and check box.
+     *               A layout text field that is empty, or has spaces, is written as "none".
+     * @return Map - key,value strings of settings
+     */
+    @Override
+    public Map<String, String> getSettings() {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("REGIONS",      layoutText(regionsTF));
+        settings.put("REGION_GRID",  layoutText(gridTF));
+        settings.put("SHOW_REGIONS", showKB.selected ? "1" : "0");
+        return settings;
+    }
+
+    /**
+     * layoutText - text of a layout text field, as a link file value
+     * @param textField - JTextField of REGIONS or REGION_GRID
+     * @return String - text without whitespace; "none" if empty
+     */
+    private String layoutText(JTextField textField) {
+        String text = textField.getText().replaceAll("\\s+", "");
+        return text.equals("") ? "none" : text;
+    }
        
     /**
      * saveSettings - write link settings to file 
      */
     @Override
     public void saveSettings() {
-        String linkfilename  = textFieldLink.getText();
-        
-        BufferedWriter writer;
-        try {
-            writer = new BufferedWriter(new FileWriter(linkfilename));
-            writer.write("TYPE\tINRANGEHSV\n");
-            writer.write("IMAGE_IN\t"        + textFieldImageIn.getText()  + "\n");
-            writer.write("IMAGE_OUT\t"       + textFieldImageOut.getText() + "\n");
-            writer.write("LINK_FILE\t"       + linkfilename + "\n");
-            writer.write("SHOW_REGION1\t"    + (region1KB.selected ? "1" : "0") + "\n");
-            writer.write("SHOW_REGION2\t"    + (region2KB.selected ? "1" : "0") + "\n");
-            writer.write("SHOW_REGION3\t"    + (region3KB.selected ? "1" : "0") + "\n");
-            writer.close();
-        } catch (IOException e) {}
+        writeLinkFile("SKYSTONEDETECT");
     }
     
     /**
@@ -245,9 +269,9 @@ public class LinkSkyStoneDetect extends LinkClass {
         BufferedWriter writer;
         try {
             writer = new BufferedWriter(new FileWriter(outputfilename));
-            writer.write("mean region 1: "+mean1 + "\n");
-            writer.write("mean region 2: "+mean2 + "\n");
-            writer.write("mean region 3: "+mean3 + "\n");
+            for (int i = 0; i < means.length; i++) {
+                writer.write("mean region "+(i+1)+": "+(int)means[i] + "\n");
+            }
             writer.write("SkyStone is in region: "+skystoneRegion+"\n");
             writer.close();
         } catch (IOException e) {}
@@ -258,9 +282,9 @@ public class LinkSkyStoneDetect extends LinkClass {
      */
     @Override
     public void mapToSettings() {
-        region1KB.setValue(myLinkMap.get("SHOW_REGION1").equals("1"));
-        region2KB.setValue(myLinkMap.get("SHOW_REGION2").equals("1"));
-        region3KB.setValue(myLinkMap.get("SHOW_REGION3").equals("1"));
+        regionsTF.setText(myLinkMap.get("REGIONS"));
+        gridTF.setText(myLinkMap.get("REGION_GRID"));
+        showKB.setValue(myLinkMap.get("SHOW_REGIONS").equals("1"));
     }
     
     /**
@@ -269,73 +293,58 @@ public class LinkSkyStoneDetect extends LinkClass {
      */    
     @Override
     public boolean refreshSettings() {
-        return true;
+        boolean regionsValid = (StageSkyStoneDetect.parseRegions(layoutText(regionsTF)) != null);
+        boolean gridValid    = (StageSkyStoneDetect.parseGrid(layoutText(gridTF)) != null);
+        if (!regionsValid) {
+            System.out.println("Regions:" + regionsTF.getText() + " is not a list of x,y,width,height separated by ;");
+        }
+        if (!gridValid) {
+            System.out.println("Grid:" + gridTF.getText() + " is not x,y,width,height,columns,rows");
+        }
+        regionsTF.setBackground(regionsValid ? null : Color.RED);
+        gridTF.setBackground(gridValid ? null : Color.RED);
+        boolean isValid = regionsValid && gridValid;
+        return isValid;
     }
     
     /**
      * refreshImage - Overrides method in LinkClass; recalculate algorithm and refresh shown image.
      */
     public void refreshImage() {
+        // StageSkyStoneDetect lays out the regions; their statistics come from the integral
+        // images of matImgSrc, made once for each image however many regions there are
+        StageSkyStoneDetect stage = (StageSkyStoneDetect) getStage();
+        if (statsOf != matImgSrc) {
+            stats.compute(matImgSrc);
+            statsOf = matImgSrc;
+        }
+        means = stage.means(stats);
+        skystoneRegion = StageSkyStoneDetect.darkest(means);
+
         matImgDst = Mat.zeros(matImgSrc.rows(), matImgSrc.cols(), CvType.CV_8U);
         matImgSrc.copyTo(matImgDst);
         
-        int x1t = 25; int y1t = 48;
-        int x1b = 55; int y1b = 64;
-        
-        int x2t = 75;  int y2t = 40;
-        int x2b = 105; int y2b = 56;
-        
-        int x3t = 130; int y3t = 32;
-        int x3b = 160; int y3b = 48;
-        
-        
-        if (region1KB.selected) {
-            Imgproc.rectangle(
-                matImgDst,
-                new Point(x1t,y1t),
-                new Point(x1b,y1b),
-                new Scalar(0, 255, 0),
-                1);
-        }
-        if (region2KB.selected) {
-            Imgproc.rectangle(
-                matImgDst,
-                new Point(x2t,y2t),
-                new Point(x2b,y2b),
-                new Scalar(0, 255, 0),
-                1);
-        }
-        if (region3KB.selected) {
-            Imgproc.rectangle(
-                matImgDst,
-                new Point(x3t,y3t),
-                new Point(x3b,y3b),
-                new Scalar(0, 255, 0),
-                1);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < means.length; i++) {
+            Rect region = stage.regions.get(i);
+            double[] variance = stats.variance(region);
+            sb.append("region "+(i+1)+": mean "+(int)means[i]+"  variance "+(int)variance[0]+"\n");
+            if (showKB.selected) {
+                // the SkyStone region in red, the others in green
+                Scalar color = (i + 1 == skystoneRegion) ? new Scalar(0, 0, 255) : new Scalar(0, 255, 0);
+                Imgproc.rectangle(
+                    matImgDst,
+                    new Point(region.x, region.y),
+                    new Point(region.x + region.width, region.y + region.height),
+                    color,
+                    1);
+            }
         }
-        // rowS rowE colS colE
-        region1Mat = matImgSrc.submat(new Rect(x1t, y1t, (x1b-x1t), (y1b-y1t)));
-        region2Mat = matImgSrc.submat(new Rect(x2t, y2t, (x2b-x2t), (y2b-y2t)));
-        region3Mat = matImgSrc.submat(new Rect(x3t, y3t, (x3b-x3t), (y3b-y3t)));
-        
-        int mean1 = (int) Core.mean(region1Mat).val[0];
-        int mean2 = (int) Core.mean(region2Mat).val[0];
-        int mean3 = (int) Core.mean(region3Mat).val[0];
-        mean1L.setText("  mean: "+mean1);
-        mean2L.setText("  mean: "+mean2);
-        mean3L.setText("  mean: "+mean3);
-        
-        skystoneRegion = 1;
-        if      ((mean1 < mean2) && (mean1 < mean3)) { skystoneRegion = 1; }
-        else if ((mean2 < mean1) && (mean2 < mean3)) { skystoneRegion = 2; }
-        else if ((mean3 < mean1) && (mean3 < mean2)) { skystoneRegion = 3; }
-        else                                         { skystoneRegion = 0; }
+        meansTA.setText(sb.toString());
         skyStoneLabel.setText(""+skystoneRegion);
         
-        Image img = HighGui.toBufferedImage(matImgDst);
-        imgLabel.setIcon(new ImageIcon(img));
+        showImage(matImgDst);
 //        frame.pack();
-        frame.repaint();
     }
     
     /**
@@ -344,10 +353,8 @@ public class LinkSkyStoneDetect extends LinkClass {
     @Override
     public List<String> genImportList() {
         List<String> importsL = new ArrayList<String>();
-        importsL.add("org.opencv.core.Core");
         importsL.add("org.opencv.core.CvType");
         importsL.add("org.opencv.core.Mat");
-        importsL.add("org.opencv.core.Size");
         importsL.add("org.opencv.imgproc.Imgproc");
         return importsL;
     }     
@@ -357,35 +364,60 @@ public class LinkSkyStoneDetect extends LinkClass {
      */
     @Override
     public String genCodeString(String reference) {
-    
+            returnStr = "int";
+            objectStr = "skystoneRegion";
+            StringBuilder msb = new StringBuilder();
+            msb.append("doLinkSkyStoneDetect");
+            if (!reference.equals("")) { msb.append("_"+reference); }
+            methodStr = msb.toString();
+
+            // regions as clipped to the image at hand
+            StageSkyStoneDetect stage = (StageSkyStoneDetect) getStage();
+            if (statsOf != matImgSrc) {
+                stats.compute(matImgSrc);
+                statsOf = matImgSrc;
+            }
+
             StringBuilder sb = new StringBuilder();
-            sb.append("    public int doLinkSkyStoneDetect");
-            if (!reference.equals("")) { sb.append("_"+reference); }
+            sb.append("    public "+returnStr+" "+methodStr.toString()); 
             sb.append("(Mat matImgSrc) {\n");
-            
-            sb.append("        // Initialize output Mat to all zeros; and to same Size as input Mat\n");
-            sb.append("        Mat matImgDst = Mat.zeros(\n");
-            sb.append("            matImgSrc.rows(), // int - number of rows\n");
-            sb.append("            matImgSrc.cols(), // int - number of columns\n");
-            sb.append("            CvType.CV_8U      // int - Mat data type\n");
-            sb.append("        );\n");
-            sb.append("        // Create a kernel for morphologyEx operation\n");
-            sb.append("        Size kernelSize = new Size(\n");
-//            sb.append("            "+(2 * kernelTB.value + 1)+", // double - width\n");
-//            sb.append("            "+(2 * kernelTB.value + 1)+", // double - height\n");
-            sb.append("        );\n");
-            sb.append("        Mat element = Imgproc.getStructuringElement(\n");
-//            sb.append("            "+KERNEL_TYPE_NAME[kernelCB.index]+",    // int  - shape\n");
-            sb.append("            kernelSize,             // Size - ksize\n");
-            sb.append("        );\n");
-            sb.append("        // Execute morphologyEx operation\n");
-            sb.append("        Imgproc.morphologyEx(\n");
+            sb.append("        // Regions to compare; x, y, width, height\n");
+            sb.append("        int[][] regions = {\n");
+            for (Rect region : stage.regions) {
+                Rect r = stats.clip(region);
+                sb.append("            { "+r.x+", "+r.y+", "+r.width+", "+r.height+" },\n");
+            }
+            sb.append("        };\n");
+            sb.append("        // Integral image; the sum over any region is then four lookups\n");
+            sb.append("        Mat sum = new Mat();\n");
+            sb.append("        Imgproc.integral(\n");
             sb.append("            matImgSrc,    // Mat - source\n");
-            sb.append("            matImgDst,    // Mat - destination\n");
-//            sb.append("            "+MORPH_TYPE_NAME[morphCB.index]+",    // int - operation\n");
-            sb.append("            element       // Mat - kernel\n");
+            sb.append("            sum,          // Mat - integral image\n");
+            sb.append("            CvType.CV_64F // int - depth of integral image\n");
             sb.append("        );\n");
-            sb.append("        return matImgDst;\n");
+            sb.append("        // The SkyStone is in the one region with the darkest mean; 0 if none is\n");
+            sb.append("        int skystoneRegion = 0;\n");
+            sb.append("        int darkestMean = Integer.MAX_VALUE;\n");
+            sb.append("        for (int i = 0; i < regions.length; i++) {\n");
+            sb.append("            int x1 = regions[i][0];\n");
+            sb.append("            int y1 = regions[i][1];\n");
+            sb.append("            int x2 = x1 + regions[i][2];\n");
+            sb.append("            int y2 = y1 + regions[i][3];\n");
+            sb.append("            if ((x2 == x1) || (y2 == y1)) {\n");
+            sb.append("                continue;\n");
+            sb.append("            }\n");
+            sb.append("            double regionSum = sum.get(y2, x2)[0] - sum.get(y1, x2)[0]\n");
+            sb.append("                             - sum.get(y2, x1)[0] + sum.get(y1, x1)[0];\n");
+            sb.append("            int mean = (int) (regionSum / ((x2 - x1) * (y2 - y1)));\n");
+            sb.append("            if (mean < darkestMean) {\n");
+            sb.append("                darkestMean    = mean;\n");
+            sb.append("                skystoneRegion = i + 1;\n");
+            sb.append("            } else if (mean == darkestMean) {\n");
+            sb.append("                skystoneRegion = 0;\n");
+            sb.append("            }\n");
+            sb.append("        }\n");
+            sb.append("        sum.release();\n");
+            sb.append("        return skystoneRegion;\n");
             sb.append("    }\n");
         return sb.toString();
     }    
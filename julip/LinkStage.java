@@ -0,0 +1,232 @@
+package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
+
+import java.util.*;
+import java.util.List;
+
+import org.opencv.core.Mat;
+
+/**
+ *  Superclass for all JULIP Link processing stages.
+ *      A stage is the algorithm of a Link Gui without any Java Containers.
+ *      It takes its settings from a Map of key,value strings, same keys as the link file,
+ *      and turns an input LinkData into an output LinkData.
+ *
+ *      Settings are parsed once in setSettings(), along with anything made from them alone;
+ *      process() only reads those and otherwise uses local variables,
+ *      so a single stage may process several images at the same time.
+ *
+ *      An output image is a new Mat, left to the garbage collector, unless the stage is given
+ *      an outputPool. It then borrows its output images from that pool, and whoever runs the
+ *      stage owns them: each is handed back with MatPool.release() once the last reader of it
+ *      is done. ChainRunner and FramePlayer do so for every stage but the last, once the next
+ *      stage has run; a Link Gui does so for its proxy previews. The output a Link Gui
+ *      publishes is never borrowed, since there is no telling when its readers are done.
+ */
+public abstract class LinkStage {
+
+    public Map<String, String> myLinkMap = new HashMap<>();  // key,value elements of link file settings
+    public MatPool outputPool;                               // pool output images are borrowed from; null for new Mats
+
+    /**
+     * setSettings - assign and parse settings of the stage
+     * @param linkMap - Map of key,value strings of link file settings
+     */
+    public void setSettings(Map<String, String> linkMap) {
+        myLinkMap = linkMap;
+        parseSettings();
+    }
+
+    /**
+     * parseSettings - To be overridden by subclass; copy settings out of myLinkMap.
+     *                 Missing or invalid settings fall back to the native defaults of the Link Gui.
+     */
+    public abstract void parseSettings();
+
+    /**
+     * process - To be overridden by subclass; run the algorithm of the Link Gui.
+     * @param input - LinkData input; image, contours or points
+     * @return LinkData - output; image, contours, points or result text
+     */
+    public abstract LinkData process(LinkData input);
+
+    /**
+     * acceptsRoi - May be overridden by subclass; true if process() works the same on a region
+     *              of interest of an image as on the full frame, pixel by pixel.
+     * @return boolean
+     */
+    public boolean acceptsRoi() {
+        return false;
+    }
+
+    /**
+     * scaleSettings - May be overridden by subclass; adjust the parsed settings for an input
+     *                 scaled down from the image they were chosen on, as the proxy images
+     *                 computed while a slider is dragged. Settings in pixels, such as kernel
+     *                 sizes and areas, are to be scaled; by default nothing is.
+     * @param scale - size of the input relative to the full image; 0.5 for half size
+     */
+    public void scaleSettings(double scale) {
+    }
+
+    /**
+     * run - process() an input, which may be a region of interest of a full frame.
+     *       A stage that accepts a region works on it alone, and its output is placed
+     *       back in the full frame; any other stage is given the full frame.
+     *       Only headless runs hand regions down the chain; a Link Gui reads its input
+     *       from the LinkChannel or its file, both of which give the full frame.
+     * @param input - LinkData input
+     * @return LinkData - output
+     */
+    public LinkData run(LinkData input) {
+        if (input.roi == null) {
+            return process(input);
+        }
+        if (!acceptsRoi()) {
+            return process(input.toFullFrame());
+        }
+        return process(input).inFrame(input.roi, input.size);
+    }
+
+    /**
+     * newOutput - Mat for an output image; borrowed from outputPool if the stage has one.
+     *             Its contents are undefined.
+     * @param rows - number of rows
+     * @param cols - number of cols
+     * @param type - CvType
+     * @return Mat
+     */
+    public Mat newOutput(int rows, int cols, int type) {
+        if (outputPool != null) {
+            return outputPool.borrow(rows, cols, type);
+        }
+        return new Mat(rows, cols, type);
+    }
+
+    //--------------------------------------------------------------------------------------
+    // start of settings parsing methods
+    //
+    /**
+     * getInt - integer value of a setting
+     * @param keyStr       - key to search for in myLinkMap
+     * @param defaultValue - value if key is not found or value is not an integer
+     * @return int
+     */
+    public int getInt(String keyStr, int defaultValue) {
+        if (myLinkMap.containsKey(keyStr)) {
+            try {
+                return Integer.parseInt(myLinkMap.get(keyStr).trim());
+            } catch (NumberFormatException e) {
+                // fall through to the default
+            }
+        }
+        return defaultValue;
+    }
+    // alternate method signature, with the value range checked as LinkClass.intCheck() does
+    public int getInt(String keyStr, int lowRange, int highRange, int defaultValue) {
+        int value = getInt(keyStr, defaultValue);
+        if ((value < lowRange) || (value > highRange)) {
+            return defaultValue;
+        }
+        return value;
+    }
+
+    /**
+     * getDouble - numeric value of a setting that may be left empty
+     * @param keyStr       - key to search for in myLinkMap
+     * @param defaultValue - value if key is not found, empty or not a number
+     * @return double
+     */
+    public double getDouble(String keyStr, double defaultValue) {
+        if (myLinkMap.containsKey(keyStr)) {
+            try {
+                return Double.parseDouble(myLinkMap.get(keyStr).trim());
+            } catch (NumberFormatException e) {
+                // fall through to the default
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * getIndex - index of a combo box setting
+     * @param keyStr       - key to search for in myLinkMap
+     * @param valueStrings - Array of Strings of valid values for given key
+     * @param defaultIndex - index if key is not found or value is not valid
+     * @return int
+     */
+    public int getIndex(String keyStr, String[] valueStrings, int defaultIndex) {
+        if (myLinkMap.containsKey(keyStr)) {
+            String myValue = myLinkMap.get(keyStr);
+            for (int i = 0; i < valueStrings.length; i++) {
+                if (valueStrings[i].equals(myValue)) {
+                    return i;
+                }
+            }
+        }
+        return defaultIndex;
+    }
+    //
+    // end of settings parsing methods
+    //-----------------------------------------------------------------------
+
+    /**
+     * newStage - create the processing stage of a Link Gui
+     * @param linkName - class name of Link Gui, as in a chain file
+     * @return LinkStage - the stage, or null if the Link Gui has no headless stage
+     */
+    public static LinkStage newStage(String linkName) {
+        LinkStage stage = null;
+        if (linkName.equals("LinkInRangeHSV")) {
+            stage = new StageInRangeHSV();
+        }
+        else if (linkName.equals("LinkInRangeHHSV")) {
+            stage = new StageInRangeHHSV();
+        }
+        else if (linkName.equals("LinkCropImage")) {
+            stage = new StageCropImage();
+        }
+        else if (linkName.equals("LinkInRangeYCrCb")) {
+            stage = new StageInRangeYCrCb();
+        }
+        else if (linkName.equals("LinkErodilate")) {
+            stage = new StageErodilate();
+        }
+        else if (linkName.equals("LinkExtractChannel")) {
+            stage = new StageExtractChannel();
+        }
+        else if (linkName.equals("LinkFindContours")) {
+            stage = new StageFindContours();
+        }
+        else if (linkName.equals("LinkFilterContours")) {
+            stage = new StageFilterContours();
+        }
+        else if (linkName.equals("LinkGeometryContours")) {
+            stage = new StageGeometryContours();
+        }
+        else if (linkName.equals("LinkPolygons")) {
+            stage = new StagePolygons();
+        }
+        else if (linkName.equals("LinkContourStats")) {
+            stage = new StageContourStats();
+        }
+        else if (linkName.equals("LinkViewer") || linkName.equals("LinkToSpreadsheet")) {
+            stage = new StageViewer();
+        }
+        else if (linkName.equals("LinkRelicPictograph")) {
+            stage = new StageRelicPictograph();
+        }
+        else if (linkName.equals("LinkRoverMineral")) {
+            stage = new StageRoverMineral();
+        }
+        else if (linkName.equals("LinkSkyStoneDetect")) {
+            stage = new StageSkyStoneDetect();
+        }
+        else if (linkName.equals("LinkCenterStageProp")) {
+            stage = new StageCenterStageProp();
+        }
+        else {
+            System.out.println("newStage: No headless stage for Link Gui name:"+linkName);
+        }
+        return stage;
+    }
+}
@@ -31,12 +31,7 @@ public class LinkToSpreadsheet extends LinkClass {
     // All fields here are specific to this Link Gui.
     // All fields are either final or not initialized.
     //
-    private final String[] COLORSPACE_STR = { 
-        "Color Space: BGR", 
-        "Color Space: HSV",
-        "Color Space: YCrCb",
-        "Color Space: Gray"
-    };
+    private final String[] COLORSPACE_STR = StageViewer.COLORSPACE_STR;
        
     private JulipTrackBar xminTB;
     private JulipTrackBar xmaxTB;
@@ -95,8 +90,7 @@ public class LinkToSpreadsheet extends LinkClass {
         //
         // All frames have a display image
         //
-        Image img = HighGui.toBufferedImage(matImgSrc);
-        imgLabel = new JLabel(new ImageIcon(img));        
+        imgLabel = new JLabel(previewIcon(matImgSrc));
         imgSP = new JScrollPane(imgLabel);
         imgSP.setPreferredSize(new Dimension(400,400));
         //
@@ -199,7 +193,7 @@ public class LinkToSpreadsheet extends LinkClass {
         // The absolute vale of the channels param indicates the 
         // number of channels for the Mat.
         //
-        matImgSrc = Imgcodecs.imread(filename);
+        matImgSrc = LinkChannel.readImage(filename);
         System.out.println("loadimage:"+filename);
         if (matImgSrc.empty()) {
             System.out.println("No image file:" + filename);
@@ -244,6 +238,7 @@ public class LinkToSpreadsheet extends LinkClass {
     // Cluster of overriden LinkClass methods 
     //   buildMyLinkMap()
     //   verifySettings()
+    //   getSettings()
     //   saveSettings()
     //   saveImage()
     //   mapToSettings()
@@ -298,29 +293,29 @@ public class LinkToSpreadsheet extends LinkClass {
     }
        
        
+    /**
+     * getSettings - Overrides method in LinkClass; settings of the sliders and combo box.
+     * @return Map - key,value strings of settings
+     */
+    @Override
+    public Map<String, String> getSettings() {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("XMIN",            Integer.toString(xminTB.value));
+        settings.put("XMAX",            Integer.toString(xmaxTB.value));
+        settings.put("XPOS",            Integer.toString(xposTB.value));
+        settings.put("YMIN",            Integer.toString(yminTB.value));
+        settings.put("YMAX",            Integer.toString(ymaxTB.value));
+        settings.put("YPOS",            Integer.toString(yposTB.value));
+        settings.put("COLORSPACE_TYPE", COLORSPACE_STR[colorSpaceCB.index]);
+        return settings;
+    }
+
     /**
      * saveSettings - write link settings to file 
      */
     @Override
     public void saveSettings() {
-        String linkfilename  = textFieldLink.getText();
-        
-        BufferedWriter writer;
-        try {
-            writer = new BufferedWriter(new FileWriter(linkfilename));
-            writer.write("TYPE\tVIEWER\n");
-            writer.write("IMAGE_IN\t"        + textFieldImageIn.getText()  + "\n");
-            writer.write("IMAGE_OUT\t"       + textFieldImageOut.getText() + "\n");
-            writer.write("LINK_FILE\t"       + linkfilename + "\n");
-            writer.write("XMIN\t"            + xminTB.value + "\n");
-            writer.write("XMAX\t"            + xmaxTB.value + "\n");
-            writer.write("XPOS\t"            + xposTB.value + "\n");
-            writer.write("YMIN\t"            + yminTB.value + "\n");
-            writer.write("YMAX\t"            + ymaxTB.value + "\n");
-            writer.write("YPOS\t"            + yposTB.value + "\n");
-            writer.write("COLOR_SPACE_TYPE\t"+ COLORSPACE_STR[colorSpaceCB.index] + "\n");
-            writer.close();
-        } catch (IOException e) {}
+        writeLinkFile("VIEWER");
     }
     
     /**
@@ -422,32 +417,11 @@ System.out.println(xmaxTB.value);
      * refreshImage - Overrides method in LinkClass; recalculate algorithm and refresh shown image.
      */
     public void refreshImage() {
-        matImgDst = Mat.zeros(matImgSrc.rows(), matImgSrc.cols(), CvType.CV_8U);
-        matPixel  = Mat.zeros(matImgSrc.rows(), matImgSrc.cols(), CvType.CV_8U);
-       
-        // Present the image in any 3-channel color space as BGR
-        // And present in Gray as grayscale
-        if (colorSpaceCB.index == 3) {
-            Imgproc.cvtColor(matImgSrc, matImgDst, Imgproc.COLOR_BGR2GRAY);
-        }
-        else {
-            matImgSrc.copyTo(matImgDst);
-        }
-        
-        switch (colorSpaceCB.index) {
-            case 0:
-                matImgSrc.copyTo(matPixel);
-                break;
-            case 1:
-                Imgproc.cvtColor(matImgSrc, matPixel, Imgproc.COLOR_BGR2HSV);
-                break;
-            case 2:
-                Imgproc.cvtColor(matImgSrc, matPixel, Imgproc.COLOR_BGR2YCrCb);
-                break;
-            case 3:
-                Imgproc.cvtColor(matImgSrc, matPixel, Imgproc.COLOR_BGR2GRAY);
-                break;
-        }    
+        // StageViewer converts to the color space chosen; matPixel is only read,
+        // so it may be the conversion shared with other links
+        StageViewer viewer = (StageViewer) getStage();
+        matImgDst = viewer.viewMat(matImgSrc);
+        matPixel  = viewer.pixelMat(matImgSrc);
         
         Imgproc.rectangle (
             matImgDst,
@@ -464,10 +438,8 @@ System.out.println(xmaxTB.value);
             1
         );
                 
-        Image img = HighGui.toBufferedImage(matImgDst);
-        imgLabel.setIcon(new ImageIcon(img));
+        showImage(matImgDst);
 //        frame.pack();
-        frame.repaint();
     }
     
     /**
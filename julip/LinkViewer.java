@@ -31,12 +31,7 @@ public class LinkViewer extends LinkClass {
     // All fields here are specific to this Link Gui.
     // All fields are either final or not initialized.
     //
-    private final String[] COLORSPACE_STR = { 
-        "Color_Space:BGR",
-        "Color_Space:HSV",
-        "Color_Space:YCrCb",
-        "Color_Space:Gray"
-    };
+    private final String[] COLORSPACE_STR = StageViewer.COLORSPACE_STR;
        
     private JLabel[][] pixelValueLabels;
     
@@ -91,8 +86,7 @@ public class LinkViewer extends LinkClass {
         //
         // All frames have a display image
         //
-        Image img = HighGui.toBufferedImage(matImgSrc);
-        imgLabel = new JLabel(new ImageIcon(img));        
+        imgLabel = new JLabel(previewIcon(matImgSrc));
         imgSP = new JScrollPane(imgLabel);
         imgSP.setPreferredSize(new Dimension(400,400));
         //
@@ -192,7 +186,7 @@ public class LinkViewer extends LinkClass {
         // The absolute vale of the channels param indicates the 
         // number of channels for the Mat.
         //
-        matImgSrc = Imgcodecs.imread(filename);
+        matImgSrc = LinkChannel.readImage(filename);
         System.out.println("loadimage:"+filename);
         if (matImgSrc.empty()) {
             System.out.println("No image file:" + filename);
@@ -222,6 +216,7 @@ public class LinkViewer extends LinkClass {
     // Cluster of overriden LinkClass methods 
     //   buildMyLinkMap()
     //   verifySettings()
+    //   getSettings()
     //   saveSettings()
     //   saveImage()
     //   mapToSettings()
@@ -268,25 +263,25 @@ public class LinkViewer extends LinkClass {
     }
        
        
+    /**
+     * getSettings - Overrides method in LinkClass; settings of the sliders and combo box.
+     * @return Map - key,value strings of settings
+     */
+    @Override
+    public Map<String, String> getSettings() {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("XPIXEL",          Integer.toString(xpixelTB.value));
+        settings.put("YPIXEL",          Integer.toString(ypixelTB.value));
+        settings.put("COLORSPACE_TYPE", COLORSPACE_STR[colorSpaceCB.index]);
+        return settings;
+    }
+
     /**
      * saveSettings - write link settings to file 
      */
     @Override
     public void saveSettings() {
-        String linkfilename  = textFieldLink.getText();
-        
-        BufferedWriter writer;
-        try {
-            writer = new BufferedWriter(new FileWriter(linkfilename));
-            writer.write("TYPE\tVIEWER\n");
-            writer.write("IMAGE_IN\t"        + textFieldImageIn.getText()  + "\n");
-            writer.write("IMAGE_OUT\t"       + textFieldImageOut.getText() + "\n");
-            writer.write("LINK_FILE\t"       + linkfilename + "\n");
-            writer.write("XPIXEL\t"          + xpixelTB.value + "\n");
-            writer.write("YPIXEL\t"          + ypixelTB.value + "\n");
-            writer.write("COLORSPACE_TYPE\t"+ COLORSPACE_STR[colorSpaceCB.index] + "\n");
-            writer.close();
-        } catch (IOException e) {}
+        writeLinkFile("VIEWER");
     }
     
     /**
@@ -325,32 +320,11 @@ public class LinkViewer extends LinkClass {
      * refreshImage - Overrides method in LinkClass; recalculate algorithm and refresh shown image.
      */
     public void refreshImage() {
-        matImgDst = Mat.zeros(matImgSrc.rows(), matImgSrc.cols(), CvType.CV_8U);
-        matPixel  = Mat.zeros(matImgSrc.rows(), matImgSrc.cols(), CvType.CV_8U);
-       
-        // Present the image in any 3-channel color space as BGR
-        // And present in Gray as grayscale
-        if (colorSpaceCB.index == 3) {
-            Imgproc.cvtColor(matImgSrc, matImgDst, Imgproc.COLOR_BGR2GRAY);
-        }
-        else {
-            matImgSrc.copyTo(matImgDst);
-        }
-        
-        switch (colorSpaceCB.index) {
-            case 0:
-                matImgSrc.copyTo(matPixel);
-                break;
-            case 1:
-                Imgproc.cvtColor(matImgSrc, matPixel, Imgproc.COLOR_BGR2HSV);
-                break;
-            case 2:
-                Imgproc.cvtColor(matImgSrc, matPixel, Imgproc.COLOR_BGR2YCrCb);
-                break;
-            case 3:
-                Imgproc.cvtColor(matImgSrc, matPixel, Imgproc.COLOR_BGR2GRAY);
-                break;
-        }    
+        // StageViewer converts to the color space chosen; matPixel is only read,
+        // so it may be the conversion shared with other links
+        StageViewer viewer = (StageViewer) getStage();
+        matImgDst = viewer.viewMat(matImgSrc);
+        matPixel  = viewer.pixelMat(matImgSrc);
         
         Imgproc.rectangle (
             matImgDst,
@@ -401,10 +375,8 @@ public class LinkViewer extends LinkClass {
             }
         }
         
-        Image img = HighGui.toBufferedImage(matImgDst);
-        imgLabel.setIcon(new ImageIcon(img));
+        showImage(matImgDst);
 //        frame.pack();
-        frame.repaint();
     }
     
     /**
@@ -5,6 +5,12 @@ import java.io.BufferedWriter;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.List;
 
@@ -19,7 +25,18 @@ import org.opencv.core.Mat;
 public class MatHandler {
 
 /*
-    julip mat file format: 
+    julip mat file format, binary (written by writeMat):
+        .mat file extension.
+        header of 20 bytes, big-endian:
+            4 bytes : magic "JMAT"
+            int     : format version, currently 1
+            int     : rows
+            int     : cols
+            int     : CvType of Mat
+        followed by the Mat data, row by row, channels interleaved,
+        exactly as OpenCV holds a continuous Mat; multi-byte elements are little-endian.
+
+    julip mat file format, text (written by writeMatText, still read by readMat):
         .mat file extension.        
         first line gives Mat dimension of image associated with the contours
             <col>\t<row>
@@ -28,13 +45,75 @@ public class MatHandler {
                 each line is <ch0>\t<ch1>... for all channels
 */
 
+    private static final byte[] MAGIC   = {'J', 'M', 'A', 'T'};
+    private static final int    VERSION = 1;
+    private static final int    HEADER_BYTES = 20;
 
     /**
-     * writeMat - customized Mat output to file without using Imgcodecs methods
+     * writeMat - write Mat to julip binary .mat file, without using Imgcodecs methods
+     *            The whole Mat data is pulled out in one bulk get.
      * @param mat      - Mat to write to file
-     * @param filename - name of text file to write to
+     * @param filename - name of binary file to write to
      */
     public static void writeMat(Mat mat, String filename) {
+        // Bulk get needs continuous data; a submat is copied first
+        if (!mat.isContinuous()) {
+            mat = mat.clone();
+        }
+        int depth = CvType.depth(mat.type());
+        int count = (int) (mat.total() * mat.channels());
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + count * CvType.ELEM_SIZE(CvType.makeType(depth, 1)));
+
+        buffer.put(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(mat.rows());
+        buffer.putInt(mat.cols());
+        buffer.putInt(mat.type());
+
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if ((depth == CvType.CV_8U) || (depth == CvType.CV_8S)) {
+            byte[] data = new byte[count];
+            mat.get(0, 0, data);
+            buffer.put(data);
+        }
+        else if ((depth == CvType.CV_16U) || (depth == CvType.CV_16S)) {
+            short[] data = new short[count];
+            mat.get(0, 0, data);
+            buffer.asShortBuffer().put(data);
+        }
+        else if (depth == CvType.CV_32S) {
+            int[] data = new int[count];
+            mat.get(0, 0, data);
+            buffer.asIntBuffer().put(data);
+        }
+        else if (depth == CvType.CV_32F) {
+            float[] data = new float[count];
+            mat.get(0, 0, data);
+            buffer.asFloatBuffer().put(data);
+        }
+        else if (depth == CvType.CV_64F) {
+            double[] data = new double[count];
+            mat.get(0, 0, data);
+            buffer.asDoubleBuffer().put(data);
+        }
+        buffer.rewind();
+
+        try (FileChannel channel = FileChannel.open(Paths.get(filename),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            System.out.println(e);
+        }
+    }
+
+    /**
+     * writeMatText - write Mat to the original julip text .mat file; one pixel per line.
+     * @param mat      - Mat to write to file
+     * @param filename - name of text file to write to
+     */
+    public static void writeMatText(Mat mat, String filename) {
 
         BufferedWriter writer;
         try {
@@ -62,11 +141,87 @@ public class MatHandler {
 
     /**
      * readMat - import a julip-formatted mat file into a Link Gui.
-     * @param filename - name of text file of Mat data
+     *           Binary and text formats are told apart by the magic header.
+     * @param filename - name of binary or text file of Mat data
      * @return Mat     - Mat constructed from importing file contents
      */
     public static Mat readMat(String filename) {
 
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            if (channel.size() >= HEADER_BYTES) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                byte[] magic = new byte[MAGIC.length];
+                buffer.get(magic);
+                if (Arrays.equals(magic, MAGIC)) {
+                    return readMatBinary(buffer, filename);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println(e);
+            return null;
+        }
+        return readMatText(filename);
+    }
+
+    /**
+     * readMatBinary - build Mat from a memory mapped julip binary .mat file with one bulk put.
+     * @param buffer   - mapped file, positioned just past the magic
+     * @param filename - name of file, for error messages
+     * @return Mat     - Mat constructed from file contents; null if the file is not valid
+     */
+    private static Mat readMatBinary(ByteBuffer buffer, String filename) {
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            System.out.println("readMat: unknown julip .mat version "+version+" in "+filename);
+            return null;
+        }
+        int rows = buffer.getInt();
+        int cols = buffer.getInt();
+        int type = buffer.getInt();
+        int depth = CvType.depth(type);
+        int count = rows * cols * CvType.channels(type);
+        if (buffer.remaining() < count * CvType.ELEM_SIZE(CvType.makeType(depth, 1))) {
+            System.out.println("readMat: julip .mat file is truncated: "+filename);
+            return null;
+        }
+
+        Mat mat = new Mat(rows, cols, type);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if ((depth == CvType.CV_8U) || (depth == CvType.CV_8S)) {
+            byte[] data = new byte[count];
+            buffer.get(data);
+            mat.put(0, 0, data);
+        }
+        else if ((depth == CvType.CV_16U) || (depth == CvType.CV_16S)) {
+            short[] data = new short[count];
+            buffer.asShortBuffer().get(data);
+            mat.put(0, 0, data);
+        }
+        else if (depth == CvType.CV_32S) {
+            int[] data = new int[count];
+            buffer.asIntBuffer().get(data);
+            mat.put(0, 0, data);
+        }
+        else if (depth == CvType.CV_32F) {
+            float[] data = new float[count];
+            buffer.asFloatBuffer().get(data);
+            mat.put(0, 0, data);
+        }
+        else if (depth == CvType.CV_64F) {
+            double[] data = new double[count];
+            buffer.asDoubleBuffer().get(data);
+            mat.put(0, 0, data);
+        }
+        return mat;
+    }
+
+    /**
+     * readMatText - import the original julip text .mat file.
+     * @param filename - name of text file of Mat data
+     * @return Mat     - Mat constructed from importing file contents
+     */
+    private static Mat readMatText(String filename) {
+
         Mat mat;
         String[] chunks;
         
@@ -0,0 +1,207 @@
+package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
+
+import java.util.*;
+import java.util.List;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+
+/**
+ * MatPool - pool of native Mat buffers, keyed by rows, cols and type.
+ *
+ *   OpenCV only reallocates a destination Mat when its size or type is wrong, so a Mat
+ *   borrowed from the pool with the right size and type is written over in place.
+ *   Once a refresh has run, the same buffers go around again and again, and dragging a
+ *   slider allocates no more native memory.
+ *
+ *   A borrowed Mat must be handed back with release() as soon as it is no longer used,
+ *   and never be used after that. Its contents are not cleared. Mats that are passed
+ *   on to the next Link Gui must not be borrowed, since there is no telling when the
+ *   last reader is done with them. Stage outputs are only borrowed where whoever runs
+ *   the stage knows when that is; see LinkStage.outputPool.
+ *
+ *   Borrowed Mats that are garbage collected without being released are counted as leaks.
+ *   The pool is shared by all threads.
+ */
+public class MatPool {
+
+    public static final int DEFAULT_MB = 64;      // pool size of the shared pool
+    public static final MatPool shared = new MatPool(DEFAULT_MB);
+
+    private final long maxBytes;                  // upper bound of bytes of idle Mats
+    private long       idleBytes = 0;             // bytes of idle Mats
+    private int        idleMats  = 0;             // number of idle Mats
+    private final Map<String, ArrayDeque<Mat>> idle = new HashMap<>();   // idle Mats by key
+    private final WeakHashMap<Mat, Boolean> lent = new WeakHashMap<>();  // borrowed Mats not yet released
+
+    private long allocated = 0;   // Mats allocated because none of the key were idle
+    private long reused    = 0;   // Mats taken from the idle Mats
+    private long borrowed  = 0;   // Mats borrowed
+    private long returned  = 0;   // borrowed Mats released
+
+    /**
+     * MatPool constructor
+     * @param megabytes - upper bound of the size of the idle Mats, in MB
+     */
+    public MatPool(int megabytes) {
+        maxBytes = Math.max(0, megabytes) * 1024L * 1024L;
+    }
+
+    /**
+     * borrow - take a Mat out of the pool, or allocate one if none is idle
+     * @param rows - number of rows
+     * @param cols - number of cols
+     * @param type - CvType
+     * @return Mat - Mat of given size and type; contents are undefined
+     */
+    public synchronized Mat borrow(int rows, int cols, int type) {
+        Mat mat = null;
+        ArrayDeque<Mat> mats = idle.get(key(rows, cols, type));
+        if ((mats != null) && !mats.isEmpty()) {
+            mat = mats.pop();
+            idleMats -= 1;
+            idleBytes -= sizeOf(mat);
+            reused += 1;
+        } else {
+            mat = new Mat(rows, cols, type);
+            allocated += 1;
+        }
+        borrowed += 1;
+        lent.put(mat, Boolean.TRUE);
+        return mat;
+    }
+    // alternate method signature
+    public Mat borrow(Size size, int type) {
+        return borrow((int) size.height, (int) size.width, type);
+    }
+
+    /**
+     * release - hand a borrowed Mat back to the pool.
+     *           Mats that were not borrowed, submats and Mats that do not fit in the pool
+     *           are released to OpenCV at once.
+     * @param mat - Mat to hand back; may be null
+     */
+    public synchronized void release(Mat mat) {
+        if (mat == null) {
+            return;
+        }
+        if (lent.remove(mat) == null) {
+            mat.release();
+            return;
+        }
+        returned += 1;
+        if (mat.empty() || mat.isSubmatrix() || !mat.isContinuous() ||
+            (idleBytes + sizeOf(mat) > maxBytes)) {
+            mat.release();
+            return;
+        }
+        // OpenCV may have reallocated the Mat; file it under its size and type of now
+        String key = key(mat.rows(), mat.cols(), mat.type());
+        ArrayDeque<Mat> mats = idle.get(key);
+        if (mats == null) {
+            mats = new ArrayDeque<>();
+            idle.put(key, mats);
+        }
+        mats.push(mat);
+        idleMats += 1;
+        idleBytes += sizeOf(mat);
+    }
+
+    /**
+     * isBorrowed - whether a Mat is borrowed from the pool and not yet released
+     * @param mat - Mat; may be null
+     * @return boolean
+     */
+    public synchronized boolean isBorrowed(Mat mat) {
+        return (mat != null) && lent.containsKey(mat);
+    }
+
+    /**
+     * clear - release all idle Mats to OpenCV
+     */
+    public synchronized void clear() {
+        for (ArrayDeque<Mat> mats : idle.values()) {
+            for (Mat mat : mats) {
+                mat.release();
+            }
+        }
+        idle.clear();
+        idleMats  = 0;
+        idleBytes = 0;
+    }
+
+    //--------------------------------------------------------------------------------------
+    // start of counter methods
+    //
+    /**
+     * getOutstanding - borrowed Mats not yet released and still referenced
+     * @return int
+     */
+    public synchronized int getOutstanding() {
+        return lent.size();
+    }
+
+    /**
+     * getLeaked - borrowed Mats garbage collected without being released
+     * @return long
+     */
+    public synchronized long getLeaked() {
+        return borrowed - returned - lent.size();
+    }
+
+    /**
+     * getAllocated - Mats allocated because none of the key were idle
+     * @return long
+     */
+    public synchronized long getAllocated() {
+        return allocated;
+    }
+
+    /**
+     * getReused - Mats taken from the idle Mats
+     * @return long
+     */
+    public synchronized long getReused() {
+        return reused;
+    }
+
+    /**
+     * getIdle - Mats in the pool waiting to be borrowed
+     * @return int
+     */
+    public synchronized int getIdle() {
+        return idleMats;
+    }
+
+    /**
+     * toString - occupancy and counters, for the ChainGui window
+     * @return String
+     */
+    @Override
+    public synchronized String toString() {
+        return "Mat pool: " + idleMats + " idle (" + String.format("%.1f", idleBytes / (1024.0 * 1024.0)) +
+               " of " + (maxBytes / (1024 * 1024)) + " MB), " + lent.size() + " out, " +
+               allocated + " allocated, " + reused + " reused, " + getLeaked() + " leaked";
+    }
+    //
+    // end of counter methods
+    //-----------------------------------------------------------------------
+
+    /**
+     * key - pool key of a Mat size and type
+     * @return String
+     */
+    private static String key(int rows, int cols, int type) {
+        return rows + "x" + cols + ":" + type;
+    }
+
+    /**
+     * sizeOf - bytes of data of a Mat
+     * @param mat - Mat
+     * @return long - bytes
+     */
+    private static long sizeOf(Mat mat) {
+        return mat.total() * mat.elemSize();
+    }
+}
@@ -8,6 +8,12 @@ import java.io.IOException;
 import java.lang.reflect.*;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.awt.*;
 import java.awt.event.*;
 import javax.swing.*;
@@ -34,6 +40,7 @@ public class MeshGui {
     private List<ChainGui> chainGuis;
     private List<Integer>  chainNode;
     private boolean buildBeforeUpdate = true;
+    private boolean isUpdating = false;     // true while the chains are updated on worker threads
     
     private JTable imgTable;
     private JTable nodeTable;
@@ -59,6 +66,7 @@ public class MeshGui {
     private JButton killB;
     private JButton verifyB;
     private JButton exportCodeB;
+    private MetricsGui metricsGui;  // window with latency counters of the Link Guis of all chains
     
     private JFrame frame;
     private JPanel myPanel;
@@ -67,7 +75,7 @@ public class MeshGui {
     private int frameHeightMinusImage = 0;
     
     private Mat matImgSrc;
-    private Image img;
+    private final PreviewRenderer preview = new PreviewRenderer();  // BufferedImage of imgLabel, reused for every image
     
     private boolean suppressListeners = false;
     
@@ -443,6 +451,7 @@ public class MeshGui {
         //   JButton - to save chainlink file
         //   JTextField - chainlink filename holder
         //   JButton - export code
+        //   JButton - show latency counters of all Link Guis
         JPanel chainControlPanel = new JPanel();
         JButton updateB = new JButton("Update Gui's");
         JButton saveSettingsB = new JButton("Save Settings>");
@@ -484,7 +493,15 @@ public class MeshGui {
         chainControlPanel.add(updateB);
         chainControlPanel.add(saveSettingsB);
         chainControlPanel.add(fileMeshTF);
+        JButton metricsB = new JButton("Metrics");
+        metricsB.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showMetrics();
+            }
+        });
         chainControlPanel.add(exportCodeB);
+        chainControlPanel.add(metricsB);
         myPanel.add(chainControlPanel);
         
         
@@ -1225,8 +1242,12 @@ public class MeshGui {
         if ((matImgSrc.rows() == 0) || (matImgSrc.cols() == 0)) {
             matImgSrc = Mat.zeros(new Size(NOWIDTH,NOHEIGHT), CvType.CV_8UC3);
         }
-        img = HighGui.toBufferedImage(matImgSrc);
-        imgLabel.setIcon(new ImageIcon(img));
+        preview.render(matImgSrc);
+        if (imgLabel.getIcon() == preview.getIcon()) {
+            imgLabel.repaint();
+        } else {
+            imgLabel.setIcon(preview.getIcon());
+        }
     }
     
 
@@ -1482,6 +1503,7 @@ public class MeshGui {
             // kill off frames if there are any
             if (chainGuis != null) {
                 for (int x = chainGuis.size()-1; x >= 0; x--) {
+                    chainGuis.get(x).disposeGuis();
                     chainGuis.get(x).frame.dispose();
                     chainGuis.remove(x);
                     chainNode.remove(x);
@@ -1567,6 +1589,8 @@ public class MeshGui {
                     //keep for debugging
                     //System.out.println("gui class:" +gui.getClass().getSimpleName());
                     
+                    // chain output crosses over to other chains of the mesh, so it has to be a file
+                    gui.saveChainOutput = true;
                     gui.updateGuis();
                     // Add gui to list of chain guis and cross-reference
                     // The index of the chainGui to the index of the mesh node.
@@ -1614,13 +1638,124 @@ public class MeshGui {
                             gui.imgTable.addRowSelectionInterval(idx, idx);
                         }                        
                     }
-                    gui.updateGuis();
                 }
+                status = updateChains();
             }            
         }
         return status;
     }
 
+    /**
+     * updateChains - update the chainGuis, each as soon as the chains upstream of it are done.
+     *   The chains form a DAG by the streams of their nodes: chains fed by input 0 start at once,
+     *   in parallel, and a chain fed by other chains, as by a JOIN node, waits on all of them.
+     *   The chains run on worker threads, so this returns at once; the time taken is printed
+     *   when the last chain is done.
+     * @return boolean - true if the update was started, else false
+     */
+    private boolean updateChains() {
+        if (isUpdating) {
+            System.out.println("Chains of mesh "+meshRefStr+" are still updating.");
+            return false;
+        }
+        isUpdating = true;
+        final long startTime = System.nanoTime();
+        final ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, chainGuis.size()), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "MeshGui chain");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        Map<Integer, CompletableFuture<Boolean>> futures = new HashMap<>();
+        for (int c = 0; c < chainGuis.size(); c++) {
+            chainFuture(c, futures, pool);
+        }
+        CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0]))
+            .whenComplete(new BiConsumer<Void, Throwable>() {
+                @Override
+                public void accept(Void result, Throwable error) {
+                    pool.shutdown();
+                    double ms = (System.nanoTime() - startTime) / 1.0e6;
+                    // Back to the Swing event thread to report
+                    SwingUtilities.invokeLater(new Runnable() {
+                        @Override
+                        public void run() {
+                            isUpdating = false;
+                            for (Map.Entry<Integer, CompletableFuture<Boolean>> entry : futures.entrySet()) {
+                                if (entry.getValue().isCompletedExceptionally() || !entry.getValue().getNow(false)) {
+                                    System.out.println("Chain "+entry.getKey()+" of mesh "+meshRefStr+" did not update.");
+                                }
+                            }
+                            if (error != null) {
+                                System.out.println("Mesh "+meshRefStr+" update failed: "+error.getCause());
+                            }
+                            System.out.println("Mesh "+meshRefStr+": "+chainGuis.size()+" chains updated in "+
+                                               String.format("%.1f", ms)+" ms");
+                        }
+                    });
+                }
+            });
+        return true;
+    }
+
+    /**
+     * chainFuture - update of a chainGui, started when the updates of the chains upstream of it are done
+     * @param c       - index into chainGuis
+     * @param futures - updates started so far, by index into chainGuis
+     * @param pool    - worker threads
+     * @return CompletableFuture - completes with the status of ChainGui.updateGuis()
+     */
+    private CompletableFuture<Boolean> chainFuture(int c, Map<Integer, CompletableFuture<Boolean>> futures,
+                                                   ExecutorService pool) {
+        if (futures.containsKey(c)) {
+            return futures.get(c);
+        }
+        // guard against a loop in the mesh while upstream chains are looked up
+        futures.put(c, CompletableFuture.completedFuture(false));
+        List<CompletableFuture<Boolean>> upstream = new ArrayList<>();
+        Node node = myMesh.nodes.get(chainNode.get(c));
+        if (node.streams != null) {
+            for (Integer key : node.streams.keySet()) {
+                int index = myMesh.nodes.get(key).chainIndex;
+                if ((index > -1) && (index != c)) {
+                    upstream.add(chainFuture(index, futures, pool));
+                }
+            }
+        }
+        final ChainGui gui = chainGuis.get(c);
+        CompletableFuture<Boolean> future = CompletableFuture.allOf(upstream.toArray(new CompletableFuture<?>[0]))
+            .thenApplyAsync(new Function<Void, Boolean>() {
+                @Override
+                public Boolean apply(Void inputs) {
+                    return gui.updateGuis();
+                }
+            }, pool);
+        futures.put(c, future);
+        return future;
+    }
+
+    /**
+     * showMetrics - show the latency counters of the Link Guis of all chains in their own window
+     */
+    public void showMetrics() {
+        if (metricsGui != null) {
+            metricsGui.dispose();
+        }
+        metricsGui = new MetricsGui("Metrics: " + meshRefStr, "metrics_" + meshRefStr) {
+            @Override
+            public Map<String, LinkMetrics> getMetrics() {
+                Map<String, LinkMetrics> metrics = new LinkedHashMap<>();
+                for (ChainGui gui : chainGuis) {
+                    metrics.putAll(gui.getMetrics());
+                }
+                return metrics;
+            }
+        };
+        metricsGui.show(frame.getX() + frame.getWidth(), frame.getY());
+    }
+
     /**
      * saveSettings - write chain gui settings to file
      */
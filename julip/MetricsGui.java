@@ -0,0 +1,170 @@
+package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
+
+import java.util.*;
+import java.util.List;
+import java.awt.*;
+import java.awt.event.*;
+import javax.swing.*;
+import javax.swing.table.*;
+
+/**
+ * MetricsGui - window with the latency counters of the Link Guis of a ChainGui or MeshGui.
+ *
+ *   One row per link and phase, with its call count, p50/p95/p99 latency and the bytes
+ *   read and written by the link. The table refreshes itself every second while the
+ *   window is open. The counters can be reset, and exported to CSV or JSON files
+ *   for comparing runs offline.
+ *
+ *   Override getMetrics() to hand over the counters to show.
+ */
+public class MetricsGui {
+
+    public static final int REFRESH_MS = 1000;      // time between refreshes of the table
+
+    private JFrame            frame;
+    private DefaultTableModel metricsTM;
+    private JTextField        fileTF;               // base name of export files
+    private javax.swing.Timer timer;                // refreshes the table while the window is open
+
+    /**
+     * MetricsGui constructor
+     * @param title    - window title
+     * @param filename - base name of export files, without extension
+     */
+    public MetricsGui(String title, String filename) {
+        metricsTM = new DefaultTableModel() {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        metricsTM.addColumn("Link");
+        metricsTM.addColumn("Phase");
+        metricsTM.addColumn("Count");
+        metricsTM.addColumn("p50 ms");
+        metricsTM.addColumn("p95 ms");
+        metricsTM.addColumn("p99 ms");
+        metricsTM.addColumn("Read KB");
+        metricsTM.addColumn("Written KB");
+        JTable metricsTable = new JTable(metricsTM);
+        metricsTable.getColumnModel().getColumn(0).setPreferredWidth(200);
+        JScrollPane metricsSP = new JScrollPane(metricsTable);
+        metricsSP.setPreferredSize(new Dimension(720, 300));
+
+        //------------------------------------- metricsControlPanel -------------------------
+        //
+        // JPanel with Flow Layout
+        //   JButton    - reset counters
+        //   JButton    - export CSV file
+        //   JButton    - export JSON file
+        //   JTextField - base name of export files
+        JPanel metricsControlPanel = new JPanel();
+        JButton resetB = new JButton("Reset");
+        resetB.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                for (LinkMetrics metrics : getMetrics().values()) {
+                    metrics.reset();
+                }
+                refresh();
+            }
+        });
+        JButton csvB = new JButton("Export CSV >");
+        csvB.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (LinkMetrics.writeCsv(fileTF.getText() + ".csv", getMetrics())) {
+                    csvB.setBackground(null);
+                } else {
+                    csvB.setBackground(Color.RED);
+                }
+            }
+        });
+        JButton jsonB = new JButton("Export JSON >");
+        jsonB.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (LinkMetrics.writeJson(fileTF.getText() + ".json", getMetrics())) {
+                    jsonB.setBackground(null);
+                } else {
+                    jsonB.setBackground(Color.RED);
+                }
+            }
+        });
+        fileTF = new JTextField(filename);
+        fileTF.setPreferredSize(new Dimension(160, 25));
+        metricsControlPanel.add(resetB);
+        metricsControlPanel.add(csvB);
+        metricsControlPanel.add(jsonB);
+        metricsControlPanel.add(fileTF);
+
+        frame = new JFrame(title);
+        frame.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        frame.add(metricsSP, BorderLayout.CENTER);
+        frame.add(metricsControlPanel, BorderLayout.PAGE_END);
+        frame.pack();
+
+        timer = new javax.swing.Timer(REFRESH_MS, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                refresh();
+            }
+        });
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                timer.stop();
+            }
+        });
+    }
+
+    /**
+     * getMetrics - To be overridden; counters to show.
+     * @return Map - LinkMetrics by name of link, in chain order
+     */
+    public Map<String, LinkMetrics> getMetrics() {
+        return new LinkedHashMap<>();
+    }
+
+    /**
+     * show - show the window and start refreshing the table
+     * @param x - x location of window
+     * @param y - y location of window
+     */
+    public void show(int x, int y) {
+        refresh();
+        frame.setLocation(x, y);
+        frame.setVisible(true);
+        timer.start();
+    }
+
+    /**
+     * dispose - close the window
+     */
+    public void dispose() {
+        timer.stop();
+        frame.dispose();
+    }
+
+    /**
+     * refresh - refill the table from getMetrics()
+     */
+    private void refresh() {
+        metricsTM.setRowCount(0);
+        for (Map.Entry<String, LinkMetrics> entry : getMetrics().entrySet()) {
+            LinkMetrics m = entry.getValue();
+            for (int phase = 0; phase < LinkMetrics.PHASE_STR.length; phase++) {
+                metricsTM.addRow(new Object[]{
+                    (phase == 0) ? entry.getKey() : "",
+                    LinkMetrics.PHASE_STR[phase],
+                    m.getCount(phase),
+                    String.format("%.2f", m.getPercentileMs(phase, 50)),
+                    String.format("%.2f", m.getPercentileMs(phase, 95)),
+                    String.format("%.2f", m.getPercentileMs(phase, 99)),
+                    (phase == 0) ? String.format("%.1f", m.getBytesRead() / 1024.0) : "",
+                    (phase == 0) ? String.format("%.1f", m.getBytesWritten() / 1024.0) : ""
+                });
+            }
+        }
+    }
+}
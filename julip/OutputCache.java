@@ -0,0 +1,245 @@
+package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.List;
+
+import org.opencv.core.Mat;
+
+/**
+ * OutputCache - bounded LRU cache of Link Gui outputs for a ChainGui.
+ *
+ *   Each output is keyed by a hash of the key of the output it was calculated from
+ *   (the image file for the first Link Gui, else the key of the Link Gui before it)
+ *   together with the settings of the Link Gui. Equal keys mean equal outputs, so the
+ *   key of the whole prefix of a chain is carried along from one Link Gui to the next
+ *   without ever hashing image data.
+ *
+ *   The cache holds copies of image Mats and is bounded by their size in bytes;
+ *   the least recently used outputs are dropped first.
+ */
+public class OutputCache {
+
+    public static final int DEFAULT_MB = 256;   // cache size when none is given
+
+    private final long maxBytes;                // upper bound of bytes held
+    private long       bytes = 0;               // bytes held
+    private final LinkedHashMap<String, LinkData> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long hits   = 0;    // outputs skipped or taken from the cache
+    private long misses = 0;    // outputs calculated
+
+    /**
+     * OutputCache constructor
+     * @param megabytes - upper bound of the size of the cache, in MB
+     */
+    public OutputCache(int megabytes) {
+        maxBytes = Math.max(0, megabytes) * 1024L * 1024L;
+    }
+
+    /**
+     * get - retrieve a copy of a cached output; counted as a hit or a miss
+     * @param key - key of output
+     * @return LinkData - copy of output, or null if not cached
+     */
+    public synchronized LinkData get(String key) {
+        LinkData data = entries.get(key);
+        if (data == null) {
+            misses += 1;
+            return null;
+        }
+        hits += 1;
+        return copy(data);
+    }
+
+    /**
+     * restore - hand a copy of a cached output to a Link Gui; counted as a hit if the
+     *           Link Gui takes it over, else as a miss, the output being calculated instead
+     * @param key  - key of output
+     * @param link - Link Gui, held by the caller
+     * @return boolean - true if the Link Gui took the output over
+     */
+    public synchronized boolean restore(String key, LinkClass link) {
+        LinkData data = entries.get(key);
+        if ((data != null) && link.restoreOutput(copy(data))) {
+            hits += 1;
+            return true;
+        }
+        misses += 1;
+        return false;
+    }
+
+    /**
+     * skip - count a hit for an output found to be up to date, without asking the cache
+     */
+    public synchronized void skip() {
+        hits += 1;
+    }
+
+    /**
+     * put - cache a copy of an output; outputs larger than the cache are not kept
+     * @param key  - key of output
+     * @param data - output of Link Gui
+     */
+    public synchronized void put(String key, LinkData data) {
+        if ((key == null) || (data == null) || (sizeOf(data) > maxBytes)) {
+            return;
+        }
+        LinkData old = entries.put(key, copy(data));
+        if (old != null) {
+            bytes -= sizeOf(old);
+        }
+        bytes += sizeOf(data);
+
+        // drop least recently used outputs until the cache fits
+        Iterator<Map.Entry<String, LinkData>> it = entries.entrySet().iterator();
+        while ((bytes > maxBytes) && it.hasNext()) {
+            bytes -= sizeOf(it.next().getValue());
+            it.remove();
+        }
+    }
+
+    /**
+     * clear - drop all cached outputs
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * getMegabytes - size of cached outputs
+     * @return double - MB held by the cache
+     */
+    public synchronized double getMegabytes() {
+        return bytes / (1024.0 * 1024.0);
+    }
+
+    /**
+     * toString - hit/miss counters and size, for the ChainGui window
+     * @return String
+     */
+    @Override
+    public synchronized String toString() {
+        return "Cache: " + hits + " hits, " + misses + " misses, " +
+               String.format("%.1f", getMegabytes()) + " of " + (maxBytes / (1024 * 1024)) + " MB";
+    }
+
+    //--------------------------------------------------------------------------------------
+    // start of key methods
+    //
+    /**
+     * inputKey - key of an image file; changes when the file is rewritten, or when
+     *            other data is handed over in memory under its name by the LinkChannel
+     * @param filename - name of image file
+     * @return String - key
+     */
+    public static String inputKey(String filename) {
+        File file = new File(filename);
+        return hash(filename + "\t" + file.lastModified() + "\t" + file.length() +
+                    "\t" + LinkChannel.getVersion(filename));
+    }
+
+    /**
+     * chainKey - key of the output of a Link Gui
+     * @param upstreamKey - key of the input of the Link Gui
+     * @param settingsKey - settings of the Link Gui, see settingsKey()
+     * @return String - key; null if either is not known
+     */
+    public static String chainKey(String upstreamKey, String settingsKey) {
+        if ((upstreamKey == null) || (settingsKey == null)) {
+            return null;
+        }
+        return hash(upstreamKey + "\n" + settingsKey);
+    }
+
+    /**
+     * settingsKey - current settings of a Link Gui, from its getSettings()
+     * @param link - Link Gui
+     * @return String - settings, one per line, in getSettings() order;
+     *                  null for a Link Gui that does not report its settings, whose output
+     *                  is then never cached
+     */
+    public static String settingsKey(LinkClass link) {
+        try {
+            if (link.getClass().getMethod("getSettings").getDeclaringClass() == LinkClass.class) {
+                return null;
+            }
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(link.getClass().getName());
+        for (Map.Entry<String, String> setting : link.getSettings().entrySet()) {
+            sb.append("\n").append(setting.getKey()).append("=").append(setting.getValue());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * hash - SHA-256 of a String, in hex
+     * @param text - String to hash
+     * @return String - hex digest
+     */
+    private static String hash(String text) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] digest = md.digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform has SHA-256; fall back to the text itself
+            return text;
+        }
+    }
+    //
+    // end of key methods
+    //-----------------------------------------------------------------------
+
+    /**
+     * copy - copy of LinkData, with its own image Mat
+     * @param data - LinkData to copy
+     * @return LinkData
+     */
+    private static LinkData copy(LinkData data) {
+        if (data.mat != null) {
+            LinkData copy = LinkData.fromMat(data.type, data.mat.clone());
+            copy.roi  = data.roi;
+            copy.size = data.size;
+            return copy;
+        }
+        else if (data.contours != null) {
+            return LinkData.fromContours(data.size, data.contours, data.features);
+        }
+        else if (data.points != null) {
+            return LinkData.fromPoints(data.size, data.points);
+        }
+        return LinkData.fromResult(data.result);
+    }
+
+    /**
+     * sizeOf - approximate size of LinkData in bytes
+     * @param data - LinkData
+     * @return long - bytes
+     */
+    private static long sizeOf(LinkData data) {
+        long size = 64;
+        if (data.mat != null) {
+            size += data.mat.total() * data.mat.elemSize();
+        }
+        if (data.contours != null) {
+            for (Mat contour : data.contours) {
+                size += 64 + contour.total() * contour.elemSize();
+            }
+        }
+        if (data.points != null) {
+            size += 32L * data.points.size();
+        }
+        return size;
+    }
+}
@@ -75,6 +75,12 @@ public class PointHandler {
         String line;
         String[] chunks;
         
+        // Points handed over in memory by a previous Link Gui take precedence over the file
+        List<Point> channelPoints = LinkChannel.readPoints(filename);
+        if (channelPoints != null) {
+            return channelPoints;
+        }
+        
         BufferedReader reader;
         try {
             reader = new BufferedReader(new FileReader(filename));
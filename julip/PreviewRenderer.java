@@ -0,0 +1,119 @@
+package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
+
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import javax.swing.Icon;
+import javax.swing.ImageIcon;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.highgui.HighGui;
+
+/**
+ * PreviewRenderer - shows the Mats of one window through a single BufferedImage.
+ *
+ *   HighGui.toBufferedImage() makes a new BufferedImage for every Mat shown, copying the
+ *   whole image once into a temporary array and again into the image, and a new ImageIcon
+ *   is made around it. render() instead copies the Mat with a single bulk Mat.get() into
+ *   the array backing the DataBufferByte of the window's BufferedImage. A new BufferedImage,
+ *   and Icon, is only made when the size or type of the Mat shown changes; until then the
+ *   same Icon is handed out, and a JLabel showing it only needs a repaint().
+ *
+ *   A Mat may also be shown stretched to a larger size, as for the shrunken proxy images
+ *   computed while a slider is dragged; Java2D then scales the image as it is painted.
+ *
+ *   Mats that are not 8-bit with 1 or 3 channels are shown through HighGui.toBufferedImage().
+ *   render() may be called off the Swing event thread.
+ */
+public class PreviewRenderer {
+
+    private BufferedImage image;    // image of the window; null until the first Mat is rendered
+    private byte[]        data;     // array backing the DataBufferByte of image
+    private Icon          icon;     // Icon showing image
+    private int           width;    // width of icon
+    private int           height;   // height of icon
+
+    /**
+     * render - copy a Mat into the image of the window
+     * @param mat - Mat to show
+     * @return boolean - true if a new Icon was made; false if getIcon() is the same as before
+     */
+    public boolean render(Mat mat) {
+        if ((mat == null) || mat.empty()) {
+            return false;
+        }
+        return render(mat, mat.cols(), mat.rows());
+    }
+
+    /**
+     * render - copy a Mat into the image of the window, shown stretched to a given size
+     * @param mat - Mat to show
+     * @param width  - width at which the Mat is shown
+     * @param height - height at which the Mat is shown
+     * @return boolean - true if a new Icon was made; false if getIcon() is the same as before
+     */
+    public synchronized boolean render(Mat mat, int width, int height) {
+        if ((mat == null) || mat.empty()) {
+            return false;
+        }
+        int channels = mat.channels();
+        if ((mat.depth() != CvType.CV_8U) || ((channels != 1) && (channels != 3))) {
+            Image other = HighGui.toBufferedImage(mat);
+            image = null;
+            data  = null;
+            icon  = newIcon(other, width, height);
+            return true;
+        }
+        int type = (channels == 1) ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_3BYTE_BGR;
+        boolean changed = (image == null) || (image.getWidth() != mat.cols()) ||
+                          (image.getHeight() != mat.rows()) || (image.getType() != type) ||
+                          (this.width != width) || (this.height != height);
+        if (changed) {
+            if ((image == null) || (image.getWidth() != mat.cols()) ||
+                (image.getHeight() != mat.rows()) || (image.getType() != type)) {
+                image = new BufferedImage(mat.cols(), mat.rows(), type);
+                data  = ((DataBufferByte)image.getRaster().getDataBuffer()).getData();
+            }
+            icon  = newIcon(image, width, height);
+        }
+        // The layout of both TYPE_BYTE_GRAY and TYPE_3BYTE_BGR is that of an 8-bit Mat
+        mat.get(0, 0, data);
+        return changed;
+    }
+
+    /**
+     * newIcon - make an Icon showing an image at a given size
+     */
+    private Icon newIcon(Image img, int width, int height) {
+        this.width  = width;
+        this.height = height;
+        if ((img.getWidth(null) == width) && (img.getHeight(null) == height)) {
+            return new ImageIcon(img);
+        }
+        return new Icon() {
+            @Override
+            public void paintIcon(Component c, Graphics g, int x, int y) {
+                g.drawImage(img, x, y, width, height, c);
+            }
+            @Override
+            public int getIconWidth() {
+                return width;
+            }
+            @Override
+            public int getIconHeight() {
+                return height;
+            }
+        };
+    }
+
+    /**
+     * getIcon - Icon showing the last Mat rendered
+     * @return Icon - null if nothing has been rendered
+     */
+    public synchronized Icon getIcon() {
+        return icon;
+    }
+}
@@ -0,0 +1,181 @@
+package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
+
+import java.awt.event.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.swing.Timer;
+
+/**
+ * RefreshScheduler - debounced refresh of one Link Gui.
+ *
+ *   A JulipTrackBar fires an event for every intermediate value while its slider is dragged.
+ *   Rather than recalculating the Link Gui for each of them, the events are coalesced:
+ *   a request restarts a short Swing Timer, and only when the burst of requests settles is
+ *   refreshSettings() called on the Swing event thread, and refreshImage() handed to a
+ *   single background worker for the Link Gui.
+ *
+ *   So that a long, unbroken drag still shows its progress, a burst is not held back for
+ *   more than MAX_WAIT_MS: a request made that long after the first unserved one of the
+ *   burst refreshes at once.
+ *
+ *   A refresh still queued when a newer one is requested is cancelled, so the worker only
+ *   ever calculates the latest settings. A refresh already running is left to finish;
+ *   OpenCV calls can not be interrupted part way.
+ *
+ *   A request made while a slider is still being dragged may ask for a proxy refresh; the
+ *   Link Gui then calculates and shows a shrunken preview only, and neither hands its output
+ *   on nor tells its changeListener. Releasing the slider makes a full refresh request.
+ *
+ *   Link Gui's whose refreshImage() updates Java Containers other than through
+ *   LinkClass.showImage(), showIcon() and showText() report false from isRefreshOffEdt();
+ *   they are debounced the same way but refreshed on the Swing event thread.
+ */
+public class RefreshScheduler {
+
+    public static final int DEBOUNCE_MS = 40;   // quiet time that ends a burst of requests
+    public static final int MAX_WAIT_MS = 150;  // longest a request waits during a burst
+
+    private final LinkClass       link;         // Link Gui to refresh
+    private final Timer           timer;        // Swing Timer restarted by every request
+    private final AtomicLong      latest = new AtomicLong();  // number of the latest refresh
+    private ExecutorService       worker;       // background worker, started on first use
+    private Future<?>             pending;      // last refresh handed to the worker
+    private boolean               proxy;        // true if the waiting request is for a proxy refresh
+    private long                  burstStart;   // System.currentTimeMillis() of first unserved request
+
+    /**
+     * RefreshScheduler constructor
+     * @param link - Link Gui to refresh
+     */
+    public RefreshScheduler(LinkClass link) {
+        this.link = link;
+        timer = new Timer(DEBOUNCE_MS, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                refresh();
+            }
+        });
+        timer.setRepeats(false);
+    }
+
+    /**
+     * request - ask for a refresh of the Link Gui; called on the Swing event thread.
+     */
+    public void request() {
+        proxy = false;
+        schedule();
+    }
+
+    /**
+     * requestProxy - ask for a proxy refresh of the Link Gui, while a slider is dragged;
+     *                called on the Swing event thread.
+     */
+    public void requestProxy() {
+        proxy = true;
+        schedule();
+    }
+
+    /**
+     * schedule - restart the Timer, or refresh at once if the burst has waited MAX_WAIT_MS
+     */
+    private void schedule() {
+        long now = System.currentTimeMillis();
+        if (!timer.isRunning()) {
+            burstStart = now;
+        }
+        if (now - burstStart >= MAX_WAIT_MS) {
+            timer.stop();
+            refresh();
+        } else {
+            timer.restart();
+        }
+    }
+
+    /**
+     * refreshNow - refresh at once, dropping any request still waiting on the Timer;
+     *              called on the Swing event thread.
+     */
+    public void refreshNow() {
+        timer.stop();
+        proxy = false;
+        refresh();
+    }
+
+    /**
+     * refresh - run the latest request, once the burst of requests has settled.
+     *           The Link Gui is told by refreshDone() when its new image is ready,
+     *           unless it was a proxy refresh.
+     */
+    private void refresh() {
+        final boolean atProxy = proxy;
+        proxy = false;
+        // settings changed outside the ChainGui; the cached output key no longer holds
+        link.cacheKey = null;
+        link.refreshSettings();
+
+        if (!link.isRefreshOffEdt()) {
+            synchronized (link) {
+                link.refreshOutput(atProxy);
+            }
+            if (!atProxy) {
+                link.refreshDone();
+            }
+            return;
+        }
+
+        final long request = latest.incrementAndGet();
+        if (pending != null) {
+            // drop a superseded refresh that has not started yet
+            pending.cancel(false);
+        }
+        pending = getWorker().submit(new Runnable() {
+            @Override
+            public void run() {
+                if (request != latest.get()) {
+                    return;
+                }
+                synchronized (link) {
+                    link.refreshOutput(atProxy);
+                }
+                if (!atProxy) {
+                    link.refreshDone();
+                }
+            }
+        });
+    }
+
+    /**
+     * dispose - drop any waiting request and stop the background worker;
+     *           called on the Swing event thread when the Link Gui is torn down.
+     */
+    public void dispose() {
+        timer.stop();
+        latest.incrementAndGet();
+        if (worker != null) {
+            worker.shutdownNow();
+            worker = null;
+        }
+    }
+
+    /**
+     * getWorker - single background thread of this Link Gui
+     * @return ExecutorService
+     */
+    private ExecutorService getWorker() {
+        if (worker == null) {
+            final String name = link.getClass().getSimpleName() + " refresh";
+            worker = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, name);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return worker;
+    }
+}
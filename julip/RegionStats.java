@@ -0,0 +1,129 @@
+package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * RegionStats - mean and variance of any rectangle of an image, from its integral images.
+ *
+ *   compute() builds, with one pass of Imgproc.integral2, the sum and the squared sum of
+ *   every channel over all rectangles with a corner at the origin. The sum over any other
+ *   rectangle is then four lookups in them, however large the rectangle:
+ *
+ *       sum(x, y, w, h) = S(y+h, x+w) - S(y, x+w) - S(y+h, x) + S(y, x)
+ *
+ *   so the cost of a frame is that one pass, whatever the number of regions asked about.
+ *   Rectangles are clipped to the image; a rectangle wholly outside it has no pixels,
+ *   and a mean and variance of NaN.
+ *
+ *   The integral images are kept and reused by the next compute() of the same image size.
+ *   release() frees them.
+ */
+public class RegionStats {
+
+    private final Mat sum   = new Mat();    // integral image; one row and column larger than the image
+    private final Mat sqsum = new Mat();    // integral image of squared pixel values
+    private int cols;                       // width of the image
+    private int rows;                       // height of the image
+    private int channels;                   // channels of the image
+
+    /**
+     * compute - build the integral images of an image
+     * @param image - image, of any number of channels
+     */
+    public void compute(Mat image) {
+        Imgproc.integral2(
+            image,          // Mat - source
+            sum,            // Mat - integral image
+            sqsum,          // Mat - integral image of squared values
+            CvType.CV_64F,  // int - depth of integral image
+            CvType.CV_64F   // int - depth of integral image of squared values
+        );
+        cols     = image.cols();
+        rows     = image.rows();
+        channels = image.channels();
+    }
+
+    /**
+     * getChannels - channels of the image last computed
+     * @return int
+     */
+    public int getChannels() {
+        return channels;
+    }
+
+    /**
+     * clip - part of a rectangle within the image
+     * @param region - rectangle
+     * @return Rect - new rectangle; width and height 0 if none of it is within the image
+     */
+    public Rect clip(Rect region) {
+        int x1 = Math.max(0, Math.min(cols, region.x));
+        int y1 = Math.max(0, Math.min(rows, region.y));
+        int x2 = Math.max(x1, Math.min(cols, region.x + region.width));
+        int y2 = Math.max(y1, Math.min(rows, region.y + region.height));
+        return new Rect(x1, y1, x2 - x1, y2 - y1);
+    }
+
+    /**
+     * mean - mean of each channel over a rectangle
+     * @param region - rectangle; clipped to the image
+     * @return double[] - one mean per channel
+     */
+    public double[] mean(Rect region) {
+        Rect r = clip(region);
+        double[] total = regionSum(sum, r);
+        double   area  = r.area();
+        for (int c = 0; c < channels; c++) {
+            total[c] = total[c] / area;
+        }
+        return total;
+    }
+
+    /**
+     * variance - variance of each channel over a rectangle
+     * @param region - rectangle; clipped to the image
+     * @return double[] - one variance per channel
+     */
+    public double[] variance(Rect region) {
+        Rect r = clip(region);
+        double[] total   = regionSum(sum,   r);
+        double[] squared = regionSum(sqsum, r);
+        double   area    = r.area();
+        double[] variance = new double[channels];
+        for (int c = 0; c < channels; c++) {
+            double mean = total[c] / area;
+            // rounding may leave a uniform region a hair below zero
+            variance[c] = Math.max(0, squared[c] / area - mean * mean);
+        }
+        return variance;
+    }
+
+    /**
+     * regionSum - sum of each channel over a rectangle, from four corners of an integral image
+     * @param integral - sum or sqsum
+     * @param r        - rectangle within the image
+     * @return double[] - one sum per channel
+     */
+    private double[] regionSum(Mat integral, Rect r) {
+        double[] bottomRight = integral.get(r.y + r.height, r.x + r.width);
+        double[] topRight    = integral.get(r.y,            r.x + r.width);
+        double[] bottomLeft  = integral.get(r.y + r.height, r.x);
+        double[] topLeft     = integral.get(r.y,            r.x);
+        double[] total = new double[channels];
+        for (int c = 0; c < channels; c++) {
+            total[c] = bottomRight[c] - topRight[c] - bottomLeft[c] + topLeft[c];
+        }
+        return total;
+    }
+
+    /**
+     * release - free the integral images
+     */
+    public void release() {
+        sum.release();
+        sqsum.release();
+    }
+}
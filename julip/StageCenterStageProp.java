@@ -0,0 +1,107 @@
+package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
+
+import java.util.*;
+import java.util.List;
+
+import org.opencv.core.MatOfPoint;
+
+/**
+ * StageCenterStageProp - processing stage of LinkCenterStageProp; locate the Team Prop from the
+ *                        areas of the left and center contours.
+ */
+public class StageCenterStageProp extends LinkStage {
+
+    public static final String[] PROP_STR = { 
+        "NULL", 
+        "LEFT",
+        "CENTER",
+        "RIGHT"
+    };
+
+    public int areaLeftSpikeMin;
+    public int areaLeftSpikeMax;
+    public int areaLeftPropMin;
+    public int areaLeftPropMax;
+    public int areaCenterSpikeMin;
+    public int areaCenterSpikeMax;
+    public int areaCenterPropMin;
+    public int areaCenterPropMax;
+
+    /**
+     * parseSettings - Overrides method in LinkStage; copy settings out of myLinkMap.
+     */
+    @Override
+    public void parseSettings() {
+        areaLeftSpikeMin   = getInt("AREA_LEFT_SPIKE_MIN", -1);
+        areaLeftSpikeMax   = getInt("AREA_LEFT_SPIKE_MAX", -1);
+        areaLeftPropMin    = getInt("AREA_LEFT_PROP_MIN", -1);
+        areaLeftPropMax    = getInt("AREA_LEFT_PROP_MAX", -1);
+        areaCenterSpikeMin = getInt("AREA_CENTER_SPIKE_MIN", -1);
+        areaCenterSpikeMax = getInt("AREA_CENTER_SPIKE_MAX", -1);
+        areaCenterPropMin  = getInt("AREA_CENTER_PROP_MIN", -1);
+        areaCenterPropMax  = getInt("AREA_CENTER_PROP_MAX", -1);
+    }
+
+    /**
+     * process - Overrides method in LinkStage; decide the position of the Team Prop.
+     * @param input - LinkData contours
+     * @return LinkData - result text, same as shown by the Link Gui
+     */
+    @Override
+    public LinkData process(LinkData input) {
+        List<MatOfPoint> contours = input.contours;
+
+        // Error Check of settings:
+        if (areaLeftSpikeMax < areaLeftSpikeMin) {
+            return LinkData.fromResult("ERROR: leftSpikeMax = "+areaLeftSpikeMax+" and is less than leftSpikeMin = "+areaLeftSpikeMin);
+        }
+        if (areaLeftPropMin < areaLeftSpikeMax) {
+            return LinkData.fromResult("ERROR: leftPropMin = "+areaLeftPropMin+" and is less than leftSpikeMax = "+areaLeftSpikeMax);
+        }
+        if (areaLeftPropMax < areaLeftPropMin) {
+            return LinkData.fromResult("ERROR: leftPropMax = "+areaLeftPropMax+" and is less than leftPropMin = "+areaLeftPropMin);
+        }
+        if (areaCenterSpikeMax < areaCenterSpikeMin) {
+            return LinkData.fromResult("ERROR: centerSpikeMax = "+areaCenterSpikeMax+" and is less than centerSpikeMin = "+areaCenterSpikeMin);
+        }
+        if (areaCenterPropMin < areaCenterSpikeMax) {
+            return LinkData.fromResult("ERROR: centerPropMin = "+areaCenterPropMin+" and is less than centerSpikeMax = "+areaCenterSpikeMax);
+        }
+        if (areaCenterPropMax < areaCenterPropMin) {
+            return LinkData.fromResult("ERROR: centerPropMax = "+areaCenterPropMax+" and is less than centerPropMin = "+areaCenterPropMin);
+        }
+        if (contours.size() != 2) {
+            return LinkData.fromResult("ERROR: expecting only 2 contours, there are "+contours.size());
+        }
+
+        // left contour is the one with the smaller x of its circle center
+        ContourFeatures features = input.getFeatures();
+        double[] centerX = features.circleX();
+        double[] areas   = features.areas();
+        int leftIdx   = (centerX[0] < centerX[1]) ? 0 : 1;
+        int centerIdx = 1 - leftIdx;
+
+        int area = (int)areas[leftIdx];
+        boolean leftIsSpike   = ((area >= areaLeftSpikeMin) && (area <= areaLeftSpikeMax));
+        boolean leftIsProp    = ((area >= areaLeftPropMin) && (area <= areaLeftPropMax));
+        area = (int)areas[centerIdx];
+        boolean centerIsSpike = ((area >= areaCenterSpikeMin) && (area <= areaCenterSpikeMax));
+        boolean centerIsProp  = ((area >= areaCenterPropMin) && (area <= areaCenterPropMax));
+
+        int propIndex = 0;
+        if (leftIsSpike && centerIsSpike) {
+            propIndex = 3;
+        } else if (leftIsProp && centerIsSpike) {
+            propIndex = 1;
+        } else if (leftIsSpike && centerIsProp) {
+            propIndex = 2;
+        } else if (leftIsProp && centerIsProp) {
+            return LinkData.fromResult("ERROR: left AND center are BOTH detecting Prop ");
+        } else if (!leftIsSpike && !leftIsProp) {
+            return LinkData.fromResult("ERROR: left is out of range of Spike AND Prop ");
+        } else if (!centerIsSpike && !centerIsProp) {
+            return LinkData.fromResult("ERROR: center is out of range of Spike AND Prop ");
+        }
+        return LinkData.fromResult("Team Prop is "+PROP_STR[propIndex]+"  ("+propIndex+")");
+    }
+}
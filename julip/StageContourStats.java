@@ -0,0 +1,35 @@
+package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
+
+import java.util.*;
+import java.util.List;
+
+import org.opencv.core.Point;
+
+/**
+ * StageContourStats - processing stage of LinkContourStats; centers of the minimum enclosing
+ *                     circles of the contours.
+ */
+public class StageContourStats extends LinkStage {
+
+    /**
+     * parseSettings - Overrides method in LinkStage; settings only affect what the Link Gui shows.
+     */
+    @Override
+    public void parseSettings() {
+    }
+
+    /**
+     * process - Overrides method in LinkStage; find circle centers of contours.
+     * @param input - LinkData contours
+     * @return LinkData - points
+     */
+    @Override
+    public LinkData process(LinkData input) {
+        List<Point> circleCenters = new ArrayList<>();
+        ContourFeatures features = input.getFeatures();
+        for (int i = 0; i < features.size(); i++) {
+            circleCenters.add(features.circleCenter(i));
+        }
+        return LinkData.fromPoints(input.size, circleCenters);
+    }
+}
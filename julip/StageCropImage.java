@@ -0,0 +1,94 @@
+package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
+
+import java.util.*;
+import java.util.List;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+
+/**
+ * StageCropImage - processing stage of LinkCropImage; blank out the borders of an image.
+ *
+ *   With OUTPUT set to Output:ROI the borders are cut off instead: the output is just the
+ *   region inside the crop marks, marked with its place in the full frame (see LinkData.roi).
+ *   Stages down the chain that accept a region then only work on its pixels.
+ */
+public class StageCropImage extends LinkStage {
+
+    public static final String[] OUTPUT_STR = {
+        "Output:Blanked",
+        "Output:ROI"
+    };
+
+    public int cropLeft;
+    public int cropRight;     // -1 for right edge of image
+    public int cropTop;
+    public int cropBottom;    // -1 for bottom edge of image
+    public int outputIdx;
+
+    /**
+     * parseSettings - Overrides method in LinkStage; copy settings out of myLinkMap.
+     */
+    @Override
+    public void parseSettings() {
+        cropLeft   = getInt("CROP_LEFT", 0, 10000, 0);
+        cropRight  = getInt("CROP_RIGHT", 0, 10000, -1);
+        cropTop    = getInt("CROP_TOP", 0, 10000, 0);
+        cropBottom = getInt("CROP_BOTTOM", 0, 10000, -1);
+        outputIdx  = getIndex("OUTPUT", OUTPUT_STR, 0);
+    }
+
+    /**
+     * process - Overrides method in LinkStage; blank out image outside of the crop marks.
+     * @param input - LinkData image
+     * @return LinkData - cropped image, same Size as input image; or the region inside
+     *                     the crop marks for Output:ROI
+     */
+    @Override
+    public LinkData process(LinkData input) {
+        Mat matImgSrc = input.toImage();
+        int cols = matImgSrc.cols();
+        int rows = matImgSrc.rows();
+        int mark;
+        Scalar blank = new Scalar(0,0,0);
+
+        if (outputIdx == 1) {
+            int left   = Math.min(cropLeft, cols);
+            int right  = ((cropRight < 0) || (cropRight > cols)) ? cols : cropRight;
+            int top    = Math.min(cropTop, rows);
+            int bottom = ((cropBottom < 0) || (cropBottom > rows)) ? rows : cropBottom;
+            if ((right > left) && (bottom > top)) {
+                // The region is copied out, so the stages after it can not see
+                // the pixels around it, just as if they had been blanked out
+                Rect roi = new Rect(left, top, right-left, bottom-top);
+                Mat matRoi = newOutput(roi.height, roi.width, matImgSrc.type());
+                matImgSrc.submat(roi).copyTo(matRoi);
+                return LinkData.fromRoi(LinkData.IMG, matRoi, roi, matImgSrc.size());
+            }
+            // nothing left inside the crop marks; blank out the image as for Output:Blanked
+        }
+
+        Mat matImgDst = newOutput(rows, cols, matImgSrc.type());
+        matImgSrc.copyTo(matImgDst);
+
+        // The Link Gui sliders range from 0 to the image width or height
+        mark = Math.min(cropLeft, cols);
+        if (mark > 0) {
+            matImgDst.submat(new Rect(0, 0, mark, rows)).setTo(blank);
+        }
+        mark = ((cropRight < 0) || (cropRight > cols)) ? cols : cropRight;
+        if (mark < cols) {
+            matImgDst.submat(new Rect(mark, 0, cols-mark-1, rows)).setTo(blank);
+        }
+        mark = Math.min(cropTop, rows);
+        if (mark > 0) {
+            matImgDst.submat(new Rect(0, 0, cols, mark)).setTo(blank);
+        }
+        mark = ((cropBottom < 0) || (cropBottom > rows)) ? rows : cropBottom;
+        if (mark < rows) {
+            matImgDst.submat(new Rect(0, mark, cols, rows-mark-1)).setTo(blank);
+        }
+        return LinkData.fromMat(LinkData.IMG, matImgDst);
+    }
+}
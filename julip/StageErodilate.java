@@ -0,0 +1,135 @@
+package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
+
+import java.util.*;
+import java.util.List;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * StageErodilate - processing stage of LinkErodilate; openCV Imgproc.morphologyEx.
+ */
+public class StageErodilate extends LinkStage {
+
+    public static final String[] MORPH_STR = {
+        "Operation:Erosion",
+        "Operation:Dilation",
+        "Operation:Opening",
+        "Operation:Closing",
+        "Operation:Gradient",
+        "Operation:Top_Hat",
+        "Operation:Black_Hat"
+    };
+    public static final int[] MORPH_TYPE = { 
+        Imgproc.MORPH_ERODE,
+        Imgproc.MORPH_DILATE,
+        Imgproc.MORPH_OPEN, 
+        Imgproc.MORPH_CLOSE,
+        Imgproc.MORPH_GRADIENT, 
+        Imgproc.MORPH_TOPHAT, 
+        Imgproc.MORPH_BLACKHAT 
+    };
+    public static final String[] KERNEL_STR = { 
+        "Kernel:Rectangle", 
+        "Kernel:Cross", 
+        "Kernel:Ellipse" 
+    };
+    public static final int[] KERNEL_TYPE = {
+        Imgproc.CV_SHAPE_RECT,
+        Imgproc.CV_SHAPE_CROSS,
+        Imgproc.CV_SHAPE_ELLIPSE
+    };
+    public static final String[] IMAGE_STR = { 
+        "Output_Image",
+        "Input_Image"
+    };
+
+    public int morphIdx;
+    public int kernelIdx;
+    public int kernelRadius;
+    public int imageIdx;
+
+    private Mat element;            // structuring element of kernelIdx and kernelRadius
+    private int elementIdx    = -1; // kernelIdx element was made for
+    private int elementRadius = -1; // kernelRadius element was made for
+
+    /**
+     * parseSettings - Overrides method in LinkStage; copy settings out of myLinkMap.
+     */
+    @Override
+    public void parseSettings() {
+        morphIdx     = getIndex("MORPH_OPERATION", MORPH_STR, 0);
+        kernelIdx    = getIndex("KERNEL_TYPE", KERNEL_STR, 0);
+        kernelRadius = getInt("KERNEL_RADIUS", 0, 10, 0);
+        imageIdx     = getIndex("IMAGE_TYPE", IMAGE_STR, 0);
+
+        // The structuring element only changes with the kernel settings,
+        // so it is made here rather than for every image
+        makeElement();
+    }
+
+    /**
+     * scaleSettings - Overrides method in LinkStage; the kernel radius shrinks with the image.
+     * @param scale - size of the input relative to the full image
+     */
+    @Override
+    public void scaleSettings(double scale) {
+        kernelRadius = (int)Math.round(kernelRadius * scale);
+        makeElement();
+    }
+
+    /**
+     * makeElement - make the structuring element, unless it is already that of kernelIdx and kernelRadius
+     */
+    private void makeElement() {
+        if ((kernelIdx != elementIdx) || (kernelRadius != elementRadius)) {
+            if (element != null) {
+                element.release();
+            }
+            Size kernelSize = new Size(
+                                2 * kernelRadius + 1, // double - width
+                                2 * kernelRadius + 1  // double - height
+                              );
+            element = Imgproc.getStructuringElement(
+                        KERNEL_TYPE[kernelIdx],  // int  - shape
+                        kernelSize               // Size - ksize
+                      );
+            elementIdx    = kernelIdx;
+            elementRadius = kernelRadius;
+        }
+    }
+
+    /**
+     * process - Overrides method in LinkStage; morphology operation on image.
+     * @param input - LinkData image
+     * @return LinkData - output image, or input image
+     */
+    @Override
+    public LinkData process(LinkData input) {
+        Mat matImgSrc = input.toImage();
+        Mat matImgDst = newOutput(matImgSrc.rows(), matImgSrc.cols(), matImgSrc.type());
+        if (imageIdx == 0) {
+            Imgproc.morphologyEx(
+                matImgSrc,                     // Mat - source
+                matImgDst,                     // Mat - destination
+                MORPH_TYPE[morphIdx],          // int - operation
+                element                        // Mat - kernel
+            );
+        } else {
+            matImgSrc.copyTo(matImgDst);
+        }
+        return LinkData.fromMat(LinkData.IMG, matImgDst);
+    }
+
+    /**
+     * acceptsRoi - Overrides method in LinkStage; the kernel reaches past the edges of a
+     *              region, where the full frame holds blanked out pixels but a region alone
+     *              holds the border OpenCV makes up, so erosion differs there.
+     * @return boolean - false
+     */
+    @Override
+    public boolean acceptsRoi() {
+        return false;
+    }
+}
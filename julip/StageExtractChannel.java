@@ -0,0 +1,56 @@
+package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
+
+import java.util.*;
+import java.util.List;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+/**
+ * StageExtractChannel - processing stage of LinkExtractChannel; openCV Core.extractChannel.
+ */
+public class StageExtractChannel extends LinkStage {
+
+    public int channel;
+
+    /**
+     * parseSettings - Overrides method in LinkStage; copy settings out of myLinkMap.
+     */
+    @Override
+    public void parseSettings() {
+        channel = getInt("SELECT_CHANNEL", 0);
+    }
+
+    /**
+     * process - Overrides method in LinkStage; extract one channel of the image.
+     * @param input - LinkData image or julip .mat data
+     * @return LinkData - single channel image; or input image if channel is out of range
+     */
+    @Override
+    public LinkData process(LinkData input) {
+        Mat matImgSrc = input.toImage();
+        Mat matImgDst;
+        if ((channel >= 0) && (channel < matImgSrc.channels())) {
+            matImgDst = newOutput(matImgSrc.rows(), matImgSrc.cols(), CvType.makeType(matImgSrc.depth(), 1));
+            Core.extractChannel(
+                matImgSrc,                   // input Mat image
+                matImgDst,                   // output Mat image
+                channel                      // channel selection
+            );
+        } else {
+            matImgDst = newOutput(matImgSrc.rows(), matImgSrc.cols(), matImgSrc.type());
+            matImgSrc.copyTo(matImgDst);
+        }
+        return LinkData.fromMat(LinkData.IMG, matImgDst);
+    }
+
+    /**
+     * acceptsRoi - Overrides method in LinkStage; the channel is extracted pixel by pixel.
+     * @return boolean - true
+     */
+    @Override
+    public boolean acceptsRoi() {
+        return true;
+    }
+}
@@ -0,0 +1,161 @@
+package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
+
+import java.util.*;
+import java.util.List;
+
+/**
+ * StageFilterContours - processing stage of LinkFilterContours; keep contours by area and perimeter.
+ *
+ *   In Slider mode the min/max settings are indices into the sorted areas (perimeters)
+ *   of the contours of the image at hand, just as the Link Gui sliders are.
+ *   Areas and perimeters come from the ContourFeatures of the input, and the features of
+ *   the kept contours are handed on with them. The thresholds are range queries on the
+ *   sorted area and perimeter indexes of the features.
+ */
+public class StageFilterContours extends LinkStage {
+
+    public static final String[] AREA_STR = { 
+        "Area:Slider", 
+        "Area:Fixed"
+    };
+    public static final String[] PERIMETER_STR = { 
+        "Perimeter:Slider", 
+        "Perimeter:Fixed"
+    };
+
+    public int    areaIdx;
+    public int    areaMin;           // slider index; -1 for none
+    public int    areaMax;           // slider index; -1 for number of contours
+    public double areaFixedMin;      // -1 for no limit
+    public double areaFixedMax;      // -1 for no limit
+    public int    periIdx;
+    public int    periMin;
+    public int    periMax;
+    public double periFixedMin;
+    public double periFixedMax;
+
+    /**
+     * parseSettings - Overrides method in LinkStage; copy settings out of myLinkMap.
+     */
+    @Override
+    public void parseSettings() {
+        areaIdx      = getIndex("AREA_SELECT", AREA_STR, 0);
+        areaMin      = getInt("AREA_MIN", 0);
+        areaMax      = getInt("AREA_MAX", -1);
+        areaFixedMin = getDouble("AREA_FIXED_MIN", -1);
+        areaFixedMax = getDouble("AREA_FIXED_MAX", -1);
+        periIdx      = getIndex("PERIMETER_SELECT", PERIMETER_STR, 0);
+        periMin      = getInt("PERIMETER_MIN", 0);
+        periMax      = getInt("PERIMETER_MAX", -1);
+        periFixedMin = getDouble("PERIMETER_FIXED_MIN", -1);
+        periFixedMax = getDouble("PERIMETER_FIXED_MAX", -1);
+    }
+
+    /**
+     * scaleSettings - Overrides method in LinkStage; fixed areas shrink with the square of
+     *                 the scale, and fixed perimeters with the scale. Slider indices are ranks
+     *                 among the contours at hand and stay as they are.
+     * @param scale - size of the input relative to the full image
+     */
+    @Override
+    public void scaleSettings(double scale) {
+        areaFixedMin = scaleLimit(areaFixedMin, scale * scale);
+        areaFixedMax = scaleLimit(areaFixedMax, scale * scale);
+        periFixedMin = scaleLimit(periFixedMin, scale);
+        periFixedMax = scaleLimit(periFixedMax, scale);
+    }
+
+    /**
+     * scaleLimit - scale a fixed threshold
+     * @param limit - threshold, -1 for no limit
+     * @param scale - scale factor
+     * @return double - scaled threshold, -1 for no limit
+     */
+    static double scaleLimit(double limit, double scale) {
+        return (limit < 0) ? limit : limit * scale;
+    }
+
+    /**
+     * sliderMin - lower threshold from a slider index into a sorted array
+     * @param sorted - sorted array of values
+     * @param index  - slider index
+     * @return double - threshold, -1 for no limit
+     */
+    static double sliderMin(double[] sorted, int index) {
+        if ((index > 0) && (index <= sorted.length)) {
+            return sorted[index-1];
+        }
+        return -1;
+    }
+
+    /**
+     * sliderMax - upper threshold from a slider index into a sorted array
+     * @param sorted - sorted array of values
+     * @param index  - slider index
+     * @return double - threshold, -1 for no limit
+     */
+    static double sliderMax(double[] sorted, int index) {
+        if ((index >= 0) && (index < sorted.length)) {
+            return sorted[index];
+        }
+        return -1;
+    }
+
+    /**
+     * keep - which contours are within the area and perimeter thresholds.
+     *        The contours in range of one feature are found by binary search in its
+     *        FeatureIndex; the other feature is then only checked for those of them.
+     * @param features - ContourFeatures of contours
+     * @return boolean[] - keep flag of every contour
+     */
+    public boolean[] keep(ContourFeatures features) {
+        ContourFeatures.FeatureIndex areaIndex = features.areaIndex();
+        ContourFeatures.FeatureIndex periIndex = features.perimeterIndex();
+
+        double minArea = areaFixedMin;
+        double maxArea = areaFixedMax;
+        if (areaIdx == 0) {
+            minArea = sliderMin(areaIndex.values, areaMin);
+            maxArea = sliderMax(areaIndex.values, areaMax);
+        }
+        double minPerimeter = periFixedMin;
+        double maxPerimeter = periFixedMax;
+        if (periIdx == 0) {
+            minPerimeter = sliderMin(periIndex.values, periMin);
+            maxPerimeter = sliderMax(periIndex.values, periMax);
+        }
+
+        int areaFrom = areaIndex.from(minArea);
+        int areaTo   = Math.max(areaFrom, areaIndex.to(maxArea));
+        int periFrom = periIndex.from(minPerimeter);
+        int periTo   = Math.max(periFrom, periIndex.to(maxPerimeter));
+
+        // walk the narrower of the two ranges
+        boolean[] keep = new boolean[features.size()];
+        if (areaTo - areaFrom <= periTo - periFrom) {
+            double[] perimeters = features.perimeters();
+            for (int k = areaFrom; k < areaTo; k++) {
+                int i = areaIndex.order[k];
+                keep[i] = (perimeters[i] > minPerimeter) && ((maxPerimeter < 0) || (perimeters[i] < maxPerimeter));
+            }
+        } else {
+            double[] areas = features.areas();
+            for (int k = periFrom; k < periTo; k++) {
+                int i = periIndex.order[k];
+                keep[i] = (areas[i] > minArea) && ((maxArea < 0) || (areas[i] < maxArea));
+            }
+        }
+        return keep;
+    }
+
+    /**
+     * process - Overrides method in LinkStage; filter contours.
+     * @param input - LinkData contours
+     * @return LinkData - contours within area and perimeter thresholds
+     */
+    @Override
+    public LinkData process(LinkData input) {
+        ContourFeatures kept = input.getFeatures().select(keep(input.getFeatures()));
+        return LinkData.fromContours(input.size, kept.getContours(), kept);
+    }
+}
@@ -0,0 +1,89 @@
+package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
+
+import java.util.*;
+import java.util.List;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * StageFindContours - processing stage of LinkFindContours; openCV Imgproc.findContours.
+ */
+public class StageFindContours extends LinkStage {
+
+    public static final String[] MODE_STR = {
+        "Tree",
+        "External",
+        "List",
+        "Connected"
+    };
+    public static final int[] MODE_CONST = {
+        Imgproc.RETR_TREE,
+        Imgproc.RETR_EXTERNAL,
+        Imgproc.RETR_LIST,
+        Imgproc.RETR_CCOMP
+    };
+    public static final String[] METHOD_STR = {
+        "Chain_Approx_Simple",
+        "Chain_Approx_None",
+        "Chain_Approx_TC89_KCOS",
+        "Chain_Approx_TC89_L1"
+    };
+    public static final int[] METHOD_CONST = {
+        Imgproc.CHAIN_APPROX_SIMPLE,
+        Imgproc.CHAIN_APPROX_NONE,
+        Imgproc.CHAIN_APPROX_TC89_KCOS,
+        Imgproc.CHAIN_APPROX_TC89_L1        
+    };
+
+    public int modeIdx;
+    public int methodIdx;
+
+    /**
+     * parseSettings - Overrides method in LinkStage; copy settings out of myLinkMap.
+     */
+    @Override
+    public void parseSettings() {
+        modeIdx   = getIndex("MODE", MODE_STR, 0);
+        methodIdx = getIndex("METHOD", METHOD_STR, 0);
+    }
+
+    /**
+     * process - Overrides method in LinkStage; find contours of image.
+     * @param input - LinkData image
+     * @return LinkData - contours
+     */
+    @Override
+    public LinkData process(LinkData input) {
+        Mat matImgSrc = input.toImage();
+        List<MatOfPoint> contours = new ArrayList<>();
+        // Same as the Link Gui, only a 3-channel source is converted to grayscale
+        if (matImgSrc.channels() == 3) {
+            // findContours does not write its input, so the shared conversion is used
+            Mat gray = ColorCache.shared.convert(matImgSrc, Imgproc.COLOR_BGR2GRAY);
+            Mat hierarchy = new Mat();
+            Imgproc.findContours(
+                gray,                        // input Mat image
+                contours,                    // output List of Mats of contours
+                hierarchy,                   // output Mat of contour hierarchy
+                MODE_CONST[modeIdx],         // contour retrieval mode
+                METHOD_CONST[methodIdx]      // contour approximation method
+            );
+            // the hierarchy is not used; free it now rather than when it is garbage collected
+            hierarchy.release();
+            gray.release();
+        }
+        return LinkData.fromContours(matImgSrc.size(), contours);
+    }
+
+    /**
+     * acceptsRoi - Overrides method in LinkStage; the contours of a region are
+     *              translated to the full frame by LinkStage.run().
+     * @return boolean - true
+     */
+    @Override
+    public boolean acceptsRoi() {
+        return true;
+    }
+}
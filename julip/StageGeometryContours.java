@@ -0,0 +1,102 @@
+package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
+
+import java.util.*;
+import java.util.List;
+
+/**
+ * StageGeometryContours - processing stage of LinkGeometryContours; keep contours by the
+ *                         percent of their bounding geometry area they fill.
+ *                         The areas come from the ContourFeatures of the input.
+ */
+public class StageGeometryContours extends LinkStage {
+
+    public static final String[] GEOMETRY_STR = { 
+        "Bounding_Rect", 
+        "Bounding_Rotated_Rect",
+        "Bounding_Circle"
+    };
+    public static final String[] PERCENT_STR = { 
+        "Percent:Slider", 
+        "Percent:Fixed"
+    };
+
+    public int    geometryIdx;
+    public int    percentIdx;
+    public int    pctMin;           // slider index
+    public int    pctMax;           // slider index; -1 for number of contours
+    public double pctFixedMin;      // percent; -1 for no limit
+    public double pctFixedMax;      // percent; -1 for no limit
+
+    /**
+     * parseSettings - Overrides method in LinkStage; copy settings out of myLinkMap.
+     */
+    @Override
+    public void parseSettings() {
+        geometryIdx = getIndex("GEOMETRY_SELECT", GEOMETRY_STR, 0);
+        percentIdx  = getIndex("PERCENT_SELECT", PERCENT_STR, 0);
+        pctMin      = getInt("PCT_MIN", 0);
+        pctMax      = getInt("PCT_MAX", -1);
+        pctFixedMin = getDouble("PCT_FIXED_MIN", -1);
+        pctFixedMax = getDouble("PCT_FIXED_MAX", -1);
+    }
+
+    /**
+     * percents - fraction of its bounding geometry area each contour fills
+     * @param features - ContourFeatures of contours
+     * @return double[] - one fraction per contour
+     */
+    public double[] percents(ContourFeatures features) {
+        double[] areas = features.areas();
+        double[] boundingAreas = features.boundingAreas(geometryIdx);
+        double[] pcts = new double[features.size()];
+        for (int i = 0; i < pcts.length; i++) {
+            pcts[i] = areas[i] / boundingAreas[i];
+        }
+        return pcts;
+    }
+
+    /**
+     * thresholds - lower and upper fraction thresholds, from the slider indices into the
+     *              sorted fractions, or from the fixed percents
+     * @param pcts - fractions of the contours, from percents()
+     * @return double[] - min and max fraction; -1 for no limit
+     */
+    public double[] thresholds(double[] pcts) {
+        if (percentIdx == 0) {
+            double[] sortedPcts = ContourFeatures.sorted(pcts);
+            return new double[] {
+                StageFilterContours.sliderMin(sortedPcts, pctMin),
+                StageFilterContours.sliderMax(sortedPcts, pctMax)
+            };
+        }
+        return new double[] {
+            (pctFixedMin < 0) ? -1 : pctFixedMin/100,
+            (pctFixedMax < 0) ? -1 : pctFixedMax/100
+        };
+    }
+
+    /**
+     * keep - which contours fill a percent of their bounding geometry within the thresholds
+     * @param features - ContourFeatures of contours
+     * @return boolean[] - keep flag of every contour
+     */
+    public boolean[] keep(ContourFeatures features) {
+        double[] pcts = percents(features);
+        double[] limits = thresholds(pcts);
+        boolean[] keep = features.keepAll();
+        ContourFeatures.within(pcts, limits[0], limits[1], keep);
+        return keep;
+    }
+
+    /**
+     * process - Overrides method in LinkStage; filter contours.
+     * @param input - LinkData contours
+     * @return LinkData - contours within percent thresholds
+     */
+    @Override
+    public LinkData process(LinkData input) {
+        ContourFeatures features = input.getFeatures();
+        ContourFeatures kept = features.select(keep(features));
+        return LinkData.fromContours(input.size, kept.getContours(), kept);
+    }
+}
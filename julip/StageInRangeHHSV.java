@@ -0,0 +1,239 @@
+package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
+
+import java.util.*;
+import java.util.List;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * StageInRangeHHSV - processing stage of LinkInRangeHHSV; openCV Core.inRange in HSV color space
+ *                    with two Hue ranges.
+ *
+ *   With THRESHOLD set to Threshold:Fused_Table the settings are first turned into a table
+ *   of every BGR color (256 x 256 x 256 bytes) telling whether it is in range. The table is
+ *   only rebuilt when the settings change; each image then takes a single pass over its
+ *   BGR pixels to make the mask, and the masked image is copied out by the same mask,
+ *   with no HSV image, second mask or bitwise_or in between.
+ */
+public class StageInRangeHHSV extends LinkStage {
+
+    public static final String[] HUE_STR = { 
+        "HUE_1_or_HUE_2",
+        "HUE_1_only", 
+        "HUE_2_only"
+    };
+
+    public static final String[] IMAGE_TYPE = { 
+        "HSV", 
+        "Binary"
+    };
+
+    public static final String[] THRESHOLD_STR = {
+        "Threshold:Multi_Pass",
+        "Threshold:Fused_Table"
+    };
+
+    public int hue1Min;
+    public int hue1Max;
+    public int hue2Min;
+    public int hue2Max;
+    public int hueIdx;
+    public int satMin;
+    public int satMax;
+    public int valMin;
+    public int valMax;
+    public int imageIdx;
+    public int thresholdIdx;
+
+    private byte[] table;           // in range flag of every BGR color, index (b << 16) | (g << 8) | r
+    private String tableKey;        // settings the table was built for
+    private byte[] pixels;          // BGR bytes of the last image looked up
+    private byte[] maskBytes;       // mask bytes of the last image looked up
+
+    /**
+     * parseSettings - Overrides method in LinkStage; copy settings out of myLinkMap.
+     */
+    @Override
+    public void parseSettings() {
+        hue1Min  = getInt("HUE1_MIN", 0, 180, 0);
+        hue1Max  = getInt("HUE1_MAX", 0, 180, 180);
+        hue2Min  = getInt("HUE2_MIN", 0, 180, 0);
+        hue2Max  = getInt("HUE2_MAX", 0, 180, 180);
+        hueIdx   = getIndex("HUE_SELECT", HUE_STR, 0);
+        satMin   = getInt("SAT_MIN", 0, 255, 0);
+        satMax   = getInt("SAT_MAX", 0, 255, 255);
+        valMin   = getInt("VAL_MIN", 0, 255, 0);
+        valMax   = getInt("VAL_MAX", 0, 255, 255);
+        imageIdx = getIndex("IMAGE_TYPE", IMAGE_TYPE, 0);
+        thresholdIdx = getIndex("THRESHOLD", THRESHOLD_STR, 0);
+
+        // The table only changes with the range settings,
+        // so it is built here rather than for every image
+        if (thresholdIdx == 1) {
+            String key = hue1Min + "," + hue1Max + "," + hue2Min + "," + hue2Max + "," + hueIdx + "," +
+                         satMin + "," + satMax + "," + valMin + "," + valMax;
+            if (!key.equals(tableKey)) {
+                table = buildTable();
+                tableKey = key;
+            }
+        }
+    }
+
+    /**
+     * process - Overrides method in LinkStage; mask image by HSV min/max settings.
+     * @param input - LinkData image
+     * @return LinkData - masked image, or binary mask
+     */
+    @Override
+    public LinkData process(LinkData input) {
+        Mat matImgSrc = input.toImage();
+        Mat matImgDst;
+        // If a 3-channel Mat is showing, then process the image
+        if ((matImgSrc.channels() == 3) && (thresholdIdx == 1) && (matImgSrc.depth() == CvType.CV_8U)) {
+            // The mask is scratch only when the masked image is output
+            Mat msk = (imageIdx == 0) ? MatPool.shared.borrow(matImgSrc.rows(), matImgSrc.cols(), CvType.CV_8UC1)
+                                      : newOutput(matImgSrc.rows(), matImgSrc.cols(), CvType.CV_8UC1);
+            lookupMask(matImgSrc, msk);
+            if (imageIdx == 0) {
+                // copyTo with a mask leaves the pixels outside the mask as they were
+                matImgDst = newOutput(matImgSrc.rows(), matImgSrc.cols(), matImgSrc.type());
+                matImgDst.setTo(new Scalar(0));
+                matImgSrc.copyTo(matImgDst, msk);
+                MatPool.shared.release(msk);
+            } else {
+                matImgDst = msk;
+            }
+        }
+        else if (matImgSrc.channels() == 3) {
+            // Scratch Mats come from the MatPool; a mask that is output is not scratch
+            Mat msk = (imageIdx == 0) ? MatPool.shared.borrow(matImgSrc.rows(), matImgSrc.cols(), CvType.CV_8UC1)
+                                      : newOutput(matImgSrc.rows(), matImgSrc.cols(), CvType.CV_8UC1);
+            // Convert the file source image from BGR to HSV, once for all links reading it
+            Mat src = ColorCache.shared.convert(matImgSrc, Imgproc.COLOR_BGR2HSV);
+            if (hueIdx == 0) {  // hue 1 or hue 2
+                Mat msk2 = MatPool.shared.borrow(matImgSrc.rows(), matImgSrc.cols(), CvType.CV_8UC1);
+                Core.inRange(src, new Scalar(hue1Min, satMin, valMin),
+                                  new Scalar(hue1Max, satMax, valMax), msk);
+                Core.inRange(src, new Scalar(hue2Min, satMin, valMin),
+                                  new Scalar(hue2Max, satMax, valMax), msk2);
+                Core.bitwise_or(msk, msk2, msk);
+                MatPool.shared.release(msk2);
+            }
+            else if (hueIdx == 2) { // hue 2 only
+                Core.inRange(src, new Scalar(hue2Min, satMin, valMin),
+                                  new Scalar(hue2Max, satMax, valMax), msk);
+            }
+            else { // hue 1 only
+                Core.inRange(src, new Scalar(hue1Min, satMin, valMin),
+                                  new Scalar(hue1Max, satMax, valMax), msk);
+            }
+            src.release();
+            if (imageIdx == 0) {
+                // All color values in msk Mat = 0 will set the corresponding color value
+                // in the destination Mat to 0.
+                matImgDst = newOutput(matImgSrc.rows(), matImgSrc.cols(), matImgSrc.type());
+                matImgDst.setTo(new Scalar(0));
+                Core.copyTo(matImgSrc, matImgDst, msk);
+                MatPool.shared.release(msk);
+            } else {
+                matImgDst = msk;
+            }
+        }
+        // If a 1-channel Mat is showing (like 'none') then don't process it
+        else {
+            matImgDst = newOutput(matImgSrc.rows(), matImgSrc.cols(), matImgSrc.type());
+            matImgSrc.copyTo(matImgDst);
+        }
+        return LinkData.fromMat(LinkData.IMG, matImgDst);
+    }
+
+    /**
+     * buildTable - in range flag of every BGR color for the current settings.
+     *              The 256 x 256 (green, red) colors of each blue value are converted
+     *              and masked the same way process() does it in Threshold:Multi_Pass,
+     *              so both thresholds give the very same mask.
+     * @return byte[] - 0 or 255 for each BGR color, index (b << 16) | (g << 8) | r
+     */
+    private byte[] buildTable() {
+        byte[] lut = new byte[1 << 24];
+        byte[] gr = new byte[256 * 256 * 3];
+        for (int g = 0; g < 256; g++) {
+            for (int r = 0; r < 256; r++) {
+                int i = ((g << 8) | r) * 3;
+                gr[i + 1] = (byte) g;
+                gr[i + 2] = (byte) r;
+            }
+        }
+        byte[] row = new byte[256 * 256];
+        Mat bgr  = new Mat(256, 256, CvType.CV_8UC3);
+        Mat hsv  = new Mat();
+        Mat msk  = new Mat();
+        Mat msk2 = new Mat();
+        for (int b = 0; b < 256; b++) {
+            for (int i = 0; i < gr.length; i += 3) {
+                gr[i] = (byte) b;
+            }
+            bgr.put(0, 0, gr);
+            Imgproc.cvtColor(bgr, hsv, Imgproc.COLOR_BGR2HSV);
+            if (hueIdx == 0) {  // hue 1 or hue 2
+                Core.inRange(hsv, new Scalar(hue1Min, satMin, valMin),
+                                  new Scalar(hue1Max, satMax, valMax), msk);
+                Core.inRange(hsv, new Scalar(hue2Min, satMin, valMin),
+                                  new Scalar(hue2Max, satMax, valMax), msk2);
+                Core.bitwise_or(msk, msk2, msk);
+            }
+            else if (hueIdx == 2) { // hue 2 only
+                Core.inRange(hsv, new Scalar(hue2Min, satMin, valMin),
+                                  new Scalar(hue2Max, satMax, valMax), msk);
+            }
+            else { // hue 1 only
+                Core.inRange(hsv, new Scalar(hue1Min, satMin, valMin),
+                                  new Scalar(hue1Max, satMax, valMax), msk);
+            }
+            msk.get(0, 0, row);
+            System.arraycopy(row, 0, lut, b << 16, row.length);
+        }
+        bgr.release();
+        hsv.release();
+        msk.release();
+        msk2.release();
+        return lut;
+    }
+
+    /**
+     * lookupMask - mask of an 8-bit BGR image, in one pass over its pixels through the table.
+     *              The pixel and mask buffers are kept for the next image of the same size.
+     * @param matImgSrc - BGR image
+     * @param msk       - CV_8UC1 Mat of the same size, set to the mask
+     */
+    private synchronized void lookupMask(Mat matImgSrc, Mat msk) {
+        Mat src = matImgSrc.isContinuous() ? matImgSrc : matImgSrc.clone();
+        int n = (int) src.total();
+        if ((pixels == null) || (pixels.length != 3 * n)) {
+            pixels    = new byte[3 * n];
+            maskBytes = new byte[n];
+        }
+        src.get(0, 0, pixels);
+        if (src != matImgSrc) {
+            src.release();
+        }
+        byte[] lut = table;
+        for (int i = 0, j = 0; i < n; i++, j += 3) {
+            maskBytes[i] = lut[((pixels[j] & 0xff) << 16) | ((pixels[j + 1] & 0xff) << 8) | (pixels[j + 2] & 0xff)];
+        }
+        msk.put(0, 0, maskBytes);
+    }
+
+    /**
+     * acceptsRoi - Overrides method in LinkStage; the mask is made pixel by pixel.
+     * @return boolean - true
+     */
+    @Override
+    public boolean acceptsRoi() {
+        return true;
+    }
+}
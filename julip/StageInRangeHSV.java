@@ -0,0 +1,91 @@
+package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
+
+import java.util.*;
+import java.util.List;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * StageInRangeHSV - processing stage of LinkInRangeHSV; openCV Core.inRange in HSV color space.
+ */
+public class StageInRangeHSV extends LinkStage {
+
+    public static final String[] IMAGE_TYPE = { 
+        "HSV", 
+        "Binary"
+    };
+
+    public int hueMin;
+    public int hueMax;
+    public int satMin;
+    public int satMax;
+    public int valMin;
+    public int valMax;
+    public int imageIdx;
+
+    /**
+     * parseSettings - Overrides method in LinkStage; copy settings out of myLinkMap.
+     */
+    @Override
+    public void parseSettings() {
+        hueMin   = getInt("HUE_MIN", 0, 180, 0);
+        hueMax   = getInt("HUE_MAX", 0, 180, 180);
+        satMin   = getInt("SAT_MIN", 0, 255, 0);
+        satMax   = getInt("SAT_MAX", 0, 255, 255);
+        valMin   = getInt("VAL_MIN", 0, 255, 0);
+        valMax   = getInt("VAL_MAX", 0, 255, 255);
+        imageIdx = getIndex("IMAGE_TYPE", IMAGE_TYPE, 0);
+    }
+
+    /**
+     * process - Overrides method in LinkStage; mask image by HSV min/max settings.
+     * @param input - LinkData image
+     * @return LinkData - masked image, or binary mask
+     */
+    @Override
+    public LinkData process(LinkData input) {
+        Mat matImgSrc = input.toImage();
+        Mat matImgDst;
+        // If a 3-channel Mat is showing, then process the image
+        if (matImgSrc.channels() == 3) {
+            // Scratch Mats come from the MatPool; a mask that is output is not scratch
+            Mat msk = (imageIdx == 0) ? MatPool.shared.borrow(matImgSrc.rows(), matImgSrc.cols(), CvType.CV_8UC1)
+                                      : newOutput(matImgSrc.rows(), matImgSrc.cols(), CvType.CV_8UC1);
+            // Convert the file source image from BGR to HSV, once for all links reading it
+            Mat src = ColorCache.shared.convert(matImgSrc, Imgproc.COLOR_BGR2HSV);
+            // Create a mask from the min/max settings of HSV
+            Core.inRange(src, new Scalar(hueMin, satMin, valMin),
+                              new Scalar(hueMax, satMax, valMax), msk);
+            src.release();
+            if (imageIdx == 0) {
+                // All color values in msk Mat = 0 will set the corresponding color value
+                // in the destination Mat to 0.
+                matImgDst = newOutput(matImgSrc.rows(), matImgSrc.cols(), matImgSrc.type());
+                matImgDst.setTo(new Scalar(0));
+                Core.copyTo(matImgSrc, matImgDst, msk);
+                MatPool.shared.release(msk);
+            } else {
+                matImgDst = msk;
+            }
+        }
+        // If a 1-channel Mat is showing (like 'none') then don't process it
+        else {
+            matImgDst = newOutput(matImgSrc.rows(), matImgSrc.cols(), matImgSrc.type());
+            matImgSrc.copyTo(matImgDst);
+        }
+        return LinkData.fromMat(LinkData.IMG, matImgDst);
+    }
+
+    /**
+     * acceptsRoi - Overrides method in LinkStage; the mask is made pixel by pixel.
+     * @return boolean - true
+     */
+    @Override
+    public boolean acceptsRoi() {
+        return true;
+    }
+}
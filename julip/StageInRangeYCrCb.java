@@ -0,0 +1,110 @@
+package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
+
+import java.util.*;
+import java.util.List;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * StageInRangeYCrCb - processing stage of LinkInRangeYCrCb; openCV Core.inRange in YCrCb color space.
+ */
+public class StageInRangeYCrCb extends LinkStage {
+
+    public static final String[] IMAGE_TYPE = { 
+        "View:BGR  Output:BGR",
+        "View:BGR  Output:YCrCb", 
+        "View:mask Ouptut:Binary"
+    };
+
+    public int yMin;
+    public int yMax;
+    public int crMin;
+    public int crMax;
+    public int cbMin;
+    public int cbMax;
+    public int imageIdx;
+
+    /**
+     * parseSettings - Overrides method in LinkStage; copy settings out of myLinkMap.
+     */
+    @Override
+    public void parseSettings() {
+        yMin     = getInt("Y_MIN", 0, 255, 0);
+        yMax     = getInt("Y_MAX", 0, 255, 255);
+        crMin    = getInt("CR_MIN", 0, 255, 0);
+        crMax    = getInt("CR_MAX", 0, 255, 255);
+        cbMin    = getInt("CB_MIN", 0, 255, 0);
+        cbMax    = getInt("CB_MAX", 0, 255, 255);
+        imageIdx = getIndex("IMAGE_TYPE", IMAGE_TYPE, 1);
+    }
+
+    /**
+     * process - Overrides method in LinkStage; mask image by YCrCb min/max settings.
+     * @param input - LinkData image
+     * @return LinkData - masked BGR image, YCrCb image as julip .mat data, or binary mask
+     */
+    @Override
+    public LinkData process(LinkData input) {
+        Mat matImgSrc = input.toImage();
+        Mat matYCrCb  = new Mat();
+        Mat matImgDst;
+        // If a 3-channel Mat is showing, then process the image
+        if (matImgSrc.channels() == 3) {
+            // Scratch Mats come from the MatPool; a mask that is output is not scratch
+            Mat msk = (imageIdx < 2) ? MatPool.shared.borrow(matImgSrc.rows(), matImgSrc.cols(), CvType.CV_8UC1)
+                                     : newOutput(matImgSrc.rows(), matImgSrc.cols(), CvType.CV_8UC1);
+            // Convert the file source image from BGR to YCrCb, once for all links reading it;
+            // YCrCb data that is output is a copy of its own
+            if (imageIdx != 1) {
+                matYCrCb = ColorCache.shared.convert(matImgSrc, Imgproc.COLOR_BGR2YCrCb);
+            } else {
+                matYCrCb = newOutput(matImgSrc.rows(), matImgSrc.cols(), matImgSrc.type());
+                Imgproc.cvtColor(matImgSrc, matYCrCb, Imgproc.COLOR_BGR2YCrCb);
+            }
+            // Create a mask from the min/max settings of YCrCb
+            Core.inRange(matYCrCb, new Scalar(yMin, crMin, cbMin),
+                                   new Scalar(yMax, crMax, cbMax), msk);
+            // For BGR view, the resultant Mat of mask applied to source
+            if (imageIdx == 0) {
+                matImgDst = newOutput(matImgSrc.rows(), matImgSrc.cols(), matImgSrc.type());
+                matImgDst.setTo(new Scalar(0));
+                Core.copyTo(matImgSrc, matImgDst, msk);
+                MatPool.shared.release(msk);
+            }
+            // For YCrCb data, the YCrCb image itself
+            else if (imageIdx == 1) {
+                matImgDst = matYCrCb;
+                MatPool.shared.release(msk);
+            }
+            // For mask view, the binary mask
+            else {
+                matImgDst = msk;
+            }
+            if (imageIdx != 1) {
+                matYCrCb.release();
+            }
+        }
+        // If a 1-channel Mat is showing (like 'none') then don't process it
+        else {
+            matImgDst = newOutput(matImgSrc.rows(), matImgSrc.cols(), matImgSrc.type());
+            matImgSrc.copyTo(matImgDst);
+        }
+        if (imageIdx == 1) {
+            return LinkData.fromMat(LinkData.MAT, matYCrCb);
+        }
+        return LinkData.fromMat(LinkData.IMG, matImgDst);
+    }
+
+    /**
+     * acceptsRoi - Overrides method in LinkStage; the mask is made pixel by pixel.
+     * @return boolean - true
+     */
+    @Override
+    public boolean acceptsRoi() {
+        return true;
+    }
+}
@@ -0,0 +1,53 @@
+package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
+
+import java.util.*;
+import java.util.List;
+
+import org.opencv.core.CvType;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * StagePolygons - processing stage of LinkPolygons; openCV Imgproc.approxPolyDP.
+ */
+public class StagePolygons extends LinkStage {
+
+    public int epsilon;
+
+    /**
+     * parseSettings - Overrides method in LinkStage; copy settings out of myLinkMap.
+     */
+    @Override
+    public void parseSettings() {
+        epsilon = getInt("EPSILON", 0, 50, 0);
+    }
+
+    /**
+     * process - Overrides method in LinkStage; approximate each contour by a polygon.
+     * @param input - LinkData contours
+     * @return LinkData - polygon contours
+     */
+    @Override
+    public LinkData process(LinkData input) {
+        List<MatOfPoint> drawnContours = new ArrayList<>();
+        // scratch Mats for every contour; OpenCV only grows them when needed
+        MatOfPoint2f curve = new MatOfPoint2f();
+        MatOfPoint2f approxCurve = new MatOfPoint2f();
+        for (int i = 0; i < input.contours.size(); i++) {
+            input.contours.get(i).convertTo(curve, CvType.CV_32FC2);
+            Imgproc.approxPolyDP(
+                curve,                       // input contour (MatOfPoint2f)
+                approxCurve,                 // output contour (MatOfPoint2f)
+                epsilon,                     // approximation accuracy
+                true                         // boolean, true if closed contour
+            );
+            MatOfPoint approxContour = new MatOfPoint();
+            approxCurve.convertTo(approxContour, CvType.CV_32S);
+            drawnContours.add(approxContour);
+        }
+        curve.release();
+        approxCurve.release();
+        return LinkData.fromContours(input.size, drawnContours);
+    }
+}
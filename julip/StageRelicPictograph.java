@@ -0,0 +1,68 @@
+package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
+
+import java.util.*;
+import java.util.Collections;
+import java.util.List;
+
+import org.opencv.core.Point;
+
+/**
+ * StageRelicPictograph - processing stage of LinkRelicPictograph; identify the pictograph
+ *                        from the number and spread of points.
+ */
+public class StageRelicPictograph extends LinkStage {
+
+    public static final String[] PICTOGRAPH_STR = { 
+        "NULL", 
+        "LEFT",
+        "CENTER",
+        "RIGHT"
+    };
+
+    /**
+     * parseSettings - Overrides method in LinkStage; no settings.
+     */
+    @Override
+    public void parseSettings() {
+    }
+
+    /**
+     * pictograph - identify the pictograph: 7 points are LEFT; of 11 points, those with a
+     *              mean x left of their median x are CENTER, else RIGHT
+     * @param points - points of the pictograph
+     * @return int - index into PICTOGRAPH_STR; 0 for none
+     */
+    public static int pictograph(List<Point> points) {
+        int pictographIndex = 0;
+        if (points.size() == 7) {
+            pictographIndex = 1;
+        } else if (points.size() == 11) {
+            List<Double> xlist = new ArrayList<>();
+            double sumx = 0;
+            for (int i = 0; i < points.size(); i++) {
+                xlist.add(points.get(i).x);
+                sumx += points.get(i).x;
+            }
+            Collections.sort(xlist);
+            double medianx = xlist.get((xlist.size()-1)/2);
+            double meanx = sumx / points.size();
+            if (meanx < medianx) {
+                pictographIndex = 2;
+            } else {
+                pictographIndex = 3;
+            }
+        }
+        return pictographIndex;
+    }
+
+    /**
+     * process - Overrides method in LinkStage; identify the pictograph.
+     * @param input - LinkData points
+     * @return LinkData - result text, same as shown by the Link Gui
+     */
+    @Override
+    public LinkData process(LinkData input) {
+        int pictographIndex = pictograph(input.points);
+        return LinkData.fromResult("Pictograph is "+PICTOGRAPH_STR[pictographIndex]+"  ("+pictographIndex+")");
+    }
+}
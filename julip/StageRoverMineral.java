@@ -0,0 +1,65 @@
+package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
+
+import java.util.*;
+import java.util.List;
+
+import org.opencv.core.Point;
+import org.opencv.core.Size;
+
+/**
+ * StageRoverMineral - processing stage of LinkRoverMineral; locate the mineral from the
+ *                     circle center of the first contour.
+ */
+public class StageRoverMineral extends LinkStage {
+
+    public static final String[] MINERAL_STR = { 
+        "NULL", 
+        "LEFT",
+        "CENTER",
+        "RIGHT"
+    };
+
+    /**
+     * parseSettings - Overrides method in LinkStage; no settings.
+     */
+    @Override
+    public void parseSettings() {
+    }
+
+    /**
+     * mineral - position of the mineral, from the circle center of the first contour
+     *           against the thirds of the image width
+     * @param features - ContourFeatures of contours
+     * @param size     - Size of the image of the contours
+     * @return int - index into MINERAL_STR; 0 if there are no contours
+     */
+    public static int mineral(ContourFeatures features, Size size) {
+        int mineralIndex = 0;
+        if (features.size() > 0) {
+            Point circleCenter = features.circleCenter(0);
+            double x1 = size.width/3.0;
+            double x2 = 2.0 * x1;
+            if (circleCenter.x < x1) {
+                mineralIndex = 1;
+            }
+            else if (circleCenter.x > x2/3) {
+                mineralIndex = 3;
+            }
+            else {
+                mineralIndex = 2;
+            }
+        }
+        return mineralIndex;
+    }
+
+    /**
+     * process - Overrides method in LinkStage; decide the position of the mineral.
+     * @param input - LinkData contours
+     * @return LinkData - result text, same as shown by the Link Gui
+     */
+    @Override
+    public LinkData process(LinkData input) {
+        int mineralIndex = mineral(input.getFeatures(), input.size);
+        return LinkData.fromResult("Mineral is "+MINERAL_STR[mineralIndex]+"  ("+mineralIndex+")");
+    }
+}
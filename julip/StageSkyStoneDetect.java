@@ -0,0 +1,163 @@
+package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
+
+import java.util.*;
+import java.util.List;
+
+import org.opencv.core.Rect;
+
+/**
+ * StageSkyStoneDetect - processing stage of LinkSkyStoneDetect; the SkyStone is in the
+ *                       region with the darkest mean.
+ *
+ *   The regions are laid out by two link file settings:
+ *       REGIONS      rectangles x,y,width,height separated by ';'   e.g. 25,48,30,16;75,40,30,16
+ *       REGION_GRID  x,y,width,height,columns,rows of a rectangle cut into a grid of cells,
+ *                    numbered row by row after the REGIONS
+ *   Either may be "none". The means of all regions come from a RegionStats, at the cost
+ *   of one integral image per frame however many regions there are.
+ */
+public class StageSkyStoneDetect extends LinkStage {
+
+    public static final String DEFAULT_REGIONS = "25,48,30,16;75,40,30,16;130,32,30,16";
+    public static final String DEFAULT_GRID    = "none";
+
+    public List<Rect> regions;          // regions in order; region number is index + 1
+
+    /**
+     * parseSettings - Overrides method in LinkStage; copy settings out of myLinkMap.
+     */
+    @Override
+    public void parseSettings() {
+        List<Rect> listed = parseRegions(myLinkMap.getOrDefault("REGIONS", DEFAULT_REGIONS));
+        List<Rect> grid   = parseGrid(myLinkMap.getOrDefault("REGION_GRID", DEFAULT_GRID));
+        if (listed == null) {
+            listed = parseRegions(DEFAULT_REGIONS);
+        }
+        if (grid == null) {
+            grid = new ArrayList<>();
+        }
+        regions = new ArrayList<>(listed);
+        regions.addAll(grid);
+    }
+
+    /**
+     * parseRegions - rectangles of a REGIONS setting
+     * @param regionsStr - x,y,width,height of each rectangle, separated by ';'; or "none"
+     * @return List<Rect> - rectangles; null if the setting is not valid
+     */
+    public static List<Rect> parseRegions(String regionsStr) {
+        List<Rect> list = new ArrayList<>();
+        if (regionsStr.equals("none")) {
+            return list;
+        }
+        for (String rectStr : regionsStr.split(";")) {
+            int[] values = parseInts(rectStr, 4);
+            if ((values == null) || (values[2] <= 0) || (values[3] <= 0)) {
+                return null;
+            }
+            list.add(new Rect(values[0], values[1], values[2], values[3]));
+        }
+        return list;
+    }
+
+    /**
+     * parseGrid - cells of a REGION_GRID setting, row by row
+     * @param gridStr - x,y,width,height,columns,rows; or "none"
+     * @return List<Rect> - cells; null if the setting is not valid
+     */
+    public static List<Rect> parseGrid(String gridStr) {
+        List<Rect> list = new ArrayList<>();
+        if (gridStr.equals("none")) {
+            return list;
+        }
+        int[] values = parseInts(gridStr, 6);
+        if ((values == null) || (values[4] <= 0) || (values[5] <= 0) ||
+            (values[2] < values[4]) || (values[3] < values[5])) {
+            return null;
+        }
+        // cells share out the rectangle; their edges are rounded down
+        for (int row = 0; row < values[5]; row++) {
+            int y1 = values[1] + row       * values[3] / values[5];
+            int y2 = values[1] + (row + 1) * values[3] / values[5];
+            for (int col = 0; col < values[4]; col++) {
+                int x1 = values[0] + col       * values[2] / values[4];
+                int x2 = values[0] + (col + 1) * values[2] / values[4];
+                list.add(new Rect(x1, y1, x2 - x1, y2 - y1));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * parseInts - comma separated integers
+     * @param valuesStr - string to parse
+     * @param count     - number of integers expected
+     * @return int[] - integers; null if not count integers
+     */
+    static int[] parseInts(String valuesStr, int count) {
+        String[] chunks = valuesStr.split(",");
+        if (chunks.length != count) {
+            return null;
+        }
+        int[] values = new int[count];
+        try {
+            for (int i = 0; i < count; i++) {
+                values[i] = Integer.parseInt(chunks[i].trim());
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return values;
+    }
+
+    /**
+     * means - mean of the first channel of every region
+     * @param stats - RegionStats of the image
+     * @return double[] - one mean per region; NaN for a region outside the image
+     */
+    public double[] means(RegionStats stats) {
+        double[] means = new double[regions.size()];
+        for (int i = 0; i < means.length; i++) {
+            means[i] = stats.mean(regions.get(i))[0];
+        }
+        return means;
+    }
+
+    /**
+     * darkest - region with the darkest mean, compared as whole numbers
+     * @param means - one mean per region; NaN regions are passed over
+     * @return int - region number, from 1; 0 if no one region is darkest
+     */
+    public static int darkest(double[] means) {
+        int darkestRegion = 0;
+        int darkestMean   = Integer.MAX_VALUE;
+        for (int i = 0; i < means.length; i++) {
+            if (Double.isNaN(means[i])) {
+                continue;
+            }
+            int mean = (int) means[i];
+            if (mean < darkestMean) {
+                darkestMean   = mean;
+                darkestRegion = i + 1;
+            }
+            else if (mean == darkestMean) {
+                darkestRegion = 0;
+            }
+        }
+        return darkestRegion;
+    }
+
+    /**
+     * process - Overrides method in LinkStage; find SkyStone region.
+     * @param input - LinkData image
+     * @return LinkData - result text, same as written by the Link Gui
+     */
+    @Override
+    public LinkData process(LinkData input) {
+        RegionStats stats = new RegionStats();
+        stats.compute(input.toImage());
+        int skystoneRegion = darkest(means(stats));
+        stats.release();
+        return LinkData.fromResult("SkyStone is in region: "+skystoneRegion);
+    }
+}
@@ -0,0 +1,79 @@
+package julip;   // Java, Uh, Linked Image Processing (with OpenCV)
+
+import java.util.*;
+import java.util.List;
+
+import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * StageViewer - processing stage of LinkViewer and LinkToSpreadsheet; the viewers only show
+ *               their input, so pass it on. The pixel values they show are read from the
+ *               input in the color space of the COLORSPACE_TYPE setting, by pixelMat().
+ */
+public class StageViewer extends LinkStage {
+
+    public static final String[] COLORSPACE_STR = {
+        "Color_Space:BGR",
+        "Color_Space:HSV",
+        "Color_Space:YCrCb",
+        "Color_Space:Gray"
+    };
+
+    public int colorSpaceIdx;
+
+    /**
+     * parseSettings - Overrides method in LinkStage; copy settings out of myLinkMap.
+     *                 The color space only changes what is shown, not the output.
+     */
+    @Override
+    public void parseSettings() {
+        colorSpaceIdx = getIndex("COLORSPACE_TYPE", COLORSPACE_STR, 0);
+    }
+
+    /**
+     * pixelMat - image in the color space chosen, to read pixel values from
+     * @param image - BGR image
+     * @return Mat - image itself for BGR, else the conversion shared through ColorCache;
+     *               only to be read
+     */
+    public Mat pixelMat(Mat image) {
+        switch (colorSpaceIdx) {
+            case 1:
+                return ColorCache.shared.convert(image, Imgproc.COLOR_BGR2HSV);
+            case 2:
+                return ColorCache.shared.convert(image, Imgproc.COLOR_BGR2YCrCb);
+            case 3:
+                return ColorCache.shared.convert(image, Imgproc.COLOR_BGR2GRAY);
+            default:
+                return image;
+        }
+    }
+
+    /**
+     * viewMat - image to show and draw on; any 3-channel color space is shown as BGR,
+     *           and Gray as grayscale
+     * @param image - BGR image
+     * @return Mat - new image, owned by the caller
+     */
+    public Mat viewMat(Mat image) {
+        Mat view = new Mat();
+        if (colorSpaceIdx == 3) {
+            Imgproc.cvtColor(image, view, Imgproc.COLOR_BGR2GRAY);
+        }
+        else {
+            image.copyTo(view);
+        }
+        return view;
+    }
+
+    /**
+     * process - Overrides method in LinkStage; pass input on as is.
+     * @param input - LinkData image
+     * @return LinkData - same as input
+     */
+    @Override
+    public LinkData process(LinkData input) {
+        return input;
+    }
+}